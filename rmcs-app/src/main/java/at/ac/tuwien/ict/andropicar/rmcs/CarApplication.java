@@ -1,9 +1,12 @@
 package at.ac.tuwien.ict.andropicar.rmcs;
 
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Collection;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -18,13 +21,22 @@ import at.ac.tuwien.ict.andropicar.rmcs.connection.Connection;
 import at.ac.tuwien.ict.andropicar.rmcs.connection.ControlChangeQueueElement;
 import at.ac.tuwien.ict.andropicar.rmcs.gamepad.GamepadConnection;
 import at.ac.tuwien.ict.andropicar.rmcs.gamepad.GamepadManager;
+import at.ac.tuwien.ict.andropicar.rmcs.network.EOverflowPolicy;
 import at.ac.tuwien.ict.andropicar.rmcs.network.Keywords;
 import at.ac.tuwien.ict.andropicar.rmcs.network.ServerConnection;
+import at.ac.tuwien.ict.andropicar.rmcs.network.TelemetryQueue;
 import at.ac.tuwien.ict.andropicar.rmcs.stm32.RMCSComponentManager;
 import at.ac.tuwien.ict.andropicar.rmcs.data.EDataType;
+import at.ac.tuwien.ict.andropicar.rmcs.stm32.ESerialFrameMode;
+import at.ac.tuwien.ict.andropicar.rmcs.stm32.ESpiFrameMode;
+import at.ac.tuwien.ict.andropicar.rmcs.stm32.STM32Emulator;
 import at.ac.tuwien.ict.andropicar.rmcs.stm32.STM32SpiInterface;
 import at.ac.tuwien.ict.andropicar.rmcs.stm32.STM32UartInterface;
-import at.ac.tuwien.ict.andropicar.rmcs.data.IData;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataEventProcessor;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataJournal;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataJournalReplay;
+import at.ac.tuwien.ict.andropicar.rmcs.data.EWaitStrategy;
 import at.ac.tuwien.ict.andropicar.rmcs.ui.ConsoleUI;
 
 
@@ -71,6 +83,9 @@ public class CarApplication{
 	/** The UI that displays all relevant information. */
 	private ConsoleUI ui = new ConsoleUI();
 	
+	/** The journal that records all data on the bus, if recording was requested (see {@link #startJournal(DataBus, CommandLine)}). */
+	private DataJournal dataJournal;
+	
 	
 	private CarApplication() {
 		//add a Shutdown hook to be able to close the connection, when program is closed
@@ -78,6 +93,8 @@ public class CarApplication{
 			public void run(){
 				if(serverConnection != null)
 					serverConnection.closeConnection();
+				if(dataJournal != null)
+					dataJournal.close();
 			}
 		});
 	}
@@ -94,18 +111,35 @@ public class CarApplication{
 	 */
 	private void initialize(String[] args){
 		
+		CommandLine cl = parseArguments(args);
+		boolean hasSensors = processArguments(cl);
+		STM32Emulator emulator = createEmulator(cl);
+		File replayDirectory = findReplayDirectory(cl, emulator);
+		
 		// sensor-update-interval in milliseconds
 		int sensorUpdateInterval = 500;
-		LinkedBlockingQueue<IData> dataQueue = new LinkedBlockingQueue<>();
+		DataBus dataBus = new DataBus(EWaitStrategy.BLOCKING);
+		// carInterfaceManager must be instantiated before anything is published on the dataBus, so that it does not miss any data
+		carInterfaceManager = new RMCSComponentManager(dataBus);
+		// the journal must be registered on the dataBus before anything is published as well, but it would record the replayed data again
+		if(replayDirectory == null)
+			startJournal(dataBus, cl);
+		else if(cl.hasOption("journal"))
+			System.out.println("No journal will be recorded, since a journal is replayed.");
 		
 		// serverConnection must be instantiated first, so that it has an ID of 1 (important for the gamepadConnections)
-		this.serverConnection = new ServerConnection(dataQueue, this.controlChangeQueue, this.serverIp, 6633, this.carId, this.properties);
+		this.serverConnection = new ServerConnection(dataBus, this.controlChangeQueue, this.serverIp, 6633, this.carId, this.properties);
 		this.serverConnection.registerUI(this.ui);
+		configureTelemetryBatching(cl);
+		configureTelemetryQueue(cl);
+		configureHeartbeat(cl);
+		this.serverConnection.setBinaryProtocolEnabled(!cl.hasOption("json"));
+		configureDatagramControl(cl);
 		(new Thread(this.serverConnection, "Server-Connection")).start();
 		this.connections.add(this.serverConnection);
 		
 		// gamepadManager must be instantiated last, so that the last registered gamepad has the highest id (important for controlChanges between gamepads)
-		this.gamepadManager = new GamepadManager(this.carId, dataQueue, this.controlChangeQueue);
+		this.gamepadManager = new GamepadManager(this.carId, dataBus, this.controlChangeQueue);
 		this.gamepadManager.registerUI(this.ui);
 		
 		while(!this.gamepadManager.isReady()){
@@ -118,21 +152,32 @@ public class CarApplication{
 		for(Connection connection : this.gamepadManager.getgamepadConnections())
 			this.connections.add(connection);
 		
-		boolean hasSensors = processArguments(args);
-		carInterfaceManager = new RMCSComponentManager(dataQueue);
+		processGamepadArguments(cl);
 		
 		Collection<EDataType> spiControlTypes = new ArrayList<>();
 		spiControlTypes.add(EDataType.DRIVECONTROL);
 		spiControlTypes.add(EDataType.CAMERACONTROL);
 		spiControlTypes.add(EDataType.LIGHTCONTROL);
-		this.stmSpiConnection = new STM32SpiInterface(spiControlTypes, sensorUpdateInterval);
+		ESerialFrameMode uartFrameMode = findUartFrameMode(cl);
+		if(emulator != null)
+			emulator.setSerialFrameMode(uartFrameMode);
+		if(emulator != null)
+			this.stmSpiConnection = new STM32SpiInterface(emulator, spiControlTypes, sensorUpdateInterval);
+		else
+			this.stmSpiConnection = new STM32SpiInterface(spiControlTypes, sensorUpdateInterval);
+		configureSpiFrameMode(cl);
+		configureActuatorRefresh(cl);
 		this.carInterfaceManager.addCarComponent(this.stmSpiConnection);
 		(new Thread(this.stmSpiConnection, "STM32-SPI-Connection")).start();
 		
-		if(hasSensors){
-			this.stmUartConnection = new STM32UartInterface(dataQueue, sensorUpdateInterval);
+		if(hasSensors && emulator != null)
+			this.stmUartConnection = new STM32UartInterface(emulator, dataBus, sensorUpdateInterval);
+		else if(hasSensors){
+			this.stmUartConnection = new STM32UartInterface(dataBus, sensorUpdateInterval);
 			//this.carInterfaceManager.addCarComponent(this.stmUartConnection);	// this doesn't make sense, wrong usage
 		}
+		if(this.stmUartConnection != null)
+			this.stmUartConnection.setFrameMode(uartFrameMode);
 		
 		// not yet needed
 		//this.carInterfaces.add(stmSpiConnection);
@@ -140,19 +185,199 @@ public class CarApplication{
 
 		this.carInterfaceManager.addDataListener(this.serverConnection, EDataType.SENSOR);
 		(new Thread(this.carInterfaceManager, "Car-Interface-Manager")).start();
+		
+		if(replayDirectory != null)
+			(new Thread(new DataJournalReplay(replayDirectory, dataBus, true), "Journal-Replay")).start();
 	}
 	
 	/**
-	 * A set of arguments can be entered upon start, which will be processed by this method.<br>
-	 * A list of possible arguments can be shown by starting the application with the help-flag (-h or --help).
-	 * @param args the list of Strings that are passed along upon application-start.
-	 * @return true, if the RMCS has sensors, otherwise false.
+	 * Configures how the {@link ServerConnection} batches sensor-data, if the corresponding options were passed.
+	 * @param cl the arguments that were passed upon application-start.
 	 */
-	private boolean processArguments(String[] args){
-		
-		boolean hasSensors = false;
+	private void configureTelemetryBatching(CommandLine cl){
+		long flushWindow = ServerConnection.DEFAULT_TELEMETRY_FLUSH_WINDOW;
+		int flushSamples = ServerConnection.DEFAULT_TELEMETRY_FLUSH_SAMPLES;
+		try{
+			String value;
+			if((value = cl.getOptionValue("telemetry-window")) != null)
+				flushWindow = Long.parseLong(value);
+			if((value = cl.getOptionValue("telemetry-samples")) != null)
+				flushSamples = Integer.parseInt(value);
+		} catch(NumberFormatException nfe){
+			flushWindow = ServerConnection.DEFAULT_TELEMETRY_FLUSH_WINDOW;
+			flushSamples = ServerConnection.DEFAULT_TELEMETRY_FLUSH_SAMPLES;
+			System.out.println("Invalid telemetry-batching entered. Default values will be used (" + flushWindow + " ms, " + flushSamples + " samples).");
+		}
+		this.serverConnection.setTelemetryBatching(flushWindow, flushSamples);
+	}
+	
+	/**
+	 * Configures the queue that holds the sensor-data of the {@link ServerConnection} until it is sent, if the corresponding options were passed.
+	 * @param cl the arguments that were passed upon application-start.
+	 */
+	private void configureTelemetryQueue(CommandLine cl){
+		int capacity = TelemetryQueue.DEFAULT_CAPACITY;
+		EOverflowPolicy overflowPolicy = TelemetryQueue.DEFAULT_OVERFLOW_POLICY;
+		try{
+			String value;
+			if((value = cl.getOptionValue("telemetry-queue")) != null)
+				capacity = Integer.parseInt(value);
+			if((value = cl.getOptionValue("telemetry-overflow")) != null)
+				overflowPolicy = EOverflowPolicy.valueOf(value.toUpperCase().replace('-', '_'));
+		} catch(IllegalArgumentException iae){
+			capacity = TelemetryQueue.DEFAULT_CAPACITY;
+			overflowPolicy = TelemetryQueue.DEFAULT_OVERFLOW_POLICY;
+			System.out.println("Invalid telemetry-queue entered. Default values will be used (" + capacity + " samples, " + overflowPolicy + ").");
+		}
+		this.serverConnection.setTelemetryQueue(capacity, overflowPolicy);
+	}
+	
+	/**
+	 * Configures the heartbeats of the {@link ServerConnection}, if the corresponding options were passed.
+	 * @param cl the arguments that were passed upon application-start.
+	 */
+	private void configureHeartbeat(CommandLine cl){
+		long interval = ServerConnection.DEFAULT_HEARTBEAT_INTERVAL;
+		int missedHeartbeats = ServerConnection.DEFAULT_MISSED_HEARTBEATS;
+		try{
+			String value;
+			if((value = cl.getOptionValue("heartbeat")) != null)
+				interval = Long.parseLong(value);
+			if((value = cl.getOptionValue("missed-heartbeats")) != null)
+				missedHeartbeats = Integer.parseInt(value);
+		} catch(NumberFormatException nfe){
+			interval = ServerConnection.DEFAULT_HEARTBEAT_INTERVAL;
+			missedHeartbeats = ServerConnection.DEFAULT_MISSED_HEARTBEATS;
+			System.out.println("Invalid heartbeat entered. Default values will be used (" + interval + " ms, " + missedHeartbeats + " heartbeats).");
+		}
+		this.serverConnection.setHeartbeat(interval, missedHeartbeats);
+	}
+	
+	/**
+	 * Lets the {@link ServerConnection} receive drive- and camera-control-data via UDP, if a port was passed via the udp-port-option.
+	 * @param cl the arguments that were passed upon application-start.
+	 */
+	private void configureDatagramControl(CommandLine cl){
+		String port = cl.getOptionValue("udp-port");
+		if(port == null)
+			return;
+		try{
+			this.serverConnection.setDatagramControlPort(Integer.parseInt(port));
+		} catch(NumberFormatException nfe){
+			System.out.println("Invalid UDP-port entered. Control-data will only be received via TCP.");
+		}
+	}
+	
+	/**
+	 * Creates an {@link STM32Emulator}, that takes the place of the STM32, if the emulate-stm32-option was passed.
+	 * @param cl the arguments that were passed upon application-start.
+	 * @return the emulator, or null if the real STM32 should be used.
+	 */
+	private static STM32Emulator createEmulator(CommandLine cl){
+		String sensorRate = cl.getOptionValue("emulate-stm32");
+		if(sensorRate == null)
+			return null;
+		try{
+			return new STM32Emulator(Integer.parseInt(sensorRate));
+		} catch(NumberFormatException nfe){
+			System.out.println("Invalid sensor-rate of the emulated STM32 entered. Sensor-data will only be sent on request.");
+			return new STM32Emulator(0);
+		}
+	}
+	
+	/**
+	 * A journal is only replayed onto the bus, if the STM32 is emulated, since the replayed control-data would drive the car otherwise.
+	 * @param cl the arguments that were passed upon application-start.
+	 * @param emulator the emulator that takes the place of the STM32, or null if the real STM32 is used.
+	 * @return the directory of the journal that was passed via the replay-option, or null if no journal should be replayed.
+	 */
+	private static File findReplayDirectory(CommandLine cl, STM32Emulator emulator){
+		String replayDirectory = cl.getOptionValue("replay");
+		if(replayDirectory == null)
+			return null;
+		if(emulator == null){
+			System.out.println("A journal can only be replayed while the STM32 is emulated (emulate-stm32-option). The journal will not be replayed.");
+			return null;
+		}
+		return new File(replayDirectory);
+	}
+	
+	/**
+	 * @param cl the arguments that were passed upon application-start.
+	 * @return the mode that the STM32 frames the sensor-data in, that was passed via the uart-frame-option, or the default mode.
+	 */
+	private static ESerialFrameMode findUartFrameMode(CommandLine cl){
+		String frameMode = cl.getOptionValue("uart-frame");
+		if(frameMode == null)
+			return STM32UartInterface.DEFAULT_FRAME_MODE;
+		try{
+			return ESerialFrameMode.valueOf(frameMode.toUpperCase());
+		} catch(IllegalArgumentException iae){
+			System.out.println("Invalid UART-frame-mode entered. Default value will be used (" + STM32UartInterface.DEFAULT_FRAME_MODE + ").");
+			return STM32UartInterface.DEFAULT_FRAME_MODE;
+		}
+	}
+	
+	/**
+	 * Configures how the {@link STM32SpiInterface} transmits control-data, if the spi-frame-option was passed.
+	 * @param cl the arguments that were passed upon application-start.
+	 */
+	private void configureSpiFrameMode(CommandLine cl){
+		String frameMode = cl.getOptionValue("spi-frame");
+		if(frameMode == null)
+			return;
+		try{
+			this.stmSpiConnection.setFrameMode(ESpiFrameMode.valueOf(frameMode.toUpperCase()));
+		} catch(IllegalArgumentException iae){
+			System.out.println("Invalid SPI-frame-mode entered. Default value will be used (" + STM32SpiInterface.DEFAULT_FRAME_MODE + ").");
+		}
+	}
+	
+	/**
+	 * Configures how often the {@link STM32SpiInterface} sends the whole state of the actuators again, if the actuator-refresh-option was passed.
+	 * @param cl the arguments that were passed upon application-start.
+	 */
+	private void configureActuatorRefresh(CommandLine cl){
+		String refreshInterval = cl.getOptionValue("actuator-refresh");
+		if(refreshInterval == null)
+			return;
+		try{
+			long interval = Long.parseLong(refreshInterval);
+			if(interval < 0)
+				throw new NumberFormatException();
+			this.stmSpiConnection.setRefreshInterval(interval);
+		} catch(NumberFormatException nfe){
+			System.out.println("Invalid actuator-refresh-interval entered. Default value will be used (" + STM32SpiInterface.DEFAULT_REFRESH_INTERVAL + " ms).");
+		}
+	}
+	
+	/**
+	 * Starts recording all data on the passed bus into a new subdirectory of the journal-directory, if one was passed via the journal-option.<br>
+	 * Each lane of the bus is recorded by its own thread, so the journal never holds back the other lane.
+	 * @param dataBus the bus to be recorded.
+	 * @param cl the arguments that were passed upon application-start.
+	 */
+	private void startJournal(DataBus dataBus, CommandLine cl){
+		String journalDirectory = cl.getOptionValue("journal");
+		if(journalDirectory == null)
+			return;
 		
-		// create the Options
+		File directory = new File(journalDirectory, new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+		try{
+			this.dataJournal = new DataJournal(directory, DataJournal.DEFAULT_SEGMENT_SIZE);
+		} catch(IOException ioe){
+			System.out.println("Error creating the journal in " + directory + "!\n" + ioe.getMessage());
+			return;
+		}
+		(new Thread(new DataEventProcessor(dataBus.getControlLane().newConsumer(), this.dataJournal), "Journal (Control-Frames)")).start();
+		(new Thread(new DataEventProcessor(dataBus.getSensorLane().newConsumer(), this.dataJournal), "Journal (Sensor-Data)")).start();
+		System.out.println("Recording all data to " + directory + ".");
+	}
+	
+	/**
+	 * @return the options that can be entered upon start.
+	 */
+	private static Options createOptions(){
 		Options options = new Options();
 		options.addOption("S", "server-ip", true, "the servers ip-adress. a range of 20 addresses will be tried repeatedly, continuously counting upwards upon failure. default value: 192.168.1.100");
 		options.addOption("I", "id", true, "the id this car should have and use for identification at the server. default value: 1001");
@@ -168,117 +393,162 @@ public class CarApplication{
 		options.addOption("", "show-gamepads", false, "prints a list of all connected gamepads and their buttons / sticks / triggers. Application will exit afterwards");
 		options.addOption("", "print-gamepads", false, "prints a list of all connected gamepads and their buttons / sticks / triggers. Application will exit afterwards");
 		options.addOption("", "test-gamepad", false, "allows to test all the controls of the first gamepad, the application finds. this option only supports one gamepad");
+		options.addOption("", "journal", true, "records all control- and sensor-data into a new subdirectory of the passed directory");
+		options.addOption("", "replay", true, "replays a journal from the passed directory in real-time, in addition to the live data. requires the emulate-stm32-option, so the replayed control-data does not drive the car, and no journal is recorded meanwhile");
+		options.addOption("", "telemetry-window", true, "the time in milliseconds that sensor-data is collected for, before it is sent to the server in a single write. 0 sends every sample immediately. default value: " + ServerConnection.DEFAULT_TELEMETRY_FLUSH_WINDOW);
+		options.addOption("", "telemetry-samples", true, "the number of samples of sensor-data that are sent to the server at once at most. default value: " + ServerConnection.DEFAULT_TELEMETRY_FLUSH_SAMPLES);
+		options.addOption("", "telemetry-queue", true, "the number of samples of sensor-data that wait to be sent to the server at most. default value: " + TelemetryQueue.DEFAULT_CAPACITY);
+		options.addOption("", "telemetry-overflow", true, "what is dropped once the telemetry-queue is full: keep-latest (the oldest sample of the same sensor), drop-oldest (the oldest sample) or sample (all but every " + TelemetryQueue.SAMPLE_RATE + "th new sample). default value: keep-latest");
+		options.addOption("", "heartbeat", true, "the time in milliseconds between two heartbeats, that measure the round-trip-time to the server. 0 disables heartbeats and the detection of stale connections. default value: " + ServerConnection.DEFAULT_HEARTBEAT_INTERVAL);
+		options.addOption("", "missed-heartbeats", true, "the number of heartbeats without any data from the server, after which the connection is considered stale and reestablished. default value: " + ServerConnection.DEFAULT_MISSED_HEARTBEATS);
+		options.addOption("", "json", false, "tells the application to only use JSON to communicate with the server, instead of offering the binary protocol");
+		options.addOption("", "udp-port", true, "additionally receives drive- and camera-control-data via UDP on the passed port (0 for any free port), which is announced to the server with the properties");
+		options.addOption("", "spi-frame", true, "how control-data is sent to the STM32: legacy (a 2-byte command per value) or batched (all values of an update in a single frame, requires a supporting firmware). default value: legacy");
+		options.addOption("", "uart-frame", true, "how the STM32 sends sensor-data: legacy (unframed 4-byte distance-records) or framed (distance- and velocity-frames with sync-bytes and a checksum, requires a supporting firmware). default value: legacy");
+		options.addOption("", "actuator-refresh", true, "the time in milliseconds, after which the whole state of the actuators is sent to the STM32 again, to cover lost transactions (only changes are sent in between). 0 disables the refresh. default value: " + STM32SpiInterface.DEFAULT_REFRESH_INTERVAL);
+		options.addOption("", "emulate-stm32", true, "replaces the STM32 by an in-memory emulator, that sends the passed number of distance- and velocity-frames per second (0 to only send them on request), so the RMCS can be run without a Raspberry Pi");
 		options.addOption("h", "help", false, "prints this message");
-		
+		return options;
+	}
+	
+	/**
+	 * Parses the arguments that were entered upon start, so that all components can be configured from them.<br>
+	 * A list of possible arguments can be shown by starting the application with the help-flag (-h or --help).
+	 * If the arguments cannot be parsed, the list is shown and the application exits.
+	 * @param args the list of Strings that are passed along upon application-start.
+	 * @return the parsed arguments.
+	 */
+	private static CommandLine parseArguments(String[] args){
+		Options options = createOptions();
+		HelpFormatter formatter = new HelpFormatter();
+		CommandLine cl = null;
 		try{
 			// create the command line parser
 			CommandLineParser clp = new DefaultParser();
 			// parse the command line arguments
-			CommandLine cl = clp.parse(options, args);
-			
-			// process command line arguments
-			
-			if(cl.hasOption("server-ip")){
-				try {
-					// check if the entered IP-address is valid
-					new InetSocketAddress(cl.getOptionValue("server-ip"), 1);
-					this.serverIp = cl.getOptionValue("server-ip");
-				} catch(IllegalArgumentException iae){
-					System.out.println("Invalid server-IP-address entered. Default IP will be used (192.168.1.100).");
-				}
+			cl = clp.parse(options, args);
+		} catch(ParseException pe){
+			System.out.println("Invalid arguments entered: " + pe.getMessage());
+			formatter.printHelp("java -jar FilePath [OPTIONS]", options);
+			System.exit(1);
+		}
+		if(cl.hasOption("help")){
+			// generate the help statement
+			formatter.printHelp("java -jar FilePath [OPTIONS]", options);
+		}
+		return cl;
+	}
+	
+	/**
+	 * A set of arguments can be entered upon start, the ones that describe the car are processed by this method.
+	 * It has to be called before the {@link ServerConnection} is instantiated, since it uses the servers IP-address, the cars ID and its properties.
+	 * @param cl the arguments that were passed upon application-start.
+	 * @return true, if the RMCS has sensors, otherwise false.
+	 */
+	private boolean processArguments(CommandLine cl){
+		
+		boolean hasSensors = false;
+		
+		if(cl.hasOption("server-ip")){
+			try {
+				// check if the entered IP-address is valid
+				new InetSocketAddress(cl.getOptionValue("server-ip"), 1);
+				this.serverIp = cl.getOptionValue("server-ip");
+			} catch(IllegalArgumentException iae){
+				System.out.println("Invalid server-IP-address entered. Default IP will be used (192.168.1.100).");
 			}
-			if(cl.hasOption("id")){
-				try{
-					// check if the entered ID is valid
-					long id = Long.parseLong(cl.getOptionValue("id"));
-					if(id > 0)
-						this.carId = id;
-				}catch(NumberFormatException nfe){
-					System.out.println("Invalid car-ID entered. Default ID will be used (1001).");
-				}
+		}
+		if(cl.hasOption("id")){
+			try{
+				// check if the entered ID is valid
+				long id = Long.parseLong(cl.getOptionValue("id"));
+				if(id > 0)
+					this.carId = id;
+			}catch(NumberFormatException nfe){
+				System.out.println("Invalid car-ID entered. Default ID will be used (1001).");
 			}
-			if(cl.hasOption("camera")){
-				this.properties.add("camera");
-				try{
-					// TODO this is going to be changed to something different?
-					// start the camera stream
-					Process cameraProcess = Runtime.getRuntime().exec(new String[] 
-							{"/bin/sh", "-c", "/usr/bin/raspivid -n -ih -t 0 -rot 180 -w 640 -h 480 -roi 0.25,0.25,0.5,0.5 -fps 60 -b 8000000 -o - | /bin/nc -lkv4 5001"});
-					// pipe the streams of the above command to the corresponding standard-streams of this application
-					new Thread(new SyncPipe(cameraProcess.getErrorStream(), System.err)).start();
-				    new Thread(new SyncPipe(cameraProcess.getInputStream(), System.out)).start();
-				} catch(IOException ioe){
-					System.out.println("Error starting the camera stream!\n" + ioe.getMessage());
-				}
+		}
+		if(cl.hasOption("camera")){
+			this.properties.add("camera");
+			try{
+				// TODO this is going to be changed to something different?
+				// start the camera stream
+				Process cameraProcess = Runtime.getRuntime().exec(new String[] 
+						{"/bin/sh", "-c", "/usr/bin/raspivid -n -ih -t 0 -rot 180 -w 640 -h 480 -roi 0.25,0.25,0.5,0.5 -fps 60 -b 8000000 -o - | /bin/nc -lkv4 5001"});
+				// pipe the streams of the above command to the corresponding standard-streams of this application
+				new Thread(new SyncPipe(cameraProcess.getErrorStream(), System.err)).start();
+			    new Thread(new SyncPipe(cameraProcess.getInputStream(), System.out)).start();
+			} catch(IOException ioe){
+				System.out.println("Error starting the camera stream!\n" + ioe.getMessage());
 			}
-			if(cl.hasOption("lights"))
-				this.properties.add("lights");
-			if(cl.hasOption("winkers"))
-				this.properties.add("winkers");
-			if(cl.hasOption("sensors")) {
+		}
+		if(cl.hasOption("lights"))
+			this.properties.add("lights");
+		if(cl.hasOption("winkers"))
+			this.properties.add("winkers");
+		if(cl.hasOption("sensors")) {
+			this.properties.add(Keywords.ultrasonicSensor);
+			this.properties.add(Keywords.leftInfraredSensor);
+			this.properties.add(Keywords.rightInfraredSensor);
+			this.properties.add(Keywords.hallSensor);
+			hasSensors = true;
+		}
+		else {
+			if(cl.hasOption("frontDistanceSensor")) {
 				this.properties.add(Keywords.ultrasonicSensor);
-				this.properties.add(Keywords.leftInfraredSensor);
-				this.properties.add(Keywords.rightInfraredSensor);
-				this.properties.add(Keywords.hallSensor);
 				hasSensors = true;
 			}
-			else {
-				if(cl.hasOption("frontDistanceSensor")) {
-					this.properties.add(Keywords.ultrasonicSensor);
-					hasSensors = true;
-				}
-				if(cl.hasOption("leftDistanceSensor")) {
-					this.properties.add(Keywords.leftInfraredSensor);
-					hasSensors = true;
-				}
-				if(cl.hasOption("rightDistanceSensor")) {
-					this.properties.add(Keywords.rightInfraredSensor);
-					hasSensors = true;
-				}
-				if(cl.hasOption("velocitySensor")) {
-					this.properties.add(Keywords.hallSensor);
-					hasSensors = true;
-				}
-			}
-			if(cl.hasOption("gamepad")){
-				try{
-					this.controlChangeQueue.put(new ControlChangeQueueElement(this.connections.size()-this.gamepadManager.getNumberOfAvailableGamepads()+1, EDataType.DRIVECONTROL));
-					this.controlChangeQueue.put(new ControlChangeQueueElement(this.connections.size()-this.gamepadManager.getNumberOfAvailableGamepads()+1, EDataType.CAMERACONTROL));
-					this.controlChangeQueue.put(new ControlChangeQueueElement(this.connections.size()-this.gamepadManager.getNumberOfAvailableGamepads()+1, EDataType.LIGHTCONTROL));
-				} catch(InterruptedException ie){
-					ie.printStackTrace();
-				}
-			}
-			else{
-				try{
-					this.controlChangeQueue.put(new ControlChangeQueueElement(1, EDataType.DRIVECONTROL));
-					this.controlChangeQueue.put(new ControlChangeQueueElement(1, EDataType.CAMERACONTROL));
-					this.controlChangeQueue.put(new ControlChangeQueueElement(1, EDataType.LIGHTCONTROL));
-				} catch(InterruptedException ie){
-					ie.printStackTrace();
-				}
-			}
-			if(cl.hasOption("show-gamepads") || cl.hasOption("print-gamepads")){
-				this.gamepadManager.printGamepads();
-				System.exit(0);
+			if(cl.hasOption("leftDistanceSensor")) {
+				this.properties.add(Keywords.leftInfraredSensor);
+				hasSensors = true;
 			}
-			if(cl.hasOption("test-gamepad")){
-				this.gamepadManager.testControls();
-				System.exit(0);
+			if(cl.hasOption("rightDistanceSensor")) {
+				this.properties.add(Keywords.rightInfraredSensor);
+				hasSensors = true;
 			}
-			if(cl.hasOption("help")){
-				// generate the help statement
-				HelpFormatter formatter = new HelpFormatter();
-				formatter.printHelp( "java -jar FilePath [OPTIONS]", options );
+			if(cl.hasOption("velocitySensor")) {
+				this.properties.add(Keywords.hallSensor);
+				hasSensors = true;
 			}
-			
-		} catch(ParseException pe){
-			pe.printStackTrace();
 		}
 		
 		return hasSensors;
 	}
 	
+	/**
+	 * Processes the arguments that concern the gamepads, which requires the {@link #gamepadManager} to be ready.
+	 * @param cl the arguments that were passed upon application-start.
+	 */
+	private void processGamepadArguments(CommandLine cl){
+		
+		if(cl.hasOption("gamepad")){
+			try{
+				this.controlChangeQueue.put(new ControlChangeQueueElement(this.connections.size()-this.gamepadManager.getNumberOfAvailableGamepads()+1, EDataType.DRIVECONTROL));
+				this.controlChangeQueue.put(new ControlChangeQueueElement(this.connections.size()-this.gamepadManager.getNumberOfAvailableGamepads()+1, EDataType.CAMERACONTROL));
+				this.controlChangeQueue.put(new ControlChangeQueueElement(this.connections.size()-this.gamepadManager.getNumberOfAvailableGamepads()+1, EDataType.LIGHTCONTROL));
+			} catch(InterruptedException ie){
+				ie.printStackTrace();
+			}
+		}
+		else{
+			try{
+				this.controlChangeQueue.put(new ControlChangeQueueElement(1, EDataType.DRIVECONTROL));
+				this.controlChangeQueue.put(new ControlChangeQueueElement(1, EDataType.CAMERACONTROL));
+				this.controlChangeQueue.put(new ControlChangeQueueElement(1, EDataType.LIGHTCONTROL));
+			} catch(InterruptedException ie){
+				ie.printStackTrace();
+			}
+		}
+		if(cl.hasOption("show-gamepads") || cl.hasOption("print-gamepads")){
+			this.gamepadManager.printGamepads();
+			System.exit(0);
+		}
+		if(cl.hasOption("test-gamepad")){
+			this.gamepadManager.testControls();
+			System.exit(0);
+		}
+	}
+	
 	
 	/**
 	 * Processes all the control-change-events (via putting an element on the {@link CarApplication#controlChangeQueue}) and updates all connections in {@link CarApplication#connections}.<br>
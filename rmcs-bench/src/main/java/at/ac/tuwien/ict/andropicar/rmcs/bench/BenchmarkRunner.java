@@ -0,0 +1,42 @@
+package at.ac.tuwien.ict.andropicar.rmcs.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Runs the benchmarks of the RMCS with the {@link GCProfiler}, so every benchmark reports its allocation-rate in addition to its throughput and average time.<br>
+ * All options of JMH can be passed as arguments, e.g. a regular expression to select the benchmarks, or "-rf json -rff results.json" to store the results,
+ * so they can be compared from release to release.
+ *
+ * @author Boeck
+ */
+public class BenchmarkRunner {
+
+	private BenchmarkRunner() {}
+
+
+	/**
+	 * Runs the benchmarks that are selected by the passed arguments.
+	 * @param args the options of JMH.
+	 */
+	public static void main(String[] args) {
+		try {
+			Options options = new OptionsBuilder()
+					.parent(new CommandLineOptions(args))
+					.addProfiler(GCProfiler.class)
+					.build();
+			new Runner(options).run();
+		} catch(CommandLineOptionException cloe) {
+			System.err.println("Invalid benchmark-options: " + cloe.getMessage());
+		} catch(RunnerException re) {
+			re.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures how control-data is handed over: the legacy {@link UniqueLinkedBlockingQueue} at several depths,
+ * compared to the {@link ControlFrameMailbox} and a round-trip over a {@link DataRingBuffer}.
+ *
+ * @author Boeck
+ */
+@SuppressWarnings("deprecation")
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ControlDataQueueBenchmark {
+
+	/** Elements of distinct classes, that the {@link #queue} is filled with, so every put has to scan them. */
+	private static final Object[] FILLERS = {new Object(), "", 0, 0L, 0.0, 0f, (short) 0, (byte) 0, 'c', Boolean.TRUE,
+			new ArrayList<>(), new HashMap<>(), new int[0], new long[0], new StringBuilder()};
+
+	/** The number of other elements in the {@link #queue}. */
+	@Param({"0", "3", "15"})
+	private int depth;
+
+	/** The control-data-sets that are put, one of each type. */
+	private IControlData[] controlData;
+
+	/** The control-frames that are put, one of each group. */
+	private long[] controlFrames;
+
+	/** The index of the next data-set to be put. */
+	private int next;
+
+	/** The legacy queue, that holds {@link #depth} other elements. */
+	private UniqueLinkedBlockingQueue<Object> queue;
+
+	/** The conflating mailbox for control-frames. */
+	private ControlFrameMailbox controlFrameMailbox;
+
+	/** The ring-buffer, that every control-frame is published on and consumed from. */
+	private DataRingBuffer ringBuffer;
+
+	/** The only consumer of the {@link #ringBuffer}. */
+	private DataEventConsumer consumer;
+
+	/** Does nothing with the events, so only the hand-over is measured. */
+	private IDataEventHandler handler = new IDataEventHandler() {
+		@Override
+		public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {}
+	};
+
+
+	/**
+	 * Creates the data-sets and fills the {@link #queue} up to the {@link #depth}.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws InterruptedException {
+		this.controlData = new IControlData[] {new DriveControlData(20, -10, false), new CameraControlData(5, -5),
+				new LightControlData(true, false, true, false, false)};
+		this.controlFrames = new long[this.controlData.length];
+		for(int i = 0; i < this.controlData.length; i++)
+			this.controlFrames[i] = ControlFrame.of(this.controlData[i]);
+
+		this.queue = new UniqueLinkedBlockingQueue<>();
+		for(int i = 0; i < this.depth; i++)
+			this.queue.put(FILLERS[i]);
+		this.controlFrameMailbox = new ControlFrameMailbox();
+		this.ringBuffer = new DataRingBuffer(1024, EWaitStrategy.BLOCKING);
+		this.consumer = this.ringBuffer.newConsumer();
+	}
+
+	/**
+	 * @return the index of the next data-set to be put.
+	 */
+	private int next() {
+		return this.next = (this.next + 1) % this.controlData.length;
+	}
+
+	/**
+	 * Puts the next data-set into the legacy queue, replacing the one of the same type.
+	 */
+	@Benchmark
+	public void uniqueLinkedBlockingQueuePut() throws InterruptedException {
+		this.queue.put(this.controlData[next()]);
+	}
+
+	/**
+	 * Merges the next control-frame into the mailbox for control-frames.
+	 */
+	@Benchmark
+	public boolean controlFrameMailboxPut() {
+		return this.controlFrameMailbox.put(this.controlFrames[next()]);
+	}
+
+	/**
+	 * Publishes the next control-frame on the ring-buffer and consumes it.
+	 */
+	@Benchmark
+	public int ringBufferPublishAndProcess() throws InterruptedException {
+		long sequence = this.ringBuffer.next();
+		this.ringBuffer.get(sequence).setControlFrame(1, this.controlFrames[next()], sequence);
+		this.ringBuffer.publish(sequence);
+		return this.consumer.process(this.handler);
+	}
+
+}
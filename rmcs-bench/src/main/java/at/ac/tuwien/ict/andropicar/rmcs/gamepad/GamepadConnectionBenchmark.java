@@ -0,0 +1,123 @@
+package at.ac.tuwien.ict.andropicar.rmcs.gamepad;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.ac.tuwien.ict.andropicar.rmcs.connection.ControlChangeQueueElement;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
+import at.ac.tuwien.ict.andropicar.rmcs.data.EDataType;
+import at.ac.tuwien.ict.andropicar.rmcs.data.EWaitStrategy;
+import net.java.games.input.AbstractComponent;
+import net.java.games.input.AbstractController;
+import net.java.games.input.Component;
+import net.java.games.input.Controller;
+import net.java.games.input.Event;
+import net.java.games.input.Rumbler;
+
+
+/**
+ * Measures how a {@link GamepadConnection} processes one tick of input of an XBox-gamepad, that is in control of the drive and the lights.<br>
+ * The gamepad is simulated, so no native library of jinput is needed. Its sticks and triggers move and a winker is toggled on every tick.
+ *
+ * @author Boeck
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GamepadConnectionBenchmark {
+
+	/**
+	 * A component of the simulated gamepad, whose value is set directly.
+	 */
+	private static class SimulatedComponent extends AbstractComponent {
+
+		/** The current value of this component. */
+		private float value;
+
+		private SimulatedComponent(int index) {
+			super("Component " + index, Component.Identifier.Button.UNKNOWN);
+		}
+
+		@Override
+		protected float poll() {
+			return this.value;
+		}
+
+		@Override
+		public boolean isRelative() {
+			return false;
+		}
+	}
+
+	/**
+	 * A gamepad, whose components are {@link SimulatedComponent}s and that never reports events.
+	 */
+	private static class SimulatedGamepad extends AbstractController {
+
+		private SimulatedGamepad(Component[] components) {
+			super("Simulated Gamepad", components, new Controller[0], new Rumbler[0]);
+		}
+
+		@Override
+		protected boolean getNextDeviceEvent(Event event) {
+			return false;
+		}
+	}
+
+	/** The components of the simulated gamepad. */
+	private SimulatedComponent[] components;
+
+	/** The connection that processes the input of the simulated gamepad. */
+	private GamepadConnection gamepadConnection;
+
+	/** The number of ticks that have been processed. */
+	private int tick;
+
+	/** Passed to {@link GamepadConnection#processInput(Long, Long, Long, Long, Long)}, like it is done by {@link GamepadConnection#run()}. */
+	private Long notPressed = new Long(-1);
+
+
+	/**
+	 * Creates the simulated gamepad and a {@link GamepadConnection}, that is in control of the drive and the lights.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		this.components = new SimulatedComponent[new XBoxControllerMapping().getNumberOfElements()];
+		for(int i = 0; i < this.components.length; i++)
+			this.components[i] = new SimulatedComponent(i);
+		this.gamepadConnection = new GamepadConnection(1001, new DataBus(EWaitStrategy.BLOCKING), new LinkedBlockingQueue<ControlChangeQueueElement>(),
+				new SimulatedGamepad(this.components), true);
+		this.gamepadConnection.updateControllingDevice(this.gamepadConnection.getConnectionId(), EDataType.DRIVECONTROL);
+		this.gamepadConnection.updateControllingDevice(this.gamepadConnection.getConnectionId(), EDataType.LIGHTCONTROL);
+	}
+
+	/**
+	 * Moves the simulated sticks and triggers, processes the input and publishes the resulting control-frame.
+	 */
+	@Benchmark
+	public void tick() {
+		this.tick++;
+		this.components[XBoxControllerMapping.XAxis].value = ((this.tick % 200) - 100) / 100f;
+		this.components[XBoxControllerMapping.RightLowerTrigger].value = ((this.tick % 50) - 25) / 25f;
+		this.components[XBoxControllerMapping.LeftUpperTrigger].value = this.tick % 2;
+
+		this.gamepadConnection.processInput(this.notPressed, this.notPressed, this.notPressed, this.notPressed, this.notPressed);
+		this.gamepadConnection.updateControls();
+	}
+
+}
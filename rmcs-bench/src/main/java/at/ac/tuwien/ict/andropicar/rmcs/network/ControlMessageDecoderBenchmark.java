@@ -0,0 +1,111 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.ac.tuwien.ict.andropicar.json.JSONDecoder;
+import at.ac.tuwien.ict.andropicar.rmcs.data.BinaryMessage;
+import at.ac.tuwien.ict.andropicar.rmcs.data.BinaryProtocol;
+import at.ac.tuwien.ict.andropicar.rmcs.data.ControlFrame;
+
+
+/**
+ * Compares how a control-message of the phone is decoded from the bytes that have been framed by the {@link MessageFramer},
+ * either by the {@link ControlMessageDecoder} or by converting it into a String that is decoded by the {@link JSONDecoder}.
+ * The same content is also decoded as a message of the {@link BinaryProtocol}.
+ *
+ * @author Boeck
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ControlMessageDecoderBenchmark {
+
+	/** The encoded control-message, in a direct buffer like the one of the {@link MessageFramer}. */
+	private ByteBuffer messageBuffer;
+
+	/** The length of the encoded control-message. */
+	private int messageLength;
+
+	/** Holds the bytes of the control-message, while it is converted into a String. */
+	private byte[] messageBytes;
+
+	/** The decoded control-message. */
+	private ControlMessage controlMessage;
+
+	/** The encoded binary control-message, in a direct buffer like the one of the {@link MessageFramer}. */
+	private ByteBuffer binaryBuffer;
+
+	/** The length of the encoded binary control-message. */
+	private int binaryLength;
+
+	/** The decoded binary control-message. */
+	private BinaryMessage binaryMessage;
+
+
+	/**
+	 * Encodes the control-message into the buffer.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		byte[] bytes = JSONDecoderBenchmark.CONTROL_MESSAGE.getBytes(StandardCharsets.UTF_8);
+		this.messageBuffer = ByteBuffer.allocateDirect(MessageFramer.INITIAL_BUFFER_SIZE);
+		this.messageBuffer.put(bytes);
+		this.messageLength = bytes.length;
+		this.messageBytes = new byte[MessageFramer.INITIAL_BUFFER_SIZE];
+		this.controlMessage = new ControlMessage();
+
+		this.binaryMessage = new BinaryMessage();
+		this.binaryMessage.setControl(1, ControlFrame.drive(35, -12, false) | ControlFrame.camera(10, -5)
+				| ControlFrame.lights(true, false, true, false, false), false);
+		this.binaryBuffer = ByteBuffer.allocateDirect(BinaryProtocol.MAX_MESSAGE_SIZE);
+		BinaryProtocol.encode(this.binaryBuffer, this.binaryMessage);
+		this.binaryLength = this.binaryBuffer.position();
+	}
+
+	/**
+	 * Decodes the control-message with the {@link ControlMessageDecoder}.
+	 */
+	@Benchmark
+	public ControlMessage decodeControlMessage() {
+		ControlMessageDecoder.decode(this.messageBuffer, 0, this.messageLength, this.controlMessage);
+		return this.controlMessage;
+	}
+
+	/**
+	 * Decodes the binary control-message with the {@link BinaryProtocol}.
+	 */
+	@Benchmark
+	public BinaryMessage decodeBinaryControlMessage() {
+		BinaryProtocol.decode(this.binaryBuffer, 0, this.binaryLength, this.binaryMessage);
+		return this.binaryMessage;
+	}
+
+	/**
+	 * Converts the control-message into a String and decodes it with the {@link JSONDecoder}.
+	 */
+	@Benchmark
+	public HashMap<String, Object> decodeControlMessageAsString() {
+		for(int i = 0; i < this.messageLength; i++)
+			this.messageBytes[i] = this.messageBuffer.get(i);
+		return JSONDecoder.decode(new String(this.messageBytes, 0, this.messageLength, StandardCharsets.UTF_8));
+	}
+
+}
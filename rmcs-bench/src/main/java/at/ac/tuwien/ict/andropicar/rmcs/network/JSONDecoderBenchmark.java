@@ -0,0 +1,82 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.ac.tuwien.ict.andropicar.json.JSONDecoder;
+
+
+/**
+ * Measures how the {@link JSONDecoder} decodes the control-messages of the phone and encodes the sensor-messages of the car.
+ *
+ * @author Boeck
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JSONDecoderBenchmark {
+
+	/** A control-message, as it is sent by the phone while driving. */
+	static final String CONTROL_MESSAGE = "{\"" + Keywords.steering + "\":-12,\"" + Keywords.acceleration + "\":35,\"" + Keywords.stop + "\":0,\""
+			+ Keywords.cameraYaw + "\":10,\"" + Keywords.cameraPitch + "\":-5,\"" + Keywords.frontLights + "\":1,\"" + Keywords.backLights + "\":0,\""
+			+ Keywords.dynamicLights + "\":1,\"" + Keywords.leftWinker + "\":0,\"" + Keywords.rightWinker + "\":0}";
+
+	/** A sensor-message, as it is sent by the car for every set of distance-sensor-data. */
+	static final String SENSOR_MESSAGE = "{\"" + Keywords.ultrasonicSensor + "\":120,\"" + Keywords.leftInfraredSensor + "\":45,\""
+			+ Keywords.rightInfraredSensor + "\":60}";
+
+	/** The content of a sensor-message, as it is built by the {@link ServerConnection}. */
+	private HashMap<String, Object> sensorMap;
+
+
+	/**
+	 * Builds the content of the sensor-message.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		this.sensorMap = new HashMap<>();
+		this.sensorMap.put(Keywords.ultrasonicSensor, 120);
+		this.sensorMap.put(Keywords.leftInfraredSensor, 45);
+		this.sensorMap.put(Keywords.rightInfraredSensor, 60);
+	}
+
+	/**
+	 * Decodes a control-message.
+	 */
+	@Benchmark
+	public HashMap<String, Object> decodeControlMessage() {
+		return JSONDecoder.decode(CONTROL_MESSAGE);
+	}
+
+	/**
+	 * Decodes a sensor-message.
+	 */
+	@Benchmark
+	public HashMap<String, Object> decodeSensorMessage() {
+		return JSONDecoder.decode(SENSOR_MESSAGE);
+	}
+
+	/**
+	 * Encodes a sensor-message.
+	 */
+	@Benchmark
+	public String encodeSensorMessage() {
+		return JSONDecoder.encodeFromMap(this.sensorMap);
+	}
+
+}
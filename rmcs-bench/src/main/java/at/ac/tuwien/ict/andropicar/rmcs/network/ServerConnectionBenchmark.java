@@ -0,0 +1,83 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.ac.tuwien.ict.andropicar.rmcs.connection.ControlChangeQueueElement;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
+import at.ac.tuwien.ict.andropicar.rmcs.data.EDataType;
+import at.ac.tuwien.ict.andropicar.rmcs.data.EWaitStrategy;
+
+
+/**
+ * Measures how the {@link ServerConnection} processes a decoded control-message of the phone, while it is in control of the car.
+ * The resulting control-frames are published on a {@link DataBus} without consumers.
+ *
+ * @author Boeck
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ServerConnectionBenchmark {
+
+	/** The connection whose messages are processed. */
+	private ServerConnection serverConnection;
+
+	/** The encoded control-message. */
+	private ByteBuffer messageBuffer;
+
+	/** The decoded control-message. */
+	private ControlMessage controlMessage;
+
+
+	/**
+	 * Creates a {@link ServerConnection}, that is in control of the car, without connecting it to a server.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		this.serverConnection = new ServerConnection(new DataBus(EWaitStrategy.BLOCKING), new LinkedBlockingQueue<ControlChangeQueueElement>(),
+				"127.0.0.1", 6633, 1001, new ArrayList<String>());
+		this.serverConnection.updateControllingDevice(this.serverConnection.getConnectionId(), EDataType.DRIVECONTROL);
+		this.serverConnection.updateControllingDevice(this.serverConnection.getConnectionId(), EDataType.CAMERACONTROL);
+		this.serverConnection.updateControllingDevice(this.serverConnection.getConnectionId(), EDataType.LIGHTCONTROL);
+		this.messageBuffer = ByteBuffer.wrap(JSONDecoderBenchmark.CONTROL_MESSAGE.getBytes(StandardCharsets.UTF_8));
+		this.controlMessage = new ControlMessage();
+		ControlMessageDecoder.decode(this.messageBuffer, 0, this.messageBuffer.limit(), this.controlMessage);
+	}
+
+	/**
+	 * Processes a decoded control-message.
+	 */
+	@Benchmark
+	public void processMessage() {
+		this.serverConnection.processMessage(this.controlMessage);
+	}
+
+	/**
+	 * Decodes and processes a control-message, like the {@link ServerConnection} does for every incoming message.
+	 */
+	@Benchmark
+	public void decodeAndProcessMessage() {
+		ControlMessageDecoder.decode(this.messageBuffer, 0, this.messageBuffer.limit(), this.controlMessage);
+		this.serverConnection.processMessage(this.controlMessage);
+	}
+
+}
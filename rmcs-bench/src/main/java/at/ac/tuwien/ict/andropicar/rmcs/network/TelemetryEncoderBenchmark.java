@@ -0,0 +1,89 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.ac.tuwien.ict.andropicar.json.JSONDecoder;
+
+
+/**
+ * Compares how a sensor-message of the car is encoded into the buffer that is written to the TCP-Server,
+ * either by the {@link TelemetryEncoder} or by encoding a HashMap with the {@link JSONDecoder}.
+ *
+ * @author Boeck
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TelemetryEncoderBenchmark {
+
+	/** The buffer that the sensor-message is encoded into. */
+	private ByteBuffer writeBuffer;
+
+	/** The number of sensor-messages that have been encoded, used to vary the values. */
+	private int sample;
+
+
+	/**
+	 * Allocates the buffer.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		this.writeBuffer = ByteBuffer.allocate(4096);
+	}
+
+	/**
+	 * Encodes a distance-sensor-message with the {@link TelemetryEncoder}.
+	 */
+	@Benchmark
+	public ByteBuffer encodeDistanceSensorData() {
+		this.sample++;
+		this.writeBuffer.clear();
+		TelemetryEncoder.encodeDistanceSensorData(this.writeBuffer, this.sample & 0xFF, 45, 60);
+		return this.writeBuffer;
+	}
+
+	/**
+	 * Encodes a distance-sensor-message from a HashMap with the {@link JSONDecoder}, like the {@link ServerConnection} used to do.
+	 */
+	@Benchmark
+	public ByteBuffer encodeDistanceSensorDataFromMap() {
+		this.sample++;
+		this.writeBuffer.clear();
+		HashMap<String, Object> outputMap = new HashMap<>();
+		outputMap.put(Keywords.ultrasonicSensor, this.sample & 0xFF);
+		outputMap.put(Keywords.leftInfraredSensor, 45);
+		outputMap.put(Keywords.rightInfraredSensor, 60);
+		this.writeBuffer.put(JSONDecoder.encodeFromMap(outputMap).getBytes(StandardCharsets.UTF_8));
+		return this.writeBuffer;
+	}
+
+	/**
+	 * Encodes a velocity-sensor-message with the {@link TelemetryEncoder}.
+	 */
+	@Benchmark
+	public ByteBuffer encodeVelocitySensorData() {
+		this.sample++;
+		this.writeBuffer.clear();
+		TelemetryEncoder.encodeVelocitySensorData(this.writeBuffer, this.sample & 0xFF);
+		return this.writeBuffer;
+	}
+
+}
@@ -0,0 +1,94 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.ac.tuwien.ict.andropicar.rmcs.connection.ISensorDataListener;
+import at.ac.tuwien.ict.andropicar.rmcs.data.ControlFrame;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DistanceSensorData;
+import at.ac.tuwien.ict.andropicar.rmcs.data.EDataType;
+import at.ac.tuwien.ict.andropicar.rmcs.data.EWaitStrategy;
+import at.ac.tuwien.ict.andropicar.rmcs.data.SensorData;
+import at.ac.tuwien.ict.andropicar.rmcs.data.SensorDataPool;
+
+
+/**
+ * Measures how the {@link RMCSComponentManager} distributes control-frames to a number of {@link RMCSControlComponent}s
+ * and sensor-data to a number of {@link ISensorDataListener}s.
+ *
+ * @author Boeck
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RMCSComponentManagerBenchmark {
+
+	/** The number of components, each of which processes all types of control-data. */
+	@Param({"1", "4", "16"})
+	private int components;
+
+	/** The number of listeners, each of which wants to be informed about all types of sensor-data. */
+	@Param({"1", "4", "16"})
+	private int listeners;
+
+	/** The manager that distributes the data. */
+	private RMCSComponentManager manager;
+
+	/** The control-frame that is distributed. */
+	private long frame;
+
+	/** The pool the distributed sensor-data is taken from. */
+	private SensorDataPool<DistanceSensorData> pool;
+
+
+	/**
+	 * Registers the components and listeners with a new manager.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		this.manager = new RMCSComponentManager(new DataBus(EWaitStrategy.BLOCKING));
+		for(int i = 0; i < this.components; i++)
+			this.manager.addCarComponent(new RMCSControlComponent(EDataType.DRIVECONTROL, EDataType.CAMERACONTROL, EDataType.LIGHTCONTROL));
+		for(int i = 0; i < this.listeners; i++) {
+			this.manager.addDataListener(new ISensorDataListener() {
+				@Override
+				public void updateSensorData(SensorData data) {}
+			}, EDataType.SENSOR);
+		}
+		this.frame = ControlFrame.drive(35, -12, false) | ControlFrame.camera(10, -5) | ControlFrame.lights(true, false, true, false, false);
+		this.pool = new SensorDataPool<>(16, DistanceSensorData::new);
+	}
+
+	/**
+	 * Distributes a control-frame, that contains all groups.
+	 */
+	@Benchmark
+	public void dispatchControlFrame() {
+		this.manager.dispatchControlFrame(this.frame);
+	}
+
+	/**
+	 * Distributes a pooled set of distance-sensor-data, which is handed back to its pool afterwards.
+	 */
+	@Benchmark
+	public void dispatchSensorData() {
+		this.manager.dispatchSensorData(this.pool.acquire().set(System.nanoTime(), 120, 45, 60));
+	}
+
+}
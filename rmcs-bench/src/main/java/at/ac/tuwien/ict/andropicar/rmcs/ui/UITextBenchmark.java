@@ -0,0 +1,62 @@
+package at.ac.tuwien.ict.andropicar.rmcs.ui;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures how a {@link UIText} in {@link ETextStyle#LOGSTYLE} appends the status-messages of the connections, once its log is full.
+ *
+ * @author Boeck
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UITextBenchmark {
+
+	/** A status-message, as it is logged by the ServerConnection for every control-message. */
+	private static final String MESSAGE = "Acceleration: 35\nSteering: -12\nHeadlights are on\nBacklights are off\nDynamiclights are enabled\n";
+
+	/** The maximum length of the log. */
+	@Param({"1000", "10000"})
+	private int maxLogLength;
+
+	/** The text whose log is appended to. */
+	private UIText text;
+
+
+	/**
+	 * Creates the text and fills its log.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		this.text = new UIText(ETextStyle.LOGSTYLE, this.maxLogLength, "");
+		while(this.text.getText().length() + MESSAGE.length() <= this.maxLogLength)
+			this.text.setText(MESSAGE);
+	}
+
+	/**
+	 * Appends a status-message to the full log.
+	 */
+	@Benchmark
+	public String setText() {
+		this.text.setText(MESSAGE);
+		return this.text.getText();
+	}
+
+}
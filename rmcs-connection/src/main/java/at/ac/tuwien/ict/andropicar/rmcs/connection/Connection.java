@@ -4,12 +4,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.LinkedBlockingQueue;
 
-import at.ac.tuwien.ict.andropicar.rmcs.data.CameraControlData;
+import at.ac.tuwien.ict.andropicar.rmcs.data.ControlFrame;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
 import at.ac.tuwien.ict.andropicar.rmcs.data.IControlData;
-import at.ac.tuwien.ict.andropicar.rmcs.data.IData;
-import at.ac.tuwien.ict.andropicar.rmcs.data.DriveControlData;
 import at.ac.tuwien.ict.andropicar.rmcs.data.EDataType;
-import at.ac.tuwien.ict.andropicar.rmcs.data.LightControlData;
 import at.ac.tuwien.ict.andropicar.rmcs.ui.IUI;
 import at.ac.tuwien.ict.andropicar.rmcs.ui.EIdentifier;
 
@@ -36,8 +34,8 @@ public abstract class Connection{
 //	private long carId;
 	/** the list of {@link IUI}s that want to know about the gamepads status */
 	private Collection<IUI> uis = new ArrayList<>();
-	/** the queue that is used to send ControlData to their corresponding interfaces. */
-	private LinkedBlockingQueue<IData> controlDataQueue;
+	/** the bus whose control-lane is used to send control-frames to their corresponding interfaces. */
+	private DataBus dataBus;
 	/** the queue that is used to signal the main thread to change the connection that is currently under control of a specific control-data-set. */
 	private LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue; 
 	
@@ -49,16 +47,16 @@ public abstract class Connection{
 	 * via {@link #updateControllingDevice(ControlChangeQueueElement)} or {link {@link #updateControllingDevice(long, EDataType)}.
 	 * 
 	 * @param carId The ID that the RMCS registers itself with on the Server.
-	 * @param controlDataQueue the queue that is used to send ControlData to their corresponding interfaces.
+	 * @param dataBus the bus whose control-lane is used to send control-frames to their corresponding interfaces.
 	 * @param controlChangeQueue the queue that is used to signal the main class to change the connection that is currently under control of a specific control-data-set.
 	 */
-	public Connection(long carId, LinkedBlockingQueue<IData> controlDataQueue, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue){
+	public Connection(long carId, DataBus dataBus, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue){
 		this.connectionId = id++;
 		this.connectionIdInDriveControl = 0;
 		this.connectionIdInLightControl = 0;
 		this.connectionIdInCameraControl = 0;
 		//this.carId = carId;
-		this.controlDataQueue = controlDataQueue;
+		this.dataBus = dataBus;
 		this.controlChangeQueue = controlChangeQueue;
 	}
 	
@@ -68,19 +66,19 @@ public abstract class Connection{
 	 * The connections that have control over the different control-data-sets are set via their corresponding parameters.
 	 * 
 	 * @param carId The ID that the RMCS registers itself with on the Server.
-	 * @param controlDataQueue the queue that is used to send ControlData to their corresponding interfaces.
+	 * @param dataBus the bus whose control-lane is used to send control-frames to their corresponding interfaces.
 	 * @param controlChangeQueue the queue that is used to signal the main class to change the connection that is currently under control of a specific control-data-set.
 	 * @param connectionIdInDriveControl the ID of the connection that is currently controlling the drive-control-data of the RMCS.
 	 * @param connectionIdInLightControl the ID of the connection that is currently controlling the light-control-data of the RMCS.
 	 * @param connectionIdInCameraControl the ID of the connection that is currently controlling the camera-control-data of the RMCS.
 	 */
-	public Connection(long carId, LinkedBlockingQueue<IData> controlDataQueue, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue, long connectionIdInDriveControl, long connectionIdInLightControl, long connectionIdInCameraControl){
+	public Connection(long carId, DataBus dataBus, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue, long connectionIdInDriveControl, long connectionIdInLightControl, long connectionIdInCameraControl){
 		this.connectionId = id++;
 		this.connectionIdInDriveControl = connectionIdInDriveControl;
 		this.connectionIdInLightControl = connectionIdInLightControl;
 		this.connectionIdInCameraControl = connectionIdInCameraControl;
 		//this.carId = carId;
-		this.controlDataQueue = controlDataQueue;
+		this.dataBus = dataBus;
 		this.controlChangeQueue = controlChangeQueue;
 	}
 	
@@ -181,26 +179,38 @@ public abstract class Connection{
 	
 	
 	/**
-	 * Checks, if this object is in control of the passed control-data-type and if so, tries to update the {@link #controlDataQueue} with the passed {@link IControlData}.
+	 * Checks, if this object is in control of the passed control-data-type and if so, tries to update the {@link #dataBus} with the passed {@link IControlData}.
 	 * 
-	 * @param data the element that the {@link #controlDataQueue} should be updated with.
-	 * @return true, if this object is in control of the passed {@link IControlData} and the {@link #controlDataQueue} was successfully updated.
+	 * @param data the element that the {@link #dataBus} should be updated with.
+	 * @return true, if this object is in control of the passed {@link IControlData} and the {@link #dataBus} was successfully updated.
 	 */
 	protected boolean putControlData(IControlData data){
 		if(data == null)
 			return false;
 		
-		if((data instanceof DriveControlData && this.connectionIdInDriveControl == this.connectionId) || 
-				(data instanceof LightControlData && this.connectionIdInLightControl == this.connectionId) || 
-				(data instanceof CameraControlData && this.connectionIdInCameraControl == this.connectionId)) {
-			try{
-				controlDataQueue.put(data);
-				return true;
-			} catch(InterruptedException ie){
-				ie.printStackTrace();
-			}
-		}
-		return false;
+		return putControlFrame(ControlFrame.of(data));
+	}
+	
+	/**
+	 * Removes all groups from the passed control-frame that this object is not in control of and updates the {@link #dataBus} with the remaining frame.<br>
+	 * If the remaining frame tells the RMCS to stop, an emergency-stop is requested first, which bypasses all queued control-frames.
+	 * 
+	 * @param frame the control-frame (see {@link ControlFrame}) that the {@link #dataBus} should be updated with.
+	 * @return true, if this object is in control of at least one group of the passed frame and the {@link #dataBus} was successfully updated.
+	 */
+	protected boolean putControlFrame(long frame){
+		long groupsInControl = 0;
+		if(this.connectionIdInDriveControl == this.connectionId)
+			groupsInControl |= ControlFrame.DRIVE;
+		if(this.connectionIdInCameraControl == this.connectionId)
+			groupsInControl |= ControlFrame.CAMERA;
+		if(this.connectionIdInLightControl == this.connectionId)
+			groupsInControl |= ControlFrame.LIGHTS;
+		
+		frame = ControlFrame.retain(frame, groupsInControl);
+		if(ControlFrame.hasDrive(frame) && ControlFrame.isStopped(frame))
+			this.dataBus.requestEmergencyStop(this.connectionId);
+		return this.dataBus.publishControlFrame(this.connectionId, frame);
 	}
 	
 	/**
@@ -12,7 +12,9 @@ import at.ac.tuwien.ict.andropicar.rmcs.data.SensorData;
 public interface ISensorDataListener {
 	
 	/**
-	 * Used to inform the user of new {@link at.ac.tuwien.ict.andropicar.rmcs.data.DistanceSensorData}.
+	 * Used to inform the user of new {@link at.ac.tuwien.ict.andropicar.rmcs.data.DistanceSensorData}.<br>
+	 * The data-set may be pooled and is only valid until this method returns. If the user wants to keep it longer,
+	 * it has to call {@link SensorData#retain()} before returning and {@link SensorData#release()} once it is done with it.
 	 * 
 	 * @param data the new {@link at.ac.tuwien.ict.andropicar.rmcs.data.DistanceSensorData}.
 	 */
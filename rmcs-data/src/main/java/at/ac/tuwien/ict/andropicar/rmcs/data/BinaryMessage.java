@@ -0,0 +1,205 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+
+/**
+ * Holds the content of a single message of the {@link BinaryProtocol}.<br>
+ * A message is meant to be reused for every message that is encoded or decoded, so the protocol does not allocate anything.
+ * Depending on its {@link EBinaryMessageType}, only some of the values are used.
+ *
+ * @author Boeck
+ */
+public class BinaryMessage {
+
+	/** The value of the timestamp of a message, that has no timestamp. */
+	public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+	/** The type of the message. */
+	private EBinaryMessageType type;
+
+	/** The sequence-number of the message, which is incremented for every message a sender sends. */
+	private int sequence;
+
+	/** The control-frame of a {@link EBinaryMessageType#CONTROL}-message (see {@link ControlFrame}). */
+	private long controlFrame;
+
+	/** True, if the sender of a {@link EBinaryMessageType#CONTROL}-message gives up control of the car. */
+	private boolean releaseControl;
+
+	/** True, if the sender of a {@link EBinaryMessageType#CONTROL}-message has restarted its sequence-numbers with this message. */
+	private boolean sequenceRestart;
+
+	/** The value of the front distance-sensor of a {@link EBinaryMessageType#DISTANCE_SENSOR_DATA}-message. */
+	private int frontDistanceSensor;
+
+	/** The value of the left-side distance-sensor of a {@link EBinaryMessageType#DISTANCE_SENSOR_DATA}-message. */
+	private int leftsideDistanceSensor;
+
+	/** The value of the right-side distance-sensor of a {@link EBinaryMessageType#DISTANCE_SENSOR_DATA}-message. */
+	private int rightsideDistanceSensor;
+
+	/** The value of the velocity-sensor of a {@link EBinaryMessageType#VELOCITY_SENSOR_DATA}-message. */
+	private int velocitySensor;
+
+	/** The time (in ms since the epoch, in the time of the TCP-Server) that the message was sent or its data was captured, or {@link #NO_TIMESTAMP}. */
+	private long timestamp = NO_TIMESTAMP;
+
+
+	/**
+	 * Turns this message into a {@link EBinaryMessageType#CONTROL}-message.
+	 * @param sequence the sequence-number of the message.
+	 * @param controlFrame the control-frame to be sent. Only the groups it contains are sent.
+	 * @param releaseControl true, if the sender gives up control of the car.
+	 */
+	public void setControl(int sequence, long controlFrame, boolean releaseControl) {
+		this.type = EBinaryMessageType.CONTROL;
+		this.sequence = sequence;
+		this.timestamp = NO_TIMESTAMP;
+		this.controlFrame = controlFrame;
+		this.releaseControl = releaseControl;
+		this.sequenceRestart = false;
+	}
+
+	/**
+	 * Marks a {@link EBinaryMessageType#CONTROL}-message as the first one after its sender has restarted its sequence-numbers, after its type and content have been set.
+	 * @param sequenceRestart true, if the sender has restarted its sequence-numbers with this message.
+	 */
+	public void setSequenceRestart(boolean sequenceRestart) {
+		this.sequenceRestart = sequenceRestart;
+	}
+
+	/**
+	 * Turns this message into a {@link EBinaryMessageType#DISTANCE_SENSOR_DATA}-message.
+	 * @param sequence the sequence-number of the message.
+	 * @param frontDistanceSensor the value of the front distance-sensor.
+	 * @param leftsideDistanceSensor the value of the left-side distance-sensor.
+	 * @param rightsideDistanceSensor the value of the right-side distance-sensor.
+	 */
+	public void setDistanceSensorData(int sequence, int frontDistanceSensor, int leftsideDistanceSensor, int rightsideDistanceSensor) {
+		this.type = EBinaryMessageType.DISTANCE_SENSOR_DATA;
+		this.sequence = sequence;
+		this.timestamp = NO_TIMESTAMP;
+		this.frontDistanceSensor = frontDistanceSensor;
+		this.leftsideDistanceSensor = leftsideDistanceSensor;
+		this.rightsideDistanceSensor = rightsideDistanceSensor;
+	}
+
+	/**
+	 * Turns this message into a {@link EBinaryMessageType#VELOCITY_SENSOR_DATA}-message.
+	 * @param sequence the sequence-number of the message.
+	 * @param velocitySensor the value of the velocity-sensor.
+	 */
+	public void setVelocitySensorData(int sequence, int velocitySensor) {
+		this.type = EBinaryMessageType.VELOCITY_SENSOR_DATA;
+		this.sequence = sequence;
+		this.timestamp = NO_TIMESTAMP;
+		this.velocitySensor = velocitySensor;
+	}
+
+	/**
+	 * Turns this message into a {@link EBinaryMessageType#PING}-message, that has to be answered with a {@link EBinaryMessageType#PONG}-message.
+	 * @param sequence the sequence-number of the message, which identifies the ping.
+	 */
+	public void setPing(int sequence) {
+		this.type = EBinaryMessageType.PING;
+		this.sequence = sequence;
+		this.timestamp = NO_TIMESTAMP;
+	}
+
+	/**
+	 * Turns this message into a {@link EBinaryMessageType#PONG}-message, that answers a {@link EBinaryMessageType#PING}-message.
+	 * @param sequence the sequence-number of the ping that is answered.
+	 */
+	public void setPong(int sequence) {
+		this.type = EBinaryMessageType.PONG;
+		this.sequence = sequence;
+		this.timestamp = NO_TIMESTAMP;
+	}
+
+	/**
+	 * Adds a timestamp to the message, after its type and content have been set.
+	 * @param timestamp the time (in ms since the epoch, in the time of the TCP-Server) that the message was sent or its data was captured,
+	 * or {@link #NO_TIMESTAMP}.
+	 */
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * @return the type of the message.
+	 */
+	public EBinaryMessageType getType() {
+		return this.type;
+	}
+
+	/**
+	 * @return the sequence-number of the message.
+	 */
+	public int getSequence() {
+		return this.sequence;
+	}
+
+	/**
+	 * @return the control-frame of a {@link EBinaryMessageType#CONTROL}-message.
+	 */
+	public long getControlFrame() {
+		return this.controlFrame;
+	}
+
+	/**
+	 * @return true, if the sender of a {@link EBinaryMessageType#CONTROL}-message gives up control of the car.
+	 */
+	public boolean isReleaseControl() {
+		return this.releaseControl;
+	}
+
+	/**
+	 * @return true, if the sender of a {@link EBinaryMessageType#CONTROL}-message has restarted its sequence-numbers with this message.
+	 */
+	public boolean isSequenceRestart() {
+		return this.sequenceRestart;
+	}
+
+	/**
+	 * @return the value of the front distance-sensor of a {@link EBinaryMessageType#DISTANCE_SENSOR_DATA}-message.
+	 */
+	public int getFrontDistanceSensor() {
+		return this.frontDistanceSensor;
+	}
+
+	/**
+	 * @return the value of the left-side distance-sensor of a {@link EBinaryMessageType#DISTANCE_SENSOR_DATA}-message.
+	 */
+	public int getLeftsideDistanceSensor() {
+		return this.leftsideDistanceSensor;
+	}
+
+	/**
+	 * @return the value of the right-side distance-sensor of a {@link EBinaryMessageType#DISTANCE_SENSOR_DATA}-message.
+	 */
+	public int getRightsideDistanceSensor() {
+		return this.rightsideDistanceSensor;
+	}
+
+	/**
+	 * @return the value of the velocity-sensor of a {@link EBinaryMessageType#VELOCITY_SENSOR_DATA}-message.
+	 */
+	public int getVelocitySensor() {
+		return this.velocitySensor;
+	}
+
+	/**
+	 * @return true, if the message has a timestamp.
+	 */
+	public boolean hasTimestamp() {
+		return this.timestamp != NO_TIMESTAMP;
+	}
+
+	/**
+	 * @return the time (in ms since the epoch, in the time of the TCP-Server) that the message was sent or its data was captured,
+	 * or {@link #NO_TIMESTAMP}.
+	 */
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+}
@@ -0,0 +1,255 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Encodes and decodes the messages of the compact binary protocol, that the RMCS and the TCP-Server use instead of JSON, once both have agreed on it.<br>
+ * Every message consists of a fixed header and a body:<br>
+ * - byte 0: {@link #MAGIC}, which can never start a JSON-message, so binary and JSON-messages can be told apart on the same stream <br>
+ * - byte 1: the {@link #VERSION} (upper 4 bits) and the code of the {@link EBinaryMessageType} (lower 4 bits) <br>
+ * - byte 2: the length of the body in bytes <br>
+ * - body: the sequence-number as unsigned varint, followed by the values of the message <br>
+ * The values of a {@link EBinaryMessageType#CONTROL}-message are a byte of flags, followed by the groups of the control-frame that are flagged:
+ * acceleration and steering angle (1 byte each), yaw- and pitch-angle (1 byte each) and a byte with the bits of the lights.
+ * The values of sensor-messages are zigzag-encoded varints. Ping- and pong-messages have no values, the sequence-number identifies the ping.<br>
+ * Control-, sensor- and pong-messages may end with a timestamp (8 bytes, in ms since the epoch, in the time of the TCP-Server).
+ * Control-messages flag it, the other messages have it if 8 bytes remain after their values.<br>
+ * The protocol should be accessed in a static manner (without instantiation of this class), which is why the constructor has been set private.
+ *
+ * @author Boeck
+ */
+public final class BinaryProtocol {
+
+	/** The first byte of every message. */
+	public static final byte MAGIC = (byte) 0xB1;
+
+	/** The version of the protocol. */
+	public static final int VERSION = 1;
+
+	/** The size of the header of a message. */
+	public static final int HEADER_SIZE = 3;
+
+	/** The maximum size of a message. */
+	public static final int MAX_MESSAGE_SIZE = HEADER_SIZE + 0xFF;
+
+	/** The flag of a control-message that it contains drive-control-data. */
+	private static final int FLAG_DRIVE = 1;
+	/** The flag of a control-message that it contains camera-control-data. */
+	private static final int FLAG_CAMERA = 1 << 1;
+	/** The flag of a control-message that it contains light-control-data. */
+	private static final int FLAG_LIGHTS = 1 << 2;
+	/** The flag of a control-message that the car should stop immediately. */
+	private static final int FLAG_STOP = 1 << 3;
+	/** The flag of a control-message that its sender gives up control of the car. */
+	private static final int FLAG_RELEASE_CONTROL = 1 << 4;
+	/** The flag of a control-message that it ends with a timestamp. */
+	private static final int FLAG_TIMESTAMP = 1 << 5;
+	/** The flag of a control-message that its sender has restarted its sequence-numbers with it. */
+	private static final int FLAG_SEQUENCE_RESTART = 1 << 6;
+
+	/** The size of a timestamp. */
+	private static final int TIMESTAMP_SIZE = 8;
+
+	/** The position of the lowest light-bit within a control-frame. */
+	private static final int LIGHTS_SHIFT = 40;
+	/** All light-bits of a control-frame. */
+	private static final long LIGHT_BITS = ControlFrame.FRONT_LIGHTS | ControlFrame.BACK_LIGHTS | ControlFrame.DYNAMIC_LIGHTS
+			| ControlFrame.LEFT_WINKER | ControlFrame.RIGHT_WINKER;
+
+
+	private BinaryProtocol() {
+	}
+
+
+	/**
+	 * Writes the passed message to the buffer, starting at its position.
+	 * @param buffer the buffer to write to. It must have at least {@link #MAX_MESSAGE_SIZE} bytes remaining.
+	 * @param message the message to be written.
+	 */
+	public static void encode(ByteBuffer buffer, BinaryMessage message) {
+		int start = buffer.position();
+		buffer.put(MAGIC);
+		buffer.put((byte) ((VERSION << 4) | message.getType().getCode()));
+		buffer.put((byte) 0);
+		putVarint(buffer, message.getSequence());
+
+		switch(message.getType()) {
+			case CONTROL:
+				long frame = message.getControlFrame();
+				int flags = (ControlFrame.hasDrive(frame) ? FLAG_DRIVE : 0) | (ControlFrame.hasCamera(frame) ? FLAG_CAMERA : 0)
+						| (ControlFrame.hasLights(frame) ? FLAG_LIGHTS : 0) | (ControlFrame.hasDrive(frame) && ControlFrame.isStopped(frame) ? FLAG_STOP : 0)
+						| (message.isReleaseControl() ? FLAG_RELEASE_CONTROL : 0) | (message.hasTimestamp() ? FLAG_TIMESTAMP : 0)
+						| (message.isSequenceRestart() ? FLAG_SEQUENCE_RESTART : 0);
+				buffer.put((byte) flags);
+				if(ControlFrame.hasDrive(frame)) {
+					buffer.put((byte) ControlFrame.acceleration(frame));
+					buffer.put((byte) ControlFrame.steeringAngle(frame));
+				}
+				if(ControlFrame.hasCamera(frame)) {
+					buffer.put((byte) ControlFrame.yawAngle(frame));
+					buffer.put((byte) ControlFrame.pitchAngle(frame));
+				}
+				if(ControlFrame.hasLights(frame))
+					buffer.put((byte) ((frame & LIGHT_BITS) >>> LIGHTS_SHIFT));
+				break;
+			case DISTANCE_SENSOR_DATA:
+				putVarint(buffer, zigzag(message.getFrontDistanceSensor()));
+				putVarint(buffer, zigzag(message.getLeftsideDistanceSensor()));
+				putVarint(buffer, zigzag(message.getRightsideDistanceSensor()));
+				break;
+			case VELOCITY_SENSOR_DATA:
+				putVarint(buffer, zigzag(message.getVelocitySensor()));
+				break;
+			case PING:
+			case PONG:
+				break;
+		}
+		if(message.hasTimestamp() && message.getType() != EBinaryMessageType.PING)
+			buffer.putLong(message.getTimestamp());
+
+		buffer.put(start + 2, (byte) (buffer.position() - start - HEADER_SIZE));
+	}
+
+	/**
+	 * @param buffer the buffer that contains the message.
+	 * @param start the index of the first byte of the message.
+	 * @param end the index after the last byte that is available.
+	 * @return the length of the message that starts at the passed index, or -1 if its header is not complete yet.
+	 */
+	public static int getMessageLength(ByteBuffer buffer, int start, int end) {
+		if(end - start < HEADER_SIZE)
+			return -1;
+		return HEADER_SIZE + (buffer.get(start + 2) & 0xFF);
+	}
+
+	/**
+	 * Decodes the passed message into the target.<br>
+	 * The buffer is only read via its absolute get-methods, so its position and limit remain unchanged.
+	 * @param buffer the buffer that contains the message.
+	 * @param start the index of the first byte of the message.
+	 * @param end the index after the last byte of the message.
+	 * @param target the message that the values are stored in.
+	 * @return true, if the message is valid, otherwise false (the content of the target is undefined).
+	 */
+	public static boolean decode(ByteBuffer buffer, int start, int end, BinaryMessage target) {
+		if(getMessageLength(buffer, start, end) != end - start || buffer.get(start) != MAGIC)
+			return false;
+		int versionAndType = buffer.get(start + 1) & 0xFF;
+		if((versionAndType >>> 4) != VERSION)
+			return false;
+		EBinaryMessageType type = EBinaryMessageType.fromCode(versionAndType & 0x0F);
+		if(type == null)
+			return false;
+
+		int i = start + HEADER_SIZE;
+		long varint;
+		if((varint = getVarint(buffer, i, end)) < 0)
+			return false;
+		int sequence = (int) varint;
+		i = (int) (varint >>> 32);
+
+		switch(type) {
+			case CONTROL:
+				if(i >= end)
+					return false;
+				int flags = buffer.get(i++);
+				int length = ((flags & FLAG_DRIVE) != 0 ? 2 : 0) + ((flags & FLAG_CAMERA) != 0 ? 2 : 0) + ((flags & FLAG_LIGHTS) != 0 ? 1 : 0)
+						+ ((flags & FLAG_TIMESTAMP) != 0 ? TIMESTAMP_SIZE : 0);
+				if(end - i != length)
+					return false;
+				long frame = ControlFrame.EMPTY;
+				if((flags & FLAG_DRIVE) != 0) {
+					frame |= ControlFrame.drive(buffer.get(i), buffer.get(i + 1), (flags & FLAG_STOP) != 0);
+					i += 2;
+				}
+				if((flags & FLAG_CAMERA) != 0) {
+					frame |= ControlFrame.camera(buffer.get(i), buffer.get(i + 1));
+					i += 2;
+				}
+				if((flags & FLAG_LIGHTS) != 0)
+					frame |= ControlFrame.LIGHTS | (((long) buffer.get(i++) << LIGHTS_SHIFT) & LIGHT_BITS);
+				target.setControl(sequence, frame, (flags & FLAG_RELEASE_CONTROL) != 0);
+				target.setSequenceRestart((flags & FLAG_SEQUENCE_RESTART) != 0);
+				if((flags & FLAG_TIMESTAMP) != 0)
+					target.setTimestamp(buffer.getLong(i));
+				return true;
+			case DISTANCE_SENSOR_DATA:
+				long front, left, right;
+				if((front = getVarint(buffer, i, end)) < 0 || (left = getVarint(buffer, (int) (front >>> 32), end)) < 0
+						|| (right = getVarint(buffer, (int) (left >>> 32), end)) < 0)
+					return false;
+				target.setDistanceSensorData(sequence, unzigzag((int) front), unzigzag((int) left), unzigzag((int) right));
+				return getTimestamp(buffer, (int) (right >>> 32), end, target);
+			case VELOCITY_SENSOR_DATA:
+				long velocity;
+				if((velocity = getVarint(buffer, i, end)) < 0)
+					return false;
+				target.setVelocitySensorData(sequence, unzigzag((int) velocity));
+				return getTimestamp(buffer, (int) (velocity >>> 32), end, target);
+			case PING:
+				target.setPing(sequence);
+				return i == end;
+			case PONG:
+				target.setPong(sequence);
+				return getTimestamp(buffer, i, end, target);
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the optional timestamp at the end of a message into the target.
+	 * @param i the index after the values of the message.
+	 * @return true, if there is either nothing or exactly a timestamp left of the message, otherwise false.
+	 */
+	private static boolean getTimestamp(ByteBuffer buffer, int i, int end, BinaryMessage target) {
+		if(i == end)
+			return true;
+		if(end - i != TIMESTAMP_SIZE)
+			return false;
+		target.setTimestamp(buffer.getLong(i));
+		return true;
+	}
+
+	/**
+	 * Writes the passed value as an unsigned varint (7 bits per byte, least significant group first).
+	 */
+	private static void putVarint(ByteBuffer buffer, int value) {
+		while((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Reads an unsigned varint, without creating any objects.
+	 * @return the value in the lower 32 bits and the index after the varint in the upper 32 bits,
+	 * or -1 if the varint exceeds the end of the message or is longer than 5 bytes.
+	 */
+	private static long getVarint(ByteBuffer buffer, int i, int end) {
+		int value = 0;
+		for(int shift = 0; shift < 35 && i < end; shift += 7) {
+			int b = buffer.get(i++);
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				return ((long) i << 32) | (value & 0xFFFFFFFFL);
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the passed value zigzag-encoded, so small negative values result in short varints as well.
+	 */
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * @return the passed zigzag-encoded value decoded.
+	 */
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -50,5 +50,10 @@ public class CameraControlData implements IControlData {
 	public int getPitchAngle() {
 		return pitchAngle;
 	}
-
+	
+	@Override
+	public EDataType getDataType() {
+		return EDataType.CAMERACONTROL;
+	}
+	
 }
@@ -0,0 +1,182 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+
+/**
+ * Estimates the offset and the drift of the clock of a remote peer (e.g. the TCP-Server) against the monotonic clock of the RMCS,
+ * so that local monotonic times can be converted into the time of the peer.<br>
+ * It works like NTP: every sample consists of the local time a request was sent, the local time its answer was received,
+ * and the time of the peer that is contained in the answer. Assuming that both ways take equally long, the peer's time corresponds to the
+ * midpoint of the request, and the error of the sample is at most half of its round-trip-time.<br>
+ * The estimate is updated incrementally with every sample: of the last {@link #WINDOW} samples, the one with the lowest round-trip-time is used,
+ * since it has been delayed the least by queues on the way. The drift between the used samples is measured over at least {@link #MIN_DRIFT_INTERVAL} ns,
+ * so the resolution of the peer's time does not swamp it, and blended into the estimated drift, which is used to extrapolate the offset until the next sample.<br>
+ * The times are passed to the estimator explicitly, so it can be fed with any clock, e.g. a simulated peer with an injected skew.
+ * All methods are thread-safe.
+ *
+ * @author Boeck
+ */
+public class ClockOffsetEstimator {
+
+	/** The number of most recent samples, among which the sample with the lowest round-trip-time is used. */
+	public static final int WINDOW = 8;
+
+	/** The maximum drift (in parts per million), that is assumed between the clocks. */
+	public static final double MAX_DRIFT_PPM = 500;
+
+	/** The minimum time in nanoseconds between two samples, that the drift is estimated from. */
+	public static final long MIN_DRIFT_INTERVAL = 30000000000L;
+
+	/** The share of every new estimation of the drift, that is blended into the estimated drift. */
+	private static final double DRIFT_GAIN = 0.25;
+
+	/** The offsets (in ns) between the time of the peer and the local monotonic time of the last samples, as a ring-buffer. */
+	private final long[] offsets = new long[WINDOW];
+
+	/** The round-trip-times (in ns) of the last samples. */
+	private final long[] roundTripTimes = new long[WINDOW];
+
+	/** The local monotonic times (in ns) of the midpoints of the last samples. */
+	private final long[] midpoints = new long[WINDOW];
+
+	/** The number of samples that have been added. */
+	private long samples;
+
+	/** The offset (in ns) of the sample that is currently used. */
+	private long offsetNanos;
+
+	/** The round-trip-time (in ns) of the sample that is currently used. */
+	private long roundTripNanos;
+
+	/** The local monotonic time (in ns) of the midpoint of the sample that is currently used. */
+	private long midpointNanos;
+
+	/** The offset (in ns) of the sample that the drift is measured from. */
+	private long anchorOffsetNanos;
+
+	/** The local monotonic time (in ns) of the midpoint of the sample that the drift is measured from. */
+	private long anchorMidpointNanos;
+
+	/** The estimated drift of the clock of the peer against the local clock (in ns per ns). */
+	private double drift;
+
+
+	/**
+	 * Adds a sample and updates the estimate.
+	 * @param sendNanos the local monotonic time (in ns, see {@link System#nanoTime()}), that the request was sent.
+	 * @param receiveNanos the local monotonic time (in ns), that the answer was received.
+	 * @param peerMillis the time of the peer (in ms since the epoch), that is contained in the answer.
+	 */
+	public synchronized void addSample(long sendNanos, long receiveNanos, long peerMillis) {
+		if(receiveNanos < sendNanos)
+			return;
+		int index = (int) (this.samples++ % WINDOW);
+		this.midpoints[index] = sendNanos + (receiveNanos - sendNanos) / 2;
+		this.roundTripTimes[index] = receiveNanos - sendNanos;
+		this.offsets[index] = peerMillis * 1000000L - this.midpoints[index];
+
+		// use the sample with the lowest round-trip-time among the last ones
+		int best = index;
+		int count = (int) Math.min(this.samples, WINDOW);
+		for(int i = 0; i < count; i++) {
+			if(this.roundTripTimes[i] < this.roundTripTimes[best])
+				best = i;
+		}
+		if(this.samples > 1 && this.midpoints[best] == this.midpointNanos)
+			return;
+
+		if(this.samples == 1) {
+			this.anchorOffsetNanos = this.offsets[best];
+			this.anchorMidpointNanos = this.midpoints[best];
+		}
+		else if(this.midpoints[best] - this.anchorMidpointNanos >= MIN_DRIFT_INTERVAL) {
+			double drift = (double) (this.offsets[best] - this.anchorOffsetNanos) / (this.midpoints[best] - this.anchorMidpointNanos);
+			this.drift += DRIFT_GAIN * (drift - this.drift);
+			this.drift = Math.max(-MAX_DRIFT_PPM / 1e6, Math.min(MAX_DRIFT_PPM / 1e6, this.drift));
+			this.anchorOffsetNanos = this.offsets[best];
+			this.anchorMidpointNanos = this.midpoints[best];
+		}
+		this.offsetNanos = this.offsets[best];
+		this.roundTripNanos = this.roundTripTimes[best];
+		this.midpointNanos = this.midpoints[best];
+	}
+
+	/**
+	 * Discards all samples and the estimate.
+	 */
+	public synchronized void reset() {
+		this.samples = 0;
+		this.offsetNanos = 0;
+		this.roundTripNanos = 0;
+		this.midpointNanos = 0;
+		this.anchorOffsetNanos = 0;
+		this.anchorMidpointNanos = 0;
+		this.drift = 0;
+	}
+
+	/**
+	 * @return true, if at least one sample has been added, so local times can be converted into the time of the peer.
+	 */
+	public synchronized boolean isSynchronized() {
+		return this.samples > 0;
+	}
+
+	/**
+	 * @return the number of samples that have been added.
+	 */
+	public synchronized long getSampleCount() {
+		return this.samples;
+	}
+
+	/**
+	 * @param monotonicNanos a local monotonic time (in ns, see {@link System#nanoTime()}).
+	 * @return the estimated offset (in ns) between the time of the peer and the local monotonic time, at the passed time.
+	 */
+	public synchronized long getOffsetNanos(long monotonicNanos) {
+		return this.offsetNanos + (long) (this.drift * (monotonicNanos - this.midpointNanos));
+	}
+
+	/**
+	 * @return the estimated offset (in ns) between the time of the peer and the local wall-clock, e.g. to tell whether the clocks are apart at all.
+	 */
+	public long getWallClockOffsetNanos() {
+		long now = MonotonicClock.nanoTime();
+		return toPeerNanos(now) - MonotonicClock.toEpochMillis(now) * 1000000L;
+	}
+
+	/**
+	 * @param monotonicNanos a local monotonic time (in ns, see {@link System#nanoTime()}).
+	 * @return the corresponding time of the peer (in ns since the epoch).
+	 */
+	public long toPeerNanos(long monotonicNanos) {
+		return monotonicNanos + getOffsetNanos(monotonicNanos);
+	}
+
+	/**
+	 * @param monotonicNanos a local monotonic time (in ns, see {@link System#nanoTime()}).
+	 * @return the corresponding time of the peer (in ms since the epoch).
+	 */
+	public long toPeerMillis(long monotonicNanos) {
+		return Math.floorDiv(toPeerNanos(monotonicNanos), 1000000L);
+	}
+
+	/**
+	 * @return the estimated drift of the clock of the peer against the local clock (in parts per million).
+	 */
+	public synchronized double getDriftPpm() {
+		return this.drift * 1e6;
+	}
+
+	/**
+	 * @return the maximum error (in ns) of the sample that is currently used: half of its round-trip-time, plus half a millisecond for the resolution of the peer's time.
+	 */
+	public synchronized long getUncertaintyNanos() {
+		return this.roundTripNanos / 2 + 500000L;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "samples=" + this.samples + " offset=" + (getWallClockOffsetNanos() / 1000) + "us (+/-" + (getUncertaintyNanos() / 1000) + "us) drift="
+				+ String.format("%.1f", this.drift * 1e6) + "ppm";
+	}
+
+}
@@ -0,0 +1,321 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+
+/**
+ * Provides helpers to encode and decode the complete control-state of the RMCS (drive, camera and lights) in a single primitive long (a control-frame).<br>
+ * Control-frames can be passed between threads without allocating or boxing anything, which keeps the control-path free of garbage.<br>
+ * Each frame carries a flag for each group of control-data ({@link #DRIVE}, {@link #CAMERA}, {@link #LIGHTS}) that it contains a value for.
+ * Frames are combined via {@link #merge(long, long)}, where the groups of the newer frame replace the same groups of the older frame.<br>
+ * The layout of a frame is (from the least significant bit):<br>
+ * - bits 0-7: acceleration, bits 8-15: steering angle, bit 16: stop <br>
+ * - bits 24-31: camera yaw-angle, bits 32-39: camera pitch-angle <br>
+ * - bits 40-44: front-lights, back-lights, dynamic-lights, left-winker, right-winker <br>
+ * - bits 56-58: the group-flags for drive, camera and lights <br>
+ * The frame {@link #EMPTY} (0) does not contain any group.<br>
+ * The helpers should be accessed in a static manner (without instantiation of this class), which is why the constructor has been set private.
+ *
+ * @author Boeck
+ */
+public final class ControlFrame {
+
+	/** The frame that does not contain any control-data. */
+	public static final long EMPTY = 0L;
+
+	/** The flag that marks a frame as containing drive-control-data (acceleration, steering angle and stop). */
+	public static final long DRIVE = 1L << 56;
+	/** The flag that marks a frame as containing camera-control-data (yaw- and pitch-angle). */
+	public static final long CAMERA = 1L << 57;
+	/** The flag that marks a frame as containing light-control-data. */
+	public static final long LIGHTS = 1L << 58;
+	/** All group-flags combined. */
+	public static final long ALL_GROUPS = DRIVE | CAMERA | LIGHTS;
+	/** The number of possible combinations of group-flags, i.e. the range of {@link #groupIndex(long)}. */
+	public static final int GROUP_COMBINATIONS = 8;
+	/** The position of the lowest group-flag. */
+	private static final int GROUP_SHIFT = 56;
+
+	/** The bit that is set, if the RMCS should stop immediately. */
+	public static final long STOP = 1L << 16;
+	/** The bit that is set, if the front-lights should be on. */
+	public static final long FRONT_LIGHTS = 1L << 40;
+	/** The bit that is set, if the back-lights should be on. */
+	public static final long BACK_LIGHTS = 1L << 41;
+	/** The bit that is set, if the lights should be controlled dynamically (through a lightsensor). */
+	public static final long DYNAMIC_LIGHTS = 1L << 42;
+	/** The bit that is set, if the left-winkers should be active. */
+	public static final long LEFT_WINKER = 1L << 43;
+	/** The bit that is set, if the right-winkers should be active. */
+	public static final long RIGHT_WINKER = 1L << 44;
+
+	private static final int ACCELERATION_SHIFT = 0;
+	private static final int STEERING_SHIFT = 8;
+	private static final int YAW_SHIFT = 24;
+	private static final int PITCH_SHIFT = 32;
+
+	/** All bits that belong to the drive-group. */
+	private static final long DRIVE_FIELDS = DRIVE | STOP | (0xFFL << ACCELERATION_SHIFT) | (0xFFL << STEERING_SHIFT);
+	/** All bits that belong to the camera-group. */
+	private static final long CAMERA_FIELDS = CAMERA | (0xFFL << YAW_SHIFT) | (0xFFL << PITCH_SHIFT);
+	/** All bits that belong to the light-group. */
+	private static final long LIGHT_FIELDS = LIGHTS | FRONT_LIGHTS | BACK_LIGHTS | DYNAMIC_LIGHTS | LEFT_WINKER | RIGHT_WINKER;
+
+
+	private ControlFrame() {
+	}
+
+
+	/**
+	 * Clamps the passed value to the valid range of [-127;127] and returns its lower 8 bits.
+	 * -128 is not allowed, since the STM32 uses it as a command-byte.
+	 */
+	private static long toField(int value) {
+		if(value < -127)
+			value = -127;
+		else if(value > 127)
+			value = 127;
+		return value & 0xFFL;
+	}
+
+	/**
+	 * @return the signed value of the 8-bit field at the passed position of the frame.
+	 */
+	private static int fromField(long frame, int shift) {
+		return (byte) (frame >>> shift);
+	}
+
+	/**
+	 * @param acceleration the acceleration/velocity for the car. Is clamped to [-127;127].
+	 * @param steeringAngle the steering angle for the car. Is clamped to [-127;127].
+	 * @param stop true, if the RMCS should stop immediately (probably due to connection-loss), otherwise false.
+	 * @return a frame that only contains the passed drive-control-data.
+	 */
+	public static long drive(int acceleration, int steeringAngle, boolean stop) {
+		return DRIVE | (toField(acceleration) << ACCELERATION_SHIFT) | (toField(steeringAngle) << STEERING_SHIFT) | (stop ? STOP : 0L);
+	}
+
+	/**
+	 * @param yawAngle the yaw-angle for the camera. Is clamped to [-127;127].
+	 * @param pitchAngle the pitch-angle for the camera. Is clamped to [-127;127].
+	 * @return a frame that only contains the passed camera-control-data.
+	 */
+	public static long camera(int yawAngle, int pitchAngle) {
+		return CAMERA | (toField(yawAngle) << YAW_SHIFT) | (toField(pitchAngle) << PITCH_SHIFT);
+	}
+
+	/**
+	 * @param frontlights true, if the front-lights should be on.
+	 * @param backlights true, if the back-lights should be on.
+	 * @param dynamicLights true, if RMCSs lights should be controlled dynamically (through a lightsensor).
+	 * @param leftWinker true, if the left-winkers should be active.
+	 * @param rightWinker true, if the right-winkers should be active.
+	 * @return a frame that only contains the passed light-control-data.
+	 */
+	public static long lights(boolean frontlights, boolean backlights, boolean dynamicLights, boolean leftWinker, boolean rightWinker) {
+		return LIGHTS | (frontlights ? FRONT_LIGHTS : 0L) | (backlights ? BACK_LIGHTS : 0L) | (dynamicLights ? DYNAMIC_LIGHTS : 0L)
+				| (leftWinker ? LEFT_WINKER : 0L) | (rightWinker ? RIGHT_WINKER : 0L);
+	}
+
+	/**
+	 * Converts a set of {@link IControlData} into a frame.
+	 * @param data the data-set to be converted.
+	 * @return a frame that contains the passed data-set, or {@link #EMPTY} if it is null or of an unknown type.
+	 */
+	public static long of(IControlData data) {
+		if(data instanceof DriveControlData) {
+			DriveControlData drive = (DriveControlData) data;
+			return drive(drive.getAcceleration(), drive.getSteeringAngle(), drive.isStopped());
+		}
+		if(data instanceof CameraControlData) {
+			CameraControlData camera = (CameraControlData) data;
+			return camera(camera.getYawAngle(), camera.getPitchAngle());
+		}
+		if(data instanceof LightControlData) {
+			LightControlData lights = (LightControlData) data;
+			return lights(lights.headlightsOn(), lights.brakelightsOn(), lights.dynamicLightsOn(), lights.leftWinkerOn(), lights.rightWinkerOn());
+		}
+		return EMPTY;
+	}
+
+	/**
+	 * @param groups any combination of {@link #DRIVE}, {@link #CAMERA} and {@link #LIGHTS}.
+	 * @return all bits of the frame-layout that belong to the passed groups.
+	 */
+	private static long fieldsOf(long groups) {
+		long fields = 0L;
+		if((groups & DRIVE) != 0)
+			fields |= DRIVE_FIELDS;
+		if((groups & CAMERA) != 0)
+			fields |= CAMERA_FIELDS;
+		if((groups & LIGHTS) != 0)
+			fields |= LIGHT_FIELDS;
+		return fields;
+	}
+
+	/**
+	 * Combines two frames, where every group that is contained in the newer frame replaces the same group of the older frame.
+	 * @param older the frame that is pending.
+	 * @param newer the frame that has been published afterwards.
+	 * @return the combined frame.
+	 */
+	public static long merge(long older, long newer) {
+		return (older & ~fieldsOf(newer)) | newer;
+	}
+
+	/**
+	 * @param frame the frame to be filtered.
+	 * @param groups any combination of {@link #DRIVE}, {@link #CAMERA} and {@link #LIGHTS}.
+	 * @return a frame that only contains those groups of the passed frame that are also contained in the passed groups.
+	 */
+	public static long retain(long frame, long groups) {
+		return frame & fieldsOf(frame & groups);
+	}
+
+	/**
+	 * @param frame the frame to be filtered.
+	 * @param groups any combination of {@link #DRIVE}, {@link #CAMERA} and {@link #LIGHTS}.
+	 * @return a frame that only contains those groups of the passed frame that are not contained in the passed groups.
+	 */
+	public static long discard(long frame, long groups) {
+		return retain(frame, ALL_GROUPS & ~groups);
+	}
+
+	/**
+	 * @param dataType the type of control-data.
+	 * @return the group-flag of the passed type, or 0 if it is not a type of control-data.
+	 */
+	public static long groupOf(EDataType dataType) {
+		if(dataType == null)
+			return 0L;
+		switch(dataType) {
+		case DRIVECONTROL:
+			return DRIVE;
+		case CAMERACONTROL:
+			return CAMERA;
+		case LIGHTCONTROL:
+			return LIGHTS;
+		default:
+			return 0L;
+		}
+	}
+
+	/**
+	 * @param frame the frame, or any combination of {@link #DRIVE}, {@link #CAMERA} and {@link #LIGHTS}.
+	 * @return the combination of groups that the frame contains, as an index in the range of [0;{@link #GROUP_COMBINATIONS}).
+	 */
+	public static int groupIndex(long frame) {
+		return (int) ((frame & ALL_GROUPS) >>> GROUP_SHIFT);
+	}
+
+	/**
+	 * @return true, if the frame does not contain any group.
+	 */
+	public static boolean isEmpty(long frame) {
+		return (frame & ALL_GROUPS) == 0;
+	}
+
+	/**
+	 * @return true, if the frame contains drive-control-data.
+	 */
+	public static boolean hasDrive(long frame) {
+		return (frame & DRIVE) != 0;
+	}
+
+	/**
+	 * @return true, if the frame contains camera-control-data.
+	 */
+	public static boolean hasCamera(long frame) {
+		return (frame & CAMERA) != 0;
+	}
+
+	/**
+	 * @return true, if the frame contains light-control-data.
+	 */
+	public static boolean hasLights(long frame) {
+		return (frame & LIGHTS) != 0;
+	}
+
+	/**
+	 * @return the acceleration/velocity for the car.
+	 */
+	public static int acceleration(long frame) {
+		return fromField(frame, ACCELERATION_SHIFT);
+	}
+
+	/**
+	 * @return the steering angle for the car.
+	 */
+	public static int steeringAngle(long frame) {
+		return fromField(frame, STEERING_SHIFT);
+	}
+
+	/**
+	 * @return true, if the car should be stopped immediately, otherwise false.
+	 */
+	public static boolean isStopped(long frame) {
+		return (frame & STOP) != 0;
+	}
+
+	/**
+	 * @return the yaw-angle (horizontal) for the camera.
+	 */
+	public static int yawAngle(long frame) {
+		return fromField(frame, YAW_SHIFT);
+	}
+
+	/**
+	 * @return the pitch-angle (vertical) for the camera.
+	 */
+	public static int pitchAngle(long frame) {
+		return fromField(frame, PITCH_SHIFT);
+	}
+
+	/**
+	 * @return true, if the front-lights should be on.
+	 */
+	public static boolean headlightsOn(long frame) {
+		return (frame & FRONT_LIGHTS) != 0;
+	}
+
+	/**
+	 * @return true, if the back-lights should be on.
+	 */
+	public static boolean brakelightsOn(long frame) {
+		return (frame & BACK_LIGHTS) != 0;
+	}
+
+	/**
+	 * @return true, if RMCSs lights should be controlled dynamically (through a lightsensor).
+	 */
+	public static boolean dynamicLightsOn(long frame) {
+		return (frame & DYNAMIC_LIGHTS) != 0;
+	}
+
+	/**
+	 * @return true, if the left-winkers should be active.
+	 */
+	public static boolean leftWinkerOn(long frame) {
+		return (frame & LEFT_WINKER) != 0;
+	}
+
+	/**
+	 * @return true, if the right-winkers should be active.
+	 */
+	public static boolean rightWinkerOn(long frame) {
+		return (frame & RIGHT_WINKER) != 0;
+	}
+
+	/**
+	 * @return a human readable representation of the frame, e.g. for logging.
+	 */
+	public static String toString(long frame) {
+		StringBuilder builder = new StringBuilder("ControlFrame[");
+		if(hasDrive(frame))
+			builder.append(" acc=").append(acceleration(frame)).append(" steer=").append(steeringAngle(frame)).append(" stop=").append(isStopped(frame));
+		if(hasCamera(frame))
+			builder.append(" yaw=").append(yawAngle(frame)).append(" pitch=").append(pitchAngle(frame));
+		if(hasLights(frame))
+			builder.append(" lights=").append((frame & LIGHT_FIELDS & ~LIGHTS) >>> 40);
+		return builder.append(" ]").toString();
+	}
+
+}
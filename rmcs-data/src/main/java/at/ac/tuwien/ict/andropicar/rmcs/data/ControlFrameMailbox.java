@@ -0,0 +1,176 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A conflating mailbox for control-frames (see {@link ControlFrame}), that carries frames between threads without boxing or allocating.<br>
+ * All frames that are published before a consumer takes them are merged into a single pending frame via {@link ControlFrame#merge(long, long)},
+ * so the consumer always receives the latest value of every group that changed since it last took a frame.<br>
+ * Publishing is lock-free. If a consumer is blocked in {@link #take()} or {@link #poll(long, TimeUnit)}, it is woken up as soon as a frame is published
+ * into the empty mailbox. A consumer that also has to meet deadlines (e.g. periodic tasks) can wait via {@link #poll(long, TimeUnit)} until the next one.<br>
+ * Emergency-stops are signalled via {@link #requestStop(long)}, separately from the pending frame. They discard the pending drive-control-data
+ * and wake up a blocked consumer, which has to check {@link #pollStopRequest()} before it processes any frame.
+ *
+ * @author Boeck
+ */
+public class ControlFrameMailbox {
+
+	/** The value of {@link #pollStopRequest()}, if no emergency-stop is pending. */
+	public static final long NO_STOP_REQUEST = Long.MIN_VALUE;
+
+	/** The pending frame, or {@link ControlFrame#EMPTY}. */
+	private final AtomicLong pendingFrame = new AtomicLong(ControlFrame.EMPTY);
+
+	/** The monotonic time (in ns, see {@link System#nanoTime()}) the oldest pending emergency-stop was requested, or {@link #NO_STOP_REQUEST}. */
+	private final AtomicLong stopRequestNanos = new AtomicLong(NO_STOP_REQUEST);
+
+	/** The number of consumers that are currently waiting in {@link #take()} or {@link #poll(long, TimeUnit)}. */
+	private final AtomicInteger waitingConsumers = new AtomicInteger();
+
+	/** The lock of the {@link #notEmpty}-condition. */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** The condition that blocked consumers wait on. Unlike a monitor, it can be waited on for a precise number of nanoseconds. */
+	private final Condition notEmpty = this.lock.newCondition();
+
+
+	/**
+	 * Merges the passed frame into the pending frame.
+	 * @param frame the frame to be published.
+	 * @return true, if the frame was published, false if it does not contain any group.
+	 */
+	public boolean put(long frame) {
+		if(ControlFrame.isEmpty(frame))
+			return false;
+
+		long pending;
+		do {
+			pending = this.pendingFrame.get();
+		} while(!this.pendingFrame.compareAndSet(pending, ControlFrame.merge(pending, frame)));
+
+		if(pending == ControlFrame.EMPTY)
+			wakeConsumers();
+		return true;
+	}
+
+	/**
+	 * Wakes up all consumers that are waiting in {@link #take()} or {@link #poll(long, TimeUnit)}.
+	 */
+	private void wakeConsumers() {
+		if(this.waitingConsumers.get() > 0) {
+			this.lock.lock();
+			try {
+				this.notEmpty.signalAll();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Signals an emergency-stop, that preempts the pending frame. The drive-control-data of the pending frame is discarded,
+	 * since it was published before the stop. If a stop is already pending, the time of the older request is kept.
+	 * @param requestNanos the monotonic time (in ns, see {@link System#nanoTime()}) the stop was requested.
+	 */
+	public void requestStop(long requestNanos) {
+		this.stopRequestNanos.compareAndSet(NO_STOP_REQUEST, requestNanos);
+
+		long pending;
+		do {
+			pending = this.pendingFrame.get();
+		} while(ControlFrame.hasDrive(pending) && !this.pendingFrame.compareAndSet(pending, ControlFrame.discard(pending, ControlFrame.DRIVE)));
+
+		wakeConsumers();
+	}
+
+	/**
+	 * @return true, if an emergency-stop is pending, otherwise false.
+	 */
+	public boolean isStopRequested() {
+		return this.stopRequestNanos.get() != NO_STOP_REQUEST;
+	}
+
+	/**
+	 * Removes the pending emergency-stop.
+	 * @return the monotonic time (in ns, see {@link System#nanoTime()}) the stop was requested, or {@link #NO_STOP_REQUEST} if no stop is pending.
+	 */
+	public long pollStopRequest() {
+		if(this.stopRequestNanos.get() == NO_STOP_REQUEST)
+			return NO_STOP_REQUEST;
+		return this.stopRequestNanos.getAndSet(NO_STOP_REQUEST);
+	}
+
+	/**
+	 * Removes and returns the pending frame.
+	 * @return the pending frame, or {@link ControlFrame#EMPTY} if nothing is pending.
+	 */
+	public long poll() {
+		if(this.pendingFrame.get() == ControlFrame.EMPTY)
+			return ControlFrame.EMPTY;
+		return this.pendingFrame.getAndSet(ControlFrame.EMPTY);
+	}
+
+	/**
+	 * Removes and returns the pending frame, waiting if necessary until a frame is published or an emergency-stop is requested.
+	 * @return the pending frame, or {@link ControlFrame#EMPTY} if the consumer was woken up by an emergency-stop.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public long take() throws InterruptedException {
+		long frame;
+		while((frame = poll()) == ControlFrame.EMPTY && !isStopRequested()) {
+			this.waitingConsumers.incrementAndGet();
+			this.lock.lock();
+			try {
+				if(isEmpty() && !isStopRequested())
+					this.notEmpty.await();
+			} finally {
+				this.lock.unlock();
+				this.waitingConsumers.decrementAndGet();
+			}
+		}
+		return frame;
+	}
+
+	/**
+	 * Removes and returns the pending frame, waiting if necessary until a frame is published, an emergency-stop is requested, or the timeout elapses.
+	 * @param timeout the maximum time to wait. If it is not positive, the method does not wait.
+	 * @param unit the unit of the timeout.
+	 * @return the pending frame, or {@link ControlFrame#EMPTY} if the timeout elapsed or the consumer was woken up by an emergency-stop.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public long poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long remainingNanos = unit.toNanos(timeout);
+		long frame;
+		while((frame = poll()) == ControlFrame.EMPTY && !isStopRequested() && remainingNanos > 0) {
+			this.waitingConsumers.incrementAndGet();
+			this.lock.lock();
+			try {
+				if(isEmpty() && !isStopRequested())
+					remainingNanos = this.notEmpty.awaitNanos(remainingNanos);
+			} finally {
+				this.lock.unlock();
+				this.waitingConsumers.decrementAndGet();
+			}
+		}
+		return frame;
+	}
+
+	/**
+	 * @return true, if no frame is pending, otherwise false.
+	 */
+	public boolean isEmpty() {
+		return this.pendingFrame.get() == ControlFrame.EMPTY;
+	}
+
+	/**
+	 * Discards the pending frame.
+	 */
+	public void clear() {
+		this.pendingFrame.set(ControlFrame.EMPTY);
+	}
+
+}
@@ -0,0 +1,171 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bus that carries all data between the modules of the RMCS. It consists of two separate {@link DataRingBuffer}s (lanes),
+ * so control-traffic is never queued behind sensor-traffic:<br>
+ * - the control-lane carries control-frames (see {@link ControlFrame}) from the connections to the car-components. Producers wait, if it is full.<br>
+ * - the sensor-lane carries {@link SensorData} from the sensor-components to the listeners. If it is full, new sensor-data is dropped, so sensors never wait.<br>
+ * Consumers are registered via {@link DataRingBuffer#newConsumer()} on the lane they want to read, before anything is published on it.
+ * Every consumer of the sensor-lane holds a reference to each published data-set and has to {@link SensorData#release()} it once it has processed it.<br>
+ * Emergency-stops bypass both lanes: {@link #requestEmergencyStop(long)} informs all {@link IEmergencyStopListener}s directly on the calling thread.
+ *
+ * @author Boeck
+ */
+public class DataBus {
+
+	/** The default number of slots of each lane. */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/** The lane that carries control-frames. */
+	private final DataRingBuffer controlLane;
+
+	/** The lane that carries sensor-data. */
+	private final DataRingBuffer sensorLane;
+
+	/** The number of sets of sensor-data that have been dropped, because the sensor-lane was full. */
+	private final AtomicLong droppedSensorData = new AtomicLong();
+
+	/** The listeners that are informed about emergency-stops. */
+	private volatile IEmergencyStopListener[] emergencyStopListeners = new IEmergencyStopListener[0];
+
+	/** The number of emergency-stops that have been requested. */
+	private final AtomicLong emergencyStops = new AtomicLong();
+
+
+	/**
+	 * Creates a bus where each lane has {@link #DEFAULT_CAPACITY} slots.
+	 * @param waitStrategy how waiting threads behave.
+	 */
+	public DataBus(EWaitStrategy waitStrategy) {
+		this(DEFAULT_CAPACITY, DEFAULT_CAPACITY, waitStrategy);
+	}
+
+	/**
+	 * @param controlCapacity the number of slots of the control-lane. Must be a power of 2.
+	 * @param sensorCapacity the number of slots of the sensor-lane. Must be a power of 2.
+	 * @param waitStrategy how waiting threads behave.
+	 */
+	public DataBus(int controlCapacity, int sensorCapacity, EWaitStrategy waitStrategy) {
+		this.controlLane = new DataRingBuffer(controlCapacity, waitStrategy);
+		this.sensorLane = new DataRingBuffer(sensorCapacity, waitStrategy);
+	}
+
+
+	/**
+	 * @return the lane that carries control-frames.
+	 */
+	public DataRingBuffer getControlLane() {
+		return this.controlLane;
+	}
+
+	/**
+	 * @return the lane that carries sensor-data.
+	 */
+	public DataRingBuffer getSensorLane() {
+		return this.sensorLane;
+	}
+
+	/**
+	 * @return the number of sets of sensor-data that have been dropped, because the sensor-lane was full.
+	 */
+	public long getDroppedSensorData() {
+		return this.droppedSensorData.get();
+	}
+
+	/**
+	 * @return the number of emergency-stops that have been requested.
+	 */
+	public long getEmergencyStops() {
+		return this.emergencyStops.get();
+	}
+
+	/**
+	 * Registers a listener, that is informed about every emergency-stop.
+	 * @param listener the listener to be added.
+	 */
+	public synchronized void addEmergencyStopListener(IEmergencyStopListener listener) {
+		if(listener == null)
+			return;
+		IEmergencyStopListener[] listeners = new IEmergencyStopListener[this.emergencyStopListeners.length + 1];
+		System.arraycopy(this.emergencyStopListeners, 0, listeners, 0, this.emergencyStopListeners.length);
+		listeners[this.emergencyStopListeners.length] = listener;
+		this.emergencyStopListeners = listeners;
+	}
+
+	/**
+	 * Unregisters the passed listener.
+	 * @param listener the listener to be removed.
+	 * @return true, if the listener was registered, otherwise false.
+	 */
+	public synchronized boolean removeEmergencyStopListener(IEmergencyStopListener listener) {
+		for(int i = 0; i < this.emergencyStopListeners.length; i++) {
+			if(this.emergencyStopListeners[i] == listener) {
+				IEmergencyStopListener[] listeners = new IEmergencyStopListener[this.emergencyStopListeners.length - 1];
+				System.arraycopy(this.emergencyStopListeners, 0, listeners, 0, i);
+				System.arraycopy(this.emergencyStopListeners, i + 1, listeners, i, listeners.length - i);
+				this.emergencyStopListeners = listeners;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Informs all {@link IEmergencyStopListener}s that the RMCS has to stop immediately, without queueing behind any other data.
+	 * @param sourceId the ID of the connection that requests the stop.
+	 */
+	public void requestEmergencyStop(long sourceId) {
+		long requestNanos = System.nanoTime();
+		this.emergencyStops.incrementAndGet();
+		IEmergencyStopListener[] listeners = this.emergencyStopListeners;
+		for(int i = 0; i < listeners.length; i++)
+			listeners[i].emergencyStop(sourceId, requestNanos);
+	}
+
+	/**
+	 * Publishes the passed control-frame on the control-lane, waiting if necessary until a slot is free.
+	 * @param sourceId the ID of the connection that publishes the frame.
+	 * @param frame the control-frame (see {@link ControlFrame}).
+	 * @return true, if the frame was published, false if it does not contain any group.
+	 */
+	public boolean publishControlFrame(long sourceId, long frame) {
+		if(ControlFrame.isEmpty(frame))
+			return false;
+
+		long sequence = this.controlLane.next();
+		this.controlLane.get(sequence).setControlFrame(sourceId, frame, System.nanoTime());
+		this.controlLane.publish(sequence);
+		return true;
+	}
+
+	/**
+	 * Publishes the passed sensor-data on the sensor-lane, if a slot is free.
+	 * The reference to the data-set is handed over to the consumers of the sensor-lane, each of which holds one reference.
+	 * If it cannot be published, or nobody consumes the sensor-lane, it is released.
+	 * @param sourceId the ID of the component that publishes the data.
+	 * @param data the sensor-data.
+	 * @return true, if the data was published, otherwise false.
+	 */
+	public boolean publishSensorData(long sourceId, SensorData data) {
+		if(data == null)
+			return false;
+
+		long sequence = this.sensorLane.tryNext();
+		if(sequence < 0) {
+			this.droppedSensorData.incrementAndGet();
+			data.release();
+			return false;
+		}
+		int consumers = this.sensorLane.getConsumerCount();
+		for(int i = 1; i < consumers; i++)
+			data.retain();
+		this.sensorLane.get(sequence).setData(sourceId, data, System.nanoTime());
+		this.sensorLane.publish(sequence);
+		if(consumers == 0)
+			data.release();
+		return true;
+	}
+
+}
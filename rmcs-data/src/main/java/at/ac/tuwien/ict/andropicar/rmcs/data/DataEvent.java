@@ -0,0 +1,80 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+
+/**
+ * A preallocated, reusable slot of a {@link DataRingBuffer}.<br>
+ * Producers overwrite the slot of the sequence they claimed and then publish it. The slot either carries a control-frame (see {@link ControlFrame})
+ * or a reference to a set of {@link IData}. Consumers must not keep a reference to the slot itself after they have processed it.
+ *
+ * @author Boeck
+ */
+public class DataEvent {
+
+	/** the ID of the connection or component that published this event. */
+	private long sourceId;
+
+	/** the monotonic time (in ns, see {@link System#nanoTime()}) this event was published. */
+	private long timestampNanos;
+
+	/** the control-frame of this event, or {@link ControlFrame#EMPTY} if it carries a set of {@link IData}. */
+	private long controlFrame;
+
+	/** the data-set of this event, or null if it carries a control-frame. */
+	private IData data;
+
+
+	/**
+	 * Overwrites this slot with a control-frame.
+	 * @param sourceId the ID of the connection or component that publishes this event.
+	 * @param controlFrame the control-frame (see {@link ControlFrame}).
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) this event is published.
+	 */
+	public void setControlFrame(long sourceId, long controlFrame, long timestampNanos) {
+		this.sourceId = sourceId;
+		this.timestampNanos = timestampNanos;
+		this.controlFrame = controlFrame;
+		this.data = null;
+	}
+
+	/**
+	 * Overwrites this slot with a set of {@link IData}.
+	 * @param sourceId the ID of the connection or component that publishes this event.
+	 * @param data the data-set.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) this event is published.
+	 */
+	public void setData(long sourceId, IData data, long timestampNanos) {
+		this.sourceId = sourceId;
+		this.timestampNanos = timestampNanos;
+		this.controlFrame = ControlFrame.EMPTY;
+		this.data = data;
+	}
+
+	/**
+	 * @return the ID of the connection or component that published this event.
+	 */
+	public long getSourceId() {
+		return sourceId;
+	}
+
+	/**
+	 * @return the monotonic time (in ns, see {@link System#nanoTime()}) this event was published.
+	 */
+	public long getTimestampNanos() {
+		return timestampNanos;
+	}
+
+	/**
+	 * @return the control-frame of this event, or {@link ControlFrame#EMPTY} if it carries a set of {@link IData}.
+	 */
+	public long getControlFrame() {
+		return controlFrame;
+	}
+
+	/**
+	 * @return the data-set of this event, or null if it carries a control-frame.
+	 */
+	public IData getData() {
+		return data;
+	}
+
+}
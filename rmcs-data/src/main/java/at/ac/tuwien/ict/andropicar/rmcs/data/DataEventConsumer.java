@@ -0,0 +1,63 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A consumer of a {@link DataRingBuffer}, that keeps track of the sequence up to which it has processed the events of the ring-buffer.<br>
+ * A consumer must only be used by a single thread. It is created via {@link DataRingBuffer#newConsumer()}.
+ *
+ * @author Boeck
+ */
+public class DataEventConsumer {
+
+	/** The ring-buffer this consumer reads from. */
+	private final DataRingBuffer ringBuffer;
+
+	/** The highest sequence this consumer has processed. */
+	private final AtomicLong sequence;
+
+
+	/**
+	 * @param ringBuffer the ring-buffer this consumer reads from.
+	 * @param sequence the highest sequence this consumer has already seen.
+	 */
+	DataEventConsumer(DataRingBuffer ringBuffer, long sequence) {
+		this.ringBuffer = ringBuffer;
+		this.sequence = new AtomicLong(sequence);
+	}
+
+
+	/**
+	 * @return the highest sequence this consumer has processed.
+	 */
+	public long getSequence() {
+		return this.sequence.get();
+	}
+
+	/**
+	 * @return the number of events that have been claimed, but not yet processed by this consumer.
+	 */
+	public long getBacklog() {
+		return this.ringBuffer.getClaimedSequence() - this.sequence.get();
+	}
+
+	/**
+	 * Waits until at least one new event is published and passes all events that are available to the handler.
+	 * Afterwards, the slots of these events are freed for the producers.
+	 * @param handler the handler that processes the events.
+	 * @return the number of processed events.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public int process(IDataEventHandler handler) throws InterruptedException {
+		long next = this.sequence.get() + 1;
+		long available = this.ringBuffer.waitFor(next);
+		try {
+			for(long sequence = next; sequence <= available; sequence++)
+				handler.onEvent(this.ringBuffer.get(sequence), sequence, sequence == available);
+		} finally {
+			this.sequence.lazySet(available);
+		}
+		return (int) (available - next + 1);
+	}
+
+}
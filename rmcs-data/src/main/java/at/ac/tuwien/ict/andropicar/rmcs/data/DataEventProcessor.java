@@ -0,0 +1,42 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+
+/**
+ * A Runnable, that continuously passes the events of a {@link DataEventConsumer} to an {@link IDataEventHandler}, until its thread is interrupted.
+ *
+ * @author Boeck
+ */
+public class DataEventProcessor implements Runnable {
+
+	/** The consumer whose events are processed. */
+	private final DataEventConsumer consumer;
+
+	/** The handler that processes the events. */
+	private final IDataEventHandler handler;
+
+
+	/**
+	 * @param consumer the consumer whose events are processed.
+	 * @param handler the handler that processes the events.
+	 */
+	public DataEventProcessor(DataEventConsumer consumer, IDataEventHandler handler) {
+		this.consumer = consumer;
+		this.handler = handler;
+	}
+
+
+	/**
+	 * Processes events, until the thread is interrupted.
+	 */
+	@Override
+	public void run() {
+		while(!Thread.currentThread().isInterrupted()) {
+			try {
+				this.consumer.process(this.handler);
+			} catch(InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
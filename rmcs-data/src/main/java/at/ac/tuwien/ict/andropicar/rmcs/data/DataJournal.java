@@ -0,0 +1,242 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An append-only journal, that records the traffic of a {@link DataBus} into memory-mapped segment-files, so it can be replayed via {@link DataJournalReplay}.<br>
+ * The journal is registered as {@link IDataEventHandler} on the lanes of the bus (e.g. via a {@link DataEventProcessor} per lane) and releases all recorded {@link SensorData}.
+ * Since it is a consumer of the lanes, it has to keep up with the producers. Writing a record only copies a few bytes into the mapped segment.<br>
+ * <br>
+ * Each segment-file ({@link #segmentName(int)}) starts with a header of {@link #SEGMENT_HEADER_SIZE} bytes:<br>
+ * - int magic ({@link #MAGIC}), short version ({@link #VERSION}), short reserved, int segment-index, int segment-size <br>
+ * - long wall-clock time (in ms since the epoch) and long monotonic time (in ns), taken together when the segment was created <br>
+ * It is followed by records, each of which starts with a header of {@link #RECORD_HEADER_SIZE} bytes:<br>
+ * - byte kind ({@link #KIND_CONTROL_FRAME} or {@link #KIND_SENSOR_DATA}), byte ordinal of the {@link EDataType} (or -1), short length of the payload <br>
+ * - long monotonic time (in ns) the record was published on the bus, long ID of the source <br>
+ * The payload of a control-frame is the frame (long). The payload of sensor-data is the monotonic time it was captured (long), followed by its values (int each).<br>
+ * A kind of {@link #KIND_END} marks the end of a segment. The kind of a record is written last, so a record that was not written completely is never read.
+ *
+ * @author Boeck
+ */
+public class DataJournal implements IDataEventHandler {
+
+	/** The magic number at the start of each segment ("RMCJ"). */
+	public static final int MAGIC = 0x524D434A;
+	/** The version of the binary layout. */
+	public static final short VERSION = 1;
+	/** The size of the header of each segment in bytes. */
+	public static final int SEGMENT_HEADER_SIZE = 32;
+	/** The size of the header of each record in bytes. */
+	public static final int RECORD_HEADER_SIZE = 20;
+	/** The default size of each segment in bytes (64 MiB). */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+	/** The kind that marks the end of a segment. */
+	public static final byte KIND_END = 0;
+	/** The kind of a record that contains a control-frame. */
+	public static final byte KIND_CONTROL_FRAME = 1;
+	/** The kind of a record that contains sensor-data. */
+	public static final byte KIND_SENSOR_DATA = 2;
+
+	/** The size of the largest payload. */
+	private static final int MAX_PAYLOAD_SIZE = 8 + 3 * 4;
+
+	/** The directory the segments are written to. */
+	private final File directory;
+
+	/** The size of each segment in bytes. */
+	private final int segmentSize;
+
+	/** The index of the current segment. */
+	private int segmentIndex;
+
+	/** The file of the current segment. */
+	private RandomAccessFile segmentFile;
+
+	/** The mapped content of the current segment. */
+	private MappedByteBuffer segment;
+
+	/** The number of records that have been written. */
+	private long records;
+
+
+	/**
+	 * Creates the directory, if necessary, and the first segment. Existing segments in the directory are not overwritten, the journal continues after them.
+	 * @param directory the directory the segments are written to.
+	 * @param segmentSize the size of each segment in bytes.
+	 * @throws IOException if the directory or the first segment cannot be created.
+	 */
+	public DataJournal(File directory, int segmentSize) throws IOException {
+		if(segmentSize < SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE + MAX_PAYLOAD_SIZE)
+			throw new IllegalArgumentException("The segmentSize of a DataJournal is too small!");
+		if(!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Could not create the journal-directory " + directory + "!");
+
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.segmentIndex = -1;
+		while(new File(directory, segmentName(this.segmentIndex + 1)).exists())
+			this.segmentIndex++;
+		rollover();
+	}
+
+
+	/**
+	 * @param index the index of a segment.
+	 * @return the name of the file of the segment with the passed index.
+	 */
+	public static String segmentName(int index) {
+		return String.format("journal-%06d.rmcj", index);
+	}
+
+	/**
+	 * Closes the current segment and creates the next one.
+	 * @throws IOException if the next segment cannot be created.
+	 */
+	private void rollover() throws IOException {
+		closeSegment();
+		this.segmentIndex++;
+		this.segmentFile = new RandomAccessFile(new File(this.directory, segmentName(this.segmentIndex)), "rw");
+		this.segment = this.segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+		this.segment.putInt(MAGIC);
+		this.segment.putShort(VERSION);
+		this.segment.putShort((short) 0);
+		this.segment.putInt(this.segmentIndex);
+		this.segment.putInt(this.segmentSize);
+		this.segment.putLong(System.currentTimeMillis());
+		this.segment.putLong(System.nanoTime());
+	}
+
+	/**
+	 * Writes the current segment to the disk and closes it.
+	 * @throws IOException if the segment cannot be closed.
+	 */
+	private void closeSegment() throws IOException {
+		if(this.segment != null)
+			this.segment.force();
+		if(this.segmentFile != null)
+			this.segmentFile.close();
+		this.segment = null;
+		this.segmentFile = null;
+	}
+
+	/**
+	 * Reserves the space for a record, rolling over to the next segment if necessary, and writes its header except for the kind.
+	 * @return the position of the record, where its kind has to be written once the payload is complete, or -1 if the journal is closed.
+	 */
+	private int beginRecord(EDataType dataType, int payloadSize, long timestampNanos, long sourceId) throws IOException {
+		if(this.segment == null)
+			return -1;
+		if(this.segment.remaining() < RECORD_HEADER_SIZE + payloadSize)
+			rollover();
+
+		int position = this.segment.position();
+		this.segment.position(position + 1);
+		this.segment.put(dataType == null ? (byte) -1 : (byte) dataType.ordinal());
+		this.segment.putShort((short) payloadSize);
+		this.segment.putLong(timestampNanos);
+		this.segment.putLong(sourceId);
+		return position;
+	}
+
+	/**
+	 * Appends a control-frame to the journal.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) the frame was published.
+	 * @param sourceId the ID of the connection that published the frame.
+	 * @param frame the control-frame (see {@link ControlFrame}).
+	 * @throws IOException if the next segment cannot be created.
+	 */
+	public synchronized void appendControlFrame(long timestampNanos, long sourceId, long frame) throws IOException {
+		int position = beginRecord(null, 8, timestampNanos, sourceId);
+		if(position < 0)
+			return;
+		this.segment.putLong(frame);
+		this.segment.put(position, KIND_CONTROL_FRAME);
+		this.records++;
+	}
+
+	/**
+	 * Appends sensor-data to the journal. Types of sensor-data that are not known to the journal are skipped.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) the data was published.
+	 * @param sourceId the ID of the component that published the data.
+	 * @param data the sensor-data.
+	 * @throws IOException if the next segment cannot be created.
+	 */
+	public synchronized void appendSensorData(long timestampNanos, long sourceId, SensorData data) throws IOException {
+		int position;
+		switch(data.getDataType()) {
+		case DISTANCE_SENSOR:
+			DistanceSensorData distance = (DistanceSensorData) data;
+			if((position = beginRecord(EDataType.DISTANCE_SENSOR, 8 + 3 * 4, timestampNanos, sourceId)) < 0)
+				return;
+			this.segment.putLong(distance.getTimestampNanos());
+			this.segment.putInt(distance.getFrontDistanceSensor());
+			this.segment.putInt(distance.getLeftsideDistanceSensor());
+			this.segment.putInt(distance.getRightsideDistanceSensor());
+			break;
+		case VELOCITY_SENSOR:
+			VelocitySensorData velocity = (VelocitySensorData) data;
+			if((position = beginRecord(EDataType.VELOCITY_SENSOR, 8 + 4, timestampNanos, sourceId)) < 0)
+				return;
+			this.segment.putLong(velocity.getTimestampNanos());
+			this.segment.putInt(velocity.getVelocitySensor());
+			break;
+		default:
+			return;
+		}
+		this.segment.put(position, KIND_SENSOR_DATA);
+		this.records++;
+	}
+
+	/**
+	 * Records the passed event and releases its {@link SensorData}, if there is any.
+	 * If the journal cannot be written anymore, it is closed, but events are still released.
+	 */
+	@Override
+	public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {
+		IData data = event.getData();
+		try {
+			if(data == null)
+				appendControlFrame(event.getTimestampNanos(), event.getSourceId(), event.getControlFrame());
+			else if(data instanceof SensorData)
+				appendSensorData(event.getTimestampNanos(), event.getSourceId(), (SensorData) data);
+		} catch(IOException ioe) {
+			ioe.printStackTrace();
+			close();
+		} finally {
+			if(data instanceof SensorData)
+				((SensorData) data).release();
+		}
+	}
+
+	/**
+	 * @return the number of records that have been written.
+	 */
+	public synchronized long getRecords() {
+		return this.records;
+	}
+
+	/**
+	 * Writes all records of the current segment to the disk.
+	 */
+	public synchronized void force() {
+		if(this.segment != null)
+			this.segment.force();
+	}
+
+	/**
+	 * Writes all records to the disk and closes the journal. Records that are appended afterwards are discarded.
+	 */
+	public synchronized void close() {
+		try {
+			closeSegment();
+		} catch(IOException ioe) {
+			ioe.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,181 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads the records of a {@link DataJournal} in the order they have been written, segment by segment.<br>
+ * After {@link #next()} returned true, the current record can be inspected via the getters and read-methods of the reader.
+ * A reader must only be used by a single thread.
+ *
+ * @author Boeck
+ */
+public class DataJournalReader implements AutoCloseable {
+
+	/** The segment-files of the journal, in the order they have been written. */
+	private final File[] segmentFiles;
+
+	/** The index (in {@link #segmentFiles}) of the next segment to be opened. */
+	private int nextSegment;
+
+	/** The mapped content of the current segment. */
+	private MappedByteBuffer segment;
+
+	/** The kind of the current record. */
+	private byte kind;
+
+	/** The type of data of the current record, or null if it contains a control-frame. */
+	private EDataType dataType;
+
+	/** The monotonic time (in ns) the current record was published on the bus. */
+	private long timestampNanos;
+
+	/** The ID of the source of the current record. */
+	private long sourceId;
+
+	/** The position of the payload of the current record. */
+	private int payloadPosition;
+
+
+	/**
+	 * @param directory the directory the journal has been written to.
+	 * @throws IOException if the directory does not exist.
+	 */
+	public DataJournalReader(File directory) throws IOException {
+		File[] segmentFiles = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith("journal-") && name.endsWith(".rmcj");
+			}
+		});
+		if(segmentFiles == null)
+			throw new IOException("Could not read the journal-directory " + directory + "!");
+		Arrays.sort(segmentFiles);
+		this.segmentFiles = segmentFiles;
+	}
+
+
+	/**
+	 * Opens the next segment that has a valid header.
+	 * @return true, if a segment was opened, false if there are no segments left.
+	 * @throws IOException if a segment cannot be read.
+	 */
+	private boolean openNextSegment() throws IOException {
+		this.segment = null;
+		while(this.nextSegment < this.segmentFiles.length) {
+			try(RandomAccessFile file = new RandomAccessFile(this.segmentFiles[this.nextSegment++], "r")) {
+				if(file.length() < DataJournal.SEGMENT_HEADER_SIZE)
+					continue;
+				MappedByteBuffer segment = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+				if(segment.getInt() != DataJournal.MAGIC || segment.getShort() != DataJournal.VERSION) {
+					System.out.println("Skipping invalid journal-segment " + this.segmentFiles[this.nextSegment - 1] + ".");
+					continue;
+				}
+				segment.position(DataJournal.SEGMENT_HEADER_SIZE);
+				this.segment = segment;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Advances to the next complete record.
+	 * @return true, if there is a next record, false if the end of the journal has been reached.
+	 * @throws IOException if a segment cannot be read.
+	 */
+	public boolean next() throws IOException {
+		while(true) {
+			if(this.segment == null && !openNextSegment())
+				return false;
+
+			if(this.segment.remaining() >= DataJournal.RECORD_HEADER_SIZE) {
+				int position = this.segment.position();
+				byte kind = this.segment.get(position);
+				int payloadSize = this.segment.getShort(position + 2) & 0xFFFF;
+				if(kind != DataJournal.KIND_END && this.segment.remaining() >= DataJournal.RECORD_HEADER_SIZE + payloadSize) {
+					int ordinal = this.segment.get(position + 1);
+					this.kind = kind;
+					this.dataType = ordinal >= 0 && ordinal < EDataType.values().length ? EDataType.values()[ordinal] : null;
+					this.timestampNanos = this.segment.getLong(position + 4);
+					this.sourceId = this.segment.getLong(position + 12);
+					this.payloadPosition = position + DataJournal.RECORD_HEADER_SIZE;
+					this.segment.position(this.payloadPosition + payloadSize);
+					return true;
+				}
+			}
+			this.segment = null;
+		}
+	}
+
+	/**
+	 * @return the kind of the current record ({@link DataJournal#KIND_CONTROL_FRAME} or {@link DataJournal#KIND_SENSOR_DATA}).
+	 */
+	public byte getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * @return the type of data of the current record, or null if it contains a control-frame.
+	 */
+	public EDataType getDataType() {
+		return this.dataType;
+	}
+
+	/**
+	 * @return the monotonic time (in ns) the current record was published on the bus.
+	 */
+	public long getTimestampNanos() {
+		return this.timestampNanos;
+	}
+
+	/**
+	 * @return the ID of the source of the current record.
+	 */
+	public long getSourceId() {
+		return this.sourceId;
+	}
+
+	/**
+	 * @return the control-frame of the current record, if it contains one.
+	 */
+	public long getControlFrame() {
+		return this.segment == null ? ControlFrame.EMPTY : this.segment.getLong(this.payloadPosition);
+	}
+
+	/**
+	 * Copies the current record into the passed data-set. The timestamp is shifted by the passed offset.
+	 * @param target the data-set to be overwritten.
+	 * @param offsetNanos the offset (in ns) to be added to the recorded timestamp.
+	 * @return the passed data-set.
+	 */
+	public DistanceSensorData readDistanceSensorData(DistanceSensorData target, long offsetNanos) {
+		return target.set(this.segment.getLong(this.payloadPosition) + offsetNanos, this.segment.getInt(this.payloadPosition + 8),
+				this.segment.getInt(this.payloadPosition + 12), this.segment.getInt(this.payloadPosition + 16));
+	}
+
+	/**
+	 * Copies the current record into the passed data-set. The timestamp is shifted by the passed offset.
+	 * @param target the data-set to be overwritten.
+	 * @param offsetNanos the offset (in ns) to be added to the recorded timestamp.
+	 * @return the passed data-set.
+	 */
+	public VelocitySensorData readVelocitySensorData(VelocitySensorData target, long offsetNanos) {
+		return target.set(this.segment.getLong(this.payloadPosition) + offsetNanos, this.segment.getInt(this.payloadPosition + 8));
+	}
+
+	/**
+	 * Releases the current segment.
+	 */
+	@Override
+	public void close() {
+		this.segment = null;
+		this.nextSegment = this.segmentFiles.length;
+	}
+
+}
@@ -0,0 +1,100 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a journal that has been recorded by a {@link DataJournal} onto a {@link DataBus}, so the consumers of the bus (e.g. the component-manager)
+ * receive the recorded traffic again.<br>
+ * In real-time, the gaps between the records are preserved, otherwise the records are published as fast as the bus accepts them.
+ * Recorded timestamps are shifted to the time of the replay, and the time between capturing and publishing sensor-data is preserved.
+ * Control-frames that stop the car also request an emergency-stop, like they did when they were recorded.
+ *
+ * @author Boeck
+ */
+public class DataJournalReplay implements Runnable {
+
+	/** The directory the journal has been written to. */
+	private final File directory;
+
+	/** The bus the records are published on. */
+	private final DataBus dataBus;
+
+	/** Whether the gaps between the records are preserved. */
+	private final boolean realTime;
+
+	/** The pool for replayed distance-sensor-data. */
+	private final SensorDataPool<DistanceSensorData> distanceSensorDataPool = new SensorDataPool<>(64, DistanceSensorData::new);
+
+	/** The pool for replayed velocity-sensor-data. */
+	private final SensorDataPool<VelocitySensorData> velocitySensorDataPool = new SensorDataPool<>(64, VelocitySensorData::new);
+
+	/** The number of records that have been replayed. */
+	private volatile long replayedRecords;
+
+
+	/**
+	 * @param directory the directory the journal has been written to.
+	 * @param dataBus the bus the records are published on.
+	 * @param realTime true, if the gaps between the records should be preserved, false if the records should be replayed as fast as possible.
+	 */
+	public DataJournalReplay(File directory, DataBus dataBus, boolean realTime) {
+		this.directory = directory;
+		this.dataBus = dataBus;
+		this.realTime = realTime;
+	}
+
+
+	/**
+	 * @return the number of records that have been replayed.
+	 */
+	public long getReplayedRecords() {
+		return this.replayedRecords;
+	}
+
+	/**
+	 * Replays all records of the journal, until the end of the journal is reached or the thread is interrupted.
+	 */
+	@Override
+	public void run() {
+		try(DataJournalReader reader = new DataJournalReader(this.directory)) {
+			long offsetNanos = 0;
+			boolean first = true;
+
+			while(!Thread.currentThread().isInterrupted() && reader.next()) {
+				if(this.realTime) {
+					if(first)
+						offsetNanos = System.nanoTime() - reader.getTimestampNanos();
+					long delay;
+					while((delay = reader.getTimestampNanos() + offsetNanos - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted())
+						LockSupport.parkNanos(delay);
+				}
+				else {
+					offsetNanos = System.nanoTime() - reader.getTimestampNanos();
+				}
+				first = false;
+
+				if(reader.getKind() == DataJournal.KIND_CONTROL_FRAME) {
+					long frame = reader.getControlFrame();
+					if(ControlFrame.hasDrive(frame) && ControlFrame.isStopped(frame))
+						this.dataBus.requestEmergencyStop(reader.getSourceId());
+					this.dataBus.publishControlFrame(reader.getSourceId(), frame);
+				}
+				else if(reader.getDataType() == EDataType.DISTANCE_SENSOR) {
+					this.dataBus.publishSensorData(reader.getSourceId(), reader.readDistanceSensorData(this.distanceSensorDataPool.acquire(), offsetNanos));
+				}
+				else if(reader.getDataType() == EDataType.VELOCITY_SENSOR) {
+					this.dataBus.publishSensorData(reader.getSourceId(), reader.readVelocitySensorData(this.velocitySensorDataPool.acquire(), offsetNanos));
+				}
+				else {
+					continue;
+				}
+				this.replayedRecords++;
+			}
+		} catch(IOException ioe) {
+			ioe.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,257 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A preallocated ring-buffer of {@link DataEvent}s for multiple producers and multiple consumers, that does not allocate anything per event.<br>
+ * Producers claim a sequence via {@link #next()} or {@link #tryNext()}, overwrite the slot returned by {@link #get(long)} and {@link #publish(long)} it.
+ * Every {@link DataEventConsumer} sees every published event in the order of the sequences, and a slot is only reused once all consumers have processed it.<br>
+ * How waiting threads behave is defined by the {@link EWaitStrategy} of the ring-buffer.
+ *
+ * @author Boeck
+ */
+public class DataRingBuffer {
+
+	/** The number of times a consumer spins before it yields the CPU, if the {@link EWaitStrategy#YIELDING}-strategy is used. */
+	private static final int SPIN_TRIES = 100;
+
+	/** The preallocated slots. */
+	private final DataEvent[] events;
+
+	/** Used to map sequences to slots (capacity - 1). */
+	private final int indexMask;
+
+	/** Used to compute how often the ring-buffer has wrapped around for a sequence (log2 of the capacity). */
+	private final int indexShift;
+
+	/** How waiting threads behave. */
+	private final EWaitStrategy waitStrategy;
+
+	/** The highest sequence that has been claimed by a producer. */
+	private final AtomicLong claimedSequence = new AtomicLong(-1);
+
+	/** Holds the number of wraps of the sequence that has last been published into each slot. */
+	private final AtomicIntegerArray publishedWraps;
+
+	/** A cache of the lowest sequence that all consumers have processed, so producers do not have to check every consumer for every claim. */
+	private final AtomicLong gatingSequenceCache = new AtomicLong(-1);
+
+	/** The consumers of this ring-buffer. */
+	private volatile DataEventConsumer[] consumers = new DataEventConsumer[0];
+
+	/** The number of consumers that are currently blocked, if the {@link EWaitStrategy#BLOCKING}-strategy is used. */
+	private final AtomicInteger waitingConsumers = new AtomicInteger();
+
+	/** The monitor that blocked consumers wait on. */
+	private final Object publishMonitor = new Object();
+
+
+	/**
+	 * @param capacity the number of slots. Must be a power of 2.
+	 * @param waitStrategy how waiting threads behave.
+	 */
+	public DataRingBuffer(int capacity, EWaitStrategy waitStrategy) {
+		if(capacity < 1 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("The capacity of a DataRingBuffer must be a power of 2!");
+		if(waitStrategy == null)
+			throw new IllegalArgumentException("The waitStrategy of a DataRingBuffer must not be null!");
+
+		this.events = new DataEvent[capacity];
+		for(int i = 0; i < capacity; i++)
+			this.events[i] = new DataEvent();
+		this.indexMask = capacity - 1;
+		this.indexShift = Integer.numberOfTrailingZeros(capacity);
+		this.waitStrategy = waitStrategy;
+		this.publishedWraps = new AtomicIntegerArray(capacity);
+		for(int i = 0; i < capacity; i++)
+			this.publishedWraps.set(i, -1);
+	}
+
+
+	/**
+	 * @return the number of slots.
+	 */
+	public int getCapacity() {
+		return this.events.length;
+	}
+
+	/**
+	 * @return how waiting threads behave.
+	 */
+	public EWaitStrategy getWaitStrategy() {
+		return this.waitStrategy;
+	}
+
+	/**
+	 * @return the highest sequence that has been claimed by a producer, or -1 if nothing has been claimed yet.
+	 */
+	public long getClaimedSequence() {
+		return this.claimedSequence.get();
+	}
+
+	/**
+	 * @return the number of registered consumers.
+	 */
+	public int getConsumerCount() {
+		return this.consumers.length;
+	}
+
+	/**
+	 * Registers a new consumer, which will see all events that are published after this call.
+	 * @return the new consumer.
+	 */
+	public synchronized DataEventConsumer newConsumer() {
+		DataEventConsumer consumer = new DataEventConsumer(this, this.claimedSequence.get());
+		DataEventConsumer[] consumers = new DataEventConsumer[this.consumers.length + 1];
+		System.arraycopy(this.consumers, 0, consumers, 0, this.consumers.length);
+		consumers[this.consumers.length] = consumer;
+		this.consumers = consumers;
+		return consumer;
+	}
+
+	/**
+	 * Unregisters the passed consumer, so producers do not wait for it anymore.
+	 * @param consumer the consumer to be removed.
+	 * @return true, if the consumer was registered with this ring-buffer, otherwise false.
+	 */
+	public synchronized boolean removeConsumer(DataEventConsumer consumer) {
+		for(int i = 0; i < this.consumers.length; i++) {
+			if(this.consumers[i] == consumer) {
+				DataEventConsumer[] consumers = new DataEventConsumer[this.consumers.length - 1];
+				System.arraycopy(this.consumers, 0, consumers, 0, i);
+				System.arraycopy(this.consumers, i + 1, consumers, i, consumers.length - i);
+				this.consumers = consumers;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param defaultSequence the sequence to be returned, if there are no consumers.
+	 * @return the lowest sequence that all consumers have processed.
+	 */
+	private long getGatingSequence(long defaultSequence) {
+		long minimum = defaultSequence;
+		for(DataEventConsumer consumer : this.consumers)
+			minimum = Math.min(minimum, consumer.getSequence());
+		return minimum;
+	}
+
+	/**
+	 * Claims the next sequence, waiting if necessary until a slot is free.
+	 * @return the claimed sequence.
+	 */
+	public long next() {
+		long sequence;
+		while((sequence = tryNext()) < 0) {
+			switch(this.waitStrategy) {
+			case BUSY_SPIN:
+				break;
+			case YIELDING:
+				Thread.yield();
+				break;
+			default:
+				LockSupport.parkNanos(1000L);
+			}
+		}
+		return sequence;
+	}
+
+	/**
+	 * Claims the next sequence, if a slot is free.
+	 * @return the claimed sequence, or -1 if the ring-buffer is full.
+	 */
+	public long tryNext() {
+		while(true) {
+			long current = this.claimedSequence.get();
+			long next = current + 1;
+			long wrapPoint = next - this.events.length;
+			long cachedGatingSequence = this.gatingSequenceCache.get();
+
+			if(wrapPoint > cachedGatingSequence || cachedGatingSequence > current) {
+				long gatingSequence = getGatingSequence(current);
+				if(wrapPoint > gatingSequence)
+					return -1;
+				this.gatingSequenceCache.set(gatingSequence);
+			}
+			else if(this.claimedSequence.compareAndSet(current, next)) {
+				return next;
+			}
+		}
+	}
+
+	/**
+	 * @param sequence a claimed sequence.
+	 * @return the slot of the passed sequence.
+	 */
+	public DataEvent get(long sequence) {
+		return this.events[(int) sequence & this.indexMask];
+	}
+
+	/**
+	 * Makes the slot of the passed sequence visible to the consumers.
+	 * @param sequence the sequence that has been claimed and written by the calling producer.
+	 */
+	public void publish(long sequence) {
+		this.publishedWraps.set((int) sequence & this.indexMask, (int) (sequence >>> this.indexShift));
+
+		if(this.waitingConsumers.get() > 0) {
+			synchronized(this.publishMonitor) {
+				this.publishMonitor.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * @param sequence the sequence to be checked.
+	 * @return true, if the passed sequence has been published, otherwise false.
+	 */
+	public boolean isPublished(long sequence) {
+		return this.publishedWraps.get((int) sequence & this.indexMask) == (int) (sequence >>> this.indexShift);
+	}
+
+	/**
+	 * Waits until the passed sequence has been published.
+	 * @param sequence the sequence to wait for.
+	 * @return the highest sequence (at least the passed one) up to which all sequences have been published.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	long waitFor(long sequence) throws InterruptedException {
+		int spins = 0;
+		while(!isPublished(sequence)) {
+			switch(this.waitStrategy) {
+			case BUSY_SPIN:
+				if(Thread.interrupted())
+					throw new InterruptedException();
+				break;
+			case YIELDING:
+				if(Thread.interrupted())
+					throw new InterruptedException();
+				if(++spins > SPIN_TRIES)
+					Thread.yield();
+				break;
+			default:
+				this.waitingConsumers.incrementAndGet();
+				try {
+					synchronized(this.publishMonitor) {
+						if(!isPublished(sequence))
+							this.publishMonitor.wait();
+					}
+				} finally {
+					this.waitingConsumers.decrementAndGet();
+				}
+			}
+		}
+
+		long available = sequence;
+		long claimed = this.claimedSequence.get();
+		while(available < claimed && isPublished(available + 1))
+			available++;
+		return available;
+	}
+
+}
@@ -34,32 +34,55 @@ public class DistanceSensorData extends SensorData {
 	
 	/**
 	 * Constructor where a long variable is used to set the timestamp.
-	 * @param timestamp the time this data-set was created.
+	 * @param timestamp the time (in ms since the epoch) this data-set was created.
 	 * @param frontDistanceSensor the measurement (in cm) for the front-ultrasonic-sensor/front-distance-sensor
 	 * @param leftsideDistanceSensor the measurement (in cm) for the left-infrared-sensor/left-distance-sensor
 	 * @param rightsideDistanceSensor the measurement (in cm) for the right-infrared-sensor/right-distance-sensor
 	 */
 	public DistanceSensorData(long timestamp, int frontDistanceSensor, int leftsideDistanceSensor, int rightsideDistanceSensor){
-		super(new Timestamp(timestamp));
+		super(MonotonicClock.fromEpochMillis(timestamp));
 		this.frontDistanceSensor = frontDistanceSensor;
 		this.leftsideDistanceSensor = leftsideDistanceSensor;
 		this.rightsideDistanceSensor = rightsideDistanceSensor;
 	}
 	
 	/**
-	 * Constructor where the current System-time is used to set the timestamp.
+	 * Constructor where the current monotonic System-time ({@link System#nanoTime()}) is used to set the timestamp.
 	 * 
 	 * @param frontDistanceSensor the measurement (in cm) for the front-ultrasonic-sensor/front-distance-sensor
 	 * @param leftsideDistanceSensor the measurement (in cm) for the left-infrared-sensor/left-distance-sensor
 	 * @param rightsideDistanceSensor the measurement (in cm) for the right-infrared-sensor/right-distance-sensor
 	 */
 	public DistanceSensorData(int frontDistanceSensor, int leftsideDistanceSensor, int rightsideDistanceSensor){
-		super(new Timestamp(System.currentTimeMillis()));
+		super(System.nanoTime());
 		this.frontDistanceSensor = frontDistanceSensor;
 		this.leftsideDistanceSensor = leftsideDistanceSensor;
 		this.rightsideDistanceSensor = rightsideDistanceSensor;
 	}
 	
+	/**
+	 * Constructor for an empty data-set, that is filled via {@link #set(long, int, int, int)}, e.g. by a {@link SensorDataPool}.
+	 */
+	public DistanceSensorData(){
+		super(0L);
+	}
+	
+	/**
+	 * Overwrites the values of this data-set, so it can be reused for a new measurement.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) this data-set was captured.
+	 * @param frontDistanceSensor the measurement (in cm) for the front-ultrasonic-sensor/front-distance-sensor
+	 * @param leftsideDistanceSensor the measurement (in cm) for the left-infrared-sensor/left-distance-sensor
+	 * @param rightsideDistanceSensor the measurement (in cm) for the right-infrared-sensor/right-distance-sensor
+	 * @return this data-set.
+	 */
+	public DistanceSensorData set(long timestampNanos, int frontDistanceSensor, int leftsideDistanceSensor, int rightsideDistanceSensor){
+		super.setTimestampNanos(timestampNanos);
+		this.frontDistanceSensor = frontDistanceSensor;
+		this.leftsideDistanceSensor = leftsideDistanceSensor;
+		this.rightsideDistanceSensor = rightsideDistanceSensor;
+		return this;
+	}
+	
 	/**
 	 * @return the measurement (in cm) of the front distance-sensor.
 	 */
@@ -81,4 +104,9 @@ public class DistanceSensorData extends SensorData {
 		return rightsideDistanceSensor;
 	}
 	
+	@Override
+	public EDataType getDataType() {
+		return EDataType.DISTANCE_SENSOR;
+	}
+	
 }
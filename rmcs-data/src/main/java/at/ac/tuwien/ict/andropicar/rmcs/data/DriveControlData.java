@@ -73,4 +73,9 @@ public class DriveControlData implements IControlData{
 		return this.stop;
 	}
 	
+	@Override
+	public EDataType getDataType() {
+		return EDataType.DRIVECONTROL;
+	}
+	
 }
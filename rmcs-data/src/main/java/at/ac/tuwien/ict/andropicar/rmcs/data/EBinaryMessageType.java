@@ -0,0 +1,47 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+/**
+ * Holds the types of messages of the {@link BinaryProtocol}, each with the code that identifies it on the wire.
+ * 
+ * @author Boeck
+ */
+public enum EBinaryMessageType {
+	CONTROL(1), DISTANCE_SENSOR_DATA(2), VELOCITY_SENSOR_DATA(3), PING(4), PONG(5);
+	
+	/** The code that identifies this type on the wire. */
+	private final int code;
+	
+	/** The types, indexed by their code. */
+	private static final EBinaryMessageType[] byCode = new EBinaryMessageType[16];
+	
+	static {
+		for(EBinaryMessageType type : values())
+			byCode[type.code] = type;
+	}
+	
+	
+	/**
+	 * @param code the code that identifies this type on the wire.
+	 */
+	private EBinaryMessageType(int code) {
+		this.code = code;
+	}
+	
+	
+	/**
+	 * @return the code that identifies this type on the wire.
+	 */
+	public int getCode() {
+		return this.code;
+	}
+	
+	/**
+	 * @param code the code of a type.
+	 * @return the type with the passed code, or null if there is none.
+	 */
+	public static EBinaryMessageType fromCode(int code) {
+		if(code < 0 || code >= byCode.length)
+			return null;
+		return byCode[code];
+	}
+}
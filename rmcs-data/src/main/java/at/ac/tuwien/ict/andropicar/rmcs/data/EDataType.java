@@ -2,10 +2,37 @@ package at.ac.tuwien.ict.andropicar.rmcs.data;
 
 /**
  * Holds possible types of data to indicate the type of control or sensor,
- * e.g. for registering listeners or forwarding specific data-sets to certain components / connections.
+ * e.g. for registering listeners or forwarding specific data-sets to certain components / connections.<br>
+ * {@link #SENSOR} is used to register for all types of sensor-data.
  * 
  * @author Boeck
  */
 public enum EDataType {
-	DRIVECONTROL, CAMERACONTROL, LIGHTCONTROL, SENSOR, DISTANCE_SENSOR, VELOCITY_SENSOR;
+	DRIVECONTROL(false), CAMERACONTROL(false), LIGHTCONTROL(false), SENSOR(true), DISTANCE_SENSOR(true), VELOCITY_SENSOR(true);
+	
+	/** true, if this is a type of sensor-data, otherwise false. */
+	private final boolean sensor;
+	
+	
+	/**
+	 * @param sensor true, if this is a type of sensor-data, otherwise false.
+	 */
+	private EDataType(boolean sensor) {
+		this.sensor = sensor;
+	}
+	
+	
+	/**
+	 * @return true, if this is a type of sensor-data, otherwise false.
+	 */
+	public boolean isSensorType() {
+		return this.sensor;
+	}
+	
+	/**
+	 * @return true, if this is a type of control-data, otherwise false.
+	 */
+	public boolean isControlType() {
+		return !this.sensor;
+	}
 }
@@ -0,0 +1,14 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+/**
+ * The different ways a consumer of a {@link DataRingBuffer} can wait for new events (and a producer for free space).
+ * @author Boeck
+ */
+public enum EWaitStrategy {
+	/** Waiting threads are suspended until they are signalled. Lowest CPU-usage, highest latency. */
+	BLOCKING,
+	/** Waiting threads spin for a while and then yield the CPU to other threads between checks. */
+	YIELDING,
+	/** Waiting threads spin continuously. Lowest latency, but occupies a whole CPU-core per waiting thread. */
+	BUSY_SPIN;
+}
@@ -1,20 +1,17 @@
 package at.ac.tuwien.ict.andropicar.rmcs.data;
 
-//import control.EDataType;
 
-// common thread for data packages
-// TODO delete this class
+/**
+ * The common base of all data-sets (control-data and sensor-data) that are distributed on the RMCS.<br>
+ * Each data-set exposes its {@link EDataType}, so it can be routed without checking its class.
+ * 
+ * @author Boeck
+ */
 public interface IData {
 	
-	
-	// not needed?????
-	
-	/*
-	protected EDataType type;
-
-	public EDataType getType() {
-		return type;
-	}
-	*/
+	/**
+	 * @return the type of this data-set.
+	 */
+	public EDataType getDataType();
 
 }
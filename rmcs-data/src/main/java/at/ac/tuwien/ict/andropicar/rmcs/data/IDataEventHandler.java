@@ -0,0 +1,18 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+
+/**
+ * By implementing this interface the user indicates that it is capable of processing the events of a {@link DataRingBuffer} via a {@link DataEventConsumer}.
+ *
+ * @author Boeck
+ */
+public interface IDataEventHandler {
+
+	/**
+	 * Is called for every published event, in the order of their sequences.
+	 * @param event the event to be processed. Only valid until this method returns.
+	 * @param sequence the sequence of the event.
+	 * @param endOfBatch true, if this is the last event that is currently available, otherwise false.
+	 */
+	public void onEvent(DataEvent event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,18 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+
+/**
+ * By implementing this interface the user indicates that it is capable of receiving emergency-stop-requests from a {@link DataBus}.<br>
+ * Emergency-stops bypass the lanes of the bus and are delivered synchronously on the thread that requested them, so implementations must return quickly.
+ *
+ * @author Boeck
+ */
+public interface IEmergencyStopListener {
+
+	/**
+	 * Used to inform the user that the RMCS has to stop immediately.
+	 * @param sourceId the ID of the connection that requested the stop.
+	 * @param requestNanos the monotonic time (in ns, see {@link System#nanoTime()}) the stop was requested.
+	 */
+	public void emergencyStop(long sourceId, long requestNanos);
+}
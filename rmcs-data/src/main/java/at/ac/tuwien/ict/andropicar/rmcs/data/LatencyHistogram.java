@@ -0,0 +1,112 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+
+/**
+ * Collects the distribution of measured latencies, so that percentiles (e.g. p50 and p99) can be read, in addition to the maximum.<br>
+ * Every power of two is split into {@link #SUB_BUCKETS} buckets of equal width, so a latency is counted with a relative error of at most 1/{@link #SUB_BUCKETS},
+ * regardless of its magnitude. Recording a latency only increments a counter and never creates any objects.<br>
+ * All methods are thread-safe, so latencies can be recorded by one thread and read by another.
+ *
+ * @author Boeck
+ */
+public class LatencyHistogram {
+
+	/** The number of bits of a latency, below its highest bit, that select the bucket within its power of two. */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	/** The number of buckets that every power of two is split into. */
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** The number of recorded latencies in each bucket. */
+	private final long[] counts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+
+	/** The number of recorded latencies. */
+	private long count;
+
+	/** The highest recorded latency (in ns). */
+	private long maxNanos;
+
+
+	/**
+	 * @param latencyNanos the measured latency (in ns). Negative latencies are counted as 0.
+	 */
+	public synchronized void record(long latencyNanos) {
+		if(latencyNanos < 0)
+			latencyNanos = 0;
+		this.counts[indexOf(latencyNanos)]++;
+		this.count++;
+		if(latencyNanos > this.maxNanos)
+			this.maxNanos = latencyNanos;
+	}
+
+	/**
+	 * Discards all recorded latencies.
+	 */
+	public synchronized void reset() {
+		for(int i = 0; i < this.counts.length; i++)
+			this.counts[i] = 0;
+		this.count = 0;
+		this.maxNanos = 0;
+	}
+
+	/**
+	 * @return the number of recorded latencies.
+	 */
+	public synchronized long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * @return the highest recorded latency (in ns), or 0 if nothing has been recorded yet.
+	 */
+	public synchronized long getMaxNanos() {
+		return this.maxNanos;
+	}
+
+	/**
+	 * @param percentile the percentile (between 0 and 100), e.g. 99 for the latency that 99% of all recorded latencies do not exceed.
+	 * @return the upper bound of the bucket that contains the latency at the passed percentile (in ns), or 0 if nothing has been recorded yet.
+	 */
+	public synchronized long getPercentileNanos(double percentile) {
+		if(this.count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * this.count));
+		long counted = 0;
+		for(int i = 0; i < this.counts.length; i++) {
+			counted += this.counts[i];
+			if(counted >= rank)
+				return Math.min(upperBoundOf(i), this.maxNanos);
+		}
+		return this.maxNanos;
+	}
+
+	/**
+	 * @param latencyNanos a latency (in ns), at least 0.
+	 * @return the index of the bucket that the latency is counted in.
+	 */
+	private static int indexOf(long latencyNanos) {
+		if(latencyNanos < SUB_BUCKETS)
+			return (int) latencyNanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(latencyNanos);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (int) ((latencyNanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * @param index the index of a bucket.
+	 * @return the highest latency (in ns) that is counted in the bucket.
+	 */
+	private static long upperBoundOf(int index) {
+		if(index < SUB_BUCKETS)
+			return index;
+		int shift = index / SUB_BUCKETS - 1;
+		long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "count=" + this.count + " p50=" + (getPercentileNanos(50) / 1000) + "us p99=" + (getPercentileNanos(99) / 1000)
+				+ "us max=" + (this.maxNanos / 1000) + "us";
+	}
+
+}
@@ -0,0 +1,93 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+
+/**
+ * Collects simple statistics (count, last, minimum, maximum and mean) about measured latencies.<br>
+ * All methods are thread-safe, so latencies can be recorded by one thread and read by another.
+ *
+ * @author Boeck
+ */
+public class LatencyStatistics {
+
+	/** The number of recorded latencies. */
+	private long count;
+
+	/** The sum of all recorded latencies (in ns). */
+	private long totalNanos;
+
+	/** The last recorded latency (in ns). */
+	private long lastNanos;
+
+	/** The lowest recorded latency (in ns). */
+	private long minNanos = Long.MAX_VALUE;
+
+	/** The highest recorded latency (in ns). */
+	private long maxNanos;
+
+
+	/**
+	 * @param latencyNanos the measured latency (in ns).
+	 */
+	public synchronized void record(long latencyNanos) {
+		this.count++;
+		this.totalNanos += latencyNanos;
+		this.lastNanos = latencyNanos;
+		if(latencyNanos < this.minNanos)
+			this.minNanos = latencyNanos;
+		if(latencyNanos > this.maxNanos)
+			this.maxNanos = latencyNanos;
+	}
+
+	/**
+	 * Discards all recorded latencies.
+	 */
+	public synchronized void reset() {
+		this.count = 0;
+		this.totalNanos = 0;
+		this.lastNanos = 0;
+		this.minNanos = Long.MAX_VALUE;
+		this.maxNanos = 0;
+	}
+
+	/**
+	 * @return the number of recorded latencies.
+	 */
+	public synchronized long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * @return the last recorded latency (in ns), or 0 if nothing has been recorded yet.
+	 */
+	public synchronized long getLastNanos() {
+		return this.lastNanos;
+	}
+
+	/**
+	 * @return the lowest recorded latency (in ns), or 0 if nothing has been recorded yet.
+	 */
+	public synchronized long getMinNanos() {
+		return this.count == 0 ? 0 : this.minNanos;
+	}
+
+	/**
+	 * @return the highest recorded latency (in ns), or 0 if nothing has been recorded yet.
+	 */
+	public synchronized long getMaxNanos() {
+		return this.maxNanos;
+	}
+
+	/**
+	 * @return the mean of all recorded latencies (in ns), or 0 if nothing has been recorded yet.
+	 */
+	public synchronized long getMeanNanos() {
+		return this.count == 0 ? 0 : this.totalNanos / this.count;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "count=" + this.count + " last=" + (this.lastNanos / 1000) + "us min=" + (getMinNanos() / 1000) + "us mean=" + (getMeanNanos() / 1000)
+				+ "us max=" + (this.maxNanos / 1000) + "us";
+	}
+
+}
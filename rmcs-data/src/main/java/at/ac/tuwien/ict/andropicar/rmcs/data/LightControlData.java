@@ -83,5 +83,10 @@ public class LightControlData implements IControlData {
 	public boolean rightWinkerOn() {
 		return rightWinker;
 	}
-
+	
+	@Override
+	public EDataType getDataType() {
+		return EDataType.LIGHTCONTROL;
+	}
+	
 }
@@ -0,0 +1,57 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+
+/**
+ * Maps the monotonic time of {@link System#nanoTime()}, which is used to timestamp data on the RMCS, to wall-clock time and back.<br>
+ * The mapping is computed once, the first time it is needed, so reading the monotonic time stays as cheap as calling {@link System#nanoTime()}.<br>
+ * The helpers should be accessed in a static manner (without instantiation of this class), which is why the constructor has been set private.
+ *
+ * @author Boeck
+ */
+public final class MonotonicClock {
+
+	/**
+	 * Holds the offset between wall-clock time and monotonic time. It is only initialized, when it is accessed for the first time.
+	 */
+	private static final class Offset {
+		/** The wall-clock time (in ns since the epoch) that corresponds to a monotonic time of 0. */
+		private static final long EPOCH_NANOS = System.currentTimeMillis() * 1000000L - System.nanoTime();
+	}
+
+
+	private MonotonicClock() {
+	}
+
+
+	/**
+	 * @return the current monotonic time in nanoseconds, as returned by {@link System#nanoTime()}.
+	 */
+	public static long nanoTime() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * @param nanoTime a monotonic time in nanoseconds, as returned by {@link System#nanoTime()}.
+	 * @return the corresponding wall-clock time in milliseconds since the epoch.
+	 */
+	public static long toEpochMillis(long nanoTime) {
+		return Math.floorDiv(nanoTime + Offset.EPOCH_NANOS, 1000000L);
+	}
+
+	/**
+	 * @param epochMillis a wall-clock time in milliseconds since the epoch.
+	 * @return the corresponding monotonic time in nanoseconds.
+	 */
+	public static long fromEpochMillis(long epochMillis) {
+		return epochMillis * 1000000L - Offset.EPOCH_NANOS;
+	}
+
+	/**
+	 * @param nanoTime a monotonic time in nanoseconds, as returned by {@link System#nanoTime()}.
+	 * @return the time in nanoseconds that has passed since the passed time.
+	 */
+	public static long elapsedNanos(long nanoTime) {
+		return System.nanoTime() - nanoTime;
+	}
+
+}
@@ -1,20 +1,101 @@
 package at.ac.tuwien.ict.andropicar.rmcs.data;
 
 import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
+/**
+ * A general class for all classes used to store sensor-data.<br>
+ * Each data-set is stamped with the monotonic time ({@link System#nanoTime()}) it was captured at. The corresponding wall-clock time is only computed when it is requested.<br>
+ * Data-sets can be reused via a {@link SensorDataPool}. A pooled data-set is returned to its pool, once every holder of a reference has called {@link #release()}.
+ * Whoever wants to keep a data-set after the method it was passed to has returned, has to call {@link #retain()} first and {@link #release()} once it is done with it.
+ * For data-sets that are not pooled, both methods have no effect.
+ *
+ * @author Boeck
+ */
 public abstract class SensorData implements IData {
 
-	/** the time this set of sensor-data was captured */
-	private Timestamp timestamp;
-	
-	
+	/** Used to atomically count the references to pooled data-sets. */
+	private static final AtomicIntegerFieldUpdater<SensorData> REFERENCES = AtomicIntegerFieldUpdater.newUpdater(SensorData.class, "references");
+
+	/** the monotonic time (in ns, see {@link System#nanoTime()}) this set of sensor-data was captured */
+	private long timestampNanos;
+
+	/** the pool this data-set is returned to, once it is released, or null if it is not pooled. */
+	private SensorDataPool<?> pool;
+
+	/** the number of holders of this data-set, if it is pooled. */
+	private volatile int references;
+
+
+	/**
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) this set of sensor-data was captured.
+	 */
+	public SensorData(long timestampNanos) {
+		this.timestampNanos = timestampNanos;
+	}
+
+	/**
+	 * @param timestamp the wall-clock time this set of sensor-data was captured.
+	 */
 	public SensorData(Timestamp timestamp) {
-		this.timestamp = timestamp;
+		this(MonotonicClock.fromEpochMillis(timestamp.getTime()));
 	}
 
-	
+
+	/**
+	 * @return the monotonic time (in ns, see {@link System#nanoTime()}) this set of sensor-data was captured.
+	 */
+	public long getTimestampNanos() {
+		return timestampNanos;
+	}
+
+	/**
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) this set of sensor-data was captured.
+	 */
+	protected void setTimestampNanos(long timestampNanos) {
+		this.timestampNanos = timestampNanos;
+	}
+
+	/**
+	 * @return the time in nanoseconds that has passed since this set of sensor-data was captured.
+	 */
+	public long getAgeNanos() {
+		return MonotonicClock.elapsedNanos(this.timestampNanos);
+	}
+
+	/**
+	 * @return the wall-clock time this set of sensor-data was captured. A new object is created on every call.
+	 */
 	public Timestamp getTimestamp() {
-		return timestamp;
+		return new Timestamp(MonotonicClock.toEpochMillis(this.timestampNanos));
+	}
+
+	/**
+	 * Is called by the {@link SensorDataPool}, when this data-set is handed out.
+	 * @param pool the pool this data-set is returned to, once it is released.
+	 */
+	void acquiredFrom(SensorDataPool<?> pool) {
+		this.pool = pool;
+		REFERENCES.set(this, 1);
 	}
-	
+
+	/**
+	 * Registers an additional holder of this data-set, so it is not reused before that holder has called {@link #release()}.
+	 */
+	public void retain() {
+		if(this.pool != null)
+			REFERENCES.incrementAndGet(this);
+	}
+
+	/**
+	 * Unregisters a holder of this data-set. The last holder to call this method returns the data-set to its pool.
+	 */
+	public void release() {
+		SensorDataPool<?> pool = this.pool;
+		if(pool != null && REFERENCES.decrementAndGet(this) == 0) {
+			this.pool = null;
+			pool.recycle(this);
+		}
+	}
+
 }
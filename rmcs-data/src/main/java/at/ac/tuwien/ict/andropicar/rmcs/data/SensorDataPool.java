@@ -0,0 +1,62 @@
+package at.ac.tuwien.ict.andropicar.rmcs.data;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of reusable sensor-data-sets, so sensors can publish their measurements without creating garbage for every reading.<br>
+ * A data-set that is handed out via {@link #acquire()} is held once by the caller. It is returned to the pool, once every holder has called {@link SensorData#release()}.<br>
+ * If the pool is empty, a new data-set is created. If the pool is full, released data-sets are left to the garbage collector.
+ *
+ * @author Boeck
+ *
+ * @param <T> the type of sensor-data-sets in this pool.
+ */
+public class SensorDataPool<T extends SensorData> {
+
+	/** The data-sets that are currently not in use. */
+	private final ArrayBlockingQueue<T> freeDataSets;
+
+	/** Creates new data-sets, if the pool is empty. */
+	private final Supplier<T> factory;
+
+
+	/**
+	 * @param capacity the maximum number of unused data-sets that are kept in the pool.
+	 * @param factory creates new (empty) data-sets, if the pool is empty.
+	 */
+	public SensorDataPool(int capacity, Supplier<T> factory) {
+		this.freeDataSets = new ArrayBlockingQueue<T>(capacity);
+		this.factory = factory;
+	}
+
+
+	/**
+	 * Hands out an unused data-set. Its values have to be overwritten by the caller, before it is published.
+	 * @return a data-set, that is held once by the caller.
+	 */
+	public T acquire() {
+		T dataSet = this.freeDataSets.poll();
+		if(dataSet == null)
+			dataSet = this.factory.get();
+		dataSet.acquiredFrom(this);
+		return dataSet;
+	}
+
+	/**
+	 * Is called by {@link SensorData#release()}, once the passed data-set is not held anymore.
+	 * @param dataSet the data-set to be returned to the pool.
+	 */
+	@SuppressWarnings("unchecked")
+	void recycle(SensorData dataSet) {
+		this.freeDataSets.offer((T) dataSet);
+	}
+
+	/**
+	 * @return the number of unused data-sets that are currently kept in the pool.
+	 */
+	public int available() {
+		return this.freeDataSets.size();
+	}
+
+}
@@ -8,7 +8,9 @@ import java.util.concurrent.LinkedBlockingQueue;
  * An extension of the {@link LinkedBlockingQueue} that adds the functionality of only allowing one Object per class in the queue.
  * 
  * @author Boeck
+ * @deprecated every insert scans the whole queue and allocates, use {@link ControlFrameMailbox} for control-data instead.
  */
+@Deprecated
 public class UniqueLinkedBlockingQueue<E> extends LinkedBlockingQueue<E> {
 
 	
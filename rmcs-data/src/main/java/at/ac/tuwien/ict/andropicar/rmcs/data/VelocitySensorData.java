@@ -27,23 +27,42 @@ public class VelocitySensorData extends SensorData {
 	
 	/**
 	 * Constructor where a long variable is used to set the timestamp.
-	 * @param timestamp the time this data-set was created.
+	 * @param timestamp the time (in ms since the epoch) this data-set was created.
 	 * @param velocitySensor the measurement (in rpm) for the hall-sensor/speed-sensor
 	 */
 	public VelocitySensorData(long timestamp, int velocitySensor){
-		super(new Timestamp(timestamp));
+		super(MonotonicClock.fromEpochMillis(timestamp));
 		this.velocitySensor = velocitySensor;
 	}
 	
 	/**
-	 * Constructor where the current System-time is used to set the timestamp.
+	 * Constructor where the current monotonic System-time ({@link System#nanoTime()}) is used to set the timestamp.
 	 * @param velocitySensor the measurement (in rpm) for the hall-sensor/speed-sensor
 	 */
 	public VelocitySensorData(int velocitySensor){
-		super(new Timestamp(System.currentTimeMillis()));
+		super(System.nanoTime());
 		this.velocitySensor = velocitySensor;
 	}
 	
+	/**
+	 * Constructor for an empty data-set, that is filled via {@link #set(long, int)}, e.g. by a {@link SensorDataPool}.
+	 */
+	public VelocitySensorData(){
+		super(0L);
+	}
+	
+	/**
+	 * Overwrites the values of this data-set, so it can be reused for a new measurement.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) this data-set was captured.
+	 * @param velocitySensor the measurement (in rpm) for the hall-sensor/speed-sensor
+	 * @return this data-set.
+	 */
+	public VelocitySensorData set(long timestampNanos, int velocitySensor){
+		super.setTimestampNanos(timestampNanos);
+		this.velocitySensor = velocitySensor;
+		return this;
+	}
+	
 
 	/**
 	 * @return the measurement (in rpm) of the speed-sensor.
@@ -52,4 +71,9 @@ public class VelocitySensorData extends SensorData {
 		return velocitySensor;
 	}
 	
+	@Override
+	public EDataType getDataType() {
+		return EDataType.VELOCITY_SENSOR;
+	}
+	
 }
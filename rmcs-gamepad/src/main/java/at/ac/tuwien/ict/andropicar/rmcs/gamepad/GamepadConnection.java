@@ -5,11 +5,11 @@ import java.util.concurrent.LinkedBlockingQueue;
 import at.ac.tuwien.ict.andropicar.rmcs.connection.Connection;
 import at.ac.tuwien.ict.andropicar.rmcs.connection.ControlChangeQueueElement;
 import at.ac.tuwien.ict.andropicar.rmcs.data.CameraControlData;
+import at.ac.tuwien.ict.andropicar.rmcs.data.ControlFrame;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
 import at.ac.tuwien.ict.andropicar.rmcs.data.IControlData;
-import at.ac.tuwien.ict.andropicar.rmcs.data.IData;
 import at.ac.tuwien.ict.andropicar.rmcs.data.DriveControlData;
 import at.ac.tuwien.ict.andropicar.rmcs.data.EDataType;
-import at.ac.tuwien.ict.andropicar.rmcs.data.LightControlData;
 import at.ac.tuwien.ict.andropicar.rmcs.ui.EIdentifier;
 import at.ac.tuwien.ict.andropicar.rmcs.ui.IUI;
 import net.java.games.input.Controller;
@@ -18,7 +18,7 @@ import net.java.games.input.Controller;
 /**
  * Being a concrete implementation of the {@link Connection} class, this class basic function is to communicate with a remote device connected to the RMCS - 
  * a gamepad in this case.<br>
- * This implementation reads data from a gamepad, creates {@link IControlData}-sets accordingly (if in control) and puts them on the {@link Connection#controlDataQueue}.<br>
+ * This implementation reads data from a gamepad, creates {@link IControlData}-sets accordingly (if in control) and puts them on the control-lane of the {@link DataBus} as control-frames.<br>
  * It is also able to send control-change-requests to the main-thread.<br>
  * If there is more than one gamepad connected to the RMCS, one gamepad cannot be in control of the {@link DriveControlData} and the {@link CameraControlData} at the same time.
  * One will be in control of the drive and one will be in control of the camera.<br>
@@ -52,16 +52,16 @@ public class GamepadConnection extends Connection implements Runnable {
 	/**
 	 * 
 	 * @param carId the ID that the RMCS registers itself with on the Server.
-	 * @param controlDataQueue the queue that is used to send ControlData to their corresponding interfaces.
+	 * @param dataBus the bus whose control-lane is used to send control-frames to their corresponding interfaces.
 	 * @param controlChangeQueue the queue that is used to signal the main class to change the connection that is currently under control of a specific control-data-set.
 	 * @param gamepad the actual Controller-Object of the jinput-package that is used to communicate with the gamepad.
 	 */
-	public GamepadConnection(long carId, LinkedBlockingQueue<IData> controlDataQueue, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue,
+	public GamepadConnection(long carId, DataBus dataBus, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue,
 			Controller gamepad) {
 		
-		super(carId, controlDataQueue, controlChangeQueue);
+		super(carId, dataBus, controlChangeQueue);
 
-		if(gamepad == null || controlDataQueue == null || controlChangeQueue == null) {
+		if(gamepad == null || dataBus == null || controlChangeQueue == null) {
 			this.killRunnable = true;
 			return;
 		}
@@ -82,15 +82,15 @@ public class GamepadConnection extends Connection implements Runnable {
 	/**
 	 * 
 	 * @param carId The ID that the RMCS registers itself with on the Server.
-	 * @param controlDataQueue the queue that is used to send ControlData to their corresponding interfaces.
+	 * @param dataBus the bus whose control-lane is used to send control-frames to their corresponding interfaces.
 	 * @param controlChangeQueue the queue that is used to signal the main class to change the connection that is currently under control of a specific control-data-set.
 	 * @param gamepad the actual Controller-Object of the jinput-package that is used to communicate with the gamepad.
 	 * @param solo true, if this is the only connected gamepad, otherwise false.
 	 */
-	public GamepadConnection(long carId, LinkedBlockingQueue<IData> controlDataQueue, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue,
+	public GamepadConnection(long carId, DataBus dataBus, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue,
 			Controller gamepad, boolean solo) {
 		
-		this(carId, controlDataQueue, controlChangeQueue, gamepad);
+		this(carId, dataBus, controlChangeQueue, gamepad);
 		this.solo = solo;
 	}
 	
@@ -533,31 +533,46 @@ public class GamepadConnection extends Connection implements Runnable {
 	
 	
 	/**
-	 * Checks if the gamepad is in control of certain control-data-sets and publishes the corresponding control-data on the appropiate {@link LinkedBlockingQueue} if so.
+	 * Processes one tick of gamepad-input: polls the {@link #gamepad}, detects control-changes and updates {@link #gamepadData}, {@link #componentsPressed} and {@link #digitalAxes}.
+	 * 
+	 * @param startedPressingThrottleModeChange see {@link #detectAndProcessControlChanges(Long, Long, Long, Long, Long)}.
+	 * @param startedPressingSteeringModeChange see {@link #detectAndProcessControlChanges(Long, Long, Long, Long, Long)}.
+	 * @param startedPressingControlChange see {@link #detectAndProcessControlChanges(Long, Long, Long, Long, Long)}.
+	 * @param startedPressingGamepadDriveControlChange see {@link #detectAndProcessControlChanges(Long, Long, Long, Long, Long)}.
+	 * @param startedPressingGamepadCameraControlChange see {@link #detectAndProcessControlChanges(Long, Long, Long, Long, Long)}.
+	 */
+	void processInput(Long startedPressingThrottleModeChange, Long startedPressingSteeringModeChange, Long startedPressingControlChange,
+			Long startedPressingGamepadDriveControlChange, Long startedPressingGamepadCameraControlChange) {
+		
+		this.gamepad.poll();
+		
+		detectAndProcessControlChanges(startedPressingThrottleModeChange, startedPressingSteeringModeChange, startedPressingControlChange,
+				startedPressingGamepadDriveControlChange, startedPressingGamepadCameraControlChange);
+		updateGamepadInputData();
+    	updateComponentRelatedArrays();
+	}
+	
+	
+	/**
+	 * Checks if the gamepad is in control of certain control-data-sets and publishes the corresponding control-data as a single control-frame on the appropiate mailbox if so.
 	 */
-	private void updateControls() {
+	void updateControls() {
 		
+		long frame = ControlFrame.EMPTY;
 		if(this.gamepadData.driveControlsChanged()) {
 			if(super.connectionIdInDriveControl == super.getConnectionId())
-				super.putControlData(new DriveControlData(this.gamepadData.getAcceleration(), this.gamepadData.getSteeringAngle()*(-1)));
+				frame |= ControlFrame.drive(this.gamepadData.getAcceleration(), this.gamepadData.getSteeringAngle()*(-1), false);
 			if(super.connectionIdInCameraControl == super.getConnectionId())
-				super.putControlData(new CameraControlData(this.gamepadData.getAcceleration(), this.gamepadData.getSteeringAngle()));
-			//super.putControlData(new CameraControlData(0, 0));
+				frame |= ControlFrame.camera(this.gamepadData.getAcceleration(), this.gamepadData.getSteeringAngle());
 		}
 		
 		if(this.gamepadData.lightsChanged() && super.connectionIdInLightControl == super.getConnectionId()) {
-			boolean[] lightData = new boolean[5];
-			lightData[0] = this.gamepadData.frontLightsOn();
-			lightData[2] = this.gamepadData.dynamicLightsOn();
-			lightData[3] = this.gamepadData.leftWinkerOn();
-			lightData[4] = this.gamepadData.rightWinkerOn();
-			if(this.gamepadData.backLightsOn() || this.gamepadData.brakeOn())
-				lightData[1] = true;
-			else
-				lightData[1] = false;
-			
-			super.putControlData(new LightControlData(lightData));
+			frame |= ControlFrame.lights(this.gamepadData.frontLightsOn(), this.gamepadData.backLightsOn() || this.gamepadData.brakeOn(),
+					this.gamepadData.dynamicLightsOn(), this.gamepadData.leftWinkerOn(), this.gamepadData.rightWinkerOn());
 		}
+		
+		if(frame != ControlFrame.EMPTY)
+			super.putControlFrame(frame);
 	}
 	
 	
@@ -580,14 +595,10 @@ public class GamepadConnection extends Connection implements Runnable {
         
 		while(!killRunnable) {
 			
-			this.gamepad.poll();
-			
 			// TODO this is not working as intented (copy by value) -> the values are not saved for the next iteration of the loop
 			// trying it with Long -> should work, since it is a wrapper class and its value should therefore contain a reference and not the number itself
-			detectAndProcessControlChanges(startedPressingThrottleModeChange, startedPressingSteeringModeChange, startedPressingControlChange,
+			processInput(startedPressingThrottleModeChange, startedPressingSteeringModeChange, startedPressingControlChange,
 					startedPressingGamepadDriveControlChange, startedPressingGamepadCameraControlChange);
-			updateGamepadInputData();
-	    	updateComponentRelatedArrays();
 			
 			if(System.currentTimeMillis() - lastControlUpdate > 40){
 				updateControls();
@@ -6,7 +6,7 @@ import java.util.LinkedList;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import at.ac.tuwien.ict.andropicar.rmcs.connection.ControlChangeQueueElement;
-import at.ac.tuwien.ict.andropicar.rmcs.data.IData;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
 import net.java.games.input.Component;
 import net.java.games.input.Controller;
 import net.java.games.input.ControllerEnvironment;
@@ -33,8 +33,8 @@ public class GamepadManager {
 	private Collection<IUI> uis = new ArrayList<>();
 	/** the ID that the RMCS registers itself with on the Server. */
 	private long carId;
-	/** the queue that is used to send ControlData to their corresponding interfaces. */
-	private LinkedBlockingQueue<IData> controlDataQueue;
+	/** the bus whose control-lane is used to send control-frames to their corresponding interfaces. */
+	private DataBus dataBus;
 	/** the queue that is used to signal the main thread to change the connection that is currently under control of a specific control-data-set. */
 	private LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue;
 	/** true, if this thread is finished initializing all gamepads, otherwise false */
@@ -43,13 +43,13 @@ public class GamepadManager {
 	
 	/**
 	 * @param carId the ID that the RMCS registers itself with on the Server.
-	 * @param controlDataQueue the queue that is used to send ControlData to their corresponding interfaces.
+	 * @param dataBus the bus whose control-lane is used to send control-frames to their corresponding interfaces.
 	 * @param controlChangeQueue the queue that is used to signal the main class to change the connection that is currently under control of a specific control-data-set.
 	 */
-	public GamepadManager(long carId, LinkedBlockingQueue<IData> controlDataQueue, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue) {
+	public GamepadManager(long carId, DataBus dataBus, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue) {
 		//this.firstConnectionId = firstConnectionId;
 		this.carId = carId;
-		this.controlDataQueue = controlDataQueue;
+		this.dataBus = dataBus;
 		this.controlChangeQueue = controlChangeQueue;
 		initializeGamepads();
 	}
@@ -302,7 +302,7 @@ public class GamepadManager {
 		this.gamepads = this.findGamepads();
 		
 		if(this.gamepads.size() == 1){
-			GamepadConnection gamepadConnection = new GamepadConnection(this.carId, this.controlDataQueue, this.controlChangeQueue, gamepads.get(0), true); 
+			GamepadConnection gamepadConnection = new GamepadConnection(this.carId, this.dataBus, this.controlChangeQueue, gamepads.get(0), true); 
 			this.gamepadConnections.add(gamepadConnection);
 			for(IUI ui : this.uis)
 				gamepadConnection.registerUI(ui);
@@ -310,7 +310,7 @@ public class GamepadManager {
 		}
 		else{
 			for(int i = 0; i < this.gamepads.size(); i++){
-				GamepadConnection gamepadConnection = new GamepadConnection(this.carId, this.controlDataQueue, this.controlChangeQueue, gamepads.get(i)); 
+				GamepadConnection gamepadConnection = new GamepadConnection(this.carId, this.dataBus, this.controlChangeQueue, gamepads.get(i)); 
 				this.gamepadConnections.add(gamepadConnection);
 				for(IUI ui : this.uis)
 					gamepadConnection.registerUI(ui);
@@ -0,0 +1,59 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+
+/**
+ * The content of a control-message of the phone, as it is decoded by the {@link ControlMessageDecoder}.<br>
+ * It holds an integer value for every {@link EControlKey}, that was contained in the message, and is meant to be reused for every message.
+ *
+ * @author Boeck
+ */
+public class ControlMessage {
+
+	/** Holds a bit for every {@link EControlKey} (by its ordinal) that was contained in the message. */
+	private int presentKeys;
+
+	/** Holds the value of every {@link EControlKey} (by its ordinal) that was contained in the message. */
+	private final long[] values = new long[EControlKey.values().length];
+
+
+	/**
+	 * @param key the key to be checked.
+	 * @return true, if the message contained an integer value for the passed key, otherwise false.
+	 */
+	public boolean has(EControlKey key) {
+		return (this.presentKeys & (1 << key.ordinal())) != 0;
+	}
+
+	/**
+	 * @param key the key whose value should be returned.
+	 * @return the value of the passed key, or 0 if the message did not contain it.
+	 */
+	public long getValue(EControlKey key) {
+		return has(key) ? this.values[key.ordinal()] : 0;
+	}
+
+	/**
+	 * @return true, if the message did not contain any of the {@link EControlKey}s.
+	 */
+	public boolean isEmpty() {
+		return this.presentKeys == 0;
+	}
+
+	/**
+	 * Sets the value of the passed key.
+	 * @param key the key whose value should be set.
+	 * @param value the value of the key.
+	 */
+	void set(EControlKey key, long value) {
+		this.values[key.ordinal()] = value;
+		this.presentKeys |= 1 << key.ordinal();
+	}
+
+	/**
+	 * Removes all keys, so the message can be reused.
+	 */
+	public void clear() {
+		this.presentKeys = 0;
+	}
+
+}
@@ -0,0 +1,249 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Decodes control-messages of the phone directly from the bytes that have been framed by a {@link MessageFramer}, without creating any objects.<br>
+ * The keys of a message are matched against the keywords of the {@link EControlKey}s by walking a trie, that is built once from these keywords.
+ * The integer values of known keys are stored in a reusable {@link ControlMessage}. Like the {@link at.ac.tuwien.ict.andropicar.json.JSONDecoder},
+ * only plain integers are taken into account, while unknown keys and values of any other type (strings, decimal numbers, booleans, objects, arrays)
+ * are skipped.<br>
+ * The decoder should be accessed in a static manner (without instantiation of this class), which is why the constructor has been set private.
+ *
+ * @author Boeck
+ */
+public class ControlMessageDecoder {
+
+	/** The size of the alphabet of the trie. Keys that contain other characters are unknown. */
+	private static final int ALPHABET_SIZE = 128;
+
+	/** The transitions of the trie. The node that follows node n on character c is stored at index n * {@link #ALPHABET_SIZE} + c, 0 means that there is none. */
+	private static final int[] transitions;
+
+	/** The ordinal of the {@link EControlKey} that ends at each node of the trie, or -1 if no key ends there. */
+	private static final int[] keys;
+
+	/** The values of the {@link EControlKey}, indexed by their ordinal. */
+	private static final EControlKey[] controlKeys = EControlKey.values();
+
+	/** The maximum number of digits of an integer that is stored, so that it cannot overflow. Longer integers are skipped. */
+	private static final int MAX_DIGITS = 18;
+
+	static {
+		int nodes = 1;
+		for(EControlKey key : controlKeys)
+			nodes += key.getKeyword().length();
+
+		int[] trieTransitions = new int[nodes * ALPHABET_SIZE];
+		int[] trieKeys = new int[nodes];
+		for(int i = 0; i < trieKeys.length; i++)
+			trieKeys[i] = -1;
+
+		int usedNodes = 1;
+		for(EControlKey key : controlKeys) {
+			int node = 0;
+			String keyword = key.getKeyword();
+			for(int i = 0; i < keyword.length(); i++) {
+				int index = node * ALPHABET_SIZE + keyword.charAt(i);
+				if(trieTransitions[index] == 0)
+					trieTransitions[index] = usedNodes++;
+				node = trieTransitions[index];
+			}
+			trieKeys[node] = key.ordinal();
+		}
+
+		transitions = trieTransitions;
+		keys = trieKeys;
+	}
+
+
+	private ControlMessageDecoder() {
+	}
+
+
+	/**
+	 * Decodes the passed message into the target. The target is cleared before.<br>
+	 * The buffer is only read via its absolute get-methods, so its position and limit remain unchanged.
+	 *
+	 * @param buffer the buffer that contains the message.
+	 * @param start the index of the first byte of the message.
+	 * @param end the index after the last byte of the message.
+	 * @param target the control-message that the values are stored in.
+	 * @return true, if the message was a valid JSON-object, otherwise false (the target may contain some of the values nevertheless).
+	 */
+	public static boolean decode(ByteBuffer buffer, int start, int end, ControlMessage target) {
+		target.clear();
+
+		int i = skipWhitespace(buffer, start, end);
+		if(i >= end || buffer.get(i) != '{')
+			return false;
+		i = skipWhitespace(buffer, i + 1, end);
+		if(i < end && buffer.get(i) == '}')
+			return true;
+
+		while(i < end) {
+			// key
+			if(buffer.get(i) != '"')
+				return false;
+			int node = 0;
+			for(i++; i < end; i++) {
+				byte b = buffer.get(i);
+				if(b == '"')
+					break;
+				if(b == '\\') {
+					// keys with escape-sequences are never known
+					node = -1;
+					i++;
+				}
+				else if(node >= 0) {
+					node = b < 0 ? 0 : transitions[node * ALPHABET_SIZE + b];
+					if(node == 0)
+						node = -1;
+				}
+			}
+			if(i >= end)
+				return false;
+			int key = node < 0 ? -1 : keys[node];
+
+			i = skipWhitespace(buffer, i + 1, end);
+			if(i >= end || buffer.get(i) != ':')
+				return false;
+			i = skipWhitespace(buffer, i + 1, end);
+			if(i >= end)
+				return false;
+
+			// value
+			i = key < 0 ? skipValue(buffer, i, end) : decodeValue(buffer, i, end, controlKeys[key], target);
+			if(i < 0)
+				return false;
+
+			i = skipWhitespace(buffer, i, end);
+			if(i >= end)
+				return false;
+			byte b = buffer.get(i);
+			if(b == '}')
+				return true;
+			if(b != ',')
+				return false;
+			i = skipWhitespace(buffer, i + 1, end);
+		}
+		return false;
+	}
+
+	/**
+	 * Stores the value at the passed index in the target, if it is a plain integer. Otherwise it is skipped.
+	 * @param buffer the buffer that contains the message.
+	 * @param i the index of the first byte of the value.
+	 * @param end the index after the last byte of the message.
+	 * @param key the key of the value.
+	 * @param target the control-message that the value is stored in.
+	 * @return the index after the value, or -1 if the value is malformed.
+	 */
+	private static int decodeValue(ByteBuffer buffer, int i, int end, EControlKey key, ControlMessage target) {
+		int first = i;
+		boolean negative = buffer.get(i) == '-';
+		if(negative)
+			i++;
+
+		long value = 0;
+		int digits = 0;
+		for(; i < end; i++, digits++) {
+			byte b = buffer.get(i);
+			if(b < '0' || b > '9')
+				break;
+			value = value * 10 + (b - '0');
+		}
+
+		if(digits == 0 || digits > MAX_DIGITS)
+			return skipValue(buffer, first, end);
+		if(i < end) {
+			byte b = buffer.get(i);
+			// decimal numbers are not stored
+			if(b == '.' || b == 'e' || b == 'E')
+				return skipValue(buffer, first, end);
+		}
+
+		target.set(key, negative ? -value : value);
+		return i;
+	}
+
+	/**
+	 * Skips the value at the passed index.
+	 * @param buffer the buffer that contains the message.
+	 * @param i the index of the first byte of the value.
+	 * @param end the index after the last byte of the message.
+	 * @return the index after the value, or -1 if the value is malformed.
+	 */
+	private static int skipValue(ByteBuffer buffer, int i, int end) {
+		byte b = buffer.get(i);
+
+		if(b == '"')
+			return skipString(buffer, i, end);
+
+		if(b == '{' || b == '[') {
+			int depth = 0;
+			for(; i < end; i++) {
+				b = buffer.get(i);
+				if(b == '"') {
+					i = skipString(buffer, i, end) - 1;
+					if(i < 0)
+						return -1;
+				}
+				else if(b == '{' || b == '[')
+					depth++;
+				else if((b == '}' || b == ']') && --depth == 0)
+					return i + 1;
+			}
+			return -1;
+		}
+
+		// numbers and literals end at the next delimiter
+		int first = i;
+		for(; i < end; i++) {
+			b = buffer.get(i);
+			if(b == ',' || b == '}' || b == ']' || isWhitespace(b))
+				break;
+		}
+		return i > first ? i : -1;
+	}
+
+	/**
+	 * Skips the string that starts at the passed index.
+	 * @param buffer the buffer that contains the message.
+	 * @param i the index of the opening quote of the string.
+	 * @param end the index after the last byte of the message.
+	 * @return the index after the closing quote of the string, or -1 if the string is not closed.
+	 */
+	private static int skipString(ByteBuffer buffer, int i, int end) {
+		for(i++; i < end; i++) {
+			byte b = buffer.get(i);
+			if(b == '\\')
+				i++;
+			else if(b == '"')
+				return i + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param buffer the buffer that contains the message.
+	 * @param i the index to start at.
+	 * @param end the index after the last byte of the message.
+	 * @return the index of the first byte at or after i, that is not whitespace, or end if there is none.
+	 */
+	private static int skipWhitespace(ByteBuffer buffer, int i, int end) {
+		while(i < end && isWhitespace(buffer.get(i)))
+			i++;
+		return i;
+	}
+
+	/**
+	 * @param b the byte to be checked.
+	 * @return true, if the byte is JSON-whitespace.
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+
+}
@@ -0,0 +1,291 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.TimeUnit;
+
+import at.ac.tuwien.ict.andropicar.rmcs.data.BinaryMessage;
+import at.ac.tuwien.ict.andropicar.rmcs.data.BinaryProtocol;
+import at.ac.tuwien.ict.andropicar.rmcs.data.ClockOffsetEstimator;
+import at.ac.tuwien.ict.andropicar.rmcs.data.ControlFrame;
+import at.ac.tuwien.ict.andropicar.rmcs.data.EBinaryMessageType;
+
+
+/**
+ * Receives drive- and camera-control-data via UDP, next to the TCP-connection of the {@link ServerConnection}.<br>
+ * Unlike TCP, a lost datagram does not hold back the datagrams that follow it, so the newest control-data always gets through on a lossy network.
+ * Every datagram holds a single {@link EBinaryMessageType#CONTROL}-message of the {@link BinaryProtocol}, whose sequence-number is used
+ * to drop datagrams that arrive out of order or twice. The sequence-number is only resynchronized, once a source is set or the sender flags
+ * a datagram as the restart of its sequence-numbers (see {@link BinaryMessage#isSequenceRestart()}).
+ * Datagrams that carry the time they were sent are dropped as stale, if they are older than the freshness-timeout according to the clock of the
+ * TCP-Server (see {@link ClockOffsetEstimator}).<br>
+ * Of all datagrams that are waiting to be received, only the newest control-data is used, except that a datagram that stops the car is returned at once,
+ * so the stop is never replaced by the datagrams that follow it.<br>
+ * Datagrams are only accepted once a source has been set, and no longer after {@link #rejectAll()}, e.g. while there is no live session with the TCP-Server.<br>
+ * Only the drive- and camera-groups of the control-data are used. Everything else (identification, properties, lights and changes of the
+ * controlling device) remains on the TCP-connection.
+ *
+ * @author Boeck
+ */
+public class DatagramControlChannel {
+
+	/** The default age in milliseconds, after which a datagram is dropped as stale. */
+	public static final long DEFAULT_FRESHNESS_TIMEOUT = 500;
+
+	/** The groups of control-data that are accepted via UDP. */
+	private static final long ACCEPTED_GROUPS = ControlFrame.DRIVE | ControlFrame.CAMERA;
+
+	/** The channel that the datagrams are received on. */
+	private DatagramChannel channel;
+
+	/** The buffer that each datagram is received into. */
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BinaryProtocol.MAX_MESSAGE_SIZE);
+
+	/** Holds the content of the current datagram. */
+	private BinaryMessage message = new BinaryMessage();
+
+	/** The estimate of the clock of the TCP-Server, that the age of the datagrams is measured with. */
+	private ClockOffsetEstimator serverClock;
+
+	/** The address that datagrams are accepted from, or null if they are accepted from any address. */
+	private InetAddress source;
+
+	/** True, if datagrams are accepted from the {@link #source}. Until a source is set, all datagrams are rejected. */
+	private volatile boolean accepting;
+
+	/** The age in nanoseconds, after which a datagram is dropped as stale. */
+	private long freshnessTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_FRESHNESS_TIMEOUT);
+
+	/** True, if a datagram has been accepted since the sequence-number was last resynchronized. */
+	private boolean sequenceSynchronized;
+
+	/** The sequence-number of the last accepted datagram. */
+	private int lastSequence;
+
+	/** The time (in ms since the epoch, in the time of the TCP-Server) that the newest control-data of the last receive was sent, if it carries a timestamp. */
+	private long lastSendTime = BinaryMessage.NO_TIMESTAMP;
+
+	/** The number of datagrams that have been received. */
+	private long receivedDatagrams;
+
+	/** The number of datagrams that have been accepted. */
+	private long acceptedDatagrams;
+
+	/** The number of datagrams that have never arrived, according to the gaps in the sequence-numbers. */
+	private long lostDatagrams;
+
+	/** The number of datagrams that have been dropped, because a datagram with a higher sequence-number has already been accepted. */
+	private long reorderedDatagrams;
+
+	/** The number of datagrams that have been dropped, because they were older than the freshness-timeout. */
+	private long staleDatagrams;
+
+	/** The number of accepted datagrams, whose control-data has been replaced by a newer datagram, before it was used. */
+	private long supersededDatagrams;
+
+	/** The number of datagrams that have been dropped, because they were not a valid control-message or came from a different address. */
+	private long invalidDatagrams;
+
+	/** The number of datagrams that have been dropped, because no datagrams were accepted at the time. */
+	private long rejectedDatagrams;
+
+
+	/**
+	 * Opens a non-blocking channel that receives datagrams on the passed port.
+	 * @param port the local port to receive datagrams on, or 0 to use any free port.
+	 * @param serverClock the estimate of the clock of the TCP-Server, that the age of the datagrams is measured with.
+	 * Until it is synchronized, datagrams are not dropped because of their age.
+	 * @throws IOException if the channel cannot be opened or bound.
+	 */
+	public DatagramControlChannel(int port, ClockOffsetEstimator serverClock) throws IOException {
+		this.serverClock = serverClock;
+		this.channel = DatagramChannel.open();
+		try {
+			this.channel.bind(new InetSocketAddress(port));
+			this.channel.configureBlocking(false);
+		} catch(IOException ioe) {
+			this.channel.close();
+			throw ioe;
+		}
+	}
+
+
+	/**
+	 * Registers the channel with the passed selector, so the selector wakes up once datagrams can be received.
+	 * @param selector the selector to register with.
+	 * @return the key of the channel in the selector.
+	 * @throws IOException if the channel is closed.
+	 */
+	public SelectionKey register(Selector selector) throws IOException {
+		return this.channel.register(selector, SelectionKey.OP_READ);
+	}
+
+	/**
+	 * @return the local port that datagrams are received on.
+	 */
+	public int getLocalPort() {
+		return this.channel.socket().getLocalPort();
+	}
+
+	/**
+	 * Sets the address that datagrams are accepted from (e.g. the address of the TCP-Server), starts accepting them and resynchronizes the sequence-number.
+	 * @param source the address that datagrams are accepted from, or null to accept datagrams from any address.
+	 */
+	public void setSource(InetAddress source) {
+		this.source = source;
+		this.sequenceSynchronized = false;
+		this.accepting = true;
+	}
+
+	/**
+	 * Rejects all datagrams, until a source is set again (e.g. because the session with the TCP-Server has ended).
+	 * Datagrams that arrive in the meantime are still received, so they do not pile up, but are dropped.
+	 */
+	public void rejectAll() {
+		this.accepting = false;
+	}
+
+	/**
+	 * @param freshnessTimeout the age in milliseconds, after which a datagram is dropped as stale.
+	 */
+	public void setFreshnessTimeout(long freshnessTimeout) {
+		this.freshnessTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(freshnessTimeout);
+	}
+
+	/**
+	 * Receives all datagrams that are waiting and returns the newest control-data among them.
+	 * Datagrams that arrive out of order, twice, stale, or are not valid are dropped.
+	 * Once a datagram that stops the car is accepted, it is returned at once and the datagrams after it are left for the next receive.
+	 * @return a control-frame with the newest drive- and camera-control-data, or {@link ControlFrame#EMPTY} if no datagram has been accepted.
+	 * @throws IOException if the channel cannot be read.
+	 */
+	public long receive() throws IOException {
+		long frame = ControlFrame.EMPTY;
+		this.lastSendTime = BinaryMessage.NO_TIMESTAMP;
+		while(true) {
+			this.buffer.clear();
+			SocketAddress sender = this.channel.receive(this.buffer);
+			if(sender == null)
+				return frame;
+			this.receivedDatagrams++;
+			if(!this.accepting) {
+				this.rejectedDatagrams++;
+				continue;
+			}
+
+			if(this.source != null && !this.source.equals(((InetSocketAddress) sender).getAddress())
+					|| !BinaryProtocol.decode(this.buffer, 0, this.buffer.position(), this.message)
+					|| this.message.getType() != EBinaryMessageType.CONTROL) {
+				this.invalidDatagrams++;
+				continue;
+			}
+
+			if(this.message.hasTimestamp() && this.serverClock.isSynchronized()
+					&& this.serverClock.toPeerNanos(System.nanoTime()) - this.message.getTimestamp() * 1000000L > this.freshnessTimeoutNanos) {
+				this.staleDatagrams++;
+				continue;
+			}
+
+			int sequence = this.message.getSequence();
+			if(this.sequenceSynchronized && !this.message.isSequenceRestart()) {
+				int gap = sequence - this.lastSequence;
+				if(gap <= 0) {
+					this.reorderedDatagrams++;
+					continue;
+				}
+				this.lostDatagrams += gap - 1;
+			}
+			this.sequenceSynchronized = true;
+			this.lastSequence = sequence;
+			this.acceptedDatagrams++;
+			this.lastSendTime = this.message.getTimestamp();
+
+			long accepted = ControlFrame.retain(this.message.getControlFrame(), ACCEPTED_GROUPS);
+			if(frame != ControlFrame.EMPTY)
+				this.supersededDatagrams++;
+			frame = ControlFrame.merge(frame, accepted);
+			if(ControlFrame.hasDrive(accepted) && ControlFrame.isStopped(accepted))
+				return frame;
+		}
+	}
+
+	/**
+	 * @return the time (in ms since the epoch, in the time of the TCP-Server) that the control-data, returned by the last {@link #receive()}, was sent,
+	 * or {@link BinaryMessage#NO_TIMESTAMP} if it carries no timestamp.
+	 */
+	public long getLastSendTime() {
+		return this.lastSendTime;
+	}
+
+	/**
+	 * Closes the channel.
+	 */
+	public void close() {
+		try {
+			this.channel.close();
+		} catch(IOException ioe) {}
+	}
+
+	/**
+	 * @return the number of datagrams that have been received.
+	 */
+	public long getReceivedDatagrams() {
+		return this.receivedDatagrams;
+	}
+
+	/**
+	 * @return the number of datagrams that have been accepted.
+	 */
+	public long getAcceptedDatagrams() {
+		return this.acceptedDatagrams;
+	}
+
+	/**
+	 * @return the number of datagrams that have never arrived, according to the gaps in the sequence-numbers.
+	 */
+	public long getLostDatagrams() {
+		return this.lostDatagrams;
+	}
+
+	/**
+	 * @return the number of datagrams that have been dropped, because a datagram with a higher sequence-number has already been accepted.
+	 */
+	public long getReorderedDatagrams() {
+		return this.reorderedDatagrams;
+	}
+
+	/**
+	 * @return the number of datagrams that have been dropped, because they were older than the freshness-timeout.
+	 */
+	public long getStaleDatagrams() {
+		return this.staleDatagrams;
+	}
+
+	/**
+	 * @return the number of accepted datagrams, whose control-data has been replaced by a newer datagram, before it was used.
+	 */
+	public long getSupersededDatagrams() {
+		return this.supersededDatagrams;
+	}
+
+	/**
+	 * @return the number of datagrams that have been dropped, because they were not a valid control-message or came from a different address.
+	 */
+	public long getInvalidDatagrams() {
+		return this.invalidDatagrams;
+	}
+
+	/**
+	 * @return the number of datagrams that have been dropped, because no datagrams were accepted at the time.
+	 */
+	public long getRejectedDatagrams() {
+		return this.rejectedDatagrams;
+	}
+
+}
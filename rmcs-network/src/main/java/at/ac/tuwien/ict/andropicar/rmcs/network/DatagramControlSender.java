@@ -0,0 +1,91 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import at.ac.tuwien.ict.andropicar.rmcs.data.BinaryMessage;
+import at.ac.tuwien.ict.andropicar.rmcs.data.BinaryProtocol;
+
+
+/**
+ * Sends control-frames as datagrams to a {@link DatagramControlChannel}, each with the next sequence-number.<br>
+ * This is the sending side of the UDP-channel, e.g. for a stand-in of the TCP-Server that controls the car over loopback.
+ *
+ * @author Boeck
+ */
+public class DatagramControlSender implements AutoCloseable {
+
+	/** The channel that the datagrams are sent on. */
+	private DatagramChannel channel;
+
+	/** The address of the {@link DatagramControlChannel}. */
+	private InetSocketAddress target;
+
+	/** The buffer that each datagram is encoded into. */
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BinaryProtocol.MAX_MESSAGE_SIZE);
+
+	/** Holds the content of the current datagram. */
+	private BinaryMessage message = new BinaryMessage();
+
+	/** The sequence-number of the next datagram. */
+	private int sequence;
+
+	/** True, if the next datagram tells the receiver that the sequence-numbers have been restarted. */
+	private boolean sequenceRestart;
+
+
+	/**
+	 * Opens a channel that sends datagrams to the passed address.
+	 * @param target the address of the {@link DatagramControlChannel}.
+	 * @throws IOException if the channel cannot be opened.
+	 */
+	public DatagramControlSender(InetSocketAddress target) throws IOException {
+		this.channel = DatagramChannel.open();
+		this.target = target;
+	}
+
+
+	/**
+	 * Sends the passed control-frame in a single datagram.
+	 * @param frame the control-frame to be sent. Only its drive- and camera-groups are used by the receiver.
+	 * @return the sequence-number of the datagram.
+	 * @throws IOException if the datagram cannot be sent.
+	 */
+	public int send(long frame) throws IOException {
+		int sequence = this.sequence++;
+		this.message.setControl(sequence, frame, false);
+		this.message.setSequenceRestart(this.sequenceRestart);
+		this.sequenceRestart = false;
+		this.buffer.clear();
+		BinaryProtocol.encode(this.buffer, this.message);
+		this.buffer.flip();
+		this.channel.send(this.buffer, this.target);
+		return sequence;
+	}
+
+	/**
+	 * Sets the sequence-number of the next datagram, e.g. to simulate datagrams that are lost or arrive out of order.
+	 * @param sequence the sequence-number of the next datagram.
+	 */
+	public void setSequence(int sequence) {
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Restarts the sequence-numbers at the passed value, e.g. like a restarted sender. The next datagram tells the receiver so,
+	 * which otherwise would drop the datagrams until their sequence-numbers exceed the ones it has already accepted.
+	 * @param sequence the sequence-number of the next datagram.
+	 */
+	public void restartSequence(int sequence) {
+		this.sequence = sequence;
+		this.sequenceRestart = true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+}
@@ -0,0 +1,16 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+/**
+ * The states of the connection of the {@link ServerConnection} with the TCP-Server.
+ * @author Boeck
+ */
+public enum EConnectionState {
+	/** The TCP-Server is being searched among the candidate-endpoints. */
+	CONNECTING,
+	/** A connection has been established and the car is registering itself with the TCP-Server. */
+	IDENTIFYING,
+	/** The car is registered with the TCP-Server and exchanges control- and sensor-data with it. */
+	LIVE,
+	/** The connection has been lost or could not be established, and the next attempt is delayed. */
+	BACKOFF
+}
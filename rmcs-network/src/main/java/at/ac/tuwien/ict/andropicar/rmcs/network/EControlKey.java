@@ -0,0 +1,57 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+/**
+ * The keys of a control-message of the phone, that are understood by the {@link ControlMessageDecoder}.
+ * @author Boeck
+ */
+public enum EControlKey {
+	/** 0, if the phone wants to give up control of the car. */
+	PHONE_CONTROL(Keywords.phoneControl),
+	/** The steering angle. */
+	STEERING(Keywords.steering),
+	/** The acceleration. */
+	ACCELERATION(Keywords.acceleration),
+	/** 1, if the car has to stop. */
+	STOP(Keywords.stop),
+	/** The yaw angle of the camera. */
+	CAMERA_YAW(Keywords.cameraYaw),
+	/** The pitch angle of the camera. */
+	CAMERA_PITCH(Keywords.cameraPitch),
+	/** 1, if the headlights are on. */
+	FRONT_LIGHTS(Keywords.frontLights),
+	/** 1, if the backlights are on. */
+	BACK_LIGHTS(Keywords.backLights),
+	/** 1, if the dynamic lights are enabled. */
+	DYNAMIC_LIGHTS(Keywords.dynamicLights),
+	/** 1, if the left winker is on. */
+	LEFT_WINKER(Keywords.leftWinker),
+	/** 1, if the right winker is on. */
+	RIGHT_WINKER(Keywords.rightWinker),
+	/** The version of the binary protocol, that the TCP-Server agrees to use. Not a control-value, but part of the negotiation of the protocol. */
+	BINARY_PROTOCOL(Keywords.binaryProtocol),
+	/** The sequence-number of a heartbeat, that has to be answered with a pong. Not a control-value, but part of the supervision of the connection. */
+	PING(Keywords.ping),
+	/** The sequence-number of a heartbeat, that is answered. Not a control-value, but part of the supervision of the connection. */
+	PONG(Keywords.pong),
+	/** The time of the TCP-Server (in ms since the epoch) that a pong was sent. Used to estimate the offset between the clocks of the car and the TCP-Server. */
+	SERVER_TIME(Keywords.serverTime),
+	/** The time (in ms since the epoch, in the time of the TCP-Server) that a control-message was sent by the phone. Used to measure the age of control-data. */
+	SEND_TIME(Keywords.sendTime);
+
+	/** The keyword of this key in a JSON-message. */
+	private final String keyword;
+
+	/**
+	 * @param keyword the keyword of this key in a JSON-message.
+	 */
+	private EControlKey(String keyword) {
+		this.keyword = keyword;
+	}
+
+	/**
+	 * @return the keyword of this key in a JSON-message.
+	 */
+	public String getKeyword() {
+		return this.keyword;
+	}
+}
@@ -0,0 +1,14 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+/**
+ * The different ways a {@link TelemetryQueue} makes room for a new set of sensor-data, once it is full.
+ * @author Boeck
+ */
+public enum EOverflowPolicy {
+	/** The oldest queued set of the same type as the new one is dropped, so every type of sensor-data keeps its newest sets. */
+	KEEP_LATEST,
+	/** The oldest queued set is dropped, regardless of its type. */
+	DROP_OLDEST,
+	/** Only every n-th new set is queued (in place of the oldest queued set), all other new sets are dropped, which thins out the sensor-data evenly. */
+	SAMPLE;
+}
@@ -0,0 +1,20 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+
+/**
+ * By implementing this interface the user indicates that it is capable of receiving updates on the state of the connection with the TCP-Server.
+ *
+ * @author Boeck
+ *
+ */
+public interface IConnectionStateListener {
+
+	/**
+	 * Used to inform the user that the state of the connection with the TCP-Server has changed.<br>
+	 * It is called by the thread of the {@link ServerConnection}, which must not be blocked by the user.
+	 *
+	 * @param connection the connection whose state has changed.
+	 * @param state the new state of the connection.
+	 */
+	public void connectionStateChanged(ServerConnection connection, EConnectionState state);
+}
@@ -0,0 +1,23 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * By implementing this interface the user indicates that it is capable of processing the complete messages that are found by a {@link MessageFramer}.
+ *
+ * @author Boeck
+ *
+ */
+public interface IMessageHandler {
+
+	/**
+	 * Used to inform the user of a complete message.<br>
+	 * The message is not copied, it is only valid until this method returns and must only be read via the absolute get-methods of the buffer.
+	 *
+	 * @param buffer the buffer that contains the message.
+	 * @param start the index of the first byte of the message.
+	 * @param end the index after the last byte of the message.
+	 */
+	public void onMessage(ByteBuffer buffer, int start, int end);
+}
@@ -28,6 +28,12 @@ public class Keywords{
 	public static final String leftInfraredSensor = "lISen";
 	public static final String rightInfraredSensor = "rISen";
 	public static final String hallSensor = "hSen";
+	public static final String binaryProtocol = "binary";
+	public static final String udpPort = "udp";
+	public static final String ping = "ping";
+	public static final String pong = "pong";
+	public static final String serverTime = "srvT";
+	public static final String sendTime = "sndT";
 	public static final String[] forwardKeywords = {"phnCtrl", "steer", "acc", "stop",
 			"yaw", "ptch", "fLts", "bLts", "lWnkr", "rWnkr", "uSSen", "lISen", "rISen", "hSen"};
 	
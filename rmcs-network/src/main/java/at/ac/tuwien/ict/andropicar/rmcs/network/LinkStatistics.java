@@ -0,0 +1,246 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.util.concurrent.TimeUnit;
+
+import at.ac.tuwien.ict.andropicar.rmcs.data.LatencyHistogram;
+
+
+/**
+ * Collects the metrics of the quality of the link between the {@link ServerConnection} and the TCP-Server:
+ * the round-trip-times of the heartbeats, the bytes and messages in each direction (in total and per second), the messages that could not be decoded,
+ * the links that went stale and the reconnects, as well as the age of the control-data that carries the time it was sent.<br>
+ * The metrics are only updated by the thread of the {@link ServerConnection}, but can be read by any thread.
+ * Together they tell a slow or lossy network (high round-trip-times, stale links) apart from a stalled car (low rates at normal round-trip-times).
+ *
+ * @author Boeck
+ */
+public class LinkStatistics {
+
+	/** The round-trip-times of the heartbeats. */
+	private final LatencyHistogram roundTripTimes = new LatencyHistogram();
+
+	/** The ages of the control-data, from the time it was sent by the phone until it was received by the car. */
+	private final LatencyHistogram controlAges = new LatencyHistogram();
+
+	/** The number of bytes that have been received. */
+	private volatile long receivedBytes;
+
+	/** The number of bytes that have been sent. */
+	private volatile long sentBytes;
+
+	/** The number of messages that have been received. */
+	private volatile long receivedMessages;
+
+	/** The number of messages that have been sent. */
+	private volatile long sentMessages;
+
+	/** The number of received messages that could not be decoded. */
+	private volatile long decodeErrors;
+
+	/** The number of times the link went stale, because the TCP-Server did not answer for too many heartbeats. */
+	private volatile long staleLinks;
+
+	/** The number of connections that have been established with the TCP-Server. */
+	private volatile long connections;
+
+	/** The number of bytes per second, that have been received during the last rate-interval. */
+	private volatile long receivedBytesPerSecond;
+
+	/** The number of bytes per second, that have been sent during the last rate-interval. */
+	private volatile long sentBytesPerSecond;
+
+	/** The number of messages per second, that have been received during the last rate-interval. */
+	private volatile long receivedMessagesPerSecond;
+
+	/** The number of messages per second, that have been sent during the last rate-interval. */
+	private volatile long sentMessagesPerSecond;
+
+	/** The time in nanoseconds, that the current rate-interval started. */
+	private long rateStartNanos = System.nanoTime();
+
+	/** The values of {@link #receivedBytes}, {@link #sentBytes}, {@link #receivedMessages} and {@link #sentMessages} at the start of the current rate-interval. */
+	private final long[] rateStartValues = new long[4];
+
+
+	/**
+	 * @param bytes the number of bytes that have been received.
+	 */
+	void addReceivedBytes(int bytes) {
+		this.receivedBytes += bytes;
+	}
+
+	/**
+	 * @param bytes the number of bytes that have been sent.
+	 */
+	void addSentBytes(int bytes) {
+		this.sentBytes += bytes;
+	}
+
+	/**
+	 * Counts a message that has been received.
+	 */
+	void addReceivedMessage() {
+		this.receivedMessages++;
+	}
+
+	/**
+	 * Counts a message that has been sent.
+	 */
+	void addSentMessage() {
+		this.sentMessages++;
+	}
+
+	/**
+	 * Counts a received message that could not be decoded.
+	 */
+	void addDecodeError() {
+		this.decodeErrors++;
+	}
+
+	/**
+	 * Counts a link that went stale.
+	 */
+	void addStaleLink() {
+		this.staleLinks++;
+	}
+
+	/**
+	 * Counts a connection that has been established with the TCP-Server.
+	 */
+	void addConnection() {
+		this.connections++;
+	}
+
+	/**
+	 * @param roundTripNanos the round-trip-time of a heartbeat (in ns).
+	 */
+	void addRoundTripTime(long roundTripNanos) {
+		this.roundTripTimes.record(roundTripNanos);
+	}
+
+	/**
+	 * @param ageNanos the age of received control-data (in ns). Negative ages, that are caused by the uncertainty of the clock-offset, are recorded as 0.
+	 */
+	void addControlAge(long ageNanos) {
+		this.controlAges.record(Math.max(ageNanos, 0));
+	}
+
+	/**
+	 * Computes the rates of the rate-interval that ends now, and starts the next one.
+	 * @param nowNanos the current time in nanoseconds.
+	 */
+	void updateRates(long nowNanos) {
+		long elapsedNanos = nowNanos - this.rateStartNanos;
+		if(elapsedNanos <= 0)
+			return;
+		long second = TimeUnit.SECONDS.toNanos(1);
+		this.receivedBytesPerSecond = (this.receivedBytes - this.rateStartValues[0]) * second / elapsedNanos;
+		this.sentBytesPerSecond = (this.sentBytes - this.rateStartValues[1]) * second / elapsedNanos;
+		this.receivedMessagesPerSecond = (this.receivedMessages - this.rateStartValues[2]) * second / elapsedNanos;
+		this.sentMessagesPerSecond = (this.sentMessages - this.rateStartValues[3]) * second / elapsedNanos;
+		this.rateStartValues[0] = this.receivedBytes;
+		this.rateStartValues[1] = this.sentBytes;
+		this.rateStartValues[2] = this.receivedMessages;
+		this.rateStartValues[3] = this.sentMessages;
+		this.rateStartNanos = nowNanos;
+	}
+
+	/**
+	 * @return the round-trip-times of the heartbeats.
+	 */
+	public LatencyHistogram getRoundTripTimes() {
+		return this.roundTripTimes;
+	}
+
+	/**
+	 * @return the ages of the control-data, from the time it was sent by the phone until it was received by the car.
+	 */
+	public LatencyHistogram getControlAges() {
+		return this.controlAges;
+	}
+
+	/**
+	 * @return the number of bytes that have been received.
+	 */
+	public long getReceivedBytes() {
+		return this.receivedBytes;
+	}
+
+	/**
+	 * @return the number of bytes that have been sent.
+	 */
+	public long getSentBytes() {
+		return this.sentBytes;
+	}
+
+	/**
+	 * @return the number of messages that have been received.
+	 */
+	public long getReceivedMessages() {
+		return this.receivedMessages;
+	}
+
+	/**
+	 * @return the number of messages that have been sent.
+	 */
+	public long getSentMessages() {
+		return this.sentMessages;
+	}
+
+	/**
+	 * @return the number of received messages that could not be decoded.
+	 */
+	public long getDecodeErrors() {
+		return this.decodeErrors;
+	}
+
+	/**
+	 * @return the number of times the link went stale, because the TCP-Server did not answer for too many heartbeats.
+	 */
+	public long getStaleLinks() {
+		return this.staleLinks;
+	}
+
+	/**
+	 * @return the number of times the connection with the TCP-Server has been reestablished.
+	 */
+	public long getReconnects() {
+		return Math.max(this.connections - 1, 0);
+	}
+
+	/**
+	 * @return the number of bytes per second, that have been received during the last rate-interval.
+	 */
+	public long getReceivedBytesPerSecond() {
+		return this.receivedBytesPerSecond;
+	}
+
+	/**
+	 * @return the number of bytes per second, that have been sent during the last rate-interval.
+	 */
+	public long getSentBytesPerSecond() {
+		return this.sentBytesPerSecond;
+	}
+
+	/**
+	 * @return the number of messages per second, that have been received during the last rate-interval.
+	 */
+	public long getReceivedMessagesPerSecond() {
+		return this.receivedMessagesPerSecond;
+	}
+
+	/**
+	 * @return the number of messages per second, that have been sent during the last rate-interval.
+	 */
+	public long getSentMessagesPerSecond() {
+		return this.sentMessagesPerSecond;
+	}
+
+	@Override
+	public String toString() {
+		return "rtt=[" + this.roundTripTimes + "] controlAge=[" + this.controlAges + "] rx=" + this.receivedBytesPerSecond + "B/s " + this.receivedMessagesPerSecond + "msg/s tx="
+				+ this.sentBytesPerSecond + "B/s " + this.sentMessagesPerSecond + "msg/s decodeErrors=" + this.decodeErrors + " staleLinks=" + this.staleLinks
+				+ " reconnects=" + getReconnects();
+	}
+
+}
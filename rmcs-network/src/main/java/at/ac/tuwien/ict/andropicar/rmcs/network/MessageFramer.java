@@ -0,0 +1,186 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import at.ac.tuwien.ict.andropicar.rmcs.data.BinaryProtocol;
+
+
+/**
+ * Splits the stream of a TCP-connection into the JSON-messages it contains, regardless of how the messages are split up or coalesced by TCP.<br>
+ * The framer reads into a single reusable direct buffer and scans each byte only once, keeping track of the nesting of objects, arrays and strings.
+ * A message is complete once its outermost object is closed and is then passed to an {@link IMessageHandler} without being copied.
+ * Messages of the {@link BinaryProtocol} are recognized by their first byte and are complete once the length, that is given by their header, has been read.
+ * Anything between messages (e.g. whitespace) is skipped. A message that grows larger than {@link #MAX_MESSAGE_SIZE} is skipped until its end.
+ *
+ * @author Boeck
+ */
+public class MessageFramer {
+
+	/** The initial size of the buffer. */
+	public static final int INITIAL_BUFFER_SIZE = 512;
+
+	/** The maximum size of a single message. */
+	public static final int MAX_MESSAGE_SIZE = 64 * 1024;
+
+	/** The buffer that the stream is read into. It always holds the bytes of the current message (from index 0) that have not been passed on yet. */
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+
+	/** The index of the next byte to be scanned. */
+	private int scanPosition;
+
+	/** The index of the first byte of the current message, or -1 if the framer is between messages or discarding a message. */
+	private int messageStart = -1;
+
+	/** The nesting-depth of objects and arrays at the {@link #scanPosition}. */
+	private int depth;
+
+	/** True, if the {@link #scanPosition} is within a string. */
+	private boolean inString;
+
+	/** True, if the previous byte within a string was an escape-character. */
+	private boolean escaped;
+
+	/** True, if the current message is a message of the {@link BinaryProtocol}. */
+	private boolean binary;
+
+	/** The length of the current binary message, or 0 if its header has not been read yet. */
+	private int binaryLength;
+
+	/** True, if the current message is too large and its remaining bytes are discarded. */
+	private boolean discarding;
+
+	/** The number of messages that have been discarded, because they were too large. */
+	private long discardedMessages;
+
+
+	/**
+	 * Reads the bytes that are currently available from the passed channel and passes every message, that has been completed by them, to the handler.
+	 *
+	 * @param channel the channel to read from.
+	 * @param handler the handler that processes the complete messages.
+	 * @return the number of bytes that were read, or -1 if the end of the stream has been reached.
+	 * @throws IOException if the channel cannot be read.
+	 */
+	public int read(ReadableByteChannel channel, IMessageHandler handler) throws IOException {
+		if(!this.buffer.hasRemaining())
+			grow();
+
+		int read = channel.read(this.buffer);
+		if(read > 0)
+			scan(handler);
+		return read;
+	}
+
+	/**
+	 * Scans the bytes that have been read since the last call and passes every complete message to the handler.
+	 * Afterwards, the bytes that belong to the current incomplete message (if any) are moved to the start of the {@link #buffer}.
+	 *
+	 * @param handler the handler that processes the complete messages.
+	 */
+	private void scan(IMessageHandler handler) {
+		int end = this.buffer.position();
+		for(int i = this.scanPosition; i < end; i++) {
+			byte b = this.buffer.get(i);
+			if(this.binary) {
+				// the length of a binary message is given by its header
+				int offset = i - this.messageStart;
+				if(offset == BinaryProtocol.HEADER_SIZE - 1)
+					this.binaryLength = BinaryProtocol.getMessageLength(this.buffer, this.messageStart, i + 1);
+				if(offset + 1 == this.binaryLength) {
+					handler.onMessage(this.buffer, this.messageStart, i + 1);
+					this.binary = false;
+					this.binaryLength = 0;
+					this.messageStart = -1;
+				}
+			}
+			else if(this.depth == 0) {
+				// skip everything between messages
+				if(b == '{') {
+					this.messageStart = i;
+					this.depth = 1;
+				}
+				else if(b == BinaryProtocol.MAGIC) {
+					this.messageStart = i;
+					this.binary = true;
+				}
+			}
+			else if(this.inString) {
+				if(this.escaped)
+					this.escaped = false;
+				else if(b == '\\')
+					this.escaped = true;
+				else if(b == '"')
+					this.inString = false;
+			}
+			else if(b == '"') {
+				this.inString = true;
+			}
+			else if(b == '{' || b == '[') {
+				this.depth++;
+			}
+			else if((b == '}' || b == ']') && --this.depth == 0) {
+				if(this.discarding)
+					this.discarding = false;
+				else
+					handler.onMessage(this.buffer, this.messageStart, i + 1);
+				this.messageStart = -1;
+			}
+		}
+
+		// keep only the bytes of the current incomplete message
+		int keep = this.messageStart < 0 ? end : this.messageStart;
+		if(keep > 0) {
+			this.buffer.limit(end);
+			this.buffer.position(keep);
+			this.buffer.compact();
+			if(this.messageStart > 0)
+				this.messageStart = 0;
+		}
+		this.scanPosition = end - keep;
+	}
+
+	/**
+	 * Doubles the size of the {@link #buffer}, as long as it does not exceed {@link #MAX_MESSAGE_SIZE}.
+	 * Otherwise, the bytes of the current message are dropped and the rest of it is skipped, while the framer keeps track of its nesting.
+	 */
+	private void grow() {
+		if(this.buffer.capacity() >= MAX_MESSAGE_SIZE) {
+			this.discardedMessages++;
+			this.discarding = true;
+			this.messageStart = -1;
+			this.scanPosition = 0;
+			this.buffer.clear();
+			return;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(Math.min(this.buffer.capacity() * 2, MAX_MESSAGE_SIZE));
+		this.buffer.flip();
+		buffer.put(this.buffer);
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Discards all bytes that have been read, e.g. if the connection has been reestablished.
+	 */
+	public void clear() {
+		this.buffer.clear();
+		this.scanPosition = 0;
+		this.messageStart = -1;
+		this.depth = 0;
+		this.inString = false;
+		this.escaped = false;
+		this.discarding = false;
+		this.binary = false;
+		this.binaryLength = 0;
+	}
+
+	/**
+	 * @return the number of messages that have been discarded, because they were larger than {@link #MAX_MESSAGE_SIZE}.
+	 */
+	public long getDiscardedMessages() {
+		return this.discardedMessages;
+	}
+
+}
@@ -1,23 +1,33 @@
 package at.ac.tuwien.ict.andropicar.rmcs.network;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.net.InetAddress;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import at.ac.tuwien.ict.andropicar.rmcs.connection.ISensorDataListener;
-import at.ac.tuwien.ict.andropicar.rmcs.data.CameraControlData;
-import at.ac.tuwien.ict.andropicar.rmcs.data.IData;
-import at.ac.tuwien.ict.andropicar.rmcs.data.DriveControlData;
+import at.ac.tuwien.ict.andropicar.rmcs.data.BinaryMessage;
+import at.ac.tuwien.ict.andropicar.rmcs.data.BinaryProtocol;
+import at.ac.tuwien.ict.andropicar.rmcs.data.ClockOffsetEstimator;
+import at.ac.tuwien.ict.andropicar.rmcs.data.ControlFrame;
+import at.ac.tuwien.ict.andropicar.rmcs.data.EBinaryMessageType;
+import at.ac.tuwien.ict.andropicar.rmcs.data.LatencyStatistics;
+import at.ac.tuwien.ict.andropicar.rmcs.data.MonotonicClock;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
 import at.ac.tuwien.ict.andropicar.rmcs.data.EDataType;
-import at.ac.tuwien.ict.andropicar.rmcs.data.LightControlData;
 import at.ac.tuwien.ict.andropicar.rmcs.data.SensorData;
 import at.ac.tuwien.ict.andropicar.rmcs.data.VelocitySensorData;
 import at.ac.tuwien.ict.andropicar.rmcs.data.DistanceSensorData;
@@ -31,6 +41,22 @@ import at.ac.tuwien.ict.andropicar.rmcs.connection.ControlChangeQueueElement;
 /**
  * This class is used to communicate with a TCP-Server via a TCP-connection and
  * is able to send sensor-data to the server and receive control-data from the server to control the car.<br>
+ * The connection is a non-blocking {@link SocketChannel}, so the thread of this Runnable sleeps in a {@link Selector} until data can be read,
+ * pending data can be written, or new sensor-data has to be sent.<br>
+ * If the TCP-Server agrees to it during identification, control- and sensor-data are exchanged via the {@link BinaryProtocol} instead of JSON.<br>
+ * Optionally, drive- and camera-control-data is also received via UDP on a {@link DatagramControlChannel}, whose port is announced with the properties.<br>
+ * Sensor-data is batched, so that all sensor-data that arrives within a flush-window is sent in a single write (see {@link #setTelemetryBatching(long, int)}).<br>
+ * The connection is supervised by a state-machine (see {@link EConnectionState}): if the connection is lost, the thread of this Runnable
+ * does not reconnect from within the failed read or write, but closes the connection and retries after an exponential backoff with jitter.
+ * Sensor-data waits on a bounded {@link TelemetryQueue}, that drops sensor-data according to its {@link EOverflowPolicy} if the network does not keep up,
+ * so neither the sensors nor the processing of control-data are held back by it.
+ * Sensor-data that arrives while the car is not registered is conflated, so only the newest set of each type is sent once the connection is live again.
+ * {@link IConnectionStateListener}s are informed about every change of the state.<br>
+ * While the connection is live, heartbeats measure the round-trip-time and detect a stale connection (see {@link #setHeartbeat(long, int)}).
+ * Together with the other metrics of the link they are collected in the {@link LinkStatistics}.<br>
+ * If the TCP-Server puts its time into its pongs, the offset of its clock is estimated (see {@link #getServerClock()}). Once it is known,
+ * sensor-data is stamped with the time of the TCP-Server that it was captured, and the age of control-data that carries the time it was sent
+ * is recorded in the {@link LinkStatistics}.<br>
  * UI-listeners are able to register themselves with the ServerConnection to get updated about sending and receiving data as well as connection updates.
  * 
  * @author Boeck
@@ -40,41 +66,249 @@ public class ServerConnection extends Connection implements ISensorDataListener,
 	/** The cars ID. */
 	private long carId;
 	
+	/** The initial size of the buffer that holds outgoing data, until it can be written. */
+	private static final int WRITE_BUFFER_SIZE = 4096;
+	
+	/** The number of bytes in the {@link #writeBuffer}, that have not been written yet, above which no further sensor-data is taken from the {@link #telemetryQueue}. */
+	private static final int MAX_PENDING_TELEMETRY = WRITE_BUFFER_SIZE;
+	
+	/** The default time in milliseconds, that sensor-data is collected for, before it is sent to the TCP-Server in a single write. */
+	public static final long DEFAULT_TELEMETRY_FLUSH_WINDOW = 20;
+	
+	/** The default number of sets of sensor-data, that are sent in a single write at most. */
+	public static final int DEFAULT_TELEMETRY_FLUSH_SAMPLES = 8;
+	
 	/** Holds the connection itself. */
-	private Socket connection;
+	private SocketChannel connection;
+	
+	/** The selector that the thread of this Runnable waits on, until the {@link #connection} can be read or written, or it is woken up by new sensor-data. */
+	private volatile Selector selector;
+	
+	/** The key of the {@link #connection} in the {@link #selector}. */
+	private SelectionKey selectionKey;
+	
+	/** Splits the incoming data into messages. */
+	private MessageFramer messageFramer = new MessageFramer();
+	
+	/** Holds the bytes of an incoming message, while it is converted into a String. */
+	private byte[] messageBytes = new byte[MessageFramer.INITIAL_BUFFER_SIZE];
+	
+	/** True, if the TCP-Server has confirmed that the car has been successfully registered with it. */
+	private boolean identified;
+	
+	/** Processes the messages that arrive while the car is registering itself with the TCP-Server. */
+	private IMessageHandler identificationHandler = new IMessageHandler() {
+		@Override
+		public void onMessage(ByteBuffer buffer, int start, int end) {
+			if(identified)
+				controlHandler.onMessage(buffer, start, end);
+			else {
+				linkStatistics.addReceivedMessage();
+				if(buffer.get(start) != BinaryProtocol.MAGIC)
+					processIdentificationMessage(JSONDecoder.decode(messageToString(buffer, start, end)));
+			}
+		}
+	};
 	
-	/** The inputStream to read from the connected device. */
-	private InputStreamReader inputStream;
+	/** Holds the content of the current control-message. It is reused for every message. */
+	private ControlMessage controlMessage = new ControlMessage();
 	
-	/** The output-stream to write to the connected device. */
-	private OutputStreamWriter outputStream;
+	/** Holds the content of the current binary message. It is reused for every message. */
+	private BinaryMessage receivedMessage = new BinaryMessage();
 	
-	/** The servers address. */
+	/** Processes the control-messages that arrive once the car is registered with the TCP-Server. */
+	private IMessageHandler controlHandler = new IMessageHandler() {
+		@Override
+		public void onMessage(ByteBuffer buffer, int start, int end) {
+			linkStatistics.addReceivedMessage();
+			if(buffer.get(start) == BinaryProtocol.MAGIC) {
+				if(!BinaryProtocol.decode(buffer, start, end, receivedMessage)) {
+					linkStatistics.addDecodeError();
+					return;
+				}
+				if(receivedMessage.getType() == EBinaryMessageType.PING || receivedMessage.getType() == EBinaryMessageType.PONG) {
+					processHeartbeat(receivedMessage.getType() == EBinaryMessageType.PING, receivedMessage.getSequence(), receivedMessage.getTimestamp());
+					return;
+				}
+				if(receivedMessage.getType() != EBinaryMessageType.CONTROL)
+					return;
+				recordControlAge(receivedMessage.getTimestamp());
+			}
+			else {
+				if(!ControlMessageDecoder.decode(buffer, start, end, controlMessage)) {
+					linkStatistics.addDecodeError();
+					return;
+				}
+				if(controlMessage.has(EControlKey.BINARY_PROTOCOL)) {
+					processProtocolMessage(controlMessage);
+					return;
+				}
+				if(controlMessage.has(EControlKey.PING) || controlMessage.has(EControlKey.PONG)) {
+					boolean ping = controlMessage.has(EControlKey.PING);
+					processHeartbeat(ping, (int) controlMessage.getValue(ping ? EControlKey.PING : EControlKey.PONG),
+							controlMessage.has(EControlKey.SERVER_TIME) ? controlMessage.getValue(EControlKey.SERVER_TIME) : BinaryMessage.NO_TIMESTAMP);
+					return;
+				}
+				if(controlMessage.has(EControlKey.SEND_TIME))
+					recordControlAge(controlMessage.getValue(EControlKey.SEND_TIME));
+			}
+			
+			// if the phoneConnection is in control, process the incoming message
+			if(getConnectionId() != connectionIdInDriveControl)
+				updateUIs(EIdentifier.PHONECONTROL, "Control-data is being received, but the gamepad is currently in control!");
+			else if(buffer.get(start) == BinaryProtocol.MAGIC)
+				processMessage(receivedMessage);
+			else
+				processMessage(controlMessage);
+		}
+	};
+	
+	/** True, if the car offers the TCP-Server to use the {@link BinaryProtocol}. */
+	private boolean binaryProtocolEnabled = true;
+	
+	/** True, if the TCP-Server has agreed to use the {@link BinaryProtocol} on the current connection. */
+	private boolean binaryProtocol;
+	
+	/** Holds the content of the binary message that is sent next. It is reused for every message. */
+	private BinaryMessage sentMessage = new BinaryMessage();
+	
+	/** The sequence-number of the binary message that is sent next. */
+	private int sentSequence;
+	
+	/** The local port of the {@link #datagramControlChannel}, 0 for any free port, or -1 if control-data is not received via UDP. */
+	private int datagramControlPort = -1;
+	
+	/** The channel that receives drive- and camera-control-data via UDP, or null if it is not used. */
+	private DatagramControlChannel datagramControlChannel;
+	
+	/** The key of the {@link #datagramControlChannel} in the {@link #selector}. */
+	private SelectionKey datagramSelectionKey;
+	
+	/** The buffer that holds outgoing data, until it can be written to the {@link #connection}. It is always kept ready to be filled. */
+	private ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+	
+	/** The servers address, which is the first of the candidate-endpoints of the {@link #serverDiscovery}. */
 	private InetSocketAddress address;
 	
+	/** The maximum time in milliseconds to wait for a connection to any of the candidate-endpoints, before the discovery starts over. */
+	private static final long DISCOVERY_TIMEOUT = 2000;
+	
+	/** Finds the TCP-Server among the candidate-endpoints. */
+	private ServerDiscovery serverDiscovery;
+	
+	/** The file that the endpoint of the last successful session is persisted in, or null if it is not persisted. */
+	private File endpointFile = ServerDiscovery.DEFAULT_ENDPOINT_FILE;
+	
+	/** The time in nanoseconds, that the application was started or the connection to the TCP-Server was lost. */
+	private long disconnectedNanos = MonotonicClock.fromEpochMillis(ManagementFactory.getRuntimeMXBean().getStartTime());
+	
+	/** The time from the start of the application, or the loss of the connection, until the car has been registered with the TCP-Server. */
+	private final LatencyStatistics timeToSession = new LatencyStatistics();
+	
+	/** The default delay in milliseconds after the first failed attempt to connect, before the connection is attempted again. */
+	public static final long DEFAULT_INITIAL_BACKOFF = 100;
+	
+	/** The default maximum delay in milliseconds between two attempts to connect. */
+	public static final long DEFAULT_MAX_BACKOFF = 10000;
+	
+	/** The time in milliseconds between two attempts to register the car with the TCP-Server. */
+	private static final long IDENTIFICATION_INTERVAL = 5000;
+	
+	/** The time in milliseconds to wait, before the car tries to register itself again, if the TCP-Server has rejected its ID as a duplicate. */
+	private static final long DUPLICATE_ID_DELAY = 60000;
+	
+	/** The current state of the connection with the TCP-Server. */
+	private volatile EConnectionState state = EConnectionState.CONNECTING;
+	
+	/** The listeners that are informed about every change of the {@link #state}. */
+	private Collection<IConnectionStateListener> stateListeners = new CopyOnWriteArrayList<>();
+	
+	/** The delay in nanoseconds after the first failed attempt to connect. The delay doubles with every further failed attempt. */
+	private long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_INITIAL_BACKOFF);
+	
+	/** The maximum delay in nanoseconds between two attempts to connect. */
+	private long maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_BACKOFF);
+	
+	/** The number of attempts to connect that have failed since the connection was last live. */
+	private int failedAttempts;
+	
+	/** The time in nanoseconds, that the current backoff ends. */
+	private long backoffEndNanos;
+	
+	/** The time in nanoseconds, that the identification is sent to the TCP-Server the next time. */
+	private long nextIdentificationNanos;
+	
 	/** The list of the cars properties (such as lights, winkers, sensors, etc.) */
 	private Collection<String> properties;
 	
-	/** The DataQueue that is used to inform this Runnable about new {@link DistanceSensorData} */
-	protected LinkedBlockingQueue<SensorData> sensorDataQueue;
+	/** The time in nanoseconds, that sensor-data is collected for, before it is sent to the TCP-Server, or 0 if every set of sensor-data is sent immediately. */
+	private long telemetryFlushWindowNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TELEMETRY_FLUSH_WINDOW);
+	
+	/** The number of sets of sensor-data, that are sent immediately once they have been collected. */
+	private int telemetryFlushSamples = DEFAULT_TELEMETRY_FLUSH_SAMPLES;
+	
+	/** The default time in milliseconds between two heartbeats. */
+	public static final long DEFAULT_HEARTBEAT_INTERVAL = 1000;
+	
+	/** The default number of heartbeats without any data from the TCP-Server, after which the connection is considered stale. */
+	public static final int DEFAULT_MISSED_HEARTBEATS = 3;
+	
+	/** The time in nanoseconds between two heartbeats, or 0 if no heartbeats are sent. */
+	private long heartbeatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_HEARTBEAT_INTERVAL);
+	
+	/** The number of heartbeats without any data from the TCP-Server, after which the connection is considered stale. */
+	private int missedHeartbeats = DEFAULT_MISSED_HEARTBEATS;
+	
+	/** The time in nanoseconds, that the next heartbeat is sent. */
+	private long nextHeartbeatNanos;
+	
+	/** The sequence-number of the last heartbeat that has been sent. */
+	private int pingSequence;
+	
+	/** The time in nanoseconds, that the last heartbeat has been sent, or 0 if it has already been answered. */
+	private long pingSentNanos;
+	
+	/** The time in nanoseconds, that data has last been received from the TCP-Server, or that the connection became live. */
+	private long lastReceivedNanos;
+	
+	/** The metrics of the quality of the link with the TCP-Server. */
+	private final LinkStatistics linkStatistics = new LinkStatistics();
+	
+	/** Estimates the offset of the clock of the TCP-Server from the times in its pongs. */
+	private final ClockOffsetEstimator serverClock = new ClockOffsetEstimator();
+	
+	/** The number of sets of sensor-data in the {@link #writeBuffer}, that have not been written to the {@link #connection} yet. */
+	private int pendingTelemetrySamples;
+	
+	/** The time in nanoseconds, that the oldest of the {@link #pendingTelemetrySamples} was put into the {@link #writeBuffer}. */
+	private long pendingTelemetryStart;
+	
+	/** The bounded queue that holds the sensor-data, until it is sent to the TCP-Server. */
+	protected volatile TelemetryQueue telemetryQueue = new TelemetryQueue();
+	
+	/** The time in nanoseconds between two updates of the UIs with the same topic of control- or sensor-data, which is the interval that the console-UI displays at. */
+	private static final long UI_UPDATE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+	
+	/** The time in nanoseconds, after which the UIs are updated with the next data of a topic, per ordinal of its {@link EIdentifier}. */
+	private final long[] nextUIUpdateNanos = new long[EIdentifier.values().length];
 	
 	
 	/**
 	 * Instantiates a new object of this class with the given parameters, and tries to create a valid InetSocketAddress.
 	 * If that fails, a default IP-address of 192.168.1.100 and port 6633 are used to connect to the TCP-Server.
-	 * @param controlDataQueue the queue that is used to send ControlData to their corresponding interfaces.
+	 * @param dataBus the bus whose control-lane is used to send control-frames to their corresponding interfaces.
 	 * @param controlChangeQueue the queue that is used to signal the main class to change the connection that is currently under control of a specific control-data-set.
 	 * @param serverAddress the servers IP-address.
 	 * @param port the port on which to connect to the server.
 	 * @param carId the ID that the RMCS registers itself with on the Server.
 	 * @param properties the list of properties of this car.
 	 */
-	public ServerConnection(LinkedBlockingQueue<IData> controlDataQueue, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue, 
+	public ServerConnection(DataBus dataBus, LinkedBlockingQueue<ControlChangeQueueElement> controlChangeQueue, 
 			String serverAddress, int port, long carId, Collection<String> properties) {
-		super(carId, controlDataQueue, controlChangeQueue);
+		super(carId, dataBus, controlChangeQueue);
 		this.properties = properties;
 		this.carId = carId;
-		this.sensorDataQueue = new LinkedBlockingQueue<>();
+		Arrays.fill(this.nextUIUpdateNanos, System.nanoTime());
 		
 		try {
 			this.address = new InetSocketAddress(serverAddress, port);
@@ -91,21 +325,99 @@ public class ServerConnection extends Connection implements ISensorDataListener,
 	}
 	
 	/**
-	 * Tries to gracefully close the TCP-Connection.
+	 * Sets how sensor-data is batched before it is sent to the TCP-Server.<br>
+	 * Sensor-data is collected in the write-buffer and written in a single write, once the oldest set has waited for the flush-window,
+	 * or once the passed number of sets has been collected, whichever comes first. Other messages are always sent immediately,
+	 * together with any sensor-data that has been collected so far.
+	 * @param flushWindow the time in milliseconds, that sensor-data is collected for, or 0 to send every set of sensor-data immediately.
+	 * @param flushSamples the number of sets of sensor-data, that are sent immediately once they have been collected.
 	 */
-	public void closeConnection() {
-		if(this.outputStream!= null)
-		{
-			try {
-				this.outputStream.close();
-			} catch(IOException ioe) {}
+	public void setTelemetryBatching(long flushWindow, int flushSamples) {
+		this.telemetryFlushWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(flushWindow, 0));
+		this.telemetryFlushSamples = Math.max(flushSamples, 1);
+	}
+	
+	/**
+	 * Sets whether the car offers the TCP-Server to use the {@link BinaryProtocol} instead of JSON.
+	 * Takes effect when the car registers itself with the TCP-Server the next time.
+	 * @param enabled true, if the {@link BinaryProtocol} should be offered, false if only JSON should be used.
+	 */
+	public void setBinaryProtocolEnabled(boolean enabled) {
+		this.binaryProtocolEnabled = enabled;
+	}
+	
+	/**
+	 * Sets the port that drive- and camera-control-data is received on via UDP, in addition to the TCP-connection.
+	 * The port is announced to the TCP-Server with the properties. Takes effect when the car connects to the TCP-Server the next time.
+	 * @param port the local port, 0 for any free port, or -1 if control-data should only be received via TCP.
+	 */
+	public void setDatagramControlPort(int port) {
+		this.datagramControlPort = port;
+	}
+	
+	/**
+	 * @return the channel that receives control-data via UDP (e.g. to read its counters), or null if it is not used.
+	 */
+	public DatagramControlChannel getDatagramControlChannel() {
+		return this.datagramControlChannel;
+	}
+	
+	/**
+	 * Opens the {@link #datagramControlChannel}, if control-data should be received via UDP, so its port can be announced with the properties.
+	 * Datagrams are rejected until the connection is live (see {@link #identify()}).
+	 * If the channel cannot be opened, control-data is only received via TCP.
+	 */
+	private void openDatagramControlChannel() {
+		if(this.datagramControlPort < 0)
+			return;
+		try {
+			if(this.datagramControlChannel == null) {
+				this.datagramControlChannel = new DatagramControlChannel(this.datagramControlPort, this.serverClock);
+				this.datagramSelectionKey = this.datagramControlChannel.register(this.selector);
+			}
+			this.datagramControlChannel.rejectAll();
+		} catch(IOException ioe) {
+			updateUIs(EIdentifier.CONNECTION, "Error opening the UDP-channel for control-data on port " + this.datagramControlPort + "!\n" + ioe.getMessage() + "\n");
+			this.datagramControlPort = -1;
 		}
-		if(this.inputStream!= null)
-		{
-			try {
-				this.inputStream.close();
-			} catch(IOException ioe) {}
+	}
+	
+	/**
+	 * Publishes the newest control-data, that has been received via UDP, on the control-lane, if the connection is live.
+	 * Otherwise the datagrams are received and dropped, so the car cannot be controlled via UDP without a session with the TCP-Server.
+	 */
+	private void processDatagrams() {
+		try {
+			long frame = this.datagramControlChannel.receive();
+			if(frame != ControlFrame.EMPTY && this.state == EConnectionState.LIVE) {
+				recordControlAge(this.datagramControlChannel.getLastSendTime());
+				super.putControlFrame(frame);
+			}
+		} catch(IOException ioe) {
+			updateUIs(EIdentifier.CONNECTION, "Error receiving control-data via UDP!\n" + ioe.getMessage() + "\n");
 		}
+	}
+	
+	/**
+	 * Sets the file that the endpoint of the last successful session is persisted in, so it is tried first the next time.
+	 * Takes effect before the car connects to the TCP-Server for the first time.
+	 * @param endpointFile the file, or null if the endpoint should not be persisted.
+	 */
+	public void setEndpointFile(File endpointFile) {
+		this.endpointFile = endpointFile;
+	}
+	
+	/**
+	 * @return the statistics of the time from the start of the application, or the loss of the connection, until the car has been registered with the TCP-Server.
+	 */
+	public LatencyStatistics getTimeToSession() {
+		return this.timeToSession;
+	}
+	
+	/**
+	 * Tries to gracefully close the TCP-Connection.
+	 */
+	public void closeConnection() {
 		if(this.connection != null)
 		{
 			try {
@@ -115,149 +427,401 @@ public class ServerConnection extends Connection implements ISensorDataListener,
 	}
 	
 	/**
-	 * Tries to establish a connection with the TCP-Server.
-	 * If a connection on the specified IP-address cannot be established, the IP-address is incremented by one and a connection is tried to be established again.
-	 * If the IP-address has been incremented 20 times, it is set back to its initial value and the process starts over until a connection can be established. 
+	 * Sets how the connection with the TCP-Server is supervised by heartbeats, while it is live.<br>
+	 * A ping is sent every interval, and the round-trip-time of its pong is recorded in the {@link LinkStatistics}. From the moment the connection
+	 * becomes live, it is considered stale and is closed, if no data at all has been received from the TCP-Server for the passed number of heartbeats.
+	 * TCP-Servers that neither answer pings nor send any other data in time are therefore disconnected, unless heartbeats are disabled.
+	 * @param interval the time in milliseconds between two heartbeats, or 0 to send no heartbeats and never consider the connection stale.
+	 * @param missedHeartbeats the number of heartbeats without any data from the TCP-Server, after which the connection is considered stale.
+	 */
+	public void setHeartbeat(long interval, int missedHeartbeats) {
+		this.heartbeatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(interval, 0));
+		this.missedHeartbeats = Math.max(missedHeartbeats, 1);
+	}
+	
+	/**
+	 * @return the metrics of the quality of the link with the TCP-Server.
+	 */
+	public LinkStatistics getLinkStatistics() {
+		return this.linkStatistics;
+	}
+	
+	/**
+	 * @return the estimate of the offset of the clock of the TCP-Server, which is synchronized once the TCP-Server has answered a ping with its time.
+	 */
+	public ClockOffsetEstimator getServerClock() {
+		return this.serverClock;
+	}
+	
+	/**
+	 * @return the current state of the connection with the TCP-Server.
+	 */
+	public EConnectionState getConnectionState() {
+		return this.state;
+	}
+	
+	/**
+	 * Registers a listener, that is informed about every change of the state of the connection with the TCP-Server.
+	 * @param listener the listener to be registered.
+	 */
+	public void addConnectionStateListener(IConnectionStateListener listener) {
+		if(listener != null)
+			this.stateListeners.add(listener);
+	}
+	
+	/**
+	 * @param listener the listener that should no longer be informed about changes of the state of the connection.
 	 */
-	private synchronized void connectToServer() {
-		// check if there are remnants of previous connections and clean up
+	public void removeConnectionStateListener(IConnectionStateListener listener) {
+		this.stateListeners.remove(listener);
+	}
+	
+	/**
+	 * Sets the delays between the attempts to connect to the TCP-Server.<br>
+	 * After the first failed attempt the initial delay is used. It doubles with every further failed attempt, up to the maximum delay.
+	 * Every delay is randomized between half and all of it, so that many cars, that have lost the connection at the same time, do not reconnect at once.
+	 * @param initialBackoff the delay in milliseconds after the first failed attempt.
+	 * @param maxBackoff the maximum delay in milliseconds.
+	 */
+	public void setReconnectBackoff(long initialBackoff, long maxBackoff) {
+		this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(initialBackoff, 1));
+		this.maxBackoffNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(maxBackoff), this.initialBackoffNanos);
+	}
+	
+	/**
+	 * Replaces the queue that holds the sensor-data until it is sent to the TCP-Server. Has to be called before the thread of this Runnable is started.<br>
+	 * Sensor-data is only taken from the queue while the connection is live and the sensor-data that has been taken before has been written
+	 * to the network. Otherwise the queue fills up, and the overflow-policy decides which sensor-data is dropped.
+	 * @param capacity the maximum number of sets of sensor-data in the queue.
+	 * @param overflowPolicy the way the queue makes room for a new set of sensor-data, once it is full.
+	 */
+	public void setTelemetryQueue(int capacity, EOverflowPolicy overflowPolicy) {
+		this.telemetryQueue = new TelemetryQueue(capacity, overflowPolicy);
+	}
+	
+	/**
+	 * @return the queue that holds the sensor-data until it is sent to the TCP-Server (e.g. to read its depth, drops and latency).
+	 */
+	public TelemetryQueue getTelemetryQueue() {
+		return this.telemetryQueue;
+	}
+	
+	/**
+	 * Changes the {@link #state} and informs the {@link #stateListeners}, if it is a different one.
+	 * @param state the new state of the connection.
+	 */
+	private void setState(EConnectionState state) {
+		if(this.state == state)
+			return;
+		this.state = state;
+		for(IConnectionStateListener listener : this.stateListeners)
+			listener.connectionStateChanged(this, state);
+	}
+	
+	/**
+	 * Delays the next attempt to connect to the TCP-Server, depending on the number of attempts that have failed so far.
+	 */
+	private void backOff() {
+		long backoff = this.failedAttempts < 62 ? Math.min(this.initialBackoffNanos << this.failedAttempts, this.maxBackoffNanos) : this.maxBackoffNanos;
+		if(backoff <= 0)
+			backoff = this.maxBackoffNanos;
+		backoff = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+		this.failedAttempts++;
+		this.backoffEndNanos = System.nanoTime() + backoff;
+		updateUIs(EIdentifier.CONNECTION, "Trying again in " + TimeUnit.NANOSECONDS.toMillis(backoff) + " ms.\n");
+		setState(EConnectionState.BACKOFF);
+	}
+	
+	/**
+	 * Closes the {@link #connection}, after it has failed, and delays the next attempt to connect.
+	 * The sensor-data in the {@link #writeBuffer} is discarded. If the TCP-Server was in control of the drive-control-data, the car is stopped.
+	 * Control-data is no longer accepted via UDP, until the next connection is live.
+	 * @param reason the description of the failure.
+	 */
+	private void connectionLost(String reason) {
+		if(this.datagramControlChannel != null)
+			this.datagramControlChannel.rejectAll();
+		if(this.serverDiscovery != null)
+			this.serverDiscovery.cancel();
+		if(this.state == EConnectionState.LIVE) {
+			this.disconnectedNanos = MonotonicClock.nanoTime();
+			if(getConnectionId() == connectionIdInDriveControl)
+				super.putControlFrame(ControlFrame.drive(0, 0, true));
+		}
 		this.closeConnection();
-		this.waitMs(500);
+		this.connection = null;
+		this.selectionKey = null;
+		this.writeBuffer.clear();
+		this.pendingTelemetrySamples = 0;
+		updateUIs(EIdentifier.CONNECTION, reason + "This Connection cannot be used any longer.\n");
+		backOff();
+	}
+	
+	/**
+	 * Tries to establish a connection with the TCP-Server, without blocking the loop of this Runnable.<br>
+	 * All candidate-endpoints are tried concurrently by the {@link #serverDiscovery}, whose connects are completed via the {@link #selector},
+	 * next to the control-data via UDP and the wakeups by new sensor-data. The first connection that is established is used.
+	 * If a connection has been established, the car starts to register itself with the TCP-Server. If the discovery fails, the next attempt is delayed.
+	 */
+	private void connectToServer() {
+		if(this.serverDiscovery == null)
+			this.serverDiscovery = new ServerDiscovery(this.address, this.endpointFile);
 		
-		InetSocketAddress currentAddress = this.address;
+		if(this.serverDiscovery.isFinished()) {
+			InetSocketAddress lastKnownGood = this.serverDiscovery.getLastKnownGood();
+			updateUIs(EIdentifier.CONNECTION, "Trying to connect to " + this.address.getAddress().getHostAddress() + " and the following "
+					+ (ServerDiscovery.ADDRESSES - 1) + " IP-Addresses" + (lastKnownGood != null ? " (" + lastKnownGood + " first)" : "") + "\n");
+			this.serverDiscovery.start(this.selector, DISCOVERY_TIMEOUT);
+		}
+		else
+			this.readData(this.serverDiscovery.getPollTimeout(), this.controlHandler);
+		if(this.state != EConnectionState.CONNECTING)
+			return;
 		
-		while(true)
-		{
-			// try 20 consecutive IP-Addresses to connect to the server
-			for(int i = 0; i < 20; i++)
-			{
-				this.waitMs(5);
-				String text = new String();
-				
-				text = text.concat("Trying to connect on IP-Address " + currentAddress.getAddress().getHostAddress() + "\n");
-				
-				// if connectToServer does not return null, we are connected and done.
-				InetSocketAddress tempAddress;
-				if((tempAddress = this.connectToServer(currentAddress)) != null)
-				{
-					this.address = tempAddress;
-					return;
-				}
-				
-				// could not connect to Server on current IP-address -> increase IP-address
-				try
-				{
-					byte[] incrementedAddress = currentAddress.getAddress().getAddress();
-					incrementedAddress[3]++;
-					currentAddress = new InetSocketAddress(InetAddress.getByAddress(incrementedAddress), currentAddress.getPort());
-				}
-				catch(IOException ioe)
-				{
-					text = text.concat("Error incrementing the IP-Address" + "\n");
-				}
-				
-				updateUIs(EIdentifier.CONNECTION, text);
-			}
-			// start over
-			currentAddress = this.address;
+		SocketChannel connection = this.serverDiscovery.poll();
+		if(connection != null && setUpConnection(connection)) {
+			this.identified = false;
+			this.nextIdentificationNanos = System.nanoTime();
+			setState(EConnectionState.IDENTIFYING);
+			return;
 		}
+		if(connection == null && !this.serverDiscovery.isFinished())
+			return;
+		
+		updateUIs(EIdentifier.CONNECTION, "The server could not be reached!\n");
+		this.serverDiscovery.cancel();
+		backOff();
 	}
 	
 	/**
-	 * Tries to connect to the server on the specified IP-address and port and also tries the next two ports.
-	 * Tries to connect on each of the 3 ports 2 times. If an attempt is successful, the {@link Socket} is set up for further use.
-	 * @param address the {@link InetSocketAddress} with the IP-address and port that the connection with the server should be established on.
-	 * @return the {@link InetSocketAddress} with the IP-address an port that the connection to the server could be established, or null, if all attempts failed.
+	 * Sets up a connection with the TCP-Server, that has been established, for further use.
+	 * @param connection the established connection.
+	 * @return true, if the connection has been set up, otherwise false (the connection is closed).
 	 */
-	private synchronized InetSocketAddress connectToServer(InetSocketAddress address) {
-		if(address == null)
-		{
-			System.err.println("Server address cannot be null, what am I supposed to connect to?");
-			return null;
-		}
-		
-		InetSocketAddress currentAddress = address;
-		int numberOfTries = 1;
-		// try to connect on ports 6633-6635 several times
-		while(currentAddress.getPort() <= (address.getPort()+2)) {
-			try {
-				// try to connect
-				//if(numberOfTries%2 == 1)
-				//System.out.println("Trying to connect on port " + currentAddress.getPort());
-				//this.connection = new Socket(currentAddress.getAddress(), currentAddress.getPort());
-				this.connection = new Socket();
-				this.connection.connect(currentAddress, 120);
-				this.waitMs(5);
-				this.connection.setSoLinger(true, 1);          // set maximum allowed time in seconds for graceful shutdown
-				this.connection.setSoTimeout(1);
-                this.connection.setTcpNoDelay(true);           // deactivate nagle's algorithm, which collects data before it actually sends it to the network
-                this.connection.setTrafficClass(112);          // set the ToS-Byte (called DSCP nowadays, ToS is deprecated) to prioritize data	
-                this.inputStream = new InputStreamReader(this.connection.getInputStream(), StandardCharsets.UTF_8);
-                this.outputStream = new OutputStreamWriter(this.connection.getOutputStream(), StandardCharsets.UTF_8);
-                updateUIs(EIdentifier.CONNECTION, "Connection was successfully established!\n");
-				return currentAddress;
-			}
-			catch(IOException ioe) {
-				if(numberOfTries%1 == 0) {
-					currentAddress = new InetSocketAddress(currentAddress.getAddress(), (currentAddress.getPort()+1));
-				}
-				numberOfTries++;
-			}
+	private boolean setUpConnection(SocketChannel connection) {
+		try {
+			this.connection = connection;
+			this.connection.socket().setSoLinger(true, 1);          // set maximum allowed time in seconds for graceful shutdown
+			this.connection.socket().setTcpNoDelay(true);           // deactivate nagle's algorithm, which collects data before it actually sends it to the network
+			this.connection.socket().setTrafficClass(112);          // set the ToS-Byte (called DSCP nowadays, ToS is deprecated) to prioritize data	
+			this.connection.configureBlocking(false);
+			this.selectionKey = this.connection.register(this.selector, SelectionKey.OP_READ);
+			this.messageFramer.clear();
+			this.writeBuffer.clear();
+			this.pendingTelemetrySamples = 0;
+			this.binaryProtocol = false;
+			openDatagramControlChannel();
+			this.linkStatistics.addConnection();
+			// the car may have found a different TCP-Server
+			this.serverClock.reset();
+			updateUIs(EIdentifier.CONNECTION, "Connection to " + this.connection.getRemoteAddress() + " was successfully established!\n");
+			return true;
+		} catch(IOException ioe) {
+			this.closeConnection();
+			return false;
 		}
-		return null;
 	}
 	
 	/**
-	 * Reads a maximum of 500 bytes from the {@link Socket}s InputStream, converts it into a String, and returns it.<br>
-	 * If an IOException occurs, the connection is closed and a new connection to the TCP-Server is established, if possible.
-	 * @return the String that was received, or null, if nothing was received before an IOException occurred (including a simple Timeout). 
+	 * Waits until the {@link #connection} can be read or written, the timeout has passed, or the {@link #selector} is woken up by new sensor-data.<br>
+	 * Pending outgoing data is written, and all data that is available is read from the {@link #connection}.
+	 * Every message that is completed by it is passed to the handler, no matter how the messages were split up or coalesced on their way.
+	 * If there is no connection, it only waits (e.g. for the connects of the {@link #serverDiscovery}) and drops the datagrams that arrive via UDP.<br>
+	 * If an IOException occurs, the connection is closed and the next attempt to connect is delayed.
+	 * @param timeout the maximum time to wait in milliseconds, or 0 to wait until something happens.
+	 * @param handler the handler that processes the complete messages.
 	 */
-	private String readData() {
+	private void readData(long timeout, IMessageHandler handler) {
 		try {
-			char[] inputBuffer = new char[500];
-			if(this.inputStream.read(inputBuffer, 0, 500) != -1) {
-				// get the String, remove whitespaces and cut it to size 
-				String inputMessage = (new String(inputBuffer)).trim();
-				//System.out.println("\nIncoming message:");
-				//System.out.println(inputMessage);
-				return inputMessage;
+			this.selector.select(timeout);
+			this.selector.selectedKeys().clear();
+			
+			if(this.datagramSelectionKey != null && this.datagramSelectionKey.isValid() && this.datagramSelectionKey.isReadable())
+				processDatagrams();
+			
+			if(this.connection == null)
+				return;
+			
+			if(this.selectionKey.isValid() && this.selectionKey.isWritable())
+				flushWriteBuffer();
+			
+			int read = 0;
+			// the connection is lost, if an answer cannot be written
+			while(this.connection != null && (read = this.messageFramer.read(this.connection, handler)) > 0) {
+				this.linkStatistics.addReceivedBytes(read);
+				this.lastReceivedNanos = System.nanoTime();
 			}
-		} catch(SocketTimeoutException ste) {
-			return null;
+			if(read < 0)
+				throw new IOException("The connection was closed by the server.");
 		} catch(IOException ioe) {
-			updateUIs(EIdentifier.CONNECTION, "There has been an IO Exception during a read operation.\nThis Connection cannot be used any longer.\nReconnecting...\n");
-			this.waitMs(3000);
-			connectToServer();
-			this.waitMs(300);
-			this.identify();
+			connectionLost("There has been an IO Exception during a read operation.\n");
 		}
+	}
+	
+	/**
+	 * Converts the passed message into a String. The bytes of the message are copied into the reusable {@link #messageBytes}.
+	 * @param buffer the buffer that contains the message.
+	 * @param start the index of the first byte of the message.
+	 * @param end the index after the last byte of the message.
+	 * @return the message as a String.
+	 */
+	private String messageToString(ByteBuffer buffer, int start, int end) {
+		int length = end - start;
+		if(this.messageBytes.length < length)
+			this.messageBytes = new byte[Math.max(this.messageBytes.length * 2, length)];
+		for(int i = 0; i < length; i++)
+			this.messageBytes[i] = buffer.get(start + i);
+		return new String(this.messageBytes, 0, length, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Writes as much of the {@link #writeBuffer} to the {@link #connection} as it accepts without blocking.
+	 * If data remains, the {@link #selector} also wakes up once the {@link #connection} can be written again.
+	 * @throws IOException if the data cannot be written.
+	 */
+	private void flushWriteBuffer() throws IOException {
+		this.writeBuffer.flip();
+		this.linkStatistics.addSentBytes(this.connection.write(this.writeBuffer));
+		this.writeBuffer.compact();
 		
-		return null;
+		if(this.writeBuffer.position() > 0)
+			this.selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		else
+			this.selectionKey.interestOps(SelectionKey.OP_READ);
 	}
 	
 	/**
-	 * Writes a String to the {@link Socket}s OutputStream for the connected device to receive it.
-	 * If an IOException occurs, the connection is closed and a new connection to the TCP-Server is established, if possible.
+	 * Writes a String to the {@link #connection} for the connected device to receive it.
+	 * What cannot be written immediately is kept in the {@link #writeBuffer} and written as soon as the {@link #connection} accepts it.<br>
+	 * If an IOException occurs, the connection is closed and the next attempt to connect is delayed.
 	 * @param outputMessage the String that should be sent to the TCP-Server.
-	 * @return true, if the write to the outputStream was successful, otherwise false.
+	 * @return true, if the String was written or queued for writing, otherwise false.
 	 */
 	protected boolean writeToStream(String outputMessage) {
 		//System.out.println("Sending - " + outputMessage + " - to server.");
+		if(this.connection == null || outputMessage == null)
+			return false;
+		
+		byte[] output = outputMessage.getBytes(StandardCharsets.UTF_8);
+		reserveWriteBuffer(output.length);
+		this.writeBuffer.put(output);
+		this.linkStatistics.addSentMessage();
+		return flushToStream();
+	}
+	
+	/**
+	 * Writes the sensor-message of a set of distance-sensor-data to the {@link #connection}, like {@link #writeToStream(String)} does.
+	 * The message is encoded by the {@link TelemetryEncoder}, or the {@link BinaryProtocol} if it has been agreed on, directly into the {@link #writeBuffer}.
+	 * @param sensorData the distance-sensor-data that should be sent to the TCP-Server.
+	 * @return true, if the message was written or queued for writing, otherwise false.
+	 */
+	private boolean writeToStream(DistanceSensorData sensorData) {
+		if(this.connection == null)
+			return false;
+		
+		if(this.binaryProtocol) {
+			reserveWriteBuffer(BinaryProtocol.MAX_MESSAGE_SIZE);
+			this.sentMessage.setDistanceSensorData(this.sentSequence++, sensorData.getFrontDistanceSensor(), sensorData.getLeftsideDistanceSensor(),
+					sensorData.getRightsideDistanceSensor());
+			if(this.serverClock.isSynchronized())
+				this.sentMessage.setTimestamp(this.serverClock.toPeerMillis(sensorData.getTimestampNanos()));
+			BinaryProtocol.encode(this.writeBuffer, this.sentMessage);
+		}
+		else {
+			reserveWriteBuffer(TelemetryEncoder.MAX_DISTANCE_MESSAGE_SIZE);
+			if(this.serverClock.isSynchronized())
+				TelemetryEncoder.encodeDistanceSensorData(this.writeBuffer, sensorData.getFrontDistanceSensor(), sensorData.getLeftsideDistanceSensor(),
+						sensorData.getRightsideDistanceSensor(), this.serverClock.toPeerMillis(sensorData.getTimestampNanos()));
+			else
+				TelemetryEncoder.encodeDistanceSensorData(this.writeBuffer, sensorData.getFrontDistanceSensor(), sensorData.getLeftsideDistanceSensor(),
+						sensorData.getRightsideDistanceSensor());
+		}
+		return addTelemetrySample();
+	}
+	
+	/**
+	 * Writes the sensor-message of a set of velocity-sensor-data to the {@link #connection}, like {@link #writeToStream(String)} does.
+	 * The message is encoded by the {@link TelemetryEncoder}, or the {@link BinaryProtocol} if it has been agreed on, directly into the {@link #writeBuffer}.
+	 * @param sensorData the velocity-sensor-data that should be sent to the TCP-Server.
+	 * @return true, if the message was written or queued for writing, otherwise false.
+	 */
+	private boolean writeToStream(VelocitySensorData sensorData) {
+		if(this.connection == null)
+			return false;
+		
+		if(this.binaryProtocol) {
+			reserveWriteBuffer(BinaryProtocol.MAX_MESSAGE_SIZE);
+			this.sentMessage.setVelocitySensorData(this.sentSequence++, sensorData.getVelocitySensor());
+			if(this.serverClock.isSynchronized())
+				this.sentMessage.setTimestamp(this.serverClock.toPeerMillis(sensorData.getTimestampNanos()));
+			BinaryProtocol.encode(this.writeBuffer, this.sentMessage);
+		}
+		else {
+			reserveWriteBuffer(TelemetryEncoder.MAX_VELOCITY_MESSAGE_SIZE);
+			if(this.serverClock.isSynchronized())
+				TelemetryEncoder.encodeVelocitySensorData(this.writeBuffer, sensorData.getVelocitySensor(),
+						this.serverClock.toPeerMillis(sensorData.getTimestampNanos()));
+			else
+				TelemetryEncoder.encodeVelocitySensorData(this.writeBuffer, sensorData.getVelocitySensor());
+		}
+		return addTelemetrySample();
+	}
+	
+	/**
+	 * Counts a set of sensor-data, that has just been put into the {@link #writeBuffer}, and flushes the {@link #writeBuffer},
+	 * if enough sets of sensor-data have been collected or batching is disabled.
+	 * @return true, if the sensor-data was written or queued for writing, otherwise false.
+	 */
+	private boolean addTelemetrySample() {
+		this.linkStatistics.addSentMessage();
+		if(this.pendingTelemetrySamples++ == 0)
+			this.pendingTelemetryStart = System.nanoTime();
+		if(this.telemetryFlushWindowNanos == 0 || this.pendingTelemetrySamples >= this.telemetryFlushSamples)
+			return flushToStream();
+		return true;
+	}
+	
+	/**
+	 * @return the time in milliseconds until the pending sensor-data has to be sent, at least 1, or 0 if there is no pending sensor-data.
+	 */
+	private long getTelemetryFlushTimeout() {
+		if(this.pendingTelemetrySamples == 0)
+			return 0;
+		long remaining = this.pendingTelemetryStart + this.telemetryFlushWindowNanos - System.nanoTime();
+		return Math.max(TimeUnit.NANOSECONDS.toMillis(remaining + 999999), 1);
+	}
+	
+	/**
+	 * Grows the {@link #writeBuffer} if it has less than the passed number of bytes remaining.
+	 * @param length the number of bytes that are about to be put into the {@link #writeBuffer}.
+	 */
+	private void reserveWriteBuffer(int length) {
+		if(this.writeBuffer.remaining() < length) {
+			ByteBuffer writeBuffer = ByteBuffer.allocate(Math.max(this.writeBuffer.capacity() * 2, this.writeBuffer.position() + length));
+			this.writeBuffer.flip();
+			writeBuffer.put(this.writeBuffer);
+			this.writeBuffer = writeBuffer;
+		}
+	}
+	
+	/**
+	 * Flushes the {@link #writeBuffer}, including all pending sensor-data.<br>
+	 * If an IOException occurs, the connection is closed and the next attempt to connect is delayed.
+	 * @return true, if the data was written or queued for writing, otherwise false.
+	 */
+	private boolean flushToStream() {
+		this.pendingTelemetrySamples = 0;
 		try {
-			this.outputStream.write(outputMessage, 0, outputMessage.length());
-			this.outputStream.flush();
+			flushWriteBuffer();
 			return true;
 		} catch (IOException ioe) {
-			updateUIs(EIdentifier.CONNECTION, "There has been an IO Exception during a read operation.\nThis Connection cannot be used any longer.\nReconnecting...\n");
-			connectToServer();
-			this.waitMs(300);
-			this.identify();
+			connectionLost("There has been an IO Exception during a write operation.\n");
 		}
 		return false;
 	}
 	
 	/**
-	 * Converts a HashMap to a JSON-String and writes a String to the {@link Socket}s OutputStream for the connected device to receive it.
+	 * Converts a HashMap to a JSON-String and writes it to the {@link #connection} for the connected device to receive it.
 	 * @param messageMap the HashMap that should be converted to a JSON-String and sent to the TCP-Server.
 	 * @return true, if the write to the outputStream was successful, otherwise false.
 	 */
@@ -281,72 +845,189 @@ public class ServerConnection extends Connection implements ISensorDataListener,
 	
 	/**
 	 * Sends a list of this cars properties to the TCP-Server.
+	 * If the {@link BinaryProtocol} is enabled, it is offered to the TCP-Server as an additional property.
+	 * If control-data is received via UDP, the port of the {@link #datagramControlChannel} is announced as well.
 	 */
 	public void sendProperties() {
 		//send list of properties to server
+		Collection<String> properties = new ArrayList<>(this.properties);
+		//add the cars ip-address to the list of car information
+		if(this.properties.contains("camera") && this.connection != null)
+			properties.add("ip=" + this.connection.socket().getLocalAddress().getHostAddress());
+		if(this.binaryProtocolEnabled)
+			properties.add(Keywords.binaryProtocol);
+		if(this.datagramControlChannel != null)
+			properties.add(Keywords.udpPort + "=" + this.datagramControlChannel.getLocalPort());
 		HashMap<String, Object> outputMap = new HashMap<String, Object>();
-		outputMap.put(Keywords.properties, this.properties);
+		outputMap.put(Keywords.properties, properties);
 		writeFromMapToStream(outputMap);
 	}
 	
 	/**
-	 * Sends identification information to the TCP-Server every 5 seconds and waits until the TCP-Server has sent back confirmation that the car has been
-	 * successfully registered with it.<br> After a successful registration the car sends a list of its properties.
+	 * Sends identification information to the TCP-Server every 5 seconds and processes the answers,
+	 * until the TCP-Server has sent back confirmation that the car has been successfully registered with it.<br>
+	 * After a successful registration the car sends a list of its properties and the connection is live.
 	 */
 	private void identify() {
-		boolean identified = false;
-		long lastSentId = 0;
-		while(!identified) {
-			this.waitMs(50);
-			if(System.currentTimeMillis() - lastSentId > 5000) {
-				sendId();
-				updateUIs(EIdentifier.CONNECTION, "Waiting for answer...\n");
-			}
-			String inputMessage = this.readData();
-			if(inputMessage != null)
-				continue;
-			HashMap<String, Object> decodedDataset = JSONDecoder.decode(inputMessage);
-			if(decodedDataset == null)
-				continue;
-			updateUIs(EIdentifier.CONNECTION, "Answer received!\n");
-			if(decodedDataset.get(Keywords.state) instanceof Long) {
-				if(((long)decodedDataset.get(Keywords.state)) == 1)
-					identified = true;
-				else if(((long)decodedDataset.get(Keywords.state)) == -1) {
-					updateUIs(EIdentifier.CONNECTION, "Duplicate ID! Trying again in a minute.\n");
-					try {
-						Thread.sleep(60000);
-					} catch (InterruptedException e) {}
-				}
-			}
+		if(System.nanoTime() - this.nextIdentificationNanos >= 0) {
+			this.nextIdentificationNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(IDENTIFICATION_INTERVAL);
+			sendId();
+			updateUIs(EIdentifier.CONNECTION, "Waiting for answer...\n");
 		}
-		updateUIs(EIdentifier.CONNECTION, "Identification successful!\nSending the list of the cars capabilities...\n");
+		if(this.state == EConnectionState.IDENTIFYING)
+			this.readData(Math.max(1, TimeUnit.NANOSECONDS.toMillis(this.nextIdentificationNanos - System.nanoTime())), this.identificationHandler);
+		if(this.state != EConnectionState.IDENTIFYING || !this.identified)
+			return;
+		
+		this.timeToSession.record(MonotonicClock.elapsedNanos(this.disconnectedNanos));
+		this.serverDiscovery.storeLastKnownGood((InetSocketAddress) this.connection.socket().getRemoteSocketAddress());
+		updateUIs(EIdentifier.CONNECTION, "Identification successful after " + TimeUnit.NANOSECONDS.toMillis(this.timeToSession.getLastNanos()) + " ms!\n"
+				+ "Sending the list of the cars capabilities...\n");
 		sendProperties();
+		if(this.state != EConnectionState.IDENTIFYING)
+			return;
+		this.failedAttempts = 0;
+		this.pingSentNanos = 0;
+		this.lastReceivedNanos = System.nanoTime();
+		this.nextHeartbeatNanos = this.lastReceivedNanos + this.heartbeatIntervalNanos;
+		// control-data is only accepted via UDP from the TCP-Server, once it has been identified
+		if(this.datagramControlChannel != null)
+			this.datagramControlChannel.setSource(this.connection.socket().getInetAddress());
+		setState(EConnectionState.LIVE);
+	}
+	
+	/**
+	 * Checks if the incoming message confirms, that the car has been successfully registered with the TCP-Server.
+	 * @param decodedDataset the HashMap that contains the incoming data
+	 */
+	private void processIdentificationMessage(HashMap<String, Object> decodedDataset) {
+		if(decodedDataset == null) {
+			this.linkStatistics.addDecodeError();
+			return;
+		}
+		updateUIs(EIdentifier.CONNECTION, "Answer received!\n");
+		if(decodedDataset.get(Keywords.state) instanceof Long) {
+			if(((long)decodedDataset.get(Keywords.state)) == 1)
+				this.identified = true;
+			else if(((long)decodedDataset.get(Keywords.state)) == -1) {
+				updateUIs(EIdentifier.CONNECTION, "Duplicate ID! Trying again in a minute.\n");
+				this.nextIdentificationNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DUPLICATE_ID_DELAY);
+			}
+		}
+	}
+	
+	/**
+	 * Switches to the {@link BinaryProtocol}, if the TCP-Server agrees to use it. Otherwise JSON is used further on.
+	 * @param message the decoded message that contains the version of the {@link BinaryProtocol} the TCP-Server agrees to use.
+	 */
+	private void processProtocolMessage(ControlMessage message) {
+		this.binaryProtocol = this.binaryProtocolEnabled && message.getValue(EControlKey.BINARY_PROTOCOL) == BinaryProtocol.VERSION;
+		updateUIs(EIdentifier.CONNECTION, this.binaryProtocol ? "The server agreed to use the binary protocol.\n" : "The server uses JSON.\n");
+	}
+	
+	/**
+	 * Answers a ping of the TCP-Server, or records the round-trip-time, if the pong answers the last ping that has been sent.
+	 * If such a pong contains the time of the TCP-Server, it is added as a sample to the estimate of the {@link #serverClock}.
+	 * @param ping true, if the heartbeat is a ping, false if it is a pong.
+	 * @param sequence the sequence-number of the heartbeat.
+	 * @param serverTime the time of the TCP-Server (in ms since the epoch) that the heartbeat was sent, or {@link BinaryMessage#NO_TIMESTAMP}.
+	 */
+	private void processHeartbeat(boolean ping, int sequence, long serverTime) {
+		if(ping)
+			sendHeartbeat(false, sequence);
+		else if(sequence == this.pingSequence && this.pingSentNanos != 0) {
+			long now = System.nanoTime();
+			this.linkStatistics.addRoundTripTime(now - this.pingSentNanos);
+			if(serverTime != BinaryMessage.NO_TIMESTAMP)
+				this.serverClock.addSample(this.pingSentNanos, now, serverTime);
+			this.pingSentNanos = 0;
+		}
+	}
+	
+	/**
+	 * Records the age of received control-data in the {@link LinkStatistics}, if it carries the time it was sent and the {@link #serverClock} is synchronized.
+	 * @param sendTime the time (in ms since the epoch, in the time of the TCP-Server) that the control-data was sent, or {@link BinaryMessage#NO_TIMESTAMP}.
+	 */
+	private void recordControlAge(long sendTime) {
+		if(sendTime != BinaryMessage.NO_TIMESTAMP && this.serverClock.isSynchronized())
+			this.linkStatistics.addControlAge(this.serverClock.toPeerNanos(System.nanoTime()) - sendTime * 1000000L);
+	}
+	
+	/**
+	 * Sends a ping or a pong to the TCP-Server, via the {@link BinaryProtocol} if it has been agreed on, otherwise as JSON.
+	 * @param ping true, if a ping should be sent, false if a pong should be sent.
+	 * @param sequence the sequence-number of the heartbeat.
+	 */
+	private void sendHeartbeat(boolean ping, int sequence) {
+		if(this.connection == null)
+			return;
+		if(this.binaryProtocol) {
+			reserveWriteBuffer(BinaryProtocol.MAX_MESSAGE_SIZE);
+			if(ping)
+				this.sentMessage.setPing(sequence);
+			else
+				this.sentMessage.setPong(sequence);
+			BinaryProtocol.encode(this.writeBuffer, this.sentMessage);
+			this.linkStatistics.addSentMessage();
+			flushToStream();
+		}
+		else
+			writeToStream("{\"" + (ping ? Keywords.ping : Keywords.pong) + "\":" + sequence + "}");
+	}
+	
+	/**
+	 * Sends the next heartbeat, if it is due, and updates the rates of the {@link #linkStatistics}.
+	 * If no data has been received from the TCP-Server for the {@link #missedHeartbeats} since the connection became live, the connection is closed.
+	 */
+	private void heartbeat() {
+		long now = System.nanoTime();
+		if(this.heartbeatIntervalNanos == 0 || now - this.nextHeartbeatNanos < 0)
+			return;
+		
+		this.linkStatistics.updateRates(now);
+		if(now - this.lastReceivedNanos > this.heartbeatIntervalNanos * this.missedHeartbeats) {
+			this.linkStatistics.addStaleLink();
+			connectionLost("No data has been received for " + this.missedHeartbeats + " heartbeats.\n");
+			return;
+		}
+		this.nextHeartbeatNanos = now + this.heartbeatIntervalNanos;
+		this.pingSentNanos = now;
+		sendHeartbeat(true, ++this.pingSequence);
+	}
+	
+	/**
+	 * @return the time in milliseconds until the pending sensor-data has to be sent or the next heartbeat is due, at least 1, or 0 if neither is pending.
+	 */
+	private long getLiveTimeout() {
+		long timeout = getTelemetryFlushTimeout();
+		if(this.heartbeatIntervalNanos == 0)
+			return timeout;
+		long heartbeatTimeout = Math.max(TimeUnit.NANOSECONDS.toMillis(this.nextHeartbeatNanos - System.nanoTime() + 999999), 1);
+		return timeout == 0 ? heartbeatTimeout : Math.min(timeout, heartbeatTimeout);
 	}
 	
 	@Override
 	/**
 	 * Informs this runnable about new SensorData.
+	 * The data-set is retained until it has been sent to the TCP-Server or dropped by the {@link #telemetryQueue}. This method never blocks.
 	 * @param data the new {@link SensorData}.
 	 */
 	public void updateSensorData(SensorData data) {
-		if(data == null)
+		if(!this.telemetryQueue.offer(data))
 			return;
-		
-		try {
-			this.sensorDataQueue.put(data);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
+		// wake up the thread of this Runnable, so the data is sent immediately
+		Selector selector = this.selector;
+		if(selector != null)
+			selector.wakeup();
 	}
 	
 	/**
-	 * Checks the incoming message for control-data and puts it on the controlDataQueue.
+	 * Checks the incoming message for control-data and publishes it on the control-lane as a single control-frame.
 	 * Also changes the controlling device to a gamepad, if the phone wants to give up control of the car.
-	 * @param decodedDataset the HashMap that contains the incoming data
+	 * @param message the decoded control-message
 	 */
-	private void processMessage(HashMap<String, Object> decodedDataset) {
-		if(decodedDataset == null)
+	void processMessage(ControlMessage message) {
+		if(message.isEmpty())
 			return;
 		
 		byte steeringData = 0;
@@ -356,163 +1037,173 @@ public class ServerConnection extends Connection implements ISensorDataListener,
 		byte cameraYaw = 0;
 		byte cameraPitch = 0;
 		boolean cameraChanged = false;
-		boolean[] lights = new boolean[5];
+		long lights = ControlFrame.LIGHTS;
 		boolean lightsChanged = false;
-		Object cache;
-		String text = "";
+		long frame = ControlFrame.EMPTY;
 		
 		// change controlling device to gamepad
-		if((cache = decodedDataset.get(Keywords.phoneControl)) instanceof Long)
-			try {
-				if(((long) cache) == 0){
-					super.changeControllingDevice(-1, EDataType.DRIVECONTROL);
-					super.changeControllingDevice(-1, EDataType.LIGHTCONTROL);
-					super.changeControllingDevice(-1, EDataType.CAMERACONTROL);
-				}
-			} catch(NumberFormatException nfe) {System.out.println(nfe.getMessage());}
+		if(message.has(EControlKey.PHONE_CONTROL) && message.getValue(EControlKey.PHONE_CONTROL) == 0) {
+			super.changeControllingDevice(-1, EDataType.DRIVECONTROL);
+			super.changeControllingDevice(-1, EDataType.LIGHTCONTROL);
+			super.changeControllingDevice(-1, EDataType.CAMERACONTROL);
+		}
 		
 		// steering data
-		if((cache = decodedDataset.get(Keywords.steering)) instanceof Long)
-			try {
-				steeringData = (byte)((long)cache);
-				driveChanged = true;
-			} catch(NumberFormatException nfe) {System.out.println(nfe.getMessage());}
+		if(message.has(EControlKey.STEERING)) {
+			steeringData = (byte) message.getValue(EControlKey.STEERING);
+			driveChanged = true;
+		}
 
 		// acceleration data
-		if((cache = decodedDataset.get(Keywords.acceleration)) instanceof Long)
-			try {
-				accelerationData = (byte)((long)cache);
-				driveChanged = true;
-			} catch(NumberFormatException nfe) {System.out.println(nfe.getMessage());}
+		if(message.has(EControlKey.ACCELERATION)) {
+			accelerationData = (byte) message.getValue(EControlKey.ACCELERATION);
+			driveChanged = true;
+		}
 		
 		// stop data, in case the phone is no longer connected
-		if((cache = decodedDataset.get(Keywords.stop)) instanceof Long) {
-			try {
-				if(((long) cache) == 1){
-					stop = true;
-					driveChanged = true;
-					text = text.concat("Stooop see caaaar!!!" + "\n");
-				}
-			} catch(NumberFormatException nfe){
-				System.out.println(nfe.getMessage());
-				}
+		if(message.getValue(EControlKey.STOP) == 1) {
+			stop = true;
+			driveChanged = true;
 		}
 		
-		if(driveChanged){
-			super.putControlData(new DriveControlData(accelerationData, steeringData, stop));
-			text = text.concat("Acceleration: " + accelerationData + "\n");
-			text = text.concat("Steering: " + steeringData + "\n");
-		}
+		if(driveChanged)
+			frame |= ControlFrame.drive(accelerationData, steeringData, stop);
 		
 		// cameras yaw position data
-		if((cache = decodedDataset.get(Keywords.cameraYaw)) instanceof Long) {
-			try{
-				cameraYaw = (byte)((long)cache);
-				cameraChanged = true;
-			} catch(NumberFormatException nfe) {System.out.println(nfe.getMessage());}
+		if(message.has(EControlKey.CAMERA_YAW)) {
+			cameraYaw = (byte) message.getValue(EControlKey.CAMERA_YAW);
+			cameraChanged = true;
 		}
 		
 		// cameras pitch postition data
-		if((cache = decodedDataset.get(Keywords.cameraPitch)) instanceof Long) {
-			try{
-				cameraPitch = (byte)((long)cache);
-				cameraChanged = true;
-			} catch(NumberFormatException nfe) {System.out.println(nfe.getMessage());}
+		if(message.has(EControlKey.CAMERA_PITCH)) {
+			cameraPitch = (byte) message.getValue(EControlKey.CAMERA_PITCH);
+			cameraChanged = true;
 		}
 		
-		if(cameraChanged) {
-			super.putControlData(new CameraControlData(cameraYaw, cameraPitch));
-			text.concat("Camera yaw angle: " + cameraYaw + "\n");
-			text.concat("Camera pitch angle: " + cameraPitch + "\n");
-		}
+		if(cameraChanged)
+			frame |= ControlFrame.camera(cameraYaw, cameraPitch);
 		
 		// front light control data
-		if((cache = decodedDataset.get(Keywords.frontLights)) instanceof Long) {
-			try{
-				if((long)cache == 1) {
-					lights[0] = true;
-					text = text.concat("Headlights are on" + "\n");
-				}
-				else {
-					lights[0] = false;
-					text = text.concat("Headlights are off" + "\n");
-				}
-				lightsChanged = true;
-			} catch(NumberFormatException nfe) {System.out.println(nfe.getMessage());}
+		if(message.has(EControlKey.FRONT_LIGHTS)) {
+			if(message.getValue(EControlKey.FRONT_LIGHTS) == 1)
+				lights |= ControlFrame.FRONT_LIGHTS;
+			lightsChanged = true;
 		}
 		
 		// back light control data
-		if((cache = decodedDataset.get(Keywords.backLights)) instanceof Long) {
-			try{
-				if((long)cache == 1) {
-					lights[1] = true;
-					text = text.concat("Backlights are on" + "\n");
-				}
-				else {
-					lights[1] = false;
-					text = text.concat("Backlights are off" + "\n");
-				}
-				lightsChanged = true;
-			} catch(NumberFormatException nfe) {System.out.println(nfe.getMessage());}
+		if(message.has(EControlKey.BACK_LIGHTS)) {
+			if(message.getValue(EControlKey.BACK_LIGHTS) == 1)
+				lights |= ControlFrame.BACK_LIGHTS;
+			lightsChanged = true;
 		}
 		
 		// dynamic light control data
-		if((cache = decodedDataset.get(Keywords.dynamicLights)) instanceof Long) {
-			try{
-				if((long)cache == 1) {
-					lights[2] = true;
-					text = text.concat("Dynamiclights are enabled" + "\n");
-				}
-				else {
-					lights[2] = false;
-					text = text.concat("Dynamiclights are disabled" + "\n");
-				}
-				lightsChanged = true;
-			} catch(NumberFormatException nfe) {System.out.println(nfe.getMessage());}
+		if(message.has(EControlKey.DYNAMIC_LIGHTS)) {
+			if(message.getValue(EControlKey.DYNAMIC_LIGHTS) == 1)
+				lights |= ControlFrame.DYNAMIC_LIGHTS;
+			lightsChanged = true;
 		}
 		
 		// left winker control data
-		if((cache = decodedDataset.get(Keywords.leftWinker)) instanceof Long) {
-			try{
-				if((long)cache == 1)
-					lights[3] = true;
-				lightsChanged = true;
-			} catch(NumberFormatException nfe) {System.out.println(nfe.getMessage());}
+		if(message.has(EControlKey.LEFT_WINKER)) {
+			if(message.getValue(EControlKey.LEFT_WINKER) == 1)
+				lights |= ControlFrame.LEFT_WINKER;
+			lightsChanged = true;
 		}
 		
 		// right winker control data
-		if((cache = decodedDataset.get(Keywords.rightWinker)) instanceof Long) {
-			try{
-				if((long)cache == 1)
-					lights[4] = true;
-				lightsChanged = true;
-			} catch(NumberFormatException nfe) {System.out.println(nfe.getMessage());}
+		if(message.has(EControlKey.RIGHT_WINKER)) {
+			if(message.getValue(EControlKey.RIGHT_WINKER) == 1)
+				lights |= ControlFrame.RIGHT_WINKER;
+			lightsChanged = true;
+		}
+		
+		if(lightsChanged)
+			frame |= lights;
+		
+		if(frame != ControlFrame.EMPTY) {
+			super.putControlFrame(frame);
+			if(isUIUpdateDue(EIdentifier.PHONECONTROL))
+				updateUIs(EIdentifier.PHONECONTROL, describeControlFrame(frame));
+		}
+	}
+	
+	/**
+	 * Tells whether the UIs should be updated with the current data of the passed topic, so its text is only built then.
+	 * That is the case, if UIs are registered and they have not been updated with the topic for {@link #UI_UPDATE_INTERVAL_NANOS},
+	 * so the control- and sensor-data that arrives in between does not allocate anything for the UIs.
+	 * @param identifier the topic of the data.
+	 * @return true, if the UIs should be updated with the current data of the topic.
+	 */
+	private boolean isUIUpdateDue(EIdentifier identifier) {
+		if(getUIs().isEmpty())
+			return false;
+		long now = System.nanoTime();
+		if(now - this.nextUIUpdateNanos[identifier.ordinal()] < 0)
+			return false;
+		this.nextUIUpdateNanos[identifier.ordinal()] = now + UI_UPDATE_INTERVAL_NANOS;
+		return true;
+	}
+	
+	/**
+	 * @param frame a control-frame that has been received from the TCP-Server.
+	 * @return the text that the UIs show for the passed control-frame.
+	 */
+	private static String describeControlFrame(long frame) {
+		String text = "";
+		if(ControlFrame.hasDrive(frame)) {
+			if(ControlFrame.isStopped(frame))
+				text = text.concat("Stooop see caaaar!!!" + "\n");
+			text = text.concat("Acceleration: " + ControlFrame.acceleration(frame) + "\n");
+			text = text.concat("Steering: " + ControlFrame.steeringAngle(frame) + "\n");
+		}
+		if(ControlFrame.hasCamera(frame)) {
+			text = text.concat("Camera yaw angle: " + ControlFrame.yawAngle(frame) + "\n");
+			text = text.concat("Camera pitch angle: " + ControlFrame.pitchAngle(frame) + "\n");
+		}
+		if(ControlFrame.hasLights(frame)) {
+			text = text.concat("Headlights are " + ((frame & ControlFrame.FRONT_LIGHTS) != 0 ? "on" : "off") + "\n");
+			text = text.concat("Backlights are " + ((frame & ControlFrame.BACK_LIGHTS) != 0 ? "on" : "off") + "\n");
+			text = text.concat("Dynamiclights are " + ((frame & ControlFrame.DYNAMIC_LIGHTS) != 0 ? "enabled" : "disabled") + "\n");
+		}
+		return text;
+	}
+	
+	/**
+	 * Publishes the control-frame of the incoming binary message on the control-lane.
+	 * Also changes the controlling device to a gamepad, if the phone wants to give up control of the car.
+	 * @param message the decoded binary control-message
+	 */
+	void processMessage(BinaryMessage message) {
+		if(message.isReleaseControl()) {
+			super.changeControllingDevice(-1, EDataType.DRIVECONTROL);
+			super.changeControllingDevice(-1, EDataType.LIGHTCONTROL);
+			super.changeControllingDevice(-1, EDataType.CAMERACONTROL);
 		}
 		
-		if(lightsChanged){
-			super.putControlData(new LightControlData(lights));
-			lightsChanged = false;
+		long frame = message.getControlFrame();
+		if(frame != ControlFrame.EMPTY) {
+			super.putControlFrame(frame);
+			if(isUIUpdateDue(EIdentifier.PHONECONTROL))
+				updateUIs(EIdentifier.PHONECONTROL, describeControlFrame(frame));
 		}
-		updateUIs(EIdentifier.PHONECONTROL, text);
 	}
 	
 	/**
-	 * Sends all immediately available sets of {@link DistanceSensorData} on the {@link #sensorDataQueue} to the TCP-Server.
+	 * Sends the sets of sensor-data on the {@link #telemetryQueue} to the TCP-Server, as long as the network keeps up with them.
+	 * Once the {@link #writeBuffer} holds {@link #MAX_PENDING_TELEMETRY} bytes that have not been written yet, the remaining sets stay on the
+	 * {@link #telemetryQueue}, until the {@link #connection} accepts more data.
 	 */
 	private void processSensorData() {
-		while(this.sensorDataQueue.size() > 0) {
-			
-			SensorData data = this.sensorDataQueue.poll();
-			
-			if(data != null) {
-				if(data instanceof DistanceSensorData){
-					DistanceSensorData sensorData = (DistanceSensorData) data;
-					HashMap<String, Object> outputMap = new HashMap<>();
-					outputMap.put(Keywords.ultrasonicSensor, sensorData.getFrontDistanceSensor());
-					outputMap.put(Keywords.leftInfraredSensor, sensorData.getLeftsideDistanceSensor());
-					outputMap.put(Keywords.rightInfraredSensor, sensorData.getRightsideDistanceSensor());
-					writeFromMapToStream(outputMap);
-					
+		SensorData data;
+		while(this.state == EConnectionState.LIVE && this.writeBuffer.position() < MAX_PENDING_TELEMETRY
+				&& (data = this.telemetryQueue.poll()) != null) {
+			if(data instanceof DistanceSensorData){
+				DistanceSensorData sensorData = (DistanceSensorData) data;
+				writeToStream(sensorData);
+				
+				if(isUIUpdateDue(EIdentifier.SENSOR)) {
 					String text = new String();
 					text = text.concat("Retrieving Sensor-Data:\n");
 					text = text.concat("Ultrasonic front: " + sensorData.getFrontDistanceSensor() + "\n");
@@ -520,48 +1211,91 @@ public class ServerConnection extends Connection implements ISensorDataListener,
 					text = text.concat("Infraret right: " + sensorData.getRightsideDistanceSensor() + "\n");
 					updateUIs(EIdentifier.SENSOR, text);
 				}
-				else if(data instanceof VelocitySensorData) {
-					VelocitySensorData sensorData = (VelocitySensorData) data;
-					HashMap<String, Object> outputMap = new HashMap<>();
-					outputMap.put(Keywords.hallSensor, sensorData.getVelocitySensor());
-					writeFromMapToStream(outputMap);
+			}
+			else if(data instanceof VelocitySensorData) {
+				VelocitySensorData sensorData = (VelocitySensorData) data;
+				writeToStream(sensorData);
+				if(isUIUpdateDue(EIdentifier.SENSOR))
 					updateUIs(EIdentifier.SENSOR, ("Retrieving Velocity Sensor-data:\nSpeed: " + sensorData.getVelocitySensor() + "\n"));
-				}
 			}
+			data.release();
 		}
 	}
 	
 	/**
-	  * Tries to establish a connection with the TCP-Server until it is successful.<br>
-	  * Registers this car on the TCP-Server and sends a list of the cars properties.<br>
-	  * Continuously processes incoming data and sends the cars sensor-data to the TCP-Server.<br>
-	  * If the connection to the TCP-Server is lost at some point, the method will immediately try to reestablish it.
-	  */
-	public synchronized void run() {
+	 * Continuously processes incoming data and sends the cars sensor-data to the TCP-Server, while the connection is live.
+	 */
+	private void exchangeData() {
+		// sensor-data is only sent, if the car has sensors
+		if(hasSensors())
+			processSensorData();
+		else
+			this.telemetryQueue.clear();
 		
-		this.connectToServer();
+		if(this.state == EConnectionState.LIVE && this.pendingTelemetrySamples > 0 && getTelemetryFlushTimeout() <= 1)
+			flushToStream();
 		
-		//add the cars ip-address to the list of car information
-		if(this.properties.contains("camera"))
-			this.properties.add("ip=" + this.connection.getLocalAddress().getHostAddress());
+		if(this.state == EConnectionState.LIVE)
+			heartbeat();
 		
-		this.identify();
+		// sleeps until a message arrives, new sensor-data arrives, the pending sensor-data has to be sent, the next heartbeat is due or more data can be written
+		if(this.state == EConnectionState.LIVE)
+			this.readData(getLiveTimeout(), this.controlHandler);
+	}
+	
+	/**
+	 * @return true, if the properties of this car contain at least one sensor, whose data is sent to the TCP-Server.
+	 */
+	private boolean hasSensors() {
+		return this.properties.contains(Keywords.ultrasonicSensor) || this.properties.contains(Keywords.leftInfraredSensor)
+				|| this.properties.contains(Keywords.rightInfraredSensor) || this.properties.contains(Keywords.hallSensor);
+	}
+	
+	/**
+	 * Waits until the current backoff ends, while the sensor-data that arrives is conflated. Then the next attempt to connect is started.
+	 */
+	private void waitForBackoff() {
+		long remaining = this.backoffEndNanos - System.nanoTime();
+		if(remaining > 0)
+			this.readData(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)), this.controlHandler);
+		this.telemetryQueue.conflate();
+		if(this.backoffEndNanos - System.nanoTime() <= 0)
+			setState(EConnectionState.CONNECTING);
+	}
+	
+	/**
+	  * Runs the state-machine of the connection with the TCP-Server (see {@link EConnectionState}).<br>
+	  * Tries to establish a connection with the TCP-Server, registers this car on the TCP-Server and sends a list of the cars properties.<br>
+	  * Continuously processes incoming data and sends the cars sensor-data to the TCP-Server.<br>
+	  * If the connection to the TCP-Server is lost at some point, it is reestablished after a backoff.
+	  * None of this ever blocks the threads that control the car.
+	  */
+	public synchronized void run() {
+		try {
+			this.selector = Selector.open();
+		} catch(IOException ioe) {
+			updateUIs(EIdentifier.CONNECTION, "Error opening the selector!\n" + ioe.getMessage() + "\n");
+			return;
+		}
 		
 		while(true) {
-			
-			String inputMessage = this.readData();
-			// if the phoneConnection is in control, process the incoming message
-			if(inputMessage != null && super.getConnectionId() == super.connectionIdInDriveControl) {
-				 processMessage(JSONDecoder.decode(inputMessage));
-			}
-			else if(inputMessage != null) {
-				updateUIs(EIdentifier.PHONECONTROL, "Control-data is being received, but the gamepad is currently in control!");
-			}
-			
-			if(this.properties.contains("sensors")) {
-				processSensorData();
+			switch(this.state) {
+				case CONNECTING:
+					connectToServer();
+					this.telemetryQueue.conflate();
+					break;
+				case IDENTIFYING:
+					identify();
+					this.telemetryQueue.conflate();
+					break;
+				case LIVE:
+					exchangeData();
+					break;
+				case BACKOFF:
+					waitForBackoff();
+					break;
 			}
 		}
 	}
 	
-}
\ No newline at end of file
+}
@@ -0,0 +1,282 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Finds the TCP-Server among a range of candidate-endpoints by connecting to all of them concurrently.<br>
+ * The candidates are {@link #ADDRESSES} consecutive IP-addresses, starting at the configured address, each with {@link #PORTS} consecutive ports.
+ * All connections are started at once as non-blocking connects. The first one that is established wins and all others are cancelled.
+ * The connects are registered with the selector of the caller, which completes them via {@link #poll()}, so a discovery never blocks its thread.<br>
+ * The endpoint of the last successful session is persisted in a file and is tried first the next time, with a short head start,
+ * so the usual case of an unchanged server does not have to race the whole range.
+ *
+ * @author Boeck
+ */
+public class ServerDiscovery {
+
+	/** The number of consecutive IP-addresses that are tried. */
+	public static final int ADDRESSES = 20;
+
+	/** The number of consecutive ports that are tried on each IP-address. */
+	public static final int PORTS = 3;
+
+	/** The time in milliseconds that the last-known-good endpoint is tried alone, before all other candidates are tried as well. */
+	public static final long HEAD_START = 150;
+
+	/** The file that the last-known-good endpoint is persisted in by default. */
+	public static final File DEFAULT_ENDPOINT_FILE = new File(System.getProperty("user.home"), ".rmcs-server");
+
+	/** The first candidate-endpoint of the range. */
+	private InetSocketAddress baseAddress;
+
+	/** The file that the last-known-good endpoint is persisted in, or null if it is not persisted. */
+	private File endpointFile;
+
+	/** The endpoint of the last successful session, or null if there is none. */
+	private InetSocketAddress lastKnownGood;
+
+	/** The selector that the connects of the current discovery are registered with, or null if no discovery is running. */
+	private Selector selector;
+
+	/** The candidate-endpoints of the current discovery. */
+	private List<InetSocketAddress> candidates = new ArrayList<>();
+
+	/** The number of candidate-endpoints of the current discovery, whose connects have been started. */
+	private int started;
+
+	/** The keys of the connects of the current discovery, that have neither been established nor failed yet. */
+	private final List<SelectionKey> keys = new ArrayList<>();
+
+	/** The monotonic time (in ns, see {@link System#nanoTime()}), that the head start of the last-known-good endpoint ends. */
+	private long headStartEndNanos;
+
+	/** The monotonic time (in ns, see {@link System#nanoTime()}), that the current discovery fails, if no connection has been established. */
+	private long deadlineNanos;
+
+
+	/**
+	 * Creates a discovery for the range of candidates that starts at the passed address, and loads the last-known-good endpoint from the file.
+	 * @param baseAddress the first candidate-endpoint of the range.
+	 * @param endpointFile the file that the last-known-good endpoint is persisted in, or null if it should not be persisted.
+	 */
+	public ServerDiscovery(InetSocketAddress baseAddress, File endpointFile) {
+		this.baseAddress = baseAddress;
+		this.endpointFile = endpointFile;
+		this.lastKnownGood = loadEndpoint();
+	}
+
+
+	/**
+	 * @return the endpoint of the last successful session, or null if there is none.
+	 */
+	public InetSocketAddress getLastKnownGood() {
+		return this.lastKnownGood;
+	}
+
+	/**
+	 * @return all candidate-endpoints, starting with the last-known-good endpoint (if any).
+	 */
+	public List<InetSocketAddress> getCandidates() {
+		List<InetSocketAddress> candidates = new ArrayList<>(ADDRESSES * PORTS + 1);
+		if(this.lastKnownGood != null)
+			candidates.add(this.lastKnownGood);
+
+		byte[] address = this.baseAddress.getAddress().getAddress();
+		for(int i = 0; i < ADDRESSES; i++) {
+			try {
+				InetAddress inetAddress = InetAddress.getByAddress(address);
+				for(int port = this.baseAddress.getPort(); port < this.baseAddress.getPort() + PORTS; port++) {
+					InetSocketAddress candidate = new InetSocketAddress(inetAddress, port);
+					if(!candidate.equals(this.lastKnownGood))
+						candidates.add(candidate);
+				}
+			} catch(IOException ioe) {
+				System.out.println("Error incrementing the IP-Address: " + ioe.getMessage());
+			}
+			address[address.length - 1]++;
+		}
+		return candidates;
+	}
+
+	/**
+	 * Starts a discovery: connects to the last-known-good endpoint (if any) and, after its head start, to all other candidate-endpoints concurrently.
+	 * The connects are registered with the passed selector, so they are completed by the loop that selects it, without blocking it.
+	 * A discovery that is still running is cancelled.
+	 * @param selector the selector that the connects are registered with. The caller has to call {@link #poll()} whenever it has been selected.
+	 * @param timeout the maximum time in milliseconds to wait for a connection.
+	 */
+	public void start(Selector selector, long timeout) {
+		cancel();
+		long now = System.nanoTime();
+		this.selector = selector;
+		this.deadlineNanos = now + TimeUnit.MILLISECONDS.toNanos(timeout);
+		this.candidates = getCandidates();
+		this.started = 0;
+		if(this.lastKnownGood != null) {
+			connect(this.candidates.get(this.started++));
+			this.headStartEndNanos = now + TimeUnit.MILLISECONDS.toNanos(Math.min(HEAD_START, timeout));
+		}
+		else
+			this.headStartEndNanos = now;
+		startCandidates(now);
+	}
+
+	/**
+	 * Starts the connects to all remaining candidate-endpoints, once the head start of the last-known-good endpoint has ended.
+	 * @param now the current monotonic time (in ns, see {@link System#nanoTime()}).
+	 */
+	private void startCandidates(long now) {
+		if(now - this.headStartEndNanos < 0)
+			return;
+		while(this.started < this.candidates.size())
+			connect(this.candidates.get(this.started++));
+	}
+
+	/**
+	 * Completes the connects of the current discovery, that the selector has found ready, and starts the remaining connects once the head start has ended.
+	 * If a connection has been established, the discovery ends and all other connections are closed.
+	 * @return the first connection that has been established, in non-blocking mode and still registered with the selector, or null if there is none yet.
+	 */
+	public SocketChannel poll() {
+		if(this.selector == null)
+			return null;
+		startCandidates(System.nanoTime());
+
+		SocketChannel winner = null;
+		for(Iterator<SelectionKey> iterator = this.keys.iterator(); iterator.hasNext() && winner == null;) {
+			SelectionKey key = iterator.next();
+			if(!key.isValid() || !key.isConnectable())
+				continue;
+			SocketChannel channel = (SocketChannel) key.channel();
+			try {
+				if(channel.finishConnect()) {
+					// the key is kept, so the connection can be registered with the same selector right away
+					key.interestOps(0);
+					iterator.remove();
+					winner = channel;
+				}
+			} catch(IOException ioe) {
+				// e.g. the connection was refused
+				close(channel);
+				iterator.remove();
+			}
+		}
+		if(winner != null)
+			cancel();
+		return winner;
+	}
+
+	/**
+	 * @return true, if no discovery is running, or the current discovery has failed: its timeout has passed, or all connects have failed.
+	 */
+	public boolean isFinished() {
+		return this.selector == null || System.nanoTime() - this.deadlineNanos >= 0
+				|| this.started == this.candidates.size() && this.keys.isEmpty();
+	}
+
+	/**
+	 * @return the time in milliseconds until the current discovery has to be polled again, even if the selector has not found any connect ready
+	 * (at the end of the head start or the timeout), at least 1.
+	 */
+	public long getPollTimeout() {
+		long next = this.started < this.candidates.size() ? this.headStartEndNanos : this.deadlineNanos;
+		return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next - System.nanoTime()));
+	}
+
+	/**
+	 * Ends the current discovery and closes all connections that have not been handed out by {@link #poll()}.
+	 */
+	public void cancel() {
+		for(SelectionKey key : this.keys)
+			close((SocketChannel) key.channel());
+		this.keys.clear();
+		this.selector = null;
+	}
+
+	/**
+	 * Starts a non-blocking connect to the passed endpoint and registers it with the {@link #selector}.
+	 * If the connect fails immediately (e.g. because the network is unreachable), the endpoint is skipped.
+	 * @param endpoint the endpoint to connect to.
+	 */
+	private void connect(InetSocketAddress endpoint) {
+		SocketChannel channel = null;
+		try {
+			channel = SocketChannel.open();
+			channel.configureBlocking(false);
+			channel.connect(endpoint);
+			this.keys.add(channel.register(this.selector, SelectionKey.OP_CONNECT, endpoint));
+		} catch(IOException ioe) {
+			// e.g. the network is unreachable
+			if(channel != null)
+				close(channel);
+		}
+	}
+
+	/**
+	 * Closes the passed channel, which also cancels its registration with the {@link #selector}.
+	 * @param channel the channel to be closed.
+	 */
+	private static void close(SocketChannel channel) {
+		try {
+			channel.close();
+		} catch(IOException ioe) {}
+	}
+
+	/**
+	 * Persists the passed endpoint as the last-known-good endpoint, so it is tried first the next time.
+	 * @param endpoint the endpoint of a successful session.
+	 */
+	public void storeLastKnownGood(InetSocketAddress endpoint) {
+		if(endpoint == null || endpoint.equals(this.lastKnownGood))
+			return;
+		this.lastKnownGood = endpoint;
+		if(this.endpointFile == null)
+			return;
+
+		try(Writer writer = new OutputStreamWriter(new FileOutputStream(this.endpointFile), StandardCharsets.UTF_8)) {
+			writer.write(endpoint.getAddress().getHostAddress() + " " + endpoint.getPort() + "\n");
+		} catch(IOException ioe) {
+			System.out.println("Error persisting the server-endpoint in " + this.endpointFile + "!\n" + ioe.getMessage());
+		}
+	}
+
+	/**
+	 * @return the endpoint that is persisted in the {@link #endpointFile}, or null if there is none or it cannot be read.
+	 */
+	private InetSocketAddress loadEndpoint() {
+		if(this.endpointFile == null || !this.endpointFile.isFile())
+			return null;
+
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(this.endpointFile), StandardCharsets.UTF_8))) {
+			String line = reader.readLine();
+			if(line == null)
+				return null;
+			String[] parts = line.trim().split(" ");
+			if(parts.length != 2)
+				return null;
+			return new InetSocketAddress(InetAddress.getByName(parts[0]), Integer.parseInt(parts[1]));
+		} catch(IOException | IllegalArgumentException e) {
+			System.out.println("Error reading the server-endpoint from " + this.endpointFile + "!\n" + e.getMessage());
+			return null;
+		}
+	}
+
+}
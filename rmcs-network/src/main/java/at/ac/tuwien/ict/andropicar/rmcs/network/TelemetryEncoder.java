@@ -0,0 +1,153 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Encodes the sensor-messages of the car directly into a ByteBuffer, without creating any objects.<br>
+ * The messages are assembled from precomputed fragments, that contain the keys, and the values, that are formatted as ASCII-digits.
+ * The result is exactly what the {@link at.ac.tuwien.ict.andropicar.json.JSONDecoder} encodes from a HashMap with the same content,
+ * including the order of the keys (which is the iteration-order of such a HashMap). If the sensor-data is stamped with the time of the TCP-Server,
+ * the timestamp is appended as the last key.<br>
+ * The encoder should be accessed in a static manner (without instantiation of this class), which is why the constructor has been set private.
+ *
+ * @author Boeck
+ */
+public class TelemetryEncoder {
+
+	/** The fragment that starts a distance-sensor-message, up to the value of the ultrasonic-sensor. */
+	private static final byte[] ultrasonicSensorFragment = ("{\"" + Keywords.ultrasonicSensor + "\":").getBytes(StandardCharsets.US_ASCII);
+
+	/** The fragment that precedes the value of the left infrared-sensor. */
+	private static final byte[] leftInfraredSensorFragment = (",\"" + Keywords.leftInfraredSensor + "\":").getBytes(StandardCharsets.US_ASCII);
+
+	/** The fragment that precedes the value of the right infrared-sensor. */
+	private static final byte[] rightInfraredSensorFragment = (",\"" + Keywords.rightInfraredSensor + "\":").getBytes(StandardCharsets.US_ASCII);
+
+	/** The fragment that starts a velocity-sensor-message, up to the value of the hall-sensor. */
+	private static final byte[] hallSensorFragment = ("{\"" + Keywords.hallSensor + "\":").getBytes(StandardCharsets.US_ASCII);
+
+	/** The fragment that precedes the timestamp of a sensor-message. */
+	private static final byte[] serverTimeFragment = (",\"" + Keywords.serverTime + "\":").getBytes(StandardCharsets.US_ASCII);
+
+	/** The ASCII-digits of the smallest long, that cannot be negated. */
+	private static final byte[] minValueDigits = String.valueOf(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+	/** The maximum number of bytes of an integer. */
+	private static final int MAX_INT_SIZE = String.valueOf(Integer.MIN_VALUE).length();
+
+	/** The maximum number of bytes of a timestamp, including its key. */
+	private static final int MAX_TIMESTAMP_SIZE = serverTimeFragment.length + minValueDigits.length;
+
+	/** The maximum number of bytes of a distance-sensor-message, including a timestamp. */
+	public static final int MAX_DISTANCE_MESSAGE_SIZE = ultrasonicSensorFragment.length + leftInfraredSensorFragment.length
+			+ rightInfraredSensorFragment.length + 3 * MAX_INT_SIZE + MAX_TIMESTAMP_SIZE + 1;
+
+	/** The maximum number of bytes of a velocity-sensor-message, including a timestamp. */
+	public static final int MAX_VELOCITY_MESSAGE_SIZE = hallSensorFragment.length + MAX_INT_SIZE + MAX_TIMESTAMP_SIZE + 1;
+
+
+	private TelemetryEncoder() {
+	}
+
+
+	/**
+	 * Writes the sensor-message of a set of distance-sensor-data to the buffer, starting at its position.
+	 * @param buffer the buffer to write to. It must have at least {@link #MAX_DISTANCE_MESSAGE_SIZE} bytes remaining.
+	 * @param frontDistanceSensor the value of the ultrasonic-sensor.
+	 * @param leftsideDistanceSensor the value of the left infrared-sensor.
+	 * @param rightsideDistanceSensor the value of the right infrared-sensor.
+	 */
+	public static void encodeDistanceSensorData(ByteBuffer buffer, int frontDistanceSensor, int leftsideDistanceSensor, int rightsideDistanceSensor) {
+		putDistanceSensorData(buffer, frontDistanceSensor, leftsideDistanceSensor, rightsideDistanceSensor);
+		buffer.put((byte) '}');
+	}
+
+	/**
+	 * Writes the sensor-message of a set of distance-sensor-data, that is stamped with the time of the TCP-Server, to the buffer, starting at its position.
+	 * @param buffer the buffer to write to. It must have at least {@link #MAX_DISTANCE_MESSAGE_SIZE} bytes remaining.
+	 * @param frontDistanceSensor the value of the ultrasonic-sensor.
+	 * @param leftsideDistanceSensor the value of the left infrared-sensor.
+	 * @param rightsideDistanceSensor the value of the right infrared-sensor.
+	 * @param serverTime the time (in ms since the epoch, in the time of the TCP-Server) the sensor-data was captured.
+	 */
+	public static void encodeDistanceSensorData(ByteBuffer buffer, int frontDistanceSensor, int leftsideDistanceSensor, int rightsideDistanceSensor,
+			long serverTime) {
+		putDistanceSensorData(buffer, frontDistanceSensor, leftsideDistanceSensor, rightsideDistanceSensor);
+		putServerTime(buffer, serverTime);
+	}
+
+	/**
+	 * Writes the beginning of the sensor-message of a set of distance-sensor-data, without the closing brace.
+	 */
+	private static void putDistanceSensorData(ByteBuffer buffer, int frontDistanceSensor, int leftsideDistanceSensor, int rightsideDistanceSensor) {
+		buffer.put(ultrasonicSensorFragment);
+		putLong(buffer, frontDistanceSensor);
+		buffer.put(leftInfraredSensorFragment);
+		putLong(buffer, leftsideDistanceSensor);
+		buffer.put(rightInfraredSensorFragment);
+		putLong(buffer, rightsideDistanceSensor);
+	}
+
+	/**
+	 * Writes the sensor-message of a set of velocity-sensor-data to the buffer, starting at its position.
+	 * @param buffer the buffer to write to. It must have at least {@link #MAX_VELOCITY_MESSAGE_SIZE} bytes remaining.
+	 * @param velocitySensor the value of the hall-sensor.
+	 */
+	public static void encodeVelocitySensorData(ByteBuffer buffer, int velocitySensor) {
+		buffer.put(hallSensorFragment);
+		putLong(buffer, velocitySensor);
+		buffer.put((byte) '}');
+	}
+
+	/**
+	 * Writes the sensor-message of a set of velocity-sensor-data, that is stamped with the time of the TCP-Server, to the buffer, starting at its position.
+	 * @param buffer the buffer to write to. It must have at least {@link #MAX_VELOCITY_MESSAGE_SIZE} bytes remaining.
+	 * @param velocitySensor the value of the hall-sensor.
+	 * @param serverTime the time (in ms since the epoch, in the time of the TCP-Server) the sensor-data was captured.
+	 */
+	public static void encodeVelocitySensorData(ByteBuffer buffer, int velocitySensor, long serverTime) {
+		buffer.put(hallSensorFragment);
+		putLong(buffer, velocitySensor);
+		putServerTime(buffer, serverTime);
+	}
+
+	/**
+	 * Writes the timestamp and the closing brace of a sensor-message.
+	 */
+	private static void putServerTime(ByteBuffer buffer, long serverTime) {
+		buffer.put(serverTimeFragment);
+		putLong(buffer, serverTime);
+		buffer.put((byte) '}');
+	}
+
+	/**
+	 * Writes the decimal ASCII-digits of the value to the buffer, starting at its position.
+	 * @param buffer the buffer to write to.
+	 * @param value the value to be written.
+	 */
+	private static void putLong(ByteBuffer buffer, long value) {
+		if(value == Long.MIN_VALUE) {
+			buffer.put(minValueDigits);
+			return;
+		}
+		if(value < 0) {
+			buffer.put((byte) '-');
+			value = -value;
+		}
+
+		int digits = 1;
+		for(long rest = value / 10; rest > 0; rest /= 10)
+			digits++;
+
+		// the digits are written from the last to the first one
+		int position = buffer.position();
+		for(int i = position + digits - 1; i >= position; i--) {
+			buffer.put(i, (byte) ('0' + value % 10));
+			value /= 10;
+		}
+		buffer.position(position + digits);
+	}
+
+}
@@ -0,0 +1,245 @@
+package at.ac.tuwien.ict.andropicar.rmcs.network;
+
+import at.ac.tuwien.ict.andropicar.rmcs.data.LatencyStatistics;
+import at.ac.tuwien.ict.andropicar.rmcs.data.SensorData;
+
+
+/**
+ * A bounded queue of the sensor-data that is waiting to be sent to the TCP-Server.<br>
+ * Sensor-data is offered by the threads that read the sensors and taken by the thread of the {@link ServerConnection}.
+ * Offering never blocks: once the queue is full, it makes room according to its {@link EOverflowPolicy}, so a slow server or network
+ * can neither hold back the sensors nor let the queue grow without limit.<br>
+ * Every set of sensor-data in the queue has been retained by the queue. It is released when it is dropped, or has to be released by the taker.<br>
+ * The queue keeps track of its depth, the number of dropped sets and the time the sets have spent in the queue.
+ * All methods are thread-safe.
+ *
+ * @author Boeck
+ */
+public class TelemetryQueue {
+
+	/** The default maximum number of sets of sensor-data in the queue. */
+	public static final int DEFAULT_CAPACITY = 64;
+
+	/** The default way the queue makes room for a new set of sensor-data, once it is full. */
+	public static final EOverflowPolicy DEFAULT_OVERFLOW_POLICY = EOverflowPolicy.KEEP_LATEST;
+
+	/** With the {@link EOverflowPolicy#SAMPLE}-policy, every n-th set of sensor-data is queued while the queue is full. */
+	public static final int SAMPLE_RATE = 4;
+
+	/** The sets of sensor-data in the queue, as a ring-buffer. */
+	private SensorData[] samples;
+
+	/** The times in nanoseconds, that the sets of sensor-data in the {@link #samples} were queued. */
+	private long[] queuedNanos;
+
+	/** The index of the oldest set of sensor-data in the {@link #samples}. */
+	private int head;
+
+	/** The number of sets of sensor-data in the queue. */
+	private int size;
+
+	/** The way the queue makes room for a new set of sensor-data, once it is full. */
+	private EOverflowPolicy overflowPolicy;
+
+	/** The number of sets of sensor-data, that have been offered while the queue was full, since it was last not full. */
+	private int overflowCount;
+
+	/** The number of sets of sensor-data, that have been offered to the queue. */
+	private long offeredSamples;
+
+	/** The number of sets of sensor-data, that have been dropped. */
+	private long droppedSamples;
+
+	/** The highest number of sets of sensor-data, that have been in the queue at once. */
+	private int maxDepth;
+
+	/** The time the sets of sensor-data, that have been taken, have spent in the queue. */
+	private final LatencyStatistics queueLatency = new LatencyStatistics();
+
+
+	/**
+	 * Creates a queue with the {@link #DEFAULT_CAPACITY} and the {@link #DEFAULT_OVERFLOW_POLICY}.
+	 */
+	public TelemetryQueue() {
+		this(DEFAULT_CAPACITY, DEFAULT_OVERFLOW_POLICY);
+	}
+
+	/**
+	 * @param capacity the maximum number of sets of sensor-data in the queue (at least 1).
+	 * @param overflowPolicy the way the queue makes room for a new set of sensor-data, once it is full.
+	 */
+	public TelemetryQueue(int capacity, EOverflowPolicy overflowPolicy) {
+		this.samples = new SensorData[Math.max(capacity, 1)];
+		this.queuedNanos = new long[this.samples.length];
+		this.overflowPolicy = overflowPolicy != null ? overflowPolicy : DEFAULT_OVERFLOW_POLICY;
+	}
+
+
+	/**
+	 * Retains and queues the passed set of sensor-data. If the queue is full, room is made according to the {@link #overflowPolicy}.
+	 * @param data the set of sensor-data to be queued.
+	 * @return true, if the set has been queued, or false if it has been dropped.
+	 */
+	public synchronized boolean offer(SensorData data) {
+		if(data == null)
+			return false;
+		this.offeredSamples++;
+
+		if(this.size == this.samples.length) {
+			int dropped;
+			switch(this.overflowPolicy) {
+				case KEEP_LATEST:
+					dropped = indexOfOldest(data.getClass());
+					break;
+				case SAMPLE:
+					if(this.overflowCount++ % SAMPLE_RATE != 0) {
+						this.droppedSamples++;
+						return false;
+					}
+					dropped = 0;
+					break;
+				default:
+					dropped = 0;
+					break;
+			}
+			remove(dropped).release();
+			this.droppedSamples++;
+		}
+		else
+			this.overflowCount = 0;
+
+		data.retain();
+		int tail = (this.head + this.size) % this.samples.length;
+		this.samples[tail] = data;
+		this.queuedNanos[tail] = System.nanoTime();
+		this.size++;
+		if(this.size > this.maxDepth)
+			this.maxDepth = this.size;
+		return true;
+	}
+
+	/**
+	 * Takes the oldest set of sensor-data from the queue. The caller has to release it, once it is done with it.
+	 * @return the oldest set of sensor-data, or null if the queue is empty.
+	 */
+	public synchronized SensorData poll() {
+		if(this.size == 0)
+			return null;
+		this.queueLatency.record(System.nanoTime() - this.queuedNanos[this.head]);
+		return remove(0);
+	}
+
+	/**
+	 * Drops all sets of sensor-data but the newest one of each type, e.g. while they cannot be sent anyway.
+	 */
+	public synchronized void conflate() {
+		for(int i = this.size - 1; i >= 0; i--) {
+			Class<?> type = this.samples[(this.head + i) % this.samples.length].getClass();
+			int oldest;
+			while((oldest = indexOfOldest(type)) < i) {
+				remove(oldest).release();
+				this.droppedSamples++;
+				i--;
+			}
+		}
+	}
+
+	/**
+	 * Drops all sets of sensor-data in the queue.
+	 */
+	public synchronized void clear() {
+		while(this.size > 0) {
+			remove(0).release();
+			this.droppedSamples++;
+		}
+	}
+
+	/**
+	 * @param type the type of sensor-data.
+	 * @return the position (relative to the oldest set) of the oldest set of the passed type, or 0 if there is none.
+	 */
+	private int indexOfOldest(Class<?> type) {
+		for(int i = 0; i < this.size; i++) {
+			if(this.samples[(this.head + i) % this.samples.length].getClass() == type)
+				return i;
+		}
+		return 0;
+	}
+
+	/**
+	 * Removes a set of sensor-data from the queue, without releasing it. The sets that were queued before it move up by one.
+	 * @param position the position of the set, relative to the oldest set.
+	 * @return the removed set.
+	 */
+	private SensorData remove(int position) {
+		int length = this.samples.length;
+		int index = (this.head + position) % length;
+		SensorData data = this.samples[index];
+		for(int i = position; i > 0; i--) {
+			int to = (this.head + i) % length;
+			int from = (this.head + i - 1) % length;
+			this.samples[to] = this.samples[from];
+			this.queuedNanos[to] = this.queuedNanos[from];
+		}
+		this.samples[this.head] = null;
+		this.head = (this.head + 1) % length;
+		this.size--;
+		return data;
+	}
+
+	/**
+	 * @return the number of sets of sensor-data in the queue.
+	 */
+	public synchronized int getDepth() {
+		return this.size;
+	}
+
+	/**
+	 * @return the maximum number of sets of sensor-data in the queue.
+	 */
+	public int getCapacity() {
+		return this.samples.length;
+	}
+
+	/**
+	 * @return the way the queue makes room for a new set of sensor-data, once it is full.
+	 */
+	public EOverflowPolicy getOverflowPolicy() {
+		return this.overflowPolicy;
+	}
+
+	/**
+	 * @return the highest number of sets of sensor-data, that have been in the queue at once.
+	 */
+	public synchronized int getMaxDepth() {
+		return this.maxDepth;
+	}
+
+	/**
+	 * @return the number of sets of sensor-data, that have been offered to the queue.
+	 */
+	public synchronized long getOfferedSamples() {
+		return this.offeredSamples;
+	}
+
+	/**
+	 * @return the number of sets of sensor-data, that have been dropped.
+	 */
+	public synchronized long getDroppedSamples() {
+		return this.droppedSamples;
+	}
+
+	/**
+	 * @return the statistics of the time the sets of sensor-data, that have been taken, have spent in the queue.
+	 */
+	public LatencyStatistics getQueueLatency() {
+		return this.queueLatency;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "depth=" + this.size + "/" + this.samples.length + " maxDepth=" + this.maxDepth + " offered=" + this.offeredSamples
+				+ " dropped=" + this.droppedSamples + " policy=" + this.overflowPolicy + " latency=[" + this.queueLatency + "]";
+	}
+
+}
@@ -0,0 +1,12 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+/**
+ * The different ways the STM32 frames the sensor-data, that it sends to the {@link STM32UartInterface}.
+ * @author Boeck
+ */
+public enum ESerialFrameMode {
+	/** Only distance-data is sent, as 4-byte records without any framing, as understood by all versions of the firmware. A lost byte misaligns all following records. */
+	LEGACY,
+	/** Distance- and velocity-data is sent in frames, that start with sync-bytes and end with a checksum, so the stream can be resynchronized. Requires a firmware that supports it. */
+	FRAMED;
+}
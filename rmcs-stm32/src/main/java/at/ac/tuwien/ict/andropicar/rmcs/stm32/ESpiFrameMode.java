@@ -0,0 +1,12 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+/**
+ * The different ways the {@link STM32SpiInterface} transmits control-data to the STM32.
+ * @author Boeck
+ */
+public enum ESpiFrameMode {
+	/** Every value is sent in its own 2-byte SPI-transaction (a command-byte followed by the value), as understood by all versions of the firmware. */
+	LEGACY,
+	/** All groups of a control-frame are sent in a single SPI-transaction, that starts with a header and its length. Requires a firmware that supports it. */
+	BATCHED;
+}
@@ -0,0 +1,26 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+
+/**
+ * By implementing this interface the user indicates that it is capable of receiving the sensor-data, that a {@link SensorFrameParser} has parsed.
+ *
+ * @author Boeck
+ */
+public interface ISensorFrameListener {
+
+	/**
+	 * Used to inform the user about a distance-frame.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) that the frame was received.
+	 * @param frontDistance the measurement (in cm) of the front-distance-sensor.
+	 * @param leftDistance the measurement (in cm) of the left distance-sensor.
+	 * @param rightDistance the measurement (in cm) of the right distance-sensor.
+	 */
+	public void distanceReceived(long timestampNanos, int frontDistance, int leftDistance, int rightDistance);
+
+	/**
+	 * Used to inform the user about a velocity-frame.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) that the frame was received.
+	 * @param velocity the measurement (in rpm) of the hall-sensor.
+	 */
+	public void velocityReceived(long timestampNanos, int velocity);
+}
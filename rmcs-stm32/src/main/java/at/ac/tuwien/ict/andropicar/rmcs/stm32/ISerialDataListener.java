@@ -0,0 +1,18 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+
+/**
+ * By implementing this interface the user indicates that it is capable of receiving the bytes that are delivered by an {@link ISerialTransport}.
+ *
+ * @author Boeck
+ */
+public interface ISerialDataListener {
+
+	/**
+	 * Used to inform the user about a chunk of received bytes.<br>
+	 * It is called by the thread of the {@link ISerialTransport}, which must not be blocked by the user.
+	 * @param data the received bytes. The array may be reused by the transport once this method returns.
+	 * @param length the number of received bytes in the array.
+	 */
+	public void dataReceived(byte[] data, int length);
+}
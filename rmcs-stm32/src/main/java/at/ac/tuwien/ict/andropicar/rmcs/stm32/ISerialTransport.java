@@ -0,0 +1,25 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+import java.io.IOException;
+
+
+/**
+ * By implementing this interface a class indicates that it is capable of delivering the bytes that the STM32 sends to the {@link STM32UartInterface},
+ * e.g. from the serial interface of the Raspberry Pi ({@link Pi4jSerialTransport}) or from an {@link STM32Emulator}.
+ *
+ * @author Boeck
+ */
+public interface ISerialTransport {
+
+	/**
+	 * Opens the transport and starts delivering the received bytes to the listener.
+	 * @param listener the listener that is informed about every chunk of received bytes.
+	 * @throws IOException if the transport cannot be opened.
+	 */
+	public void open(ISerialDataListener listener) throws IOException;
+
+	/**
+	 * Stops delivering received bytes and releases the transport.
+	 */
+	public void close();
+}
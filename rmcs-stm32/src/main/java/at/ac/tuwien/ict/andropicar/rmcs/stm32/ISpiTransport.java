@@ -0,0 +1,31 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+
+/**
+ * By implementing this interface a class indicates that it is capable of carrying the SPI-transactions of the {@link STM32SpiInterface},
+ * e.g. to the SPI-module of the Raspberry Pi ({@link WiringPiSpiTransport}) or to an {@link STM32Emulator}.
+ *
+ * @author Boeck
+ */
+public interface ISpiTransport {
+
+	/**
+	 * Sets up the transport, before the first transaction.
+	 * @return true, if the transport is ready for transactions, otherwise false.
+	 */
+	public boolean open();
+
+	/**
+	 * Performs a full-duplex SPI-transaction: the passed bytes are written and replaced by the bytes that are read at the same time.<br>
+	 * It is called by the thread of the {@link STM32SpiInterface}, which it blocks until the transaction is complete.
+	 * @param buffer the bytes to be written, which are overwritten by the bytes that are read.
+	 * @param length the number of bytes of the transaction.
+	 * @return the number of bytes that have been transferred, or -1 if the transaction failed.
+	 */
+	public int transfer(byte[] buffer, int length);
+
+	/**
+	 * Releases the transport.
+	 */
+	public void close();
+}
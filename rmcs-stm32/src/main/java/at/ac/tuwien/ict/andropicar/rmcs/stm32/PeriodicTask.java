@@ -0,0 +1,121 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+import java.util.concurrent.TimeUnit;
+
+import at.ac.tuwien.ict.andropicar.rmcs.data.LatencyHistogram;
+
+
+/**
+ * A task that is run at a fixed rate by a {@link TickScheduler}, together with the statistics of how precisely it keeps its rate.<br>
+ * The deadlines of a task are fixed multiples of its period, so a late tick does not shift the following ones. The jitter of every tick
+ * is the time between its deadline and the moment it was actually run. If a tick is run so late, that the deadlines of following ticks have passed as well,
+ * these ticks are skipped instead of being run in a burst, and counted as overruns.
+ *
+ * @author Boeck
+ */
+public class PeriodicTask {
+
+	/** The name of the task, e.g. to tell the statistics of the tasks apart. */
+	private final String name;
+
+	/** The time in nanoseconds between two deadlines. */
+	private final long periodNanos;
+
+	/** The action that is run every tick. */
+	private final Runnable action;
+
+	/** The monotonic time (in ns, see {@link System#nanoTime()}) of the next deadline. */
+	private volatile long nextDeadlineNanos;
+
+	/** The time between the deadline of each tick and the moment it was run. */
+	private final LatencyHistogram jitter = new LatencyHistogram();
+
+	/** The number of ticks that have been run. */
+	private volatile long runs;
+
+	/** The number of ticks that have been skipped, because an earlier tick was run too late. */
+	private volatile long overruns;
+
+
+	/**
+	 * @param name the name of the task.
+	 * @param periodNanos the time in nanoseconds between two deadlines, at least 1.
+	 * @param action the action that is run every tick.
+	 * @param firstDeadlineNanos the monotonic time (in ns, see {@link System#nanoTime()}) of the first deadline.
+	 */
+	PeriodicTask(String name, long periodNanos, Runnable action, long firstDeadlineNanos) {
+		this.name = name;
+		this.periodNanos = Math.max(periodNanos, 1);
+		this.action = action;
+		this.nextDeadlineNanos = firstDeadlineNanos;
+	}
+
+
+	/**
+	 * Runs the action, if the next deadline has been reached, and moves the deadline to the next multiple of the period after the current time.
+	 * @param nowNanos the current monotonic time (in ns, see {@link System#nanoTime()}).
+	 * @return true, if the action has been run, otherwise false.
+	 */
+	boolean runIfDue(long nowNanos) {
+		long lateness = nowNanos - this.nextDeadlineNanos;
+		if(lateness < 0)
+			return false;
+
+		long skipped = lateness / this.periodNanos;
+		this.jitter.record(lateness);
+		this.overruns += skipped;
+		this.nextDeadlineNanos += (skipped + 1) * this.periodNanos;
+		this.runs++;
+		this.action.run();
+		return true;
+	}
+
+	/**
+	 * @return the name of the task.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @return the time in nanoseconds between two deadlines.
+	 */
+	public long getPeriodNanos() {
+		return this.periodNanos;
+	}
+
+	/**
+	 * @return the monotonic time (in ns, see {@link System#nanoTime()}) of the next deadline.
+	 */
+	public long getNextDeadlineNanos() {
+		return this.nextDeadlineNanos;
+	}
+
+	/**
+	 * @return the time between the deadline of each tick and the moment it was run.
+	 */
+	public LatencyHistogram getJitter() {
+		return this.jitter;
+	}
+
+	/**
+	 * @return the number of ticks that have been run.
+	 */
+	public long getRuns() {
+		return this.runs;
+	}
+
+	/**
+	 * @return the number of ticks that have been skipped, because an earlier tick was run too late.
+	 */
+	public long getOverruns() {
+		return this.overruns;
+	}
+
+	@Override
+	public String toString() {
+		return this.name + " (every " + TimeUnit.NANOSECONDS.toMicros(this.periodNanos) + "us): runs=" + this.runs + " overruns=" + this.overruns
+				+ " jitter=[" + this.jitter + "]";
+	}
+
+}
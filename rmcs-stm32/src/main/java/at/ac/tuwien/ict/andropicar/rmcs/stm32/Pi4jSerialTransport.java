@@ -0,0 +1,61 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+import java.io.IOException;
+
+import com.pi4j.io.serial.Baud;
+import com.pi4j.io.serial.DataBits;
+import com.pi4j.io.serial.FlowControl;
+import com.pi4j.io.serial.Parity;
+import com.pi4j.io.serial.Serial;
+import com.pi4j.io.serial.SerialDataEvent;
+import com.pi4j.io.serial.SerialDataEventListener;
+import com.pi4j.io.serial.SerialFactory;
+import com.pi4j.io.serial.StopBits;
+
+
+/**
+ * Delivers the bytes that the STM32 sends to the serial interface on the GPIO header of the Raspberry Pi (115200 baud, 8N1, hardware flow-control), via pi4j.<br>
+ * DON'T FORGET TO ENABLE UART<br>
+ * (http://www.irrational.net/2012/04/19/using-the-raspberry-pis-serial-port/)<br>
+ * (https://openenergymonitor.org/forum-archive/node/12311.html)
+ *
+ * @author Boeck
+ */
+public class Pi4jSerialTransport implements ISerialTransport {
+
+	/** The object that is used to listen on the PIs serial interface, or null if the transport is not open. */
+	private Serial serial;
+
+
+	@Override
+	public void open(final ISerialDataListener listener) throws IOException {
+		this.serial = SerialFactory.createInstance();
+		this.serial.addListener(new SerialDataEventListener() {
+			@Override
+			public void dataReceived(SerialDataEvent event) {
+				// NOTE! - It is extremely important to read the data received from the
+				// serial port.  If it does not get read from the receive buffer, the
+				// buffer will continue to grow and consume memory.
+				try {
+					byte[] data = event.getBytes();
+					listener.dataReceived(data, data.length);
+				} catch(IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		// open the default serial port provided on the GPIO header
+		this.serial.open(Serial.DEFAULT_COM_PORT, Baud._115200, DataBits._8, Parity.NONE, StopBits._1, FlowControl.HARDWARE);
+	}
+
+	@Override
+	public void close() {
+		if(this.serial == null)
+			return;
+		try {
+			this.serial.close();
+		} catch(IOException | IllegalStateException e) {}
+		this.serial = null;
+	}
+
+}
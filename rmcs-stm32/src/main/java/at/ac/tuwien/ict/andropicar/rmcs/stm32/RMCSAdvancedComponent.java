@@ -1,11 +1,10 @@
 package at.ac.tuwien.ict.andropicar.rmcs.stm32;
 
 import java.util.Collection;
-import java.util.concurrent.LinkedBlockingQueue;
 
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
 import at.ac.tuwien.ict.andropicar.rmcs.data.EDataType;
 import at.ac.tuwien.ict.andropicar.rmcs.data.IControlData;
-import at.ac.tuwien.ict.andropicar.rmcs.data.IData;
 import at.ac.tuwien.ict.andropicar.rmcs.data.SensorData;
 
 /**
@@ -18,47 +17,47 @@ public abstract class RMCSAdvancedComponent {
 
 	/** The {@link RMCSControlComponent}, which holds the Queue for new sets of {@link IControlData}. */
 	private RMCSControlComponent controlComponent;
-	/** The {@link RMCSSensorComponent}, which holds the Queue where new {@link SensorData} can be posted. */
+	/** The {@link RMCSSensorComponent}, which holds the bus where new {@link SensorData} can be posted. */
 	private RMCSSensorComponent sensorComponent;
 	
 	
 	/**
 	 * @param controlTypes the list of {@link EDataType}s that this component can process.
-	 * @param sensorDataQueue the sensorDataQueue, where new {@link SensorData} is posted.
+	 * @param dataBus the bus whose sensor-lane new {@link SensorData} is posted on.
 	 */
-	public RMCSAdvancedComponent(Collection<EDataType> controlTypes, LinkedBlockingQueue<IData> sensorDataQueue) {
+	public RMCSAdvancedComponent(Collection<EDataType> controlTypes, DataBus dataBus) {
 		this.controlComponent = new RMCSControlComponent(controlTypes);
-		this.sensorComponent = new RMCSSensorComponent(sensorDataQueue);
+		this.sensorComponent = new RMCSSensorComponent(dataBus);
 	}
 	
 	/**
 	 * @param controlType the {@link EDataType} that this component can process.
-	 * @param sensorDataQueue the sensorDataQueue, where new {@link SensorData} is posted.
+	 * @param dataBus the bus whose sensor-lane new {@link SensorData} is posted on.
 	 */
-	public RMCSAdvancedComponent(EDataType controlType, LinkedBlockingQueue<IData> sensorDataQueue) {
+	public RMCSAdvancedComponent(EDataType controlType, DataBus dataBus) {
 		this.controlComponent = new RMCSControlComponent(controlType);
-		this.sensorComponent = new RMCSSensorComponent(sensorDataQueue);
+		this.sensorComponent = new RMCSSensorComponent(dataBus);
 	}
 	
 	/**
 	 * @param controlType1 the first {@link EDataType} that this component can process.
 	 * @param controlType2 the second {@link EDataType} that this component can process.
-	 * @param sensorDataQueue the sensorDataQueue, where new {@link SensorData} is posted.
+	 * @param dataBus the bus whose sensor-lane new {@link SensorData} is posted on.
 	 */
-	public RMCSAdvancedComponent(EDataType controlType1, EDataType controlType2, LinkedBlockingQueue<IData> sensorDataQueue) {
+	public RMCSAdvancedComponent(EDataType controlType1, EDataType controlType2, DataBus dataBus) {
 		this.controlComponent = new RMCSControlComponent(controlType1, controlType2);
-		this.sensorComponent = new RMCSSensorComponent(sensorDataQueue);
+		this.sensorComponent = new RMCSSensorComponent(dataBus);
 	}
 	
 	/**
 	 * @param controlType1 the first {@link EDataType} that this component can process.
 	 * @param controlType2 the second {@link EDataType} that this component can process.
 	 * @param controlType3 the third {@link EDataType} that this component can process.
-	 * @param sensorDataQueue the sensorDataQueue, where new {@link SensorData} is posted.
+	 * @param dataBus the bus whose sensor-lane new {@link SensorData} is posted on.
 	 */
-	public RMCSAdvancedComponent(EDataType controlType1, EDataType controlType2, EDataType controlType3, LinkedBlockingQueue<IData> sensorDataQueue) {
+	public RMCSAdvancedComponent(EDataType controlType1, EDataType controlType2, EDataType controlType3, DataBus dataBus) {
 		this.controlComponent = new RMCSControlComponent(controlType1, controlType2, controlType3);
-		this.sensorComponent = new RMCSSensorComponent(sensorDataQueue);
+		this.sensorComponent = new RMCSSensorComponent(dataBus);
 	}
 
 	
@@ -70,7 +69,7 @@ public abstract class RMCSAdvancedComponent {
 	}
 
 	/**
-	 * @return the {@link RMCSSensorComponent}, which holds the Queue where new {@link SensorData} can be posted.
+	 * @return the {@link RMCSSensorComponent}, which holds the bus where new {@link SensorData} can be posted.
 	 */
 	public RMCSSensorComponent getSensorComponent() {
 		return sensorComponent;
@@ -2,16 +2,20 @@ package at.ac.tuwien.ict.andropicar.rmcs.stm32;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import at.ac.tuwien.ict.andropicar.rmcs.data.*;
 import at.ac.tuwien.ict.andropicar.rmcs.connection.*;
 
 /**
- * The central manager that handles all incoming {@link IData} and,
+ * The central manager that handles all {@link IData} on the {@link DataBus} and,
  * depending on the type of data, forwards it to the corresponding {@link SensorDataListener}s and {@link RMCSControlComponent}s.<br>
  * All {@link RMCSControlComponent}s have to register themselves with the {@link RMCSComponentManager} in order to get updated about new {@link IControlData}.<br>
  * All {@link SensorDataListener}s have to register themselves with the {@link RMCSComponentManager} in order to get updated about new {@link SensorData}.<br>
+ * Each lane of the {@link DataBus} is consumed by a separate thread, so that control-frames (see {@link ControlFrame}) are not held up by {@link SensorData}.<br>
+ * The targets of each type of data are precomputed into routing-tables, which are rebuilt whenever components or listeners are added or removed via this class.
+ * Changes to the types of a {@link SensorDataListener} that has already been added, which are not made via this class, are not reflected in the routing-tables.<br>
+ * Emergency-stops are forwarded to the {@link RMCSControlComponent}s that process drive-control-data immediately, on the thread that requested them.
+ * Drive-control-data that was published before the latest emergency-stop, but not yet distributed, is discarded.<br>
  * 
  * @author Boeck
  */
@@ -20,18 +24,72 @@ public class RMCSComponentManager implements Runnable{
 	/** The list of {@link RMCSControlComponent}s that the {@link RMCSComponentManager} updates about new {@link IControlData}. */
 	private Collection<RMCSControlComponent> carComponents;
 	
-	/** The Queue, that {@link SensorDataListener}s and {@link RMCSControlComponent}s put new Data on, that should be distributed. */
-	private LinkedBlockingQueue<IData> dataQueue;
+	/** The bus, that {@link Connection}s and {@link RMCSSensorComponent}s publish new data on, that should be distributed. */
+	private DataBus dataBus;
+	
+	/** The consumer of the control-lane of the {@link #dataBus}. */
+	private DataEventConsumer controlConsumer;
+	
+	/** The consumer of the sensor-lane of the {@link #dataBus}. */
+	private DataEventConsumer sensorConsumer;
+	
+	/** Ensures that no control-frame, that was published before an emergency-stop, is distributed after the stop has been forwarded. */
+	private final Object emergencyStopLock = new Object();
+	
+	/** The monotonic time (in ns, see {@link System#nanoTime()}) of the latest emergency-stop, or the time this manager was created, if there was none. */
+	private long lastEmergencyStopNanos = System.nanoTime();
+	
+	/** Distributes the control-frames of the control-lane. */
+	private IDataEventHandler controlHandler = new IDataEventHandler() {
+		@Override
+		public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {
+			synchronized(emergencyStopLock) {
+				long frame = event.getControlFrame();
+				if(event.getTimestampNanos() - lastEmergencyStopNanos < 0)
+					frame = ControlFrame.discard(frame, ControlFrame.DRIVE);
+				dispatchControlFrame(frame);
+			}
+		}
+	};
+	
+	/** Forwards emergency-stops, bypassing the control-lane. */
+	private IEmergencyStopListener emergencyStopListener = new IEmergencyStopListener() {
+		@Override
+		public void emergencyStop(long sourceId, long requestNanos) {
+			synchronized(emergencyStopLock) {
+				lastEmergencyStopNanos = requestNanos;
+				dispatchEmergencyStop(requestNanos);
+			}
+		}
+	};
+	
+	/** Distributes the sensor-data of the sensor-lane. */
+	private IDataEventHandler sensorHandler = new IDataEventHandler() {
+		@Override
+		public void onEvent(DataEvent event, long sequence, boolean endOfBatch) {
+			dispatchSensorData(event.getData());
+		}
+	};
 	
 	/** The list of {@link SensorDataListener}s that the {@link RMCSComponentManager} updates about new {@link SensorData}. */
 	private Collection<SensorDataListener> dataListeners;
 	
+	/** The {@link RMCSControlComponent}s that can process at least one group of a control-frame, indexed by the {@link ControlFrame#groupIndex(long)} of the frame. */
+	private volatile RMCSControlComponent[][] controlRoutes = new RMCSControlComponent[ControlFrame.GROUP_COMBINATIONS][0];
+	
+	/** The {@link ISensorDataListener}s that want to be informed about a type of {@link SensorData}, indexed by the ordinal of the {@link EDataType}. */
+	private volatile ISensorDataListener[][] sensorRoutes = new ISensorDataListener[EDataType.values().length][0];
+	
 	
 	/**
-	 * @param dataQueue the Queue, that {@link SensorDataListener}s and {@link RMCSControlComponent}s put new Data on, that should be distributed.
+	 * Registers a consumer on each lane of the passed bus, so all data that is published after this call is distributed.
+	 * @param dataBus the bus, that {@link Connection}s and {@link RMCSSensorComponent}s publish new data on, that should be distributed.
 	 */
-	public RMCSComponentManager(LinkedBlockingQueue<IData> dataQueue){
-		this.dataQueue = dataQueue;
+	public RMCSComponentManager(DataBus dataBus){
+		this.dataBus = dataBus;
+		this.controlConsumer = dataBus.getControlLane().newConsumer();
+		this.sensorConsumer = dataBus.getSensorLane().newConsumer();
+		dataBus.addEmergencyStopListener(this.emergencyStopListener);
 		this.carComponents = new ArrayList<>();
 		this.dataListeners = new ArrayList<>();
 	}
@@ -42,11 +100,11 @@ public class RMCSComponentManager implements Runnable{
 	 * @param carComponent the {@link RMCSControlComponent} to be added to {@link #carComponents}.
 	 * @return true, if {@link #carComponents} changed as a result of the call of this method, otherwise false.
 	 */
-	public boolean addCarComponent(RMCSControlComponent carComponent) {
+	public synchronized boolean addCarComponent(RMCSControlComponent carComponent) {
 		if(carComponent == null)
 			return false;
 		
-		return carComponents.add(carComponent);
+		return routesChanged(carComponents.add(carComponent));
 	}
 	
 	/**
@@ -54,13 +112,13 @@ public class RMCSComponentManager implements Runnable{
 	 * @param carComponent the {@link RMCSControlComponent} to be removed from {@link #carComponents}.
 	 * @return true, if {@link #carComponents} changed as a result of the call of this method, otherwise false.
 	 */
-	public boolean removeCarComponent(RMCSControlComponent carComponent){
+	public synchronized boolean removeCarComponent(RMCSControlComponent carComponent){
 		if(carComponent == null)
 			return false;
 		
 		for(RMCSControlComponent tempCarComponent : this.carComponents)
 			if(tempCarComponent.equals(carComponent))
-				return this.carComponents.remove(carComponent);
+				return routesChanged(this.carComponents.remove(carComponent));
 		return false;
 	}
 	
@@ -69,11 +127,11 @@ public class RMCSComponentManager implements Runnable{
 	 * @param listener the {@link ISensorDataListener} to be added to {@link #dataListeners}.
 	 * @return true, if {@link #dataListeners} changed as a result of the call of this method, otherwise false.
 	 */
-	public boolean addDataListener(SensorDataListener listener) {
+	public synchronized boolean addDataListener(SensorDataListener listener) {
 		if(listener == null)
 			return false;
 		
-		return this.dataListeners.add(listener);
+		return routesChanged(this.dataListeners.add(listener));
 	}
 	
 	/**
@@ -85,14 +143,14 @@ public class RMCSComponentManager implements Runnable{
 	 * @param listenerType the type of SensorData that the listener wants to be informed about.
 	 * @return true, if {@link #dataListeners} or an object contained in {@link #dataListeners} changed as a result of the call of this method, otherwise false.
 	 */
-	public boolean addDataListener(ISensorDataListener listener, EDataType listenerType) {
+	public synchronized boolean addDataListener(ISensorDataListener listener, EDataType listenerType) {
 		if(listener == null)
 			return false;
 		for(SensorDataListener senlis : this.dataListeners) {
 			if(senlis.getListener().equals(listener))
-				return senlis.getListenerTypes().add(listenerType);
+				return routesChanged(senlis.getListenerTypes().add(listenerType));
 		}
-		return this.dataListeners.add(new SensorDataListener(listener, listenerType));
+		return routesChanged(this.dataListeners.add(new SensorDataListener(listener, listenerType)));
 	}
 	
 	/**
@@ -104,14 +162,14 @@ public class RMCSComponentManager implements Runnable{
 	 * @param listenerTypes the list of types of SensorData that the listener wants to be informed about.
 	 * @return true, if {@link #dataListeners} or an element thereof changed as a result of the call of this method, otherwise false.
 	 */
-	public boolean addDataListener(ISensorDataListener listener, Collection<EDataType> listenerTypes) {
+	public synchronized boolean addDataListener(ISensorDataListener listener, Collection<EDataType> listenerTypes) {
 		if(listener == null)
 			return false;
 		for(SensorDataListener senlis : this.dataListeners) {
 			if(senlis.getListener().equals(listener))
-				return senlis.getListenerTypes().addAll(listenerTypes);
+				return routesChanged(senlis.getListenerTypes().addAll(listenerTypes));
 		}
-		return this.dataListeners.add(new SensorDataListener(listener, listenerTypes));
+		return routesChanged(this.dataListeners.add(new SensorDataListener(listener, listenerTypes)));
 	}
 	
 	/**
@@ -119,8 +177,8 @@ public class RMCSComponentManager implements Runnable{
 	 * @param listener the {@link SensorDataListener} to be removed.
 	 * @return true, if {@link #dataListeners} changed as a result of the call of this method, otherwise false.
 	 */
-	public boolean removeDataListener(SensorDataListener listener) {
-		return this.dataListeners.remove(listener);
+	public synchronized boolean removeDataListener(SensorDataListener listener) {
+		return routesChanged(this.dataListeners.remove(listener));
 	}
 	
 	/**
@@ -129,13 +187,13 @@ public class RMCSComponentManager implements Runnable{
 	 * @param listenerType the type of {@link SensorData} that the listener doesn't want to be updated about anymore.
 	 * @return true, if an element of {@link #dataListeners} changed as a result of the call of this method, otherwise false.
 	 */
-	public boolean removeDataListener(ISensorDataListener listener, EDataType listenerType){
+	public synchronized boolean removeDataListener(ISensorDataListener listener, EDataType listenerType){
 		if(listener == null || listenerType == null)
 			return false;
 		
 		for(SensorDataListener senlis : this.dataListeners) {
 			if(senlis.getListener().equals(listener))
-				return senlis.getListenerTypes().remove(listenerType);
+				return routesChanged(senlis.getListenerTypes().remove(listenerType));
 		}
 		return false;
 	}
@@ -146,13 +204,13 @@ public class RMCSComponentManager implements Runnable{
 	 * @param listenerTypes the list of types of {@link SensorData} that the listener doesn't want to be updated about anymore.
 	 * @return true, if an element of {@link #dataListeners} changed as a result of the call of this method, otherwise false.
 	 */
-	public boolean removeDataListener(ISensorDataListener listener, Collection<EDataType> listenerTypes){
+	public synchronized boolean removeDataListener(ISensorDataListener listener, Collection<EDataType> listenerTypes){
 		if(listener == null || listenerTypes == null)
 			return false;
 		
 		for(SensorDataListener senlis : this.dataListeners) {
 			if(senlis.getListener().equals(listener))
-				return senlis.getListenerTypes().removeAll(listenerTypes);
+				return routesChanged(senlis.getListenerTypes().removeAll(listenerTypes));
 		}
 		return false;
 	}
@@ -162,70 +220,125 @@ public class RMCSComponentManager implements Runnable{
 	 * @param listener the {@link SensorDataListener} to be removed.
 	 * @return  true, if {@link #dataListeners} changed as a result of the call of this method, otherwise false.
 	 */
-	public boolean removeDataListener(ISensorDataListener listener) {
+	public synchronized boolean removeDataListener(ISensorDataListener listener) {
 		if(listener == null)
 			return false;
-		return this.dataListeners.remove(new SensorDataListener(listener, (Collection<EDataType>)null));
+		return routesChanged(this.dataListeners.remove(new SensorDataListener(listener, (Collection<EDataType>)null)));
+	}
+	
+	/**
+	 * Rebuilds the routing-tables, if the registered components or listeners have changed.
+	 * @param changed true, if {@link #carComponents} or {@link #dataListeners} (or an element thereof) have changed.
+	 * @return the passed value.
+	 */
+	private boolean routesChanged(boolean changed){
+		if(changed)
+			rebuildRoutes();
+		return changed;
+	}
+	
+	/**
+	 * Precomputes the targets of each combination of groups of control-frames and of each type of {@link SensorData}.
+	 */
+	private void rebuildRoutes(){
+		RMCSControlComponent[][] controlRoutes = new RMCSControlComponent[ControlFrame.GROUP_COMBINATIONS][];
+		ArrayList<RMCSControlComponent> components = new ArrayList<>();
+		for(int groupIndex = 0; groupIndex < ControlFrame.GROUP_COMBINATIONS; groupIndex++){
+			components.clear();
+			for(RMCSControlComponent carComponent : this.carComponents)
+				if((ControlFrame.groupIndex(carComponent.getControlGroups()) & groupIndex) != 0)
+					components.add(carComponent);
+			controlRoutes[groupIndex] = components.toArray(new RMCSControlComponent[components.size()]);
+		}
+		
+		ISensorDataListener[][] sensorRoutes = new ISensorDataListener[EDataType.values().length][];
+		ArrayList<ISensorDataListener> listeners = new ArrayList<>();
+		for(EDataType dataType : EDataType.values()){
+			listeners.clear();
+			if(dataType.isSensorType()){
+				for(SensorDataListener sensorDataListener : this.dataListeners)
+					if(sensorDataListener.getListenerTypes().contains(dataType) || sensorDataListener.getListenerTypes().contains(EDataType.SENSOR))
+						listeners.add(sensorDataListener.getListener());
+			}
+			sensorRoutes[dataType.ordinal()] = listeners.toArray(new ISensorDataListener[listeners.size()]);
+		}
+		
+		this.controlRoutes = controlRoutes;
+		this.sensorRoutes = sensorRoutes;
+	}
+	
+	/**
+	 * Forwards the passed control-frame to all {@link RMCSControlComponent}s that can process at least one of its groups,
+	 * each of which only keeps the groups that it can process.
+	 * @param frame the control-frame (see {@link ControlFrame}) to be distributed.
+	 */
+	void dispatchControlFrame(long frame){
+		RMCSControlComponent[] targets = this.controlRoutes[ControlFrame.groupIndex(frame)];
+		for(int i = 0; i < targets.length; i++)
+			targets[i].updateControlFrame(frame);
+	}
+	
+	/**
+	 * Forwards an emergency-stop to all {@link RMCSControlComponent}s that can process drive-control-data.
+	 * @param requestNanos the monotonic time (in ns, see {@link System#nanoTime()}) the stop was requested.
+	 */
+	private void dispatchEmergencyStop(long requestNanos){
+		RMCSControlComponent[] targets = this.controlRoutes[ControlFrame.groupIndex(ControlFrame.DRIVE)];
+		for(int i = 0; i < targets.length; i++)
+			targets[i].requestEmergencyStop(requestNanos);
 	}
 	
 	/**
-	 * Continuously waits for data on the dataQueue and distributes that data to the correct {@link RMCSControlComponent}s and {@link SensorDataListener}s,
+	 * Forwards the passed sensor-data to all {@link ISensorDataListener}s that want to be informed about its type and releases it afterwards.
+	 * @param data the sensor-data to be distributed.
+	 */
+	void dispatchSensorData(IData data){
+		if(!(data instanceof SensorData))
+			return;
+		
+		SensorData sensorData = (SensorData) data;
+		ISensorDataListener[] targets = this.sensorRoutes[sensorData.getDataType().ordinal()];
+		for(int i = 0; i < targets.length; i++)
+			targets[i].updateSensorData(sensorData);
+		// listeners that keep the data-set have retained it, so it can be handed back to its pool
+		sensorData.release();
+	}
+	
+	/**
+	 * Continuously waits for control-frames on the control-lane of the {@link #dataBus} and distributes them to the {@link RMCSControlComponent}s.
+	 */
+	private void runControlFrameDispatch(){
+		while(carComponents != null && dataBus != null){
+			try {
+				this.controlConsumer.process(this.controlHandler);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Starts the distribution of control-frames in a separate thread and
+	 * continuously waits for sensor-data on the sensor-lane of the {@link #dataBus} and distributes that data to the {@link SensorDataListener}s,
 	 * depending on what type of data they can process.
 	 */
 	@Override
 	public void run(){
 		
-		IData data = null;
-		while(carComponents != null && dataQueue != null){
-			
-			// wait for new Data to be processed
+		(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runControlFrameDispatch();
+			}
+		}, Thread.currentThread().getName() + " (Control-Frames)")).start();
+		
+		while(dataListeners != null && dataBus != null){
 			try {
-				data = dataQueue.take();
+				this.sensorConsumer.process(this.sensorHandler);
 			} catch (InterruptedException e) {
 				e.printStackTrace();
 			}
-			
-			// identify incoming data package and distribute it to the corresponding CarInterfaces or sensorDataListeners
-			
-			if(data instanceof IControlData){
-				if(data instanceof DriveControlData){
-					for(RMCSControlComponent carInterface : this.carComponents)
-						if(carInterface.getTypes().contains(EDataType.DRIVECONTROL))
-							carInterface.updateControlData((IControlData)data);
-				}
-				else if(data instanceof CameraControlData){
-					for(RMCSControlComponent carInterface : this.carComponents)
-						if(carInterface.getTypes().contains(EDataType.CAMERACONTROL))
-							carInterface.updateControlData((IControlData)data);
-				}
-				else if(data instanceof LightControlData){
-					for(RMCSControlComponent carInterface : this.carComponents)
-						if(carInterface.getTypes().contains(EDataType.LIGHTCONTROL))
-							carInterface.updateControlData((IControlData)data);
-				}
-			}
-			else if(data instanceof SensorData) {
-				if(data instanceof DistanceSensorData){
-					for(SensorDataListener sensorDataListener : this.dataListeners){
-						if(sensorDataListener.getListenerTypes().contains(EDataType.SENSOR) || 
-								sensorDataListener.getListenerTypes().contains(EDataType.DISTANCE_SENSOR))
-							sensorDataListener.getListener().updateSensorData((SensorData)data);
-					}
-				}
-				else if(data instanceof VelocitySensorData){
-					for(SensorDataListener sensorDataListener : this.dataListeners){
-						if(sensorDataListener.getListenerTypes().contains(EDataType.SENSOR) || 
-								sensorDataListener.getListenerTypes().contains(EDataType.VELOCITY_SENSOR))
-							sensorDataListener.getListener().updateSensorData((SensorData)data);
-					}
-				}
-			}
 		}
 	}
 	
 }
-
-
-
-
-
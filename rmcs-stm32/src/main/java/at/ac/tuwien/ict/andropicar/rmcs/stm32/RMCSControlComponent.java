@@ -9,7 +9,7 @@ import at.ac.tuwien.ict.andropicar.rmcs.data.IControlData;
 /**
  * The {@link RMCSControlComponent}-class is a base-class for all components of the RMCS, that directly or indirectly control parts of the RMCS (e.g. drive, lights, etc.).
  * Each object that is of the type {@link RMCSControlComponent} can process one or more types of {@link IControlData}.<br>
- * Each instance has its own {@link UniqueLinkedBlockingQueue}, which can be written to, to inform this component about new {@link IControlData},
+ * Each instance has its own {@link ControlFrameMailbox}, which can be written to, to inform this component about new {@link IControlData} (as a {@link ControlFrame}),
  * which must be handled by sub-classes of {@link RMCSControlComponent}.
  * 
  * @author Boeck
@@ -19,8 +19,11 @@ public class RMCSControlComponent {
 	/** The types of {@link IControlData} this interface can process. */
 	private Collection<EDataType> controlTypes;
 	
-	/** The Queue, that holds all control-data, that this component should process. */
-	private UniqueLinkedBlockingQueue<IControlData> controlDataQueue = new UniqueLinkedBlockingQueue<>();
+	/** The groups of control-frames (see {@link ControlFrame}) that correspond to {@link #controlTypes}. */
+	private long controlGroups;
+	
+	/** The mailbox, that holds the latest control-frame, that this component should process. */
+	private ControlFrameMailbox controlFrameMailbox = new ControlFrameMailbox();
 	
 	
 	/**
@@ -28,6 +31,7 @@ public class RMCSControlComponent {
 	 */
 	public RMCSControlComponent(Collection<EDataType> controlTypes) {
 		this.controlTypes = controlTypes;
+		this.controlGroups = groupsOf(controlTypes);
 	}
 	
 	/**
@@ -36,6 +40,7 @@ public class RMCSControlComponent {
 	public RMCSControlComponent(EDataType controlType) {
 		this.controlTypes = new ArrayList<>();
 		this.controlTypes.add(controlType);
+		this.controlGroups = groupsOf(this.controlTypes);
 	}
 	
 	/**
@@ -46,6 +51,7 @@ public class RMCSControlComponent {
 		this.controlTypes = new ArrayList<>();
 		this.controlTypes.add(controlType1);
 		this.controlTypes.add(controlType2);
+		this.controlGroups = groupsOf(this.controlTypes);
 	}
 	
 	/**
@@ -58,14 +64,34 @@ public class RMCSControlComponent {
 		this.controlTypes.add(controlType1);
 		this.controlTypes.add(controlType2);
 		this.controlTypes.add(controlType3);
+		this.controlGroups = groupsOf(this.controlTypes);
 	}
 	
 	
 	/**
-	 * @return the Queue, that holds all control-data, that this component should process.
+	 * @param controlTypes the list of {@link EDataType}s.
+	 * @return the combination of the groups of control-frames that correspond to the passed {@link EDataType}s.
+	 */
+	private static long groupsOf(Collection<EDataType> controlTypes) {
+		long groups = 0;
+		if(controlTypes != null)
+			for(EDataType controlType : controlTypes)
+				groups |= ControlFrame.groupOf(controlType);
+		return groups;
+	}
+	
+	/**
+	 * @return the mailbox, that holds the latest control-frame, that this component should process.
+	 */
+	protected ControlFrameMailbox getControlFrameMailbox(){
+		return this.controlFrameMailbox;
+	}
+	
+	/**
+	 * @return the groups of control-frames (see {@link ControlFrame}) that this component can process.
 	 */
-	protected UniqueLinkedBlockingQueue<IControlData> getControlDataQueue(){
-		return this.controlDataQueue;
+	public long getControlGroups(){
+		return this.controlGroups;
 	}
 	
 	/**
@@ -93,18 +119,36 @@ public class RMCSControlComponent {
 	}
 	
 	/**
-	 * Adds the passed {@link IControlData} to the {@link #controlDataQueue}.
+	 * Publishes the passed {@link IControlData} on the {@link #controlFrameMailbox}, replacing any pending data-set of the same type.
 	 * @param controlData the new {@link IControlData} that this component should process.
 	 */
 	public void updateControlData(IControlData controlData){
 		if(controlData == null)
 			return;
 		
-		try {
-			this.controlDataQueue.put(controlData);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
+		updateControlFrame(ControlFrame.of(controlData));
+	}
+	
+	/**
+	 * Signals an emergency-stop on the {@link #controlFrameMailbox}, which preempts the pending control-frame, if this component can process drive-control-data.
+	 * @param requestNanos the monotonic time (in ns, see {@link System#nanoTime()}) the stop was requested.
+	 * @return true, if this component can process drive-control-data, otherwise false.
+	 */
+	public boolean requestEmergencyStop(long requestNanos){
+		if((this.controlGroups & ControlFrame.DRIVE) == 0)
+			return false;
+		
+		this.controlFrameMailbox.requestStop(requestNanos);
+		return true;
+	}
+	
+	/**
+	 * Merges those groups of the passed control-frame that this component can process into the {@link #controlFrameMailbox}.
+	 * @param frame the new control-frame (see {@link ControlFrame}) that this component should process.
+	 * @return true, if the frame contained at least one group that this component can process, otherwise false.
+	 */
+	public boolean updateControlFrame(long frame){
+		return this.controlFrameMailbox.put(ControlFrame.retain(frame, this.controlGroups));
 	}
 	
 	
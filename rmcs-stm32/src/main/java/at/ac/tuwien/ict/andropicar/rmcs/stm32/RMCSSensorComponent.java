@@ -1,43 +1,98 @@
 package at.ac.tuwien.ict.andropicar.rmcs.stm32;
 
-import java.util.concurrent.LinkedBlockingQueue;
-
-import at.ac.tuwien.ict.andropicar.rmcs.data.IData;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DistanceSensorData;
 import at.ac.tuwien.ict.andropicar.rmcs.data.SensorData;
+import at.ac.tuwien.ict.andropicar.rmcs.data.SensorDataPool;
+import at.ac.tuwien.ict.andropicar.rmcs.data.VelocitySensorData;
 
 /**
  * The {@link RMCSSensorComponent}-class is a base-class for all components of the RMCS, that are able to publish {@link SensorData} on the RMCS.
- * Each object that is of the type {@link RMCSSensorComponent} can put one or more types of {@link SensorData} on the sensorDataQueue,
- * that is handled by the {@link RMCSComponentManager}.
+ * Each object that is of the type {@link RMCSSensorComponent} can put one or more types of {@link SensorData} on the sensor-lane of the {@link DataBus},
+ * that is handled by the {@link RMCSComponentManager}.<br>
+ * Measurements that are posted via {@link #postDistanceSensorData(long, int, int, int)} or {@link #postVelocitySensorData(long, int)} are stored in pooled data-sets,
+ * which are reused once the {@link RMCSComponentManager} and all listeners have released them.
  * 
  * @author Boeck
  */
 public class RMCSSensorComponent {
 
-	/** the sensorDataQueue, where the {@link SensorData} is posted. */
-	private LinkedBlockingQueue<IData> sensorDataQueue;
+	/** static variable to ensure every sensor-component has a unique id. First component has an ID of 1. */
+	private static long id = 1;
+	
+	/** the ID of this component, that is used as the source of the {@link SensorData} it posts. */
+	private long componentId;
+	
+	/** the bus whose sensor-lane the {@link SensorData} is posted on. */
+	private DataBus dataBus;
+	
+	/** The maximum number of unused data-sets that are kept in each pool. */
+	private static final int POOL_CAPACITY = 64;
+	
+	/** the pool of reusable {@link DistanceSensorData}-sets. */
+	private final SensorDataPool<DistanceSensorData> distanceSensorDataPool = new SensorDataPool<DistanceSensorData>(POOL_CAPACITY, DistanceSensorData::new);
+	
+	/** the pool of reusable {@link VelocitySensorData}-sets. */
+	private final SensorDataPool<VelocitySensorData> velocitySensorDataPool = new SensorDataPool<VelocitySensorData>(POOL_CAPACITY, VelocitySensorData::new);
 	
 	
 	/**
-	 * @param sensorDataQueue the sensorDataQueue, where the {@link SensorData} is posted.
+	 * @param dataBus the bus whose sensor-lane the {@link SensorData} is posted on.
 	 */
-	public RMCSSensorComponent(LinkedBlockingQueue<IData> sensorDataQueue) {
-		this.sensorDataQueue = sensorDataQueue;
+	public RMCSSensorComponent(DataBus dataBus) {
+		this.componentId = nextId();
+		this.dataBus = dataBus;
 	}
 	
 	
 	/**
-	 * Puts new sensor-data on the {@link #sensorDataQueue}, so it can get distributed by the {@link RMCSComponentManager}.
-	 * @param sensorData the {@link SensorData} that should be put on the {@link #sensorDataQueue}.
+	 * @return the next unique component-ID.
 	 */
-	protected void postSensorData(SensorData sensorData){
+	private static synchronized long nextId(){
+		return id++;
+	}
+	
+	/**
+	 * @return the ID of this component, that is used as the source of the {@link SensorData} it posts.
+	 */
+	public long getComponentId(){
+		return this.componentId;
+	}
+	
+	
+	/**
+	 * Publishes new sensor-data on the sensor-lane of the {@link #dataBus}, so it can get distributed by the {@link RMCSComponentManager}.<br>
+	 * The reference to the data-set is handed over to the {@link RMCSComponentManager}, which releases it once it has been distributed.
+	 * If the sensor-lane is full, the data-set is dropped instead of waiting.
+	 * @param sensorData the {@link SensorData} that should be published.
+	 * @return true, if the data-set was published, otherwise false.
+	 */
+	protected boolean postSensorData(SensorData sensorData){
 		if(sensorData == null)
-			return;
-		try{
-			this.sensorDataQueue.put(sensorData);
-		} catch(InterruptedException ie){
-			ie.printStackTrace();
-		}
+			return false;
+		return this.dataBus.publishSensorData(this.componentId, sensorData);
+	}
+	
+	/**
+	 * Posts a new set of distance-measurements, using a pooled data-set.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) the measurements were captured.
+	 * @param frontDistanceSensor the measurement (in cm) for the front-ultrasonic-sensor/front-distance-sensor
+	 * @param leftsideDistanceSensor the measurement (in cm) for the left-infrared-sensor/left-distance-sensor
+	 * @param rightsideDistanceSensor the measurement (in cm) for the right-infrared-sensor/right-distance-sensor
+	 * @return true, if the data-set was published, otherwise false.
+	 */
+	protected boolean postDistanceSensorData(long timestampNanos, int frontDistanceSensor, int leftsideDistanceSensor, int rightsideDistanceSensor){
+		return postSensorData(this.distanceSensorDataPool.acquire().set(timestampNanos, frontDistanceSensor, leftsideDistanceSensor, rightsideDistanceSensor));
+	}
+	
+	/**
+	 * Posts a new velocity-measurement, using a pooled data-set.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) the measurement was captured.
+	 * @param velocitySensor the measurement (in rpm) for the hall-sensor/speed-sensor
+	 * @return true, if the data-set was published, otherwise false.
+	 */
+	protected boolean postVelocitySensorData(long timestampNanos, int velocitySensor){
+		return postSensorData(this.velocitySensorDataPool.acquire().set(timestampNanos, velocitySensor));
 	}
 
 }
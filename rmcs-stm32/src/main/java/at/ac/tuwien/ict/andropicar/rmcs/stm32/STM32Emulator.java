@@ -0,0 +1,477 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * An in-memory stand-in for the STM32, so the whole pipeline of the car can be run and load-tested without a Raspberry Pi.<br>
+ * As the {@link ISpiTransport} of the {@link STM32SpiInterface}, it decodes the 2-byte commands as well as the batched frames, keeps the resulting
+ * state of the actuators, and models the time a transaction takes: a fixed overhead plus the time each byte takes on the bus.<br>
+ * As the {@link ISerialTransport} of the {@link STM32UartInterface}, it sends distance- and velocity-frames at a configurable rate,
+ * and whenever sensor-data is requested via SPI. The velocity follows the commanded acceleration, the distances can be set.
+ * The sensor-data is framed according to the {@link ESerialFrameMode}, and can be split into chunks of a fixed size, to emulate how the OS delivers the bytes.
+ *
+ * @author Boeck
+ */
+public class STM32Emulator implements ISpiTransport, ISerialTransport, Runnable {
+
+	/** The default time in nanoseconds, that every SPI-transaction takes regardless of its length (e.g. for the system-call and the chip-select). */
+	public static final long DEFAULT_TRANSACTION_OVERHEAD = 20000;
+
+	/** The default time in nanoseconds, that every byte of an SPI-transaction takes on the bus (8 bits at 1 MHz). */
+	public static final long DEFAULT_BYTE_TIME = 8000;
+
+	/** The velocity (in rpm) that results from each unit of acceleration. */
+	private static final int VELOCITY_PER_ACCELERATION = 10;
+
+	/** The time in nanoseconds, that every SPI-transaction takes regardless of its length. */
+	private volatile long transactionOverheadNanos = DEFAULT_TRANSACTION_OVERHEAD;
+
+	/** The time in nanoseconds, that every byte of an SPI-transaction takes on the bus. */
+	private volatile long byteTimeNanos = DEFAULT_BYTE_TIME;
+
+	/** The number of distance- and velocity-frames per second, that are sent without being requested. */
+	private final int sensorRate;
+
+	/** The listener that the sensor-frames are sent to, or null if the serial transport is not open. */
+	private volatile ISerialDataListener listener;
+
+	/** The thread that sends the sensor-frames at the {@link #sensorRate}, or null if it is not running. */
+	private Thread sensorThread;
+
+	/** The buffer that the sensor-frames are put into, before they are sent. */
+	private final byte[] sensorFrames = new byte[2 * SensorFrameParser.MAX_FRAME_SIZE];
+
+	/** The buffer that each chunk of the {@link #sensorFrames} is copied into, if they are split into chunks. */
+	private final byte[] serialChunk = new byte[this.sensorFrames.length];
+
+	/** The mode that the sensor-data is framed in. */
+	private volatile ESerialFrameMode serialFrameMode = STM32UartInterface.DEFAULT_FRAME_MODE;
+
+	/** The maximum number of bytes that are passed to the listener at once, or 0 to pass all sensor-frames at once. */
+	private volatile int serialChunkSize;
+
+	/** The current acceleration. */
+	private volatile int acceleration;
+
+	/** The current steering angle. */
+	private volatile int steeringAngle;
+
+	/** The current yaw-angle of the camera. */
+	private volatile int yawAngle;
+
+	/** The current pitch-angle of the camera. */
+	private volatile int pitchAngle;
+
+	/** The current lights, as the bits of the lights-byte of a batched frame. */
+	private volatile int lights;
+
+	/** The distance (in cm) that is measured by the front-distance-sensor. */
+	private volatile int frontDistance = 200;
+
+	/** The distance (in cm) that is measured by the left distance-sensor. */
+	private volatile int leftDistance = 50;
+
+	/** The distance (in cm) that is measured by the right distance-sensor. */
+	private volatile int rightDistance = 50;
+
+	/** The number of SPI-transactions. */
+	private volatile long transactions;
+
+	/** The number of 2-byte commands that have been decoded. */
+	private volatile long commands;
+
+	/** The number of batched frames that have been decoded. */
+	private volatile long frames;
+
+	/** The number of SPI-transactions that could not be decoded. */
+	private volatile long invalidTransactions;
+
+	/** The number of requests of sensor-data. */
+	private volatile long sensorRequests;
+
+	/** The number of sensor-frames that have been sent. */
+	private volatile long sentSensorFrames;
+
+
+	/**
+	 * @param sensorRate the number of distance- and velocity-frames per second, that are sent without being requested, or 0 to send them only on request.
+	 */
+	public STM32Emulator(int sensorRate) {
+		this.sensorRate = Math.max(sensorRate, 0);
+	}
+
+
+	/**
+	 * @param transactionOverhead the time in nanoseconds, that every SPI-transaction takes regardless of its length.
+	 * @param byteTime the time in nanoseconds, that every byte of an SPI-transaction takes on the bus.
+	 */
+	public void setSpiLatency(long transactionOverhead, long byteTime) {
+		this.transactionOverheadNanos = Math.max(transactionOverhead, 0);
+		this.byteTimeNanos = Math.max(byteTime, 0);
+	}
+
+	/**
+	 * @param front the distance (in cm) that is measured by the front-distance-sensor.
+	 * @param left the distance (in cm) that is measured by the left distance-sensor.
+	 * @param right the distance (in cm) that is measured by the right distance-sensor.
+	 */
+	public void setDistances(int front, int left, int right) {
+		this.frontDistance = front;
+		this.leftDistance = left;
+		this.rightDistance = right;
+	}
+
+	/**
+	 * @param serialFrameMode the mode that the sensor-data is framed in. In {@link ESerialFrameMode#LEGACY} mode, the distance-record and the velocity
+	 * are sent in separate events, like the firmware without framing does.
+	 */
+	public void setSerialFrameMode(ESerialFrameMode serialFrameMode) {
+		this.serialFrameMode = serialFrameMode;
+	}
+
+	/**
+	 * @param serialChunkSize the maximum number of bytes that are passed to the listener at once, or 0 to pass all sensor-frames at once.
+	 */
+	public void setSerialChunkSize(int serialChunkSize) {
+		this.serialChunkSize = Math.max(serialChunkSize, 0);
+	}
+
+	@Override
+	public boolean open() {
+		return true;
+	}
+
+	/**
+	 * Decodes the transaction and waits until the time the transaction would have taken on the bus has passed.
+	 * The bytes that are read are always 0.
+	 */
+	@Override
+	public int transfer(byte[] buffer, int length) {
+		long start = System.nanoTime();
+		this.transactions++;
+		if(length > 0 && buffer[0] == STM32SpiInterface.SendFrame_Start)
+			decodeFrame(buffer, length);
+		else if(length == 2)
+			decodeCommand(buffer[0], buffer[1]);
+		else
+			this.invalidTransactions++;
+		for(int i = 0; i < length; i++)
+			buffer[i] = 0;
+
+		long end = start + this.transactionOverheadNanos + length * this.byteTimeNanos;
+		while(System.nanoTime() - end < 0);
+		return length;
+	}
+
+	/**
+	 * Applies a 2-byte command to the state of the actuators.
+	 * @param command the byte that tells what to do with the value.
+	 * @param value the value of the command.
+	 */
+	private void decodeCommand(byte command, byte value) {
+		switch(command) {
+			case STM32SpiInterface.SendAcc_Start:
+				this.acceleration = value;
+				break;
+			case STM32SpiInterface.SendAngle_Start:
+				this.steeringAngle = value;
+				break;
+			case STM32SpiInterface.SendCamYaw:
+				this.yawAngle = value;
+				break;
+			case STM32SpiInterface.SendCamPitch:
+				this.pitchAngle = value;
+				break;
+			case STM32SpiInterface.SendLights_Start:
+				if(!decodeLights(value)) {
+					this.invalidTransactions++;
+					return;
+				}
+				break;
+			case STM32SpiInterface.SendUpdateSensorData:
+				this.sensorRequests++;
+				sendSensorFrames();
+				break;
+			default:
+				this.invalidTransactions++;
+				return;
+		}
+		this.commands++;
+	}
+
+	/**
+	 * Applies the value of a lights-command to the {@link #lights}.
+	 * @param value the value of the lights-command.
+	 * @return true, if the value is a known lights-command, otherwise false.
+	 */
+	private boolean decodeLights(byte value) {
+		switch(value) {
+			case STM32SpiInterface.brake_on:
+				this.lights |= STM32SpiInterface.FRAME_BRAKELIGHTS;
+				return true;
+			case STM32SpiInterface.brake_off:
+				this.lights &= ~STM32SpiInterface.FRAME_BRAKELIGHTS;
+				return true;
+			case STM32SpiInterface.headlights_on:
+				this.lights |= STM32SpiInterface.FRAME_HEADLIGHTS;
+				return true;
+			case STM32SpiInterface.headlights_off:
+				this.lights &= ~STM32SpiInterface.FRAME_HEADLIGHTS;
+				return true;
+			case STM32SpiInterface.blink_left:
+				this.lights = (this.lights & ~STM32SpiInterface.FRAME_RIGHT_WINKER) | STM32SpiInterface.FRAME_LEFT_WINKER;
+				return true;
+			case STM32SpiInterface.blink_right:
+				this.lights = (this.lights & ~STM32SpiInterface.FRAME_LEFT_WINKER) | STM32SpiInterface.FRAME_RIGHT_WINKER;
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Applies a batched frame to the state of the actuators, if its length and checksum are valid.
+	 * @param buffer the bytes of the frame.
+	 * @param length the number of bytes of the frame.
+	 */
+	private void decodeFrame(byte[] buffer, int length) {
+		if(length < STM32SpiInterface.FRAME_HEADER_SIZE + 1) {
+			this.invalidTransactions++;
+			return;
+		}
+		int flags = buffer[1];
+		int payload = ((flags & STM32SpiInterface.FRAME_DRIVE) != 0 ? 2 : 0) + ((flags & STM32SpiInterface.FRAME_CAMERA) != 0 ? 2 : 0)
+				+ ((flags & STM32SpiInterface.FRAME_LIGHTS) != 0 ? 1 : 0);
+		byte checksum = 0;
+		for(int i = 1; i < length - 1; i++)
+			checksum ^= buffer[i];
+		if(buffer[2] != payload || length != STM32SpiInterface.FRAME_HEADER_SIZE + payload + 1 || buffer[length - 1] != checksum) {
+			this.invalidTransactions++;
+			return;
+		}
+
+		int i = STM32SpiInterface.FRAME_HEADER_SIZE;
+		if((flags & STM32SpiInterface.FRAME_DRIVE) != 0) {
+			boolean stop = (flags & STM32SpiInterface.FRAME_STOP) != 0;
+			this.acceleration = stop ? 0 : buffer[i];
+			this.steeringAngle = stop ? this.steeringAngle : buffer[i + 1];
+			i += 2;
+		}
+		if((flags & STM32SpiInterface.FRAME_CAMERA) != 0) {
+			this.yawAngle = buffer[i++];
+			this.pitchAngle = buffer[i++];
+		}
+		if((flags & STM32SpiInterface.FRAME_LIGHTS) != 0)
+			this.lights = buffer[i];
+		this.frames++;
+	}
+
+	/**
+	 * Starts sending sensor-frames to the listener, at the {@link #sensorRate} if it is not 0, and whenever sensor-data is requested.
+	 */
+	@Override
+	public synchronized void open(ISerialDataListener listener) {
+		this.listener = listener;
+		if(this.sensorRate > 0 && this.sensorThread == null) {
+			this.sensorThread = new Thread(this, "STM32-Emulator");
+			this.sensorThread.setDaemon(true);
+			this.sensorThread.start();
+		}
+	}
+
+	/**
+	 * Stops sending sensor-frames.
+	 */
+	@Override
+	public synchronized void close() {
+		this.listener = null;
+		if(this.sensorThread != null) {
+			this.sensorThread.interrupt();
+			this.sensorThread = null;
+		}
+	}
+
+	/**
+	 * Sends the sensor-frames at the {@link #sensorRate}, until the serial transport is closed.
+	 */
+	@Override
+	public void run() {
+		long periodNanos = TimeUnit.SECONDS.toNanos(1) / this.sensorRate;
+		long next = System.nanoTime();
+		while(this.listener != null && !Thread.currentThread().isInterrupted()) {
+			next += periodNanos;
+			long delay;
+			while((delay = next - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted())
+				LockSupport.parkNanos(delay);
+			sendSensorFrames();
+		}
+	}
+
+	/**
+	 * Sends a distance-frame and a velocity-frame to the listener, in the format that the {@link SensorFrameParser} parses.<br>
+	 * In {@link ESerialFrameMode#LEGACY} mode, the distance-record (4 bytes) and the velocity in rpm (2 bytes, big-endian) are sent in separate events.
+	 * The velocity is ignored by an {@link STM32UartInterface} in this mode, since it cannot be told apart from an incomplete distance-record.
+	 */
+	private synchronized void sendSensorFrames() {
+		ISerialDataListener listener = this.listener;
+		if(listener == null)
+			return;
+
+		if(this.serialFrameMode == ESerialFrameMode.LEGACY) {
+			sendChunked(listener, putDistance(0));
+			int velocity = this.acceleration * VELOCITY_PER_ACCELERATION;
+			this.sensorFrames[0] = (byte) (velocity >> 8);
+			this.sensorFrames[1] = (byte) velocity;
+			sendChunked(listener, 2);
+		}
+		else
+			sendChunked(listener, putFrame(putFrame(0, SensorFrameParser.TYPE_DISTANCE, SensorFrameParser.DISTANCE_LENGTH),
+					SensorFrameParser.TYPE_VELOCITY, SensorFrameParser.VELOCITY_LENGTH));
+		this.sentSensorFrames += 2;
+	}
+
+	/**
+	 * Passes the first bytes of the {@link #sensorFrames} to the listener, split into chunks of the {@link #serialChunkSize}.
+	 * @param listener the listener that the bytes are passed to.
+	 * @param length the number of bytes.
+	 */
+	private void sendChunked(ISerialDataListener listener, int length) {
+		int chunkSize = this.serialChunkSize;
+		if(chunkSize == 0 || chunkSize >= length) {
+			listener.dataReceived(this.sensorFrames, length);
+			return;
+		}
+		for(int offset = 0; offset < length; offset += chunkSize) {
+			int chunk = Math.min(chunkSize, length - offset);
+			System.arraycopy(this.sensorFrames, offset, this.serialChunk, 0, chunk);
+			listener.dataReceived(this.serialChunk, chunk);
+		}
+	}
+
+	/**
+	 * Puts a frame of the passed type into the {@link #sensorFrames}.
+	 * @param i the index that the frame starts at.
+	 * @param type the type of the frame.
+	 * @param length the length of the payload of the frame.
+	 * @return the index after the frame.
+	 */
+	private int putFrame(int i, byte type, int length) {
+		int start = i;
+		this.sensorFrames[i++] = SensorFrameParser.SYNC_1;
+		this.sensorFrames[i++] = SensorFrameParser.SYNC_2;
+		this.sensorFrames[i++] = type;
+		this.sensorFrames[i++] = (byte) length;
+		if(type == SensorFrameParser.TYPE_DISTANCE)
+			i = putDistance(i);
+		else {
+			int velocity = this.acceleration * VELOCITY_PER_ACCELERATION;
+			this.sensorFrames[i++] = (byte) (velocity >> 8);
+			this.sensorFrames[i++] = (byte) velocity;
+		}
+
+		byte checksum = 0;
+		for(int j = start + 2; j < i; j++)
+			checksum ^= this.sensorFrames[j];
+		this.sensorFrames[i++] = checksum;
+		return i;
+	}
+
+	/**
+	 * Puts the distances into the {@link #sensorFrames}: the front-distance (2 bytes, big-endian), the left and the right distance (1 byte each).
+	 * @param i the index that the distances start at.
+	 * @return the index after the distances.
+	 */
+	private int putDistance(int i) {
+		this.sensorFrames[i++] = (byte) (this.frontDistance >> 8);
+		this.sensorFrames[i++] = (byte) this.frontDistance;
+		this.sensorFrames[i++] = (byte) this.leftDistance;
+		this.sensorFrames[i++] = (byte) this.rightDistance;
+		return i;
+	}
+
+	/**
+	 * @return the current acceleration.
+	 */
+	public int getAcceleration() {
+		return this.acceleration;
+	}
+
+	/**
+	 * @return the current steering angle.
+	 */
+	public int getSteeringAngle() {
+		return this.steeringAngle;
+	}
+
+	/**
+	 * @return the current yaw-angle of the camera.
+	 */
+	public int getYawAngle() {
+		return this.yawAngle;
+	}
+
+	/**
+	 * @return the current pitch-angle of the camera.
+	 */
+	public int getPitchAngle() {
+		return this.pitchAngle;
+	}
+
+	/**
+	 * @return the current lights, as the bits of the lights-byte of a batched frame (front-lights, back-lights, dynamic lights, left and right winker).
+	 */
+	public int getLights() {
+		return this.lights;
+	}
+
+	/**
+	 * @return the number of SPI-transactions.
+	 */
+	public long getTransactions() {
+		return this.transactions;
+	}
+
+	/**
+	 * @return the number of 2-byte commands that have been decoded.
+	 */
+	public long getCommands() {
+		return this.commands;
+	}
+
+	/**
+	 * @return the number of batched frames that have been decoded.
+	 */
+	public long getFrames() {
+		return this.frames;
+	}
+
+	/**
+	 * @return the number of SPI-transactions that could not be decoded.
+	 */
+	public long getInvalidTransactions() {
+		return this.invalidTransactions;
+	}
+
+	/**
+	 * @return the number of requests of sensor-data.
+	 */
+	public long getSensorRequests() {
+		return this.sensorRequests;
+	}
+
+	/**
+	 * @return the number of sensor-frames that have been sent.
+	 */
+	public long getSentSensorFrames() {
+		return this.sentSensorFrames;
+	}
+
+	@Override
+	public String toString() {
+		return "acc=" + this.acceleration + " steer=" + this.steeringAngle + " yaw=" + this.yawAngle + " pitch=" + this.pitchAngle + " lights=" + this.lights
+				+ " transactions=" + this.transactions + " commands=" + this.commands + " frames=" + this.frames + " invalid=" + this.invalidTransactions
+				+ " sensorRequests=" + this.sensorRequests + " sensorFrames=" + this.sentSensorFrames;
+	}
+
+}
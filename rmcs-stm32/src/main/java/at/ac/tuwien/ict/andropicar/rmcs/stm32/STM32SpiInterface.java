@@ -1,14 +1,15 @@
 package at.ac.tuwien.ict.andropicar.rmcs.stm32;
 
 import java.util.Collection;
-
-import com.pi4j.wiringpi.Spi;
+import java.util.concurrent.TimeUnit;
 
 import at.ac.tuwien.ict.andropicar.rmcs.data.*;
 
 
 /**
- * An Interface to control the data transmission to a STM32, that is connected through SPI.<br><br>
+ * An Interface to control the data transmission to a STM32, that is connected through SPI.<br>
+ * The transactions are carried by an {@link ISpiTransport}: by default the SPI-module of the Raspberry Pi ({@link WiringPiSpiTransport}),
+ * or an {@link STM32Emulator} to run the RMCS without one.<br><br>
  * Used Pins for SPI communication: <br>	
  * - MOSI _ GPIO12 _ Pin 19 <br>	
  * - MISO _ GPIO13 _ Pin 21 <br>	
@@ -21,43 +22,153 @@ import at.ac.tuwien.ict.andropicar.rmcs.data.*;
  * for pinout see: <a href="http://pi4j.com/images/j8header.png">Raspberry Pi Pinout</a>
  * 
  * DON'T FORGET TO ENABLE SPI INTERFACE IN RASPI-CONFIG!
+ * <br><br>
+ * Control-data is transmitted according to the {@link ESpiFrameMode}. In {@link ESpiFrameMode#LEGACY} mode every value is sent in its own
+ * 2-byte transaction. In {@link ESpiFrameMode#BATCHED} mode all groups of a control-frame are sent in a single transaction: <br>
+ * - byte 0: {@link #SendFrame_Start} <br>
+ * - byte 1: the flags of the groups that are contained (drive, camera, lights) and of a stop <br>
+ * - byte 2: the length of the payload <br>
+ * - payload: acceleration and steering angle, yaw- and pitch-angle, and a byte with the bits of the lights, each if flagged <br>
+ * - last byte: the XOR of the flags, the length and the payload, so the STM32 can discard corrupted frames <br>
+ * Sensor-data is requested with the 2-byte command in both modes.
+ * <br><br>
+ * The thread of this Runnable is driven by a {@link TickScheduler}: it runs the periodic tasks (e.g. the request of sensor-data) at their deadlines,
+ * and in between waits for control-frames only until the next deadline, so the periodic tasks keep their rates whether the car is controlled or idle.
+ * <br><br>
+ * Only changes are written: a shadow copy of the state that the STM32 has received is kept per actuator-channel (every 2-byte command) in
+ * {@link ESpiFrameMode#LEGACY} mode, and per group of the control-frame in {@link ESpiFrameMode#BATCHED} mode. Values that equal the shadow copy
+ * are not sent again. Since the STM32 does not answer, every completed transaction counts as received. To cover transactions that got lost anyway,
+ * the whole known state is sent again periodically (see {@link #setRefreshInterval(long)}). Stops are always sent.
  * 
  * @author Boeck, Valiko
  */
 public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	
 	/** The byte value precede the acceleration/velocity value. */ 
-	private static final byte SendAcc_Start = -128;
+	static final byte SendAcc_Start = -128;
 	/** The byte value precede the steering-angle value. */ 
-	private static final byte SendAngle_Start = -127;
+	static final byte SendAngle_Start = -127;
 	/** The byte value precede the lights values. */ 
-	private static final byte SendLights_Start = -126;
+	static final byte SendLights_Start = -126;
 	/** The byte value precede the camera-yaw-angle value. */ 
-	private static final byte SendCamYaw = -125;
+	static final byte SendCamYaw = -125;
 	/** The byte value precede the camera-pitch-angle value. */ 
-	private static final byte SendCamPitch = -124;
+	static final byte SendCamPitch = -124;
 	/** The byte value to send to request a sensor-update. */ 
-	private static final byte SendUpdateSensorData = -123;
+	static final byte SendUpdateSensorData = -123;
+	/** The byte value that starts a batched frame. */ 
+	static final byte SendFrame_Start = -122;
+	
+	/** The flag of a batched frame that it contains the acceleration and the steering angle. */
+	static final byte FRAME_DRIVE = 1;
+	/** The flag of a batched frame that it contains the camera-angles. */
+	static final byte FRAME_CAMERA = 1 << 1;
+	/** The flag of a batched frame that it contains the lights. */
+	static final byte FRAME_LIGHTS = 1 << 2;
+	/** The flag of a batched frame that the car has to stop. */
+	static final byte FRAME_STOP = 1 << 3;
+	
+	/** The bit of the lights-byte of a batched frame that represents the front-lights. */
+	static final int FRAME_HEADLIGHTS = 1;
+	/** The bit of the lights-byte of a batched frame that represents the back-lights. */
+	static final int FRAME_BRAKELIGHTS = 1 << 1;
+	/** The bit of the lights-byte of a batched frame that represents the dynamic lights. */
+	static final int FRAME_DYNAMIC_LIGHTS = 1 << 2;
+	/** The bit of the lights-byte of a batched frame that represents the left winker. */
+	static final int FRAME_LEFT_WINKER = 1 << 3;
+	/** The bit of the lights-byte of a batched frame that represents the right winker. */
+	static final int FRAME_RIGHT_WINKER = 1 << 4;
+	
+	/** The size of the header of a batched frame. */
+	static final int FRAME_HEADER_SIZE = 3;
+	/** The maximum size of a batched frame: the header, all groups and the checksum. */
+	private static final int MAX_FRAME_SIZE = FRAME_HEADER_SIZE + 5 + 1;
+	
+	/** The actuator-channel of the acceleration, i.e. the index of its shadow copy. */
+	private static final int CH_ACCELERATION = 0;
+	/** The actuator-channel of the steering angle. */
+	private static final int CH_STEERING = 1;
+	/** The actuator-channel of the yaw-angle of the camera. */
+	private static final int CH_YAW = 2;
+	/** The actuator-channel of the pitch-angle of the camera. */
+	private static final int CH_PITCH = 3;
+	/** The actuator-channel of the front-lights. */
+	private static final int CH_FRONT_LIGHTS = 4;
+	/** The actuator-channel of the back-lights. */
+	private static final int CH_BACK_LIGHTS = 5;
+	/** The actuator-channel of the left winker. */
+	private static final int CH_LEFT_WINKER = 6;
+	/** The actuator-channel of the right winker. */
+	private static final int CH_RIGHT_WINKER = 7;
+	/** The command-bytes of the actuator-channels, indexed by channel. */
+	private static final byte[] CHANNEL_COMMANDS = {SendAcc_Start, SendAngle_Start, SendCamYaw, SendCamPitch, SendLights_Start, SendLights_Start,
+			SendLights_Start, SendLights_Start};
+	/** The value of the shadow copy of an actuator-channel, whose state is unknown. */
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+	/** The value of the shadow copy of a winker, that is off. There is no command to turn a winker off, so it is not sent. */
+	private static final int WINKER_OFF = 0;
+	
+	/** The groups of a control-frame, whose shadow copies are kept in {@link ESpiFrameMode#BATCHED} mode. */
+	private static final long[] GROUPS = {ControlFrame.DRIVE, ControlFrame.CAMERA, ControlFrame.LIGHTS};
+	
+	/** The default time in milliseconds between two refreshes of the whole state of the actuators. */
+	public static final long DEFAULT_REFRESH_INTERVAL = 1000;
+	
+	/** The mode that control-data is transmitted in by default. */
+	public static final ESpiFrameMode DEFAULT_FRAME_MODE = ESpiFrameMode.LEGACY;
 	
 	/** The byte that represents enabling of the back-lights. */
-	private static final byte brake_on = 1;
+	static final byte brake_on = 1;
 	/** The byte that represents disabling of the back-lights. */
-	private static final byte brake_off = 2;
+	static final byte brake_off = 2;
 	/** The byte that represents enabling of front-lights. */
-	private static final byte headlights_on = 3;
+	static final byte headlights_on = 3;
 	/** The byte that represents disabling of front-lights. */
-	private static final byte headlights_off = 4;
+	static final byte headlights_off = 4;
 	/** The byte that represents setting the left winker. */
-	private static final byte blink_left = 5;
+	static final byte blink_left = 5;
 	/** The byte that represents setting the left winker. */
-	private static final byte blink_right = 6;
+	static final byte blink_right = 6;
 	
-	/** true, if SPI-Communication should be enabled, otherwise false. */
-	private static final boolean SPI_Activated = true;		// use false to be able to start the program on a pc
+	/** The transport that carries the SPI-transactions to the STM32. */
+	private ISpiTransport transport;
 	
 	/** The time in milliseconds that should be waited between sensor-data-requests.  */
 	private int sensorUpdateInterval = 50;
 	
+	/** The buffer for SPI-transactions, that is reused for every command and frame, since all of them are sent from the same thread. */
+	private final byte[] spiBuffer = new byte[MAX_FRAME_SIZE];
+	
+	/** The mode that control-data is transmitted in. */
+	private volatile ESpiFrameMode frameMode = DEFAULT_FRAME_MODE;
+	
+	/** The time between the request of an emergency-stop and the moment the stop-command has been written to the STM32. */
+	private final LatencyStatistics emergencyStopLatency = new LatencyStatistics();
+	
+	/** The time between taking a control-frame from the controlFrameMailbox and the moment all its groups have been written to the STM32. */
+	private final LatencyStatistics controlFrameLatency = new LatencyStatistics();
+	
+	/** Runs the periodic tasks on the thread of this Runnable, next to the processing of control-frames. */
+	private final TickScheduler tickScheduler = new TickScheduler();
+	
+	/** The task that refreshes the whole state of the actuators, or null if the state is not refreshed. */
+	private PeriodicTask refreshTask;
+	
+	/** The shadow copies of the values, that the STM32 has received on each actuator-channel in {@link ESpiFrameMode#LEGACY} mode, or {@link #UNKNOWN}. */
+	private final int[] channelShadow = new int[CHANNEL_COMMANDS.length];
+	
+	/** The shadow copy of the groups of control-frames, that the STM32 has received in {@link ESpiFrameMode#BATCHED} mode. */
+	private long frameShadow = ControlFrame.EMPTY;
+	
+	/** True, if the shadow copies have to be forgotten, before the next write (e.g. because the {@link #frameMode} has changed). */
+	private volatile boolean shadowInvalid = true;
+	
+	/** The number of SPI-transactions, that have been written. */
+	private volatile long writes;
+	
+	/** The number of SPI-transactions, that have not been written, since they would not have changed the state of the STM32. */
+	private volatile long suppressedWrites;
+	
 	
 	/**
 	 * Initializes SPI Module 0 on the Raspberry Pi.
@@ -66,8 +177,19 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	 */
 	public STM32SpiInterface(Collection<EDataType> controlTypes, int sensorUpdateInterval) {
 		
+		this(new WiringPiSpiTransport(), controlTypes, sensorUpdateInterval);
+	}
+	
+	/**
+	 * Opens the passed transport.
+	 * @param transport the transport that carries the SPI-transactions to the STM32.
+	 * @param controlTypes the list of {@link EDataType}s that the SPI interface can process.
+	 * @param sensorUpdateInterval the time in milliseconds that should be waited between sensor-data-requests.
+	 */
+	public STM32SpiInterface(ISpiTransport transport, Collection<EDataType> controlTypes, int sensorUpdateInterval) {
+		
 		super(controlTypes);
-		initialize(sensorUpdateInterval);
+		initialize(transport, sensorUpdateInterval);
 	}
 	
 	/**
@@ -78,7 +200,7 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	public STM32SpiInterface(EDataType controlType, int sensorUpdateInterval) {
 		
 		super(controlType);
-		initialize(sensorUpdateInterval);
+		initialize(new WiringPiSpiTransport(), sensorUpdateInterval);
 	}
 
 	/**
@@ -90,7 +212,7 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	public STM32SpiInterface(EDataType controlType1, EDataType controlType2, int sensorUpdateInterval) {
 	
 		super(controlType1, controlType2);
-		initialize(sensorUpdateInterval);
+		initialize(new WiringPiSpiTransport(), sensorUpdateInterval);
 	}
 	
 	/**
@@ -103,33 +225,33 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	public STM32SpiInterface(EDataType controlType1, EDataType controlType2,  EDataType controlType3, int sensorUpdateInterval) {
 		
 		super(controlType1, controlType2, controlType3);
-		initialize(sensorUpdateInterval);
+		initialize(new WiringPiSpiTransport(), sensorUpdateInterval);
 	}
 	
 	/**
-	 * Initializes SPI Module 0 on the Raspberry Pi.
+	 * Opens the transport, e.g. initializes SPI Module 0 on the Raspberry Pi.
+	 * @param transport the transport that carries the SPI-transactions to the STM32.
 	 * @param sensorUpdateInterval the time in milliseconds that should be waited between sensor-data-requests.
 	 */
-	private void initialize(int sensorUpdateInterval){
+	private void initialize(ISpiTransport transport, int sensorUpdateInterval){
+		this.transport = transport;
 		if(sensorUpdateInterval >= 10)
 			this.sensorUpdateInterval = sensorUpdateInterval;
+		this.tickScheduler.schedule("sensor-refresh", this.sensorUpdateInterval, TimeUnit.MILLISECONDS, this::updateSensorData);
+		setRefreshInterval(DEFAULT_REFRESH_INTERVAL);
 		
-		if(SPI_Activated){
-			System.out.println("");
+		System.out.println("");
+		System.out.println("");
+		System.out.println("Initialize SPI Interface.................");
+		System.out.println("-----------------------------------------");
+		System.out.println("");
+		
+		if(!transport.open()){
+			System.out.println("****************SPI interface initialization returned with errors****************");
 			System.out.println("");
-			System.out.println("Initialize SPI Interface.................");
-			System.out.println("-----------------------------------------");
+		}else{
+			System.out.println("SPI initialization completed!");
 			System.out.println("");
-		
-			int fd = Spi.wiringPiSPISetupMode(Spi.CHANNEL_0, 1000000, Spi.MODE_0);
-		
-			if(fd == -1){
-				System.out.println("****************SPI interface initialization returned with errors****************");
-				System.out.println("");
-			}else{
-				System.out.println("SPI initialization completed!");
-				System.out.println("");
-			}
 		}
 		
 		System.out.println("Initialize Serial Interface.................");
@@ -138,6 +260,186 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	}
 	
 	
+	/**
+	 * Sends a single 2-byte command to the STM32, using the {@link #spiBuffer}.
+	 * @param command the byte that precedes the value and tells the STM32 what to do with it.
+	 * @param value the value of the command.
+	 * @return true, if the transaction has been completed, otherwise false.
+	 */
+	private boolean sendCommand(byte command, byte value){
+		this.spiBuffer[0] = command;
+		this.spiBuffer[1] = value;
+		this.writes++;
+		return this.transport.transfer(this.spiBuffer, 2) != -1;
+	}
+	
+	/**
+	 * Sends the command of an actuator-channel, if its value differs from the shadow copy, and updates the shadow copy.
+	 * @param channel the actuator-channel.
+	 * @param value the value of the command.
+	 */
+	private void sendChangedCommand(int channel, byte value){
+		if(this.channelShadow[channel] == value){
+			this.suppressedWrites++;
+			return;
+		}
+		this.channelShadow[channel] = sendCommand(CHANNEL_COMMANDS[channel], value) ? value : UNKNOWN;
+	}
+	
+	/**
+	 * Sends the groups of the control-frame, that differ from the shadow copy, in a single batched frame, and updates the shadow copy.
+	 * A stop is always sent.
+	 * @param frame the control-frame to be sent.
+	 */
+	private void sendChangedGroups(long frame){
+		long changed = ControlFrame.EMPTY;
+		for(long group : GROUPS){
+			if((frame & group) != 0 && (ControlFrame.retain(frame, group) != ControlFrame.retain(this.frameShadow, group)
+					|| group == ControlFrame.DRIVE && ControlFrame.isStopped(frame)))
+				changed |= group;
+		}
+		if(changed == ControlFrame.EMPTY){
+			this.suppressedWrites++;
+			return;
+		}
+		
+		long delta = ControlFrame.retain(frame, changed);
+		if(sendFrame(delta, false))
+			this.frameShadow = ControlFrame.merge(this.frameShadow, delta);
+		else
+			this.frameShadow = ControlFrame.discard(this.frameShadow, changed);
+	}
+	
+	/**
+	 * Forgets the shadow copies, if they have been invalidated, so the next write of every actuator-channel is sent.
+	 */
+	private void resetShadowIfInvalid(){
+		if(!this.shadowInvalid)
+			return;
+		this.shadowInvalid = false;
+		for(int channel = 0; channel < this.channelShadow.length; channel++)
+			this.channelShadow[channel] = UNKNOWN;
+		this.frameShadow = ControlFrame.EMPTY;
+	}
+	
+	/**
+	 * Sends the whole known state of the actuators again, to cover transactions that got lost. Winkers that are off are not sent.
+	 * If both winkers are on, they are sent in the same order as by {@link #processControlData(long)}, so the same winker ends up blinking.
+	 */
+	private void refreshActuators(){
+		resetShadowIfInvalid();
+		if(this.frameMode == ESpiFrameMode.BATCHED){
+			if(!ControlFrame.isEmpty(this.frameShadow) && !sendFrame(this.frameShadow, false))
+				this.frameShadow = ControlFrame.EMPTY;
+			return;
+		}
+		
+		for(int channel = 0; channel < CH_LEFT_WINKER; channel++){
+			int value = this.channelShadow[channel];
+			if(value != UNKNOWN && !sendCommand(CHANNEL_COMMANDS[channel], (byte) value))
+				this.channelShadow[channel] = UNKNOWN;
+		}
+		
+		boolean leftWinkerOn = this.channelShadow[CH_LEFT_WINKER] == blink_left;
+		boolean rightWinkerOn = this.channelShadow[CH_RIGHT_WINKER] == blink_right;
+		if(leftWinkerOn)
+			sendWinker(CH_LEFT_WINKER, CH_RIGHT_WINKER, blink_left);
+		if(rightWinkerOn)
+			sendWinker(CH_RIGHT_WINKER, CH_LEFT_WINKER, blink_right);
+	}
+	
+	/**
+	 * Sends the blink-command of a winker, regardless of its shadow copy, and updates the shadow copies of both winkers.<br>
+	 * Both winkers share the lights-command, and the STM32 turns the other winker off on every blink-command,
+	 * so the state of the other winker is unknown afterwards and its next blink-command has to be sent.
+	 * @param channel the actuator-channel of the winker.
+	 * @param otherChannel the actuator-channel of the other winker.
+	 * @param value the blink-command of the winker.
+	 */
+	private void sendWinker(int channel, int otherChannel, byte value){
+		this.channelShadow[channel] = sendCommand(SendLights_Start, value) ? value : UNKNOWN;
+		this.channelShadow[otherChannel] = UNKNOWN;
+	}
+	
+	/**
+	 * Sends all groups of the control-frame to the STM32 in a single batched frame, using the {@link #spiBuffer}.
+	 * @param frame the control-frame to be sent.
+	 * @param stop true, if the frame should tell the STM32 to stop the car, instead of the drive-control-data of the control-frame.
+	 * @return true, if the transaction has been completed, otherwise false.
+	 */
+	private boolean sendFrame(long frame, boolean stop){
+		int flags = 0;
+		int i = FRAME_HEADER_SIZE;
+		if(stop || ControlFrame.hasDrive(frame)){
+			boolean stopped = stop || ControlFrame.isStopped(frame);
+			flags |= FRAME_DRIVE | (stopped ? FRAME_STOP : 0);
+			this.spiBuffer[i++] = stopped ? 0 : (byte) ControlFrame.acceleration(frame);
+			this.spiBuffer[i++] = stopped ? 0 : (byte) ControlFrame.steeringAngle(frame);
+		}
+		if(!stop && ControlFrame.hasCamera(frame)){
+			flags |= FRAME_CAMERA;
+			this.spiBuffer[i++] = (byte) ControlFrame.yawAngle(frame);
+			this.spiBuffer[i++] = (byte) ControlFrame.pitchAngle(frame);
+		}
+		if(!stop && ControlFrame.hasLights(frame)){
+			flags |= FRAME_LIGHTS;
+			this.spiBuffer[i++] = (byte) ((ControlFrame.headlightsOn(frame) ? FRAME_HEADLIGHTS : 0) | (ControlFrame.brakelightsOn(frame) ? FRAME_BRAKELIGHTS : 0)
+					| (ControlFrame.dynamicLightsOn(frame) ? FRAME_DYNAMIC_LIGHTS : 0) | (ControlFrame.leftWinkerOn(frame) ? FRAME_LEFT_WINKER : 0)
+					| (ControlFrame.rightWinkerOn(frame) ? FRAME_RIGHT_WINKER : 0));
+		}
+		this.spiBuffer[0] = SendFrame_Start;
+		this.spiBuffer[1] = (byte) flags;
+		this.spiBuffer[2] = (byte) (i - FRAME_HEADER_SIZE);
+		
+		byte checksum = 0;
+		for(int j = 1; j < i; j++)
+			checksum ^= this.spiBuffer[j];
+		this.spiBuffer[i++] = checksum;
+		
+		this.writes++;
+		return this.transport.transfer(this.spiBuffer, i) != -1;
+	}
+	
+	/**
+	 * @param frameMode the mode that control-data should be transmitted in. {@link ESpiFrameMode#BATCHED} requires a firmware that supports it.
+	 */
+	public void setFrameMode(ESpiFrameMode frameMode){
+		this.frameMode = frameMode;
+		this.shadowInvalid = true;
+	}
+	
+	/**
+	 * Sets how often the whole known state of the actuators is sent again, to cover transactions that got lost.
+	 * @param refreshInterval the time in milliseconds between two refreshes, or 0 to never refresh the state.
+	 */
+	public synchronized void setRefreshInterval(long refreshInterval){
+		if(this.refreshTask != null)
+			this.tickScheduler.cancel(this.refreshTask);
+		this.refreshTask = refreshInterval > 0 ? this.tickScheduler.schedule("actuator-refresh", refreshInterval, TimeUnit.MILLISECONDS, this::refreshActuators) : null;
+	}
+	
+	/**
+	 * @return the number of SPI-transactions, that have been written.
+	 */
+	public long getWrites(){
+		return this.writes;
+	}
+	
+	/**
+	 * @return the number of SPI-transactions, that have not been written, since they would not have changed the state of the STM32.
+	 */
+	public long getSuppressedWrites(){
+		return this.suppressedWrites;
+	}
+	
+	/**
+	 * @return the mode that control-data is transmitted in.
+	 */
+	public ESpiFrameMode getFrameMode(){
+		return this.frameMode;
+	}
+	
+	
 	/**
 	 * Is used to update the values for steering angle and velocity of the car
 	 * @param acceleration is used to set the velocity of the car, has to be between -100 and 100.
@@ -147,19 +449,9 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	{
 		//System.out.println("Received new Control-data:\nAcceleration: " + acceleration + "\nSteering angle: " + steeringAngle);
 		
-		if(SPI_Activated){
-			byte[] data = new byte[2];
-			data[0] = SendAcc_Start;
-			data[1] = acceleration;
-	
-			System.out.println("Send acc and angle data to uC");
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-			
-			data[0] = SendAngle_Start;
-			data[1] = steeringAngle;
-			
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-		}
+		//System.out.println("Send acc and angle data to uC");
+		sendChangedCommand(CH_ACCELERATION, acceleration);
+		sendChangedCommand(CH_STEERING, steeringAngle);
 	}
 
 	
@@ -172,18 +464,8 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	{
 		//System.out.println("Received new Camera-data:\nYaw: " + yaw + "\nPitch: " + pitch);
 		
-		if(SPI_Activated){
-			byte[] data = new byte[2];
-			data[0] = SendCamYaw;
-			data[1] = yaw;
-
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-			
-			data[0] = SendCamPitch;
-			data[1] = pitch;
-			
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-		}
+		sendChangedCommand(CH_YAW, yaw);
+		sendChangedCommand(CH_PITCH, pitch);
 	}
 	
 	
@@ -192,20 +474,7 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	 * @param lightsOn true, if the back-lights should be turned on, otherwise false.
 	 */
 	private void setBackLights(boolean lightsOn){
-		if(!SPI_Activated)
-			return;
-		
-		if(lightsOn){
-			byte[] data = new byte[2];
-			data[0] = SendLights_Start;
-			data[1] = brake_on;
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-		} else{
-			byte[] data = new byte[2];
-			data[0] = SendLights_Start;
-			data[1] = brake_off;
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-		}
+		sendChangedCommand(CH_BACK_LIGHTS, lightsOn ? brake_on : brake_off);
 	}
 	
 	
@@ -214,26 +483,10 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	 * @param lightsOn true, if the front-lights should be turned on, otherwise false.
 	 */
 	private void setFrontLights(boolean lightsOn){
-		if(!SPI_Activated)
-			return;
-		
-		if(lightsOn){
-			byte[] data = new byte[2];
-			data[0] = SendLights_Start;
-			data[1] = headlights_on;
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-		}else{
-			byte[] data = new byte[2];
-			data[0] = SendLights_Start;
-			data[1] = headlights_off;
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-		}
+		sendChangedCommand(CH_FRONT_LIGHTS, lightsOn ? headlights_on : headlights_off);
 	}
 	
 	private void setDynamicLights(boolean lightsOn){
-		if(!SPI_Activated)
-			return;
-		
 		// not yet implemented on STM32
 	}
 	
@@ -242,13 +495,10 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	 * Starts blinking left sequence.
 	 */	
 	private void blink_left(){
-		if(SPI_Activated){
-			byte[] data = new byte[2];
-			data[0] = SendLights_Start;
-			data[1] = blink_left;
-
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-		}
+		if(this.channelShadow[CH_LEFT_WINKER] == blink_left)
+			this.suppressedWrites++;
+		else
+			sendWinker(CH_LEFT_WINKER, CH_RIGHT_WINKER, blink_left);
 	}
 	
 	
@@ -256,13 +506,10 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	 * Starts blinking right sequence.
 	 */
 	private void blink_right(){
-		if(SPI_Activated){
-			byte[] data = new byte[2];
-			data[0] = SendLights_Start;
-			data[1] = blink_right;
-			
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-		}
+		if(this.channelShadow[CH_RIGHT_WINKER] == blink_right)
+			this.suppressedWrites++;
+		else
+			sendWinker(CH_RIGHT_WINKER, CH_LEFT_WINKER, blink_right);
 	}
 	
 	
@@ -270,18 +517,60 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	 * Sends stop command to the STM32.
 	 */
 	private void stop() {
-		// TODO Auto-generated method stub
-		System.out.println("Stopping car!");
+		sendStop();
 		
-		if(SPI_Activated){
-			byte[] data = new byte[2];
-			data[0] = SendAcc_Start;
-			data[1] = 0;
-			
-			System.out.println("Send stop-command to uC");
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
+		System.out.println("Stopping car!");
+	}
+	
+	/**
+	 * Sends the stop command to the STM32, according to the {@link #frameMode}, regardless of the shadow copies, and updates them.
+	 */
+	private void sendStop() {
+		resetShadowIfInvalid();
+		if(this.frameMode == ESpiFrameMode.BATCHED){
+			if(sendFrame(ControlFrame.EMPTY, true))
+				this.frameShadow = ControlFrame.merge(this.frameShadow, ControlFrame.drive(0, 0, true));
+			else
+				this.frameShadow = ControlFrame.discard(this.frameShadow, ControlFrame.DRIVE);
 		}
+		else
+			this.channelShadow[CH_ACCELERATION] = sendCommand(SendAcc_Start, (byte) 0) ? 0 : UNKNOWN;
+	}
+	
+	/**
+	 * Sends the stop command to the STM32, if an emergency-stop is pending, and records how long it took since the stop was requested.
+	 * @return true, if an emergency-stop was pending, otherwise false.
+	 */
+	private boolean processEmergencyStop() {
+		long requestNanos = getControlFrameMailbox().pollStopRequest();
+		if(requestNanos == ControlFrameMailbox.NO_STOP_REQUEST)
+			return false;
 		
+		sendStop();
+		this.emergencyStopLatency.record(System.nanoTime() - requestNanos);
+		return true;
+	}
+	
+	/**
+	 * @return the time between the request of an emergency-stop and the moment the stop-command has been written to the STM32.
+	 */
+	public LatencyStatistics getEmergencyStopLatency() {
+		return this.emergencyStopLatency;
+	}
+	
+	/**
+	 * @return the time between taking a control-frame from the controlFrameMailbox and the moment all its groups have been written to the STM32.
+	 */
+	public LatencyStatistics getControlFrameLatency() {
+		return this.controlFrameLatency;
+	}
+	
+	/**
+	 * @return the scheduler of the periodic tasks, which holds the statistics of how precisely they keep their rates.
+	 * Additional tasks that are scheduled with it are run on the thread of this Runnable.
+	 */
+	public TickScheduler getTickScheduler() {
+		return this.tickScheduler;
 	}
 	
 	
@@ -289,70 +578,88 @@ public class STM32SpiInterface extends RMCSControlComponent implements Runnable{
 	 * Requests new sensor data from the STM32.
 	 */
 	private void updateSensorData(){
-		if(SPI_Activated){
-			byte[] data = new byte[2];
-			data[0] = SendUpdateSensorData;
-			data[1] = 0;
-			
-			Spi.wiringPiSPIDataRW(Spi.CHANNEL_0, data, 2);
-		}
+		sendCommand(SendUpdateSensorData, (byte) 0);
 	}
 	
-	private void processControlData(){
+	/**
+	 * Sends all groups of a control-frame, that has been taken from the controlFrameMailbox, to the STM32, according to the {@link #frameMode}.<br>
+	 * Pending emergency-stops are sent before the frame (and in {@link ESpiFrameMode#LEGACY} mode between its groups).
+	 * If a stop was pending, the drive-control-data of the frame is discarded, since it may have been published before the stop.
+	 */
+	private void processControlData(long frame){
 		
-		IControlData controlData = null;
-		try {
-			controlData = getControlDataQueue().take();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		if(controlData == null)
+		long takenNanos = System.nanoTime();
+		if(processEmergencyStop())
+			frame = ControlFrame.discard(frame, ControlFrame.DRIVE);
+		if(ControlFrame.isEmpty(frame))
 			return;
 		
-		if(controlData instanceof DriveControlData){
-			DriveControlData newData = (DriveControlData) controlData;
-			if(newData.isStopped())
+		resetShadowIfInvalid();
+		if(this.frameMode == ESpiFrameMode.BATCHED)
+			sendChangedGroups(frame);
+		else
+			sendCommands(frame);
+		this.controlFrameLatency.record(System.nanoTime() - takenNanos);
+	}
+	
+	/**
+	 * Sends all groups of the control-frame to the STM32 as separate 2-byte commands. Pending emergency-stops are sent between the groups.
+	 * @param frame the control-frame to be sent.
+	 */
+	private void sendCommands(long frame){
+		if(ControlFrame.hasDrive(frame)){
+			if(ControlFrame.isStopped(frame))
 				this.stop();
 			else{
 				//System.out.println("Sending DriveData to STM32!");
-				System.out.println("Acceleration: " + newData.getAcceleration());
-				System.out.println("Steering: " + newData.getSteeringAngle());
-				this.updateControls((byte)newData.getAcceleration(), (byte)newData.getSteeringAngle());
+				//System.out.println("Acceleration: " + ControlFrame.acceleration(frame));
+				//System.out.println("Steering: " + ControlFrame.steeringAngle(frame));
+				this.updateControls((byte)ControlFrame.acceleration(frame), (byte)ControlFrame.steeringAngle(frame));
 			}
 		}
-		else if(controlData instanceof CameraControlData){
+		if(ControlFrame.hasCamera(frame)){
+			processEmergencyStop();
 			//System.out.println("Sending CameraData to STM32!");
-			CameraControlData newData = (CameraControlData) controlData;
-			this.updateCameraAngle((byte)newData.getPitchAngle(), (byte)newData.getYawAngle());
+			this.updateCameraAngle((byte)ControlFrame.pitchAngle(frame), (byte)ControlFrame.yawAngle(frame));
 		}
-		else if(controlData instanceof LightControlData){
+		if(ControlFrame.hasLights(frame)){
+			processEmergencyStop();
 			//System.out.println("Sending LightData to STM32!");
-			LightControlData lightData = (LightControlData) controlData;
-			setFrontLights(lightData.headlightsOn());
-			setBackLights(lightData.brakelightsOn());
-			setDynamicLights(lightData.dynamicLightsOn());
-			if(lightData.leftWinkerOn())
+			setFrontLights(ControlFrame.headlightsOn(frame));
+			setBackLights(ControlFrame.brakelightsOn(frame));
+			setDynamicLights(ControlFrame.dynamicLightsOn(frame));
+			if(ControlFrame.leftWinkerOn(frame))
 				blink_left();
-			if(lightData.rightWinkerOn())
+			else
+				this.channelShadow[CH_LEFT_WINKER] = WINKER_OFF;
+			if(ControlFrame.rightWinkerOn(frame))
 				blink_right();
+			else
+				this.channelShadow[CH_RIGHT_WINKER] = WINKER_OFF;
 		}
 	}
 	
 	/**
-	 * Continuously reads from its controlDataQueue and sends out all compatible {@link IControlData} over the SPI interface.
+	 * Continuously runs the periodic tasks of the {@link #tickScheduler} at their deadlines, and in between reads from its controlFrameMailbox
+	 * and sends out all compatible control-frames over the SPI interface.
 	 */
 	public void run(){
 		
-		Long lastSensorUpdate = System.currentTimeMillis();
-		//Long lastControlOutput = System.currentTimeMillis();
-		while(super.getControlDataQueue() != null){
+		while(super.getControlFrameMailbox() != null){
 			
-			if(System.currentTimeMillis() - lastSensorUpdate > this.sensorUpdateInterval){
-				updateSensorData();
-				lastSensorUpdate = System.currentTimeMillis();
-			}
+			this.tickScheduler.runDueTasks(System.nanoTime());
 			
-				processControlData();
+			long frame = ControlFrame.EMPTY;
+			try {
+				long nextDeadline = this.tickScheduler.getNextDeadline();
+				if(nextDeadline == TickScheduler.NO_DEADLINE)
+					frame = getControlFrameMailbox().take();
+				else
+					frame = getControlFrameMailbox().poll(nextDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			processControlData(frame);
 		}
 	}
 	
@@ -1,37 +1,54 @@
 package at.ac.tuwien.ict.andropicar.rmcs.stm32;
 
 import java.io.IOException;
-import java.util.concurrent.LinkedBlockingQueue;
 
-import com.pi4j.io.serial.Baud;
-import com.pi4j.io.serial.DataBits;
-import com.pi4j.io.serial.FlowControl;
-import com.pi4j.io.serial.Parity;
-import com.pi4j.io.serial.Serial;
-import com.pi4j.io.serial.SerialDataEvent;
-import com.pi4j.io.serial.SerialDataEventListener;
-import com.pi4j.io.serial.SerialFactory;
-import com.pi4j.io.serial.StopBits;
-
-import at.ac.tuwien.ict.andropicar.rmcs.data.IData;
+import at.ac.tuwien.ict.andropicar.rmcs.data.DataBus;
 import at.ac.tuwien.ict.andropicar.rmcs.data.SensorData;
-import at.ac.tuwien.ict.andropicar.rmcs.data.DistanceSensorData;
 
 /**
- * This class reads data from the serial interface of the PI, which receives data from the STM32.
+ * This class reads data from the serial interface of the PI, which receives data from the STM32.<br>
+ * The data is delivered by an {@link ISerialTransport}: by default the serial interface of the Raspberry Pi ({@link Pi4jSerialTransport}),
+ * or an {@link STM32Emulator} to run the RMCS without one.<br>
+ * The received bytes are parsed by a {@link SensorFrameParser}, so the sensor-data does not depend on how the bytes are split into chunks by the OS.
+ * Distance- and velocity-data are posted as {@link SensorData}, each at most once per update-interval.
  * @author Boeck, Valiko
  */
 public class STM32UartInterface extends RMCSSensorComponent{
 	
 	
-	/** The object that is used to listen on the PIs serial interface. */
-    private final Serial serial = SerialFactory.createInstance();
+	/** The mode that the sensor-data is framed in by default. */
+	public static final ESerialFrameMode DEFAULT_FRAME_MODE = ESerialFrameMode.LEGACY;
+	
+	/** The transport that delivers the data of the STM32. */
+    private ISerialTransport transport;
     
     /** The minimum time (in ms) that has to pass between processed data, for incoming data to be processed. */
 	private int updateInterval = 50;
 	
-	/** The last time that incoming data was processed. */
-    private long lastUpdate = 0;
+	/** The last time that incoming distance-data was processed. */
+    private long lastDistanceUpdate = 0;
+	
+	/** The last time that incoming velocity-data was processed. */
+    private long lastVelocityUpdate = 0;
+	
+	/** Parses the received bytes into sensor-data. */
+	private final SensorFrameParser frameParser = new SensorFrameParser(new ISensorFrameListener() {
+		@Override
+		public void distanceReceived(long timestampNanos, int frontDistance, int leftDistance, int rightDistance) {
+			if(System.currentTimeMillis() - lastDistanceUpdate < updateInterval)
+				return;
+			postDistanceSensorData(timestampNanos, frontDistance, leftDistance, rightDistance);
+			lastDistanceUpdate = System.currentTimeMillis();
+		}
+		
+		@Override
+		public void velocityReceived(long timestampNanos, int velocity) {
+			if(System.currentTimeMillis() - lastVelocityUpdate < updateInterval)
+				return;
+			postVelocitySensorData(timestampNanos, velocity);
+			lastVelocityUpdate = System.currentTimeMillis();
+		}
+	});
 	
 
 	/**
@@ -51,55 +68,46 @@ public class STM32UartInterface extends RMCSSensorComponent{
 	 * DON'T FORGET TO ENABLE UART<br>
 	 * (http://www.irrational.net/2012/04/19/using-the-raspberry-pis-serial-port/)<br>
 	 * (https://openenergymonitor.org/forum-archive/node/12311.html)
-	 * @param sensorDataQueue the sensorDataQueue, where the {@link SensorData} is posted.
+	 * @param dataBus the bus whose sensor-lane the {@link SensorData} is posted on.
+	 * @param updateInterval the minimum time (in ms) that has to pass between processed data, for incoming data to be processed.
+	 */
+	public STM32UartInterface(DataBus dataBus, int updateInterval) {
+		
+		this(new Pi4jSerialTransport(), dataBus, updateInterval);
+	}
+	
+	/**
+	 * Opens the passed transport.
+	 * @param transport the transport that delivers the data of the STM32.
+	 * @param dataBus the bus whose sensor-lane the {@link SensorData} is posted on.
 	 * @param updateInterval the minimum time (in ms) that has to pass between processed data, for incoming data to be processed.
 	 */
-	public STM32UartInterface(LinkedBlockingQueue<IData> sensorDataQueue, int updateInterval) {
+	public STM32UartInterface(ISerialTransport transport, DataBus dataBus, int updateInterval) {
 		
-		super(sensorDataQueue);
+		super(dataBus);
+		this.transport = transport;
 		initialize(updateInterval);
 	}
 	
 	
 	/**
-	 * Sets up the PIs serial interface to listen for incoming data, which is interpreted as {@link SensorData} and put on a Queue for further processing.
+	 * Sets up the transport to listen for incoming data, which is interpreted as {@link SensorData} and put on a Queue for further processing.
 	 * @param interval the minimum time (in ms) that has to pass between processed data, for incoming data to be processed. Lowest allowed value is 10ms. If it is lower, a default value of 50ms will be used.
 	 */
 	private void initialize(int interval){
 		
-		if(updateInterval >= 10)
+		if(interval >= 10)
 			this.updateInterval = interval;
 		
-		// register the serial data listener
-        serial.addListener(new SerialDataEventListener() {
-            @Override
-            public void dataReceived(SerialDataEvent event) {
-
-                // NOTE! - It is extremely important to read the data received from the
-                // serial port.  If it does not get read from the receive buffer, the
-                // buffer will continue to grow and consume memory.
-                try {
-                	byte[] SensorData = event.getBytes();
-                	if(SensorData.length < 4 || System.currentTimeMillis() - lastUpdate < updateInterval)
-                		return;
-                	
-                	int distanceFront = (Byte.toUnsignedInt(SensorData[0])<<8) + Byte.toUnsignedInt(SensorData[1]);
-                	int distanceLeft = Byte.toUnsignedInt(SensorData[2]);
-                	int distanceRight = Byte.toUnsignedInt(SensorData[3]);
-                	postSensorData(new DistanceSensorData(distanceFront, distanceLeft, distanceRight));
-                	lastUpdate = System.currentTimeMillis();
-                    
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        });
-        
         try {
                         
-        	// open the default serial port provided on the GPIO header
-            serial.open(Serial.DEFAULT_COM_PORT, Baud._115200, DataBits._8, 
-                        Parity.NONE, StopBits._1, FlowControl.HARDWARE);
+        	// register the serial data listener and open the transport
+            transport.open(new ISerialDataListener() {
+                @Override
+                public void dataReceived(byte[] data, int length) {
+                	frameParser.parse(data, length, System.nanoTime());
+                }
+            });
             
             System.out.println("Serial interface initialization completed!");
             System.out.println("");
@@ -111,6 +119,20 @@ public class STM32UartInterface extends RMCSSensorComponent{
         }
 	}
 	
+	/**
+	 * @param frameMode the mode that the STM32 frames the sensor-data in. {@link ESerialFrameMode#FRAMED} requires a firmware that supports it.
+	 */
+	public void setFrameMode(ESerialFrameMode frameMode){
+		this.frameParser.setFrameMode(frameMode);
+	}
+	
+	/**
+	 * @return the parser of the received bytes, e.g. to read its statistics.
+	 */
+	public SensorFrameParser getFrameParser(){
+		return this.frameParser;
+	}
+	
 }
 
 
@@ -0,0 +1,282 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+
+/**
+ * Parses the stream of bytes that the STM32 sends via UART into sensor-data, regardless of how the stream is split into chunks by the OS.<br>
+ * The received bytes are collected in a ring-buffer, from which every complete frame is parsed and passed to an {@link ISensorFrameListener},
+ * so a frame may be split across several chunks and a chunk may hold several frames. Parsing does not create any objects.<br>
+ * In {@link ESerialFrameMode#FRAMED} mode, a frame consists of: <br>
+ * - byte 0 and 1: {@link #SYNC_1} and {@link #SYNC_2} <br>
+ * - byte 2: the type of the frame ({@link #TYPE_DISTANCE} or {@link #TYPE_VELOCITY}) <br>
+ * - byte 3: the length of the payload, which has to match the type <br>
+ * - payload: the front-distance (2 bytes, big-endian, unsigned), the left and the right distance (1 byte each, unsigned) of a distance-frame,
+ * or the velocity in rpm (2 bytes, big-endian, signed) of a velocity-frame <br>
+ * - the checksum: the XOR of all bytes from the type to the end of the payload <br>
+ * Bytes that do not start a valid frame, or whose frame has a wrong checksum, are skipped one at a time until the next valid frame is found.<br>
+ * In {@link ESerialFrameMode#LEGACY} mode, the stream consists of 4-byte distance-records (the payload of a distance-frame) without any framing.
+ * Since a record cannot be recognized, the ring-buffer is not used: every chunk is expected to start on a record, and bytes at its end
+ * that do not make up a whole record (e.g. the 2-byte velocity that the firmware sends in between) are skipped. So a lost byte only affects its own chunk.
+ *
+ * @author Boeck
+ */
+public class SensorFrameParser {
+
+	/** The first sync-byte of a frame. */
+	static final byte SYNC_1 = (byte) 0xAA;
+	/** The second sync-byte of a frame. */
+	static final byte SYNC_2 = 0x55;
+
+	/** The type of a distance-frame. */
+	static final byte TYPE_DISTANCE = 1;
+	/** The type of a velocity-frame. */
+	static final byte TYPE_VELOCITY = 2;
+
+	/** The length of the payload of a distance-frame. */
+	static final int DISTANCE_LENGTH = 4;
+	/** The length of the payload of a velocity-frame. */
+	static final int VELOCITY_LENGTH = 2;
+
+	/** The size of the header of a frame (sync-bytes, type and length). */
+	static final int HEADER_SIZE = 4;
+
+	/** The maximum size of a frame. */
+	static final int MAX_FRAME_SIZE = HEADER_SIZE + DISTANCE_LENGTH + 1;
+
+	/** The size of the ring-buffer, a power of 2. */
+	private static final int RING_SIZE = 256;
+
+	/** The listener that the parsed sensor-data is passed to. */
+	private final ISensorFrameListener listener;
+
+	/** The mode that the sensor-data is framed in. */
+	private volatile ESerialFrameMode frameMode = STM32UartInterface.DEFAULT_FRAME_MODE;
+
+	/** The received bytes, that have not been parsed yet. */
+	private final byte[] ring = new byte[RING_SIZE];
+
+	/** The index of the first byte in the {@link #ring}, that has not been parsed yet. */
+	private int head;
+
+	/** The number of bytes in the {@link #ring}, that have not been parsed yet. */
+	private int count;
+
+	/** True, if bytes are being skipped to find the next valid frame. */
+	private boolean resynchronizing;
+
+	/** The number of distance-frames that have been parsed. */
+	private volatile long distanceFrames;
+
+	/** The number of velocity-frames that have been parsed. */
+	private volatile long velocityFrames;
+
+	/** The number of times that the stream had to be resynchronized, because the bytes did not start a valid frame (not counting wrong checksums). */
+	private volatile long framingErrors;
+
+	/** The number of frames that have been dropped, because of a wrong checksum. */
+	private volatile long checksumErrors;
+
+	/** The number of bytes that have been skipped to resynchronize the stream, or since they did not make up a whole record. */
+	private volatile long skippedBytes;
+
+
+	/**
+	 * @param listener the listener that the parsed sensor-data is passed to.
+	 */
+	public SensorFrameParser(ISensorFrameListener listener) {
+		this.listener = listener;
+	}
+
+
+	/**
+	 * @param frameMode the mode that the sensor-data is framed in. The bytes that have not been parsed yet are discarded.
+	 */
+	public synchronized void setFrameMode(ESerialFrameMode frameMode) {
+		this.frameMode = frameMode;
+		this.count = 0;
+	}
+
+	/**
+	 * @return the mode that the sensor-data is framed in.
+	 */
+	public ESerialFrameMode getFrameMode() {
+		return this.frameMode;
+	}
+
+	/**
+	 * Adds a chunk of received bytes to the stream and passes every frame that is complete to the listener.
+	 * @param data the received bytes.
+	 * @param length the number of received bytes in the array.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) that the bytes were received.
+	 */
+	public synchronized void parse(byte[] data, int length, long timestampNanos) {
+		if(this.frameMode == ESerialFrameMode.LEGACY) {
+			parseRecords(data, length, timestampNanos);
+			return;
+		}
+		
+		int offset = 0;
+		while(offset < length) {
+			// copy as much as fits into the ring, parse it and make room for the rest
+			int tail = (this.head + this.count) & (RING_SIZE - 1);
+			int copy = Math.min(length - offset, Math.min(RING_SIZE - this.count, RING_SIZE - tail));
+			System.arraycopy(data, offset, this.ring, tail, copy);
+			this.count += copy;
+			offset += copy;
+			parseFrames(timestampNanos);
+		}
+	}
+
+	/**
+	 * Passes every distance-record, that the chunk starts with, to the listener, and skips the bytes at the end of the chunk, that do not make up a whole record.
+	 * @param data the received bytes.
+	 * @param length the number of received bytes in the array.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) that the bytes were received.
+	 */
+	private void parseRecords(byte[] data, int length, long timestampNanos) {
+		int i = 0;
+		for(; i + DISTANCE_LENGTH <= length; i += DISTANCE_LENGTH) {
+			this.distanceFrames++;
+			this.listener.distanceReceived(timestampNanos, ((data[i] & 0xFF) << 8) | (data[i + 1] & 0xFF), data[i + 2] & 0xFF, data[i + 3] & 0xFF);
+		}
+		this.skippedBytes += length - i;
+	}
+
+	/**
+	 * Parses all frames that are complete in the {@link #ring}.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) that the bytes were received.
+	 */
+	private void parseFrames(long timestampNanos) {
+		while(this.count >= HEADER_SIZE) {
+			int length = payloadLength(get(2));
+			if(get(0) != SYNC_1 || get(1) != SYNC_2 || length < 0 || (get(3) & 0xFF) != length) {
+				resynchronize();
+				continue;
+			}
+			if(this.count < HEADER_SIZE + length + 1)
+				return;
+
+			byte checksum = 0;
+			for(int i = 2; i < HEADER_SIZE + length; i++)
+				checksum ^= get(i);
+			if(checksum != get(HEADER_SIZE + length)) {
+				this.checksumErrors++;
+				this.resynchronizing = true;
+				resynchronize();
+				continue;
+			}
+
+			if(get(2) == TYPE_DISTANCE)
+				parseDistance(HEADER_SIZE, timestampNanos);
+			else
+				parseVelocity(HEADER_SIZE, timestampNanos);
+			skip(HEADER_SIZE + length + 1);
+			this.resynchronizing = false;
+		}
+	}
+
+	/**
+	 * Passes the distance-data of the frame at the passed index to the listener.
+	 * @param i the index of the distance-data, relative to the first byte that has not been parsed yet.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) that the data was received.
+	 */
+	private void parseDistance(int i, long timestampNanos) {
+		this.distanceFrames++;
+		this.listener.distanceReceived(timestampNanos, ((get(i) & 0xFF) << 8) | (get(i + 1) & 0xFF), get(i + 2) & 0xFF, get(i + 3) & 0xFF);
+	}
+
+	/**
+	 * Passes the velocity-data at the passed index to the listener.
+	 * @param i the index of the velocity-data, relative to the first byte that has not been parsed yet.
+	 * @param timestampNanos the monotonic time (in ns, see {@link System#nanoTime()}) that the data was received.
+	 */
+	private void parseVelocity(int i, long timestampNanos) {
+		this.velocityFrames++;
+		this.listener.velocityReceived(timestampNanos, (short) ((get(i) << 8) | (get(i + 1) & 0xFF)));
+	}
+
+	/**
+	 * Skips the first byte that has not been parsed yet, since it does not start a valid frame.
+	 */
+	private void resynchronize() {
+		if(!this.resynchronizing) {
+			this.resynchronizing = true;
+			this.framingErrors++;
+		}
+		this.skippedBytes++;
+		skip(1);
+	}
+
+	/**
+	 * @param type the type of a frame.
+	 * @return the length of the payload of the passed type, or -1 if the type is not known.
+	 */
+	private static int payloadLength(byte type) {
+		switch(type) {
+			case TYPE_DISTANCE:
+				return DISTANCE_LENGTH;
+			case TYPE_VELOCITY:
+				return VELOCITY_LENGTH;
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * @param i the index relative to the first byte that has not been parsed yet.
+	 * @return the byte at the passed index.
+	 */
+	private byte get(int i) {
+		return this.ring[(this.head + i) & (RING_SIZE - 1)];
+	}
+
+	/**
+	 * Marks the passed number of bytes as parsed.
+	 * @param length the number of bytes.
+	 */
+	private void skip(int length) {
+		this.head = (this.head + length) & (RING_SIZE - 1);
+		this.count -= length;
+	}
+
+	/**
+	 * @return the number of distance-frames that have been parsed.
+	 */
+	public long getDistanceFrames() {
+		return this.distanceFrames;
+	}
+
+	/**
+	 * @return the number of velocity-frames that have been parsed.
+	 */
+	public long getVelocityFrames() {
+		return this.velocityFrames;
+	}
+
+	/**
+	 * @return the number of times that the stream had to be resynchronized, because the bytes did not start a valid frame (not counting wrong checksums).
+	 */
+	public long getFramingErrors() {
+		return this.framingErrors;
+	}
+
+	/**
+	 * @return the number of frames that have been dropped, because of a wrong checksum.
+	 */
+	public long getChecksumErrors() {
+		return this.checksumErrors;
+	}
+
+	/**
+	 * @return the number of bytes that have been skipped to resynchronize the stream, or since they did not make up a whole record.
+	 */
+	public long getSkippedBytes() {
+		return this.skippedBytes;
+	}
+
+	@Override
+	public String toString() {
+		return this.frameMode + ": distanceFrames=" + this.distanceFrames + " velocityFrames=" + this.velocityFrames + " framingErrors=" + this.framingErrors
+				+ " checksumErrors=" + this.checksumErrors + " skippedBytes=" + this.skippedBytes;
+	}
+
+}
@@ -0,0 +1,94 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Runs {@link PeriodicTask}s at fixed rates on the thread of its owner, next to the event-driven work of that thread.<br>
+ * The owner runs the due tasks via {@link #runDueTasks(long)} and then waits for its events only until {@link #getNextDeadline()},
+ * e.g. via {@link at.ac.tuwien.ict.andropicar.rmcs.data.ControlFrameMailbox#poll(long, TimeUnit)}. How precisely the rates are kept,
+ * also while the owner is busy with its events, is recorded by each task.
+ *
+ * @author Boeck
+ */
+public class TickScheduler {
+
+	/** The value of {@link #getNextDeadline()}, if no task has been scheduled. */
+	public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	/** The scheduled tasks. */
+	private final List<PeriodicTask> tasks = new CopyOnWriteArrayList<>();
+
+
+	/**
+	 * Schedules a task, whose first deadline is one period from now.
+	 * @param name the name of the task, e.g. to tell the statistics of the tasks apart.
+	 * @param period the time between two deadlines.
+	 * @param unit the unit of the period.
+	 * @param action the action that is run every tick, on the thread of the owner of the scheduler.
+	 * @return the scheduled task, which holds the statistics of how precisely it keeps its rate.
+	 */
+	public PeriodicTask schedule(String name, long period, TimeUnit unit, Runnable action) {
+		long periodNanos = unit.toNanos(period);
+		PeriodicTask task = new PeriodicTask(name, periodNanos, action, System.nanoTime() + periodNanos);
+		this.tasks.add(task);
+		return task;
+	}
+
+	/**
+	 * Removes a task, so it is not run anymore.
+	 * @param task the task to be removed.
+	 */
+	public void cancel(PeriodicTask task) {
+		this.tasks.remove(task);
+	}
+
+	/**
+	 * Runs all tasks, whose deadline has been reached, in the order they were scheduled.
+	 * @param nowNanos the current monotonic time (in ns, see {@link System#nanoTime()}).
+	 * @return the number of tasks that have been run.
+	 */
+	public int runDueTasks(long nowNanos) {
+		int run = 0;
+		for(PeriodicTask task : this.tasks) {
+			if(task.runIfDue(nowNanos))
+				run++;
+		}
+		return run;
+	}
+
+	/**
+	 * @return the monotonic time (in ns, see {@link System#nanoTime()}) of the earliest deadline of all tasks, or {@link #NO_DEADLINE} if there are no tasks.
+	 */
+	public long getNextDeadline() {
+		long next = NO_DEADLINE;
+		for(PeriodicTask task : this.tasks) {
+			long deadline = task.getNextDeadlineNanos();
+			if(next == NO_DEADLINE || deadline - next < 0)
+				next = deadline;
+		}
+		return next;
+	}
+
+	/**
+	 * @return an unmodifiable view of the scheduled tasks.
+	 */
+	public List<PeriodicTask> getTasks() {
+		return Collections.unmodifiableList(this.tasks);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for(PeriodicTask task : this.tasks) {
+			if(builder.length() > 0)
+				builder.append('\n');
+			builder.append(task);
+		}
+		return builder.toString();
+	}
+
+}
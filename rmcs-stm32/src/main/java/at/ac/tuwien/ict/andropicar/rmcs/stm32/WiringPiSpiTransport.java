@@ -0,0 +1,61 @@
+package at.ac.tuwien.ict.andropicar.rmcs.stm32;
+
+import com.pi4j.wiringpi.Spi;
+
+
+/**
+ * Carries the SPI-transactions of the {@link STM32SpiInterface} to the SPI-module of the Raspberry Pi, via wiringPi.<br>
+ * DON'T FORGET TO ENABLE SPI INTERFACE IN RASPI-CONFIG!
+ *
+ * @author Boeck
+ */
+public class WiringPiSpiTransport implements ISpiTransport {
+
+	/** The default clock-speed of the SPI-bus in Hz. */
+	public static final int DEFAULT_SPEED = 1000000;
+
+	/** The SPI-channel of the Raspberry Pi that is used. */
+	private final int channel;
+
+	/** The clock-speed of the SPI-bus in Hz. */
+	private final int speed;
+
+	/** The SPI-mode (clock-polarity and -phase). */
+	private final int mode;
+
+
+	/**
+	 * Uses SPI Module 0 of the Raspberry Pi with the {@link #DEFAULT_SPEED} in mode 0.
+	 */
+	public WiringPiSpiTransport() {
+		this(Spi.CHANNEL_0, DEFAULT_SPEED, Spi.MODE_0);
+	}
+
+	/**
+	 * @param channel the SPI-channel of the Raspberry Pi that is used.
+	 * @param speed the clock-speed of the SPI-bus in Hz.
+	 * @param mode the SPI-mode (clock-polarity and -phase).
+	 */
+	public WiringPiSpiTransport(int channel, int speed, int mode) {
+		this.channel = channel;
+		this.speed = speed;
+		this.mode = mode;
+	}
+
+
+	@Override
+	public boolean open() {
+		return Spi.wiringPiSPISetupMode(this.channel, this.speed, this.mode) != -1;
+	}
+
+	@Override
+	public int transfer(byte[] buffer, int length) {
+		return Spi.wiringPiSPIDataRW(this.channel, buffer, length);
+	}
+
+	@Override
+	public void close() {
+		// wiringPi keeps the SPI-device open until the process exits
+	}
+
+}